@@ -8,6 +8,9 @@ import org.springframework.validation.annotation.Validated;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Lyra 应用配置属性
  * 支持多层配置体系：默认配置 -> 环境变量 -> 外部配置文件 -> 动态配置
@@ -36,6 +39,10 @@ public class LyraProperties {
     @Valid
     @NestedConfigurationProperty
     private CacheConfig cache = new CacheConfig();
+
+    @Valid
+    @NestedConfigurationProperty
+    private WebDavConfig webdav = new WebDavConfig();
     
     // Getters and Setters
     public JwtConfig getJwt() {
@@ -70,6 +77,14 @@ public class LyraProperties {
         this.cache = cache;
     }
 
+    public WebDavConfig getWebdav() {
+        return webdav;
+    }
+
+    public void setWebdav(WebDavConfig webdav) {
+        this.webdav = webdav;
+    }
+
     /**
      * JWT 配置
      */
@@ -167,12 +182,218 @@ public class LyraProperties {
         private Boolean enableDeduplication = true;
         
         /**
-         * 存储后端类型：local, nfs, s3
+         * 存储后端类型：local, nfs, s3, striped, cdc
          */
         @NotBlank(message = "存储后端类型不能为空")
-        @Pattern(regexp = "^(local|nfs|s3)$", message = "存储后端类型必须是：local、nfs、s3")
+        @Pattern(regexp = "^(local|nfs|s3|striped|cdc)$", message = "存储后端类型必须是：local、nfs、s3、striped、cdc")
         private String backend = "local";
 
+        /**
+         * 内容块垃圾回收每批处理数量
+         */
+        @Min(value = 1, message = "垃圾回收批大小必须大于0")
+        private Integer gcBatchSize = 500;
+
+        /**
+         * 内容块引用归零后保留的宽限期（分钟），避免回收与并发上传竞争
+         */
+        @Min(value = 0, message = "垃圾回收宽限期不能为负数")
+        private Integer gcGracePeriodMinutes = 60;
+
+        /**
+         * 内容块垃圾回收执行间隔（毫秒）
+         */
+        @Min(value = 60000, message = "垃圾回收间隔不能小于1分钟")
+        private Long gcIntervalMs = 3600000L;
+
+        /**
+         * 分块上传会话无活动后的保留时间（小时），超时后清理会话与临时文件
+         */
+        @Min(value = 1, message = "上传会话保留时间至少为1小时")
+        private Integer uploadSessionTtlHours = 24;
+
+        /**
+         * 存储统计计数器与实际存储对账的间隔（毫秒）
+         */
+        @Min(value = 60000, message = "存储统计对账间隔不能小于1分钟")
+        private Long statsReconcileIntervalMs = 21600000L;
+
+        /**
+         * 条带化存储的磁盘挂载目录，多个目录以逗号分隔（backend=striped时生效）
+         */
+        private String stripePaths = "";
+
+        /**
+         * 条带化存储中每个内容块保存的副本数
+         */
+        @Min(value = 1, message = "副本数至少为1")
+        private Integer stripeReplicas = 1;
+
+        /**
+         * 条带化存储中每块磁盘的I/O线程数
+         */
+        @Min(value = 1, message = "每块磁盘的I/O线程数至少为1")
+        private Integer stripeIoThreads = 4;
+
+        /**
+         * 是否在写入时按采样压缩率为内容块选择压缩编码
+         */
+        private Boolean compressionEnabled = true;
+
+        /**
+         * 参与压缩判断的最小文件大小，更小的文件原样存储
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "最小压缩大小格式无效，例如：4KB")
+        private String compressionMinSize = "4KB";
+
+        /**
+         * 版本关键帧间隔：版本号为其整数倍的版本始终完整存储，其余历史版本存为相对后一版本的差量
+         */
+        @Min(value = 1, message = "版本关键帧间隔至少为1")
+        private Integer versionKeyframeInterval = 10;
+
+        /**
+         * 参与差量编码的版本大小上限，更大的版本始终完整存储
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "差量编码大小上限格式无效，例如：32MB")
+        private String versionDeltaMaxSize = "32MB";
+
+        /**
+         * 还原后版本内容缓存的容量
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "版本内容缓存容量格式无效，例如：64MB")
+        private String versionCacheSize = "64MB";
+
+        /**
+         * 内容定义分块的平均块大小（backend=cdc时生效），最小块为其1/4，最大块为其4倍，上限1MB
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "平均分块大小格式无效，例如：64KB")
+        private String cdcAverageChunkSize = "64KB";
+
+        /**
+         * 块包中无引用块字节占比达到该百分比时压缩重写该块包（backend=cdc时生效）
+         */
+        @Min(value = 1, message = "块包压缩阈值至少为1%")
+        @Max(value = 100, message = "块包压缩阈值不能超过100%")
+        private Integer cdcCompactionMinDeadPercent = 30;
+
+        /**
+         * 是否启用后台完整性校验
+         */
+        private Boolean scrubEnabled = true;
+
+        /**
+         * 后台完整性校验的工作线程数
+         */
+        @Min(value = 1, message = "完整性校验线程数至少为1")
+        private Integer scrubThreads = 2;
+
+        /**
+         * 后台完整性校验每秒读取的字节上限，0表示不限速
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "完整性校验带宽格式无效，例如：20MB")
+        private String scrubBandwidth = "20MB";
+
+        /**
+         * 后台完整性校验每批处理的内容块数量，每批完成后提交一次进度
+         */
+        @Min(value = 1, message = "完整性校验批大小必须大于0")
+        private Integer scrubBatchSize = 200;
+
+        /**
+         * 内容块两次完整性校验的最短间隔（小时）
+         */
+        @Min(value = 1, message = "完整性复检间隔至少为1小时")
+        private Integer scrubRecheckHours = 168;
+
+        /**
+         * 后台完整性校验调度间隔（毫秒）
+         */
+        @Min(value = 60000, message = "完整性校验调度间隔不能小于1分钟")
+        private Long scrubIntervalMs = 600000L;
+
+        /**
+         * 批量上传时同时写入存储的最大文件数
+         */
+        @Min(value = 1, message = "批量上传并发数至少为1")
+        private Integer uploadParallelism = 8;
+
+        /**
+         * 全局传输带宽上限（每秒字节数），0表示不限速
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "全局传输带宽格式无效，例如：200MB")
+        private String ioGlobalBandwidth = "0";
+
+        /**
+         * 单个用户的传输带宽上限（每秒字节数），0表示不限速
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "用户传输带宽格式无效，例如：20MB")
+        private String ioUserBandwidth = "0";
+
+        /**
+         * 单个空间的传输带宽上限（每秒字节数），0表示不限速
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "空间传输带宽格式无效，例如：50MB")
+        private String ioSpaceBandwidth = "0";
+
+        /**
+         * 全局同时进行的传输数上限，0表示不限制
+         */
+        @Min(value = 0, message = "全局并发传输数不能为负数")
+        private Integer ioGlobalConcurrency = 0;
+
+        /**
+         * 单个用户同时进行的传输数上限，0表示不限制
+         */
+        @Min(value = 0, message = "用户并发传输数不能为负数")
+        private Integer ioUserConcurrency = 0;
+
+        /**
+         * 单个空间同时进行的传输数上限，0表示不限制
+         */
+        @Min(value = 0, message = "空间并发传输数不能为负数")
+        private Integer ioSpaceConcurrency = 0;
+
+        /**
+         * 并发传输数已满时排队等待的最长时间（毫秒），超时后拒绝请求
+         */
+        @Min(value = 0, message = "传输排队超时不能为负数")
+        private Long ioQueueTimeoutMs = 5000L;
+
+        /**
+         * 是否启用冷热分层存储
+         */
+        private Boolean tierEnabled = false;
+
+        /**
+         * 热层（高速磁盘）目录
+         */
+        private String tierFastPath = "./data/fast";
+
+        /**
+         * 热层容量上限
+         */
+        @Pattern(regexp = "^\\d+[KMGT]?B?$", message = "热层容量格式无效，例如：50GB")
+        private String tierFastCapacity = "10GB";
+
+        /**
+         * 提升到热层所需的最低访问热度（指数衰减后的访问次数）
+         */
+        @Min(value = 1, message = "提升阈值至少为1")
+        private Integer tierPromoteThreshold = 3;
+
+        /**
+         * 分层迁移执行间隔（毫秒）
+         */
+        @Min(value = 10000, message = "分层迁移间隔不能小于10秒")
+        private Long tierMigrationIntervalMs = 300000L;
+
+        /**
+         * 访问热度减半的间隔（毫秒）
+         */
+        @Min(value = 60000, message = "热度衰减间隔不能小于1分钟")
+        private Long tierDecayIntervalMs = 21600000L;
+
         // Getters and Setters
         public String getBasePath() {
             return basePath;
@@ -221,6 +442,308 @@ public class LyraProperties {
         public void setBackend(String backend) {
             this.backend = backend;
         }
+
+        public Integer getGcBatchSize() {
+            return gcBatchSize;
+        }
+
+        public void setGcBatchSize(Integer gcBatchSize) {
+            this.gcBatchSize = gcBatchSize;
+        }
+
+        public Integer getGcGracePeriodMinutes() {
+            return gcGracePeriodMinutes;
+        }
+
+        public void setGcGracePeriodMinutes(Integer gcGracePeriodMinutes) {
+            this.gcGracePeriodMinutes = gcGracePeriodMinutes;
+        }
+
+        public Long getGcIntervalMs() {
+            return gcIntervalMs;
+        }
+
+        public void setGcIntervalMs(Long gcIntervalMs) {
+            this.gcIntervalMs = gcIntervalMs;
+        }
+
+        public Integer getUploadSessionTtlHours() {
+            return uploadSessionTtlHours;
+        }
+
+        public void setUploadSessionTtlHours(Integer uploadSessionTtlHours) {
+            this.uploadSessionTtlHours = uploadSessionTtlHours;
+        }
+
+        public Long getStatsReconcileIntervalMs() {
+            return statsReconcileIntervalMs;
+        }
+
+        public void setStatsReconcileIntervalMs(Long statsReconcileIntervalMs) {
+            this.statsReconcileIntervalMs = statsReconcileIntervalMs;
+        }
+
+        public String getStripePaths() {
+            return stripePaths;
+        }
+
+        public void setStripePaths(String stripePaths) {
+            this.stripePaths = stripePaths;
+        }
+
+        public Integer getStripeReplicas() {
+            return stripeReplicas;
+        }
+
+        public void setStripeReplicas(Integer stripeReplicas) {
+            this.stripeReplicas = stripeReplicas;
+        }
+
+        public Integer getStripeIoThreads() {
+            return stripeIoThreads;
+        }
+
+        public void setStripeIoThreads(Integer stripeIoThreads) {
+            this.stripeIoThreads = stripeIoThreads;
+        }
+
+        public Boolean getCompressionEnabled() {
+            return compressionEnabled;
+        }
+
+        public void setCompressionEnabled(Boolean compressionEnabled) {
+            this.compressionEnabled = compressionEnabled;
+        }
+
+        public String getCompressionMinSize() {
+            return compressionMinSize;
+        }
+
+        public void setCompressionMinSize(String compressionMinSize) {
+            this.compressionMinSize = compressionMinSize;
+        }
+
+        public Integer getVersionKeyframeInterval() {
+            return versionKeyframeInterval;
+        }
+
+        public void setVersionKeyframeInterval(Integer versionKeyframeInterval) {
+            this.versionKeyframeInterval = versionKeyframeInterval;
+        }
+
+        public String getVersionDeltaMaxSize() {
+            return versionDeltaMaxSize;
+        }
+
+        public void setVersionDeltaMaxSize(String versionDeltaMaxSize) {
+            this.versionDeltaMaxSize = versionDeltaMaxSize;
+        }
+
+        public String getVersionCacheSize() {
+            return versionCacheSize;
+        }
+
+        public void setVersionCacheSize(String versionCacheSize) {
+            this.versionCacheSize = versionCacheSize;
+        }
+
+        public String getCdcAverageChunkSize() {
+            return cdcAverageChunkSize;
+        }
+
+        public void setCdcAverageChunkSize(String cdcAverageChunkSize) {
+            this.cdcAverageChunkSize = cdcAverageChunkSize;
+        }
+
+        public Integer getCdcCompactionMinDeadPercent() {
+            return cdcCompactionMinDeadPercent;
+        }
+
+        public void setCdcCompactionMinDeadPercent(Integer cdcCompactionMinDeadPercent) {
+            this.cdcCompactionMinDeadPercent = cdcCompactionMinDeadPercent;
+        }
+
+        public Boolean getScrubEnabled() {
+            return scrubEnabled;
+        }
+
+        public void setScrubEnabled(Boolean scrubEnabled) {
+            this.scrubEnabled = scrubEnabled;
+        }
+
+        public Integer getScrubThreads() {
+            return scrubThreads;
+        }
+
+        public void setScrubThreads(Integer scrubThreads) {
+            this.scrubThreads = scrubThreads;
+        }
+
+        public String getScrubBandwidth() {
+            return scrubBandwidth;
+        }
+
+        public void setScrubBandwidth(String scrubBandwidth) {
+            this.scrubBandwidth = scrubBandwidth;
+        }
+
+        public Integer getScrubBatchSize() {
+            return scrubBatchSize;
+        }
+
+        public void setScrubBatchSize(Integer scrubBatchSize) {
+            this.scrubBatchSize = scrubBatchSize;
+        }
+
+        public Integer getScrubRecheckHours() {
+            return scrubRecheckHours;
+        }
+
+        public void setScrubRecheckHours(Integer scrubRecheckHours) {
+            this.scrubRecheckHours = scrubRecheckHours;
+        }
+
+        public Long getScrubIntervalMs() {
+            return scrubIntervalMs;
+        }
+
+        public void setScrubIntervalMs(Long scrubIntervalMs) {
+            this.scrubIntervalMs = scrubIntervalMs;
+        }
+
+        public Integer getUploadParallelism() {
+            return uploadParallelism;
+        }
+
+        public void setUploadParallelism(Integer uploadParallelism) {
+            this.uploadParallelism = uploadParallelism;
+        }
+
+        public String getIoGlobalBandwidth() {
+            return ioGlobalBandwidth;
+        }
+
+        public void setIoGlobalBandwidth(String ioGlobalBandwidth) {
+            this.ioGlobalBandwidth = ioGlobalBandwidth;
+        }
+
+        public String getIoUserBandwidth() {
+            return ioUserBandwidth;
+        }
+
+        public void setIoUserBandwidth(String ioUserBandwidth) {
+            this.ioUserBandwidth = ioUserBandwidth;
+        }
+
+        public String getIoSpaceBandwidth() {
+            return ioSpaceBandwidth;
+        }
+
+        public void setIoSpaceBandwidth(String ioSpaceBandwidth) {
+            this.ioSpaceBandwidth = ioSpaceBandwidth;
+        }
+
+        public Integer getIoGlobalConcurrency() {
+            return ioGlobalConcurrency;
+        }
+
+        public void setIoGlobalConcurrency(Integer ioGlobalConcurrency) {
+            this.ioGlobalConcurrency = ioGlobalConcurrency;
+        }
+
+        public Integer getIoUserConcurrency() {
+            return ioUserConcurrency;
+        }
+
+        public void setIoUserConcurrency(Integer ioUserConcurrency) {
+            this.ioUserConcurrency = ioUserConcurrency;
+        }
+
+        public Integer getIoSpaceConcurrency() {
+            return ioSpaceConcurrency;
+        }
+
+        public void setIoSpaceConcurrency(Integer ioSpaceConcurrency) {
+            this.ioSpaceConcurrency = ioSpaceConcurrency;
+        }
+
+        public Long getIoQueueTimeoutMs() {
+            return ioQueueTimeoutMs;
+        }
+
+        public void setIoQueueTimeoutMs(Long ioQueueTimeoutMs) {
+            this.ioQueueTimeoutMs = ioQueueTimeoutMs;
+        }
+
+        public Boolean getTierEnabled() {
+            return tierEnabled;
+        }
+
+        public void setTierEnabled(Boolean tierEnabled) {
+            this.tierEnabled = tierEnabled;
+        }
+
+        public String getTierFastPath() {
+            return tierFastPath;
+        }
+
+        public void setTierFastPath(String tierFastPath) {
+            this.tierFastPath = tierFastPath;
+        }
+
+        public String getTierFastCapacity() {
+            return tierFastCapacity;
+        }
+
+        public void setTierFastCapacity(String tierFastCapacity) {
+            this.tierFastCapacity = tierFastCapacity;
+        }
+
+        public Integer getTierPromoteThreshold() {
+            return tierPromoteThreshold;
+        }
+
+        public void setTierPromoteThreshold(Integer tierPromoteThreshold) {
+            this.tierPromoteThreshold = tierPromoteThreshold;
+        }
+
+        public Long getTierMigrationIntervalMs() {
+            return tierMigrationIntervalMs;
+        }
+
+        public void setTierMigrationIntervalMs(Long tierMigrationIntervalMs) {
+            this.tierMigrationIntervalMs = tierMigrationIntervalMs;
+        }
+
+        public Long getTierDecayIntervalMs() {
+            return tierDecayIntervalMs;
+        }
+
+        public void setTierDecayIntervalMs(Long tierDecayIntervalMs) {
+            this.tierDecayIntervalMs = tierDecayIntervalMs;
+        }
+
+        /**
+         * 获取条带化存储的磁盘目录列表
+         */
+        public List<String> getStripePathList() {
+            List<String> paths = new ArrayList<>();
+            if (stripePaths != null) {
+                for (String path : stripePaths.split(",")) {
+                    if (!path.trim().isEmpty()) {
+                        paths.add(path.trim());
+                    }
+                }
+            }
+            return paths;
+        }
+
+        /**
+         * 是否使用条带化存储
+         */
+        public boolean isStriped() {
+            return "striped".equalsIgnoreCase(backend);
+        }
         
         /**
          * 将文件大小字符串转换为字节数
@@ -406,6 +929,101 @@ public class LyraProperties {
         }
     }
 
+    /**
+     * WebDAV 配置
+     */
+    public static class WebDavConfig {
+        /**
+         * PROPFIND 最大遍历深度（Depth: infinity 按此深度截断，0表示拒绝 Depth: infinity）
+         */
+        @NotNull(message = "PROPFIND最大深度不能为空")
+        @Min(value = 0, message = "PROPFIND最大深度不能为负数")
+        private Integer propfindMaxDepth = 32;
+
+        /**
+         * 单次 PROPFIND 响应的最大资源数，超出部分以507状态截断
+         */
+        @NotNull(message = "PROPFIND最大资源数不能为空")
+        @Min(value = 1, message = "PROPFIND最大资源数至少为1")
+        private Integer propfindMaxResources = 10000;
+
+        /**
+         * PROPFIND 逐页读取子资源的分页大小
+         */
+        @NotNull(message = "PROPFIND分页大小不能为空")
+        @Min(value = 10, message = "PROPFIND分页大小至少为10")
+        @Max(value = 5000, message = "PROPFIND分页大小不能超过5000")
+        private Integer propfindPageSize = 500;
+
+        /**
+         * 单个空间路径索引的最大条目数（文件夹和文件合计），超出的空间不建索引，直接查询数据库
+         */
+        @NotNull(message = "路径索引最大条目数不能为空")
+        @Min(value = 0, message = "路径索引最大条目数不能为负数")
+        private Integer pathIndexMaxEntries = 200000;
+
+        /**
+         * 同时保留路径索引的最大空间数，超出时淘汰最久未访问的空间
+         */
+        @NotNull(message = "路径索引最大空间数不能为空")
+        @Min(value = 1, message = "路径索引最大空间数至少为1")
+        private Integer pathIndexMaxSpaces = 256;
+
+        /**
+         * 按不区分大小写解析路径的客户端 User-Agent 关键字（如 Windows 的 WebDAV 重定向器）
+         */
+        private List<String> caseInsensitiveUserAgents = new ArrayList<>(List.of("Microsoft-WebDAV-MiniRedir"));
+
+        // Getters and Setters
+        public Integer getPropfindMaxDepth() {
+            return propfindMaxDepth;
+        }
+
+        public void setPropfindMaxDepth(Integer propfindMaxDepth) {
+            this.propfindMaxDepth = propfindMaxDepth;
+        }
+
+        public Integer getPropfindMaxResources() {
+            return propfindMaxResources;
+        }
+
+        public void setPropfindMaxResources(Integer propfindMaxResources) {
+            this.propfindMaxResources = propfindMaxResources;
+        }
+
+        public Integer getPropfindPageSize() {
+            return propfindPageSize;
+        }
+
+        public void setPropfindPageSize(Integer propfindPageSize) {
+            this.propfindPageSize = propfindPageSize;
+        }
+
+        public Integer getPathIndexMaxEntries() {
+            return pathIndexMaxEntries;
+        }
+
+        public void setPathIndexMaxEntries(Integer pathIndexMaxEntries) {
+            this.pathIndexMaxEntries = pathIndexMaxEntries;
+        }
+
+        public Integer getPathIndexMaxSpaces() {
+            return pathIndexMaxSpaces;
+        }
+
+        public void setPathIndexMaxSpaces(Integer pathIndexMaxSpaces) {
+            this.pathIndexMaxSpaces = pathIndexMaxSpaces;
+        }
+
+        public List<String> getCaseInsensitiveUserAgents() {
+            return caseInsensitiveUserAgents;
+        }
+
+        public void setCaseInsensitiveUserAgents(List<String> caseInsensitiveUserAgents) {
+            this.caseInsensitiveUserAgents = caseInsensitiveUserAgents;
+        }
+    }
+
     /**
      * 缓存配置
      */
@@ -105,6 +105,10 @@ public class WebDavConfig {
         private tslc.beihaiyun.lyra.webdav.WebDavPermissionService permissionService;
         private tslc.beihaiyun.lyra.webdav.WebDavLockService lockService;
         private tslc.beihaiyun.lyra.webdav.WebDavVersionControlService versionControlService;
+        private tslc.beihaiyun.lyra.service.FileDownloadService fileDownloadService;
+        private tslc.beihaiyun.lyra.service.IoGovernor ioGovernor;
+        private tslc.beihaiyun.lyra.webdav.WebDavPropfindWriter propfindWriter;
+        private LyraProperties lyraProperties;
 
         @Override
         public void init() throws ServletException {
@@ -120,6 +124,10 @@ public class WebDavConfig {
                 permissionService = context.getBean(tslc.beihaiyun.lyra.webdav.WebDavPermissionService.class);
                 lockService = context.getBean(tslc.beihaiyun.lyra.webdav.WebDavLockService.class);
                 versionControlService = context.getBean(tslc.beihaiyun.lyra.webdav.WebDavVersionControlService.class);
+                fileDownloadService = context.getBean(tslc.beihaiyun.lyra.service.FileDownloadService.class);
+                ioGovernor = context.getBean(tslc.beihaiyun.lyra.service.IoGovernor.class);
+                propfindWriter = context.getBean(tslc.beihaiyun.lyra.webdav.WebDavPropfindWriter.class);
+                lyraProperties = context.getBean(LyraProperties.class);
             }
             
             logger.info("Lyra WebDAV Servlet 初始化完成");
@@ -188,16 +196,20 @@ public class WebDavConfig {
                     
                     resp.getWriter().write(html.toString());
                 } else {
-                    // 对于文件，返回文件内容
-                    resp.setContentType("text/plain; charset=UTF-8");
-                    resp.setStatus(HttpServletResponse.SC_OK);
-                    
-                    try (java.io.InputStream content = resourceService.getFileContent(req.getRequestURI())) {
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = content.read(buffer)) != -1) {
-                            resp.getOutputStream().write(buffer, 0, bytesRead);
-                        }
+                    // 对于文件，交由下载服务处理Range与条件请求
+                    java.util.Optional<tslc.beihaiyun.lyra.entity.FileEntity> fileOpt =
+                        resourceService.getFileEntity(req.getRequestURI());
+                    if (fileOpt.isEmpty() || fileDownloadService == null) {
+                        resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                        return;
+                    }
+                    java.util.Optional<tslc.beihaiyun.lyra.service.IoGovernor.Permit> permit =
+                        acquireTransfer(fileOpt.get().getSpace() != null ? fileOpt.get().getSpace().getId() : null, resp);
+                    if (permit.isEmpty()) {
+                        return;
+                    }
+                    try (tslc.beihaiyun.lyra.service.IoGovernor.Permit transfer = permit.get()) {
+                        fileDownloadService.serve(fileOpt.get(), req, resp, null, null, transfer);
                     }
                 }
             } else {
@@ -244,9 +256,26 @@ public class WebDavConfig {
             logger.debug("WebDAV PUT 请求: {}", req.getRequestURI());
             
             if (resourceService != null) {
-                try {
+                java.util.Optional<tslc.beihaiyun.lyra.service.IoGovernor.Permit> permit = acquireTransfer(
+                    resourceService.getSpace(req.getRequestURI()).map(tslc.beihaiyun.lyra.entity.Space::getId).orElse(null),
+                    resp);
+                if (permit.isEmpty()) {
+                    return;
+                }
+                try (tslc.beihaiyun.lyra.service.IoGovernor.Permit transfer = permit.get()) {
                     long contentLength = req.getContentLengthLong();
-                    boolean success = resourceService.uploadFile(req.getRequestURI(), req.getInputStream(), contentLength);
+                    String declaredHash = extractDeclaredSha256(req);
+                    if (declaredHash != null && contentLength > 0
+                            && resourceService.uploadFileByHash(req.getRequestURI(), declaredHash, contentLength)) {
+                        // 内容已存在，无需读取请求体
+                        logger.debug("WebDAV PUT 秒传命中: {}", req.getRequestURI());
+                        resp.setStatus(HttpServletResponse.SC_CREATED);
+                        return;
+                    }
+                    boolean success;
+                    try (java.io.InputStream body = transfer.throttle(req.getInputStream())) {
+                        success = resourceService.uploadFile(req.getRequestURI(), body, contentLength);
+                    }
                     
                     if (success) {
                         resp.setStatus(HttpServletResponse.SC_CREATED);
@@ -262,6 +291,45 @@ public class WebDavConfig {
             }
         }
 
+        /**
+         * 为当前用户申请传输许可，并发数已满且排队超时时响应503并返回空
+         */
+        private java.util.Optional<tslc.beihaiyun.lyra.service.IoGovernor.Permit> acquireTransfer(
+                Long spaceId, HttpServletResponse resp) throws IOException {
+            tslc.beihaiyun.lyra.entity.User user = resourceService.getCurrentUser();
+            java.util.Optional<tslc.beihaiyun.lyra.service.IoGovernor.Permit> permit =
+                ioGovernor.tryAcquire(user != null ? user.getId() : null, spaceId);
+            if (permit.isEmpty()) {
+                resp.setHeader("Retry-After", "5");
+                resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "传输繁忙，请稍后重试");
+            }
+            return permit;
+        }
+
+        /**
+         * 从请求头中提取客户端声明的SHA-256哈希值
+         * 支持 OC-Checksum: SHA256:&lt;hex&gt; 与 X-Content-SHA256: &lt;hex&gt;
+         */
+        private String extractDeclaredSha256(HttpServletRequest req) {
+            String value = req.getHeader("X-Content-SHA256");
+            if (value == null) {
+                String checksum = req.getHeader("OC-Checksum");
+                if (checksum != null) {
+                    for (String part : checksum.trim().split("\\s+")) {
+                        if (part.regionMatches(true, 0, "SHA256:", 0, 7)) {
+                            value = part.substring(7);
+                            break;
+                        }
+                    }
+                }
+            }
+            if (value == null) {
+                return null;
+            }
+            value = value.trim().toLowerCase();
+            return value.matches("[0-9a-f]{64}") ? value : null;
+        }
+
         @Override
         protected void doDelete(HttpServletRequest req, HttpServletResponse resp) 
                 throws ServletException, IOException {
@@ -278,105 +346,92 @@ public class WebDavConfig {
             
             String method = req.getMethod();
             
-            // 处理 WebDAV 特有的方法
-            switch (method) {
-                case "PROPFIND" -> doPropfind(req, resp);
-                case "PROPPATCH" -> doProppatch(req, resp);
-                case "MKCOL" -> doMkcol(req, resp);
-                case "COPY" -> doCopy(req, resp);
-                case "MOVE" -> doMove(req, resp);
-                case "LOCK" -> doLock(req, resp);
-                case "UNLOCK" -> doUnlock(req, resp);
-                default -> super.service(req, resp);
+            // 同一请求内共享路径解析结果（用户、空间、文件夹和资源）
+            try (tslc.beihaiyun.lyra.webdav.WebDavRequestContext ignored =
+                     tslc.beihaiyun.lyra.webdav.WebDavRequestContext.open(isCaseInsensitiveClient(req))) {
+                // 处理 WebDAV 特有的方法
+                switch (method) {
+                    case "PROPFIND" -> doPropfind(req, resp);
+                    case "PROPPATCH" -> doProppatch(req, resp);
+                    case "MKCOL" -> doMkcol(req, resp);
+                    case "COPY" -> doCopy(req, resp);
+                    case "MOVE" -> doMove(req, resp);
+                    case "LOCK" -> doLock(req, resp);
+                    case "UNLOCK" -> doUnlock(req, resp);
+                    default -> super.service(req, resp);
+                }
+            }
+        }
+
+        /**
+         * 是否为大小写不敏感的客户端（按 User-Agent 关键字判断）
+         */
+        private boolean isCaseInsensitiveClient(HttpServletRequest req) {
+            String userAgent = req.getHeader("User-Agent");
+            if (userAgent == null || lyraProperties == null) {
+                return false;
             }
+            return lyraProperties.getWebdav().getCaseInsensitiveUserAgents().stream()
+                    .anyMatch(keyword -> !keyword.isBlank() && userAgent.contains(keyword.trim()));
         }
 
         protected void doPropfind(HttpServletRequest req, HttpServletResponse resp) 
                 throws ServletException, IOException {
             
-            logger.debug("WebDAV PROPFIND 请求: {}", req.getRequestURI());
-            
-            resp.setContentType("text/xml; charset=UTF-8");
-            resp.setStatus(207); // Multi-Status
+            logger.debug("WebDAV PROPFIND 请求: {} (深度: {})", req.getRequestURI(), req.getHeader("Depth"));
             
             String requestURI = req.getRequestURI();
             
-            if (resourceService != null) {
+            if (resourceService != null && propfindWriter != null) {
+                int depth = tslc.beihaiyun.lyra.webdav.WebDavPropfindWriter.parseDepth(req.getHeader("Depth"));
+                if (depth == tslc.beihaiyun.lyra.webdav.WebDavPropfindWriter.DEPTH_INVALID) {
+                    resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    return;
+                }
+                
+                // 版本属性只在请求体点名时计算
+                boolean versionProperties;
                 try {
-                    boolean isDirectory = resourceService.isDirectory(requestURI);
-                    java.util.List<tslc.beihaiyun.lyra.webdav.LyraWebDavResourceService.WebDavResource> resources = 
-                        isDirectory ? resourceService.listDirectory(requestURI) : new java.util.ArrayList<>();
-                    
-                    StringBuilder xmlResponse = new StringBuilder();
-                    xmlResponse.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
-                    xmlResponse.append("<D:multistatus xmlns:D=\"DAV:\">\n");
-                    
-                    // 添加请求的资源本身
-                    xmlResponse.append("<D:response>\n");
-                    xmlResponse.append("<D:href>").append(requestURI).append("</D:href>\n");
-                    xmlResponse.append("<D:propstat>\n");
-                    xmlResponse.append("<D:prop>\n");
-                    
-                    if (isDirectory) {
-                        xmlResponse.append("<D:resourcetype><D:collection/></D:resourcetype>\n");
-                        xmlResponse.append("<D:getcontenttype>httpd/unix-directory</D:getcontenttype>\n");
-                    } else {
-                        xmlResponse.append("<D:resourcetype/>\n");
-                        xmlResponse.append("<D:getcontentlength>").append(resourceService.getFileSize(requestURI)).append("</D:getcontentlength>\n");
-                        xmlResponse.append("<D:getcontenttype>text/plain</D:getcontenttype>\n");
-                    }
-                    
-                    xmlResponse.append("<D:getlastmodified>").append(new java.util.Date()).append("</D:getlastmodified>\n");
-                    
-                    // 添加版本控制自定义属性（仅针对文件）
-                    if (!isDirectory && resourceService != null) {
-                        tslc.beihaiyun.lyra.webdav.LyraResource resource = resourceService.getResource(requestURI);
-                        if (resource != null && resource.isResource()) {
-                            addVersionControlProperties(xmlResponse, resource);
-                        }
+                    versionProperties = tslc.beihaiyun.lyra.webdav.WebDavPropfindWriter
+                        .requestsVersionProperties(req.getInputStream());
+                } catch (IllegalArgumentException e) {
+                    logger.debug("PROPFIND 请求体无效: {}", e.getMessage());
+                    resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    return;
+                }
+                
+                try {
+                    // 只解析资源本身，子资源由写出器按页读取
+                    tslc.beihaiyun.lyra.webdav.LyraResource resource = resourceService.getResourceWithoutChildren(requestURI);
+                    if (resource == null) {
+                        resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                        return;
                     }
                     
-                    xmlResponse.append("</D:prop>\n");
-                    xmlResponse.append("<D:status>HTTP/1.1 200 OK</D:status>\n");
-                    xmlResponse.append("</D:propstat>\n");
-                    xmlResponse.append("</D:response>\n");
-                    
-                    // 如果是目录，添加子资源
-                    if (isDirectory && "1".equals(req.getHeader("Depth"))) {
-                        for (tslc.beihaiyun.lyra.webdav.LyraWebDavResourceService.WebDavResource resource : resources) {
-                            String childPath = requestURI.endsWith("/") ? requestURI + resource.getName() : requestURI + "/" + resource.getName();
-                            
-                            xmlResponse.append("<D:response>\n");
-                            xmlResponse.append("<D:href>").append(childPath).append("</D:href>\n");
-                            xmlResponse.append("<D:propstat>\n");
-                            xmlResponse.append("<D:prop>\n");
-                            
-                            if (resource.isDirectory()) {
-                                xmlResponse.append("<D:resourcetype><D:collection/></D:resourcetype>\n");
-                                xmlResponse.append("<D:getcontenttype>httpd/unix-directory</D:getcontenttype>\n");
-                            } else {
-                                xmlResponse.append("<D:resourcetype/>\n");
-                                xmlResponse.append("<D:getcontentlength>").append(resource.getSize()).append("</D:getcontentlength>\n");
-                                xmlResponse.append("<D:getcontenttype>text/plain</D:getcontenttype>\n");
-                            }
-                            
-                            xmlResponse.append("<D:getlastmodified>").append(new java.util.Date(resource.getLastModified())).append("</D:getlastmodified>\n");
-                            xmlResponse.append("</D:prop>\n");
-                            xmlResponse.append("<D:status>HTTP/1.1 200 OK</D:status>\n");
-                            xmlResponse.append("</D:propstat>\n");
-                            xmlResponse.append("</D:response>\n");
-                        }
+                    if (depth == tslc.beihaiyun.lyra.webdav.WebDavPropfindWriter.DEPTH_INFINITY
+                            && resource.isCollection() && !propfindWriter.isInfinityAllowed()) {
+                        resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                        resp.setContentType("text/xml; charset=UTF-8");
+                        propfindWriter.writeFiniteDepthError(resp.getOutputStream());
+                        return;
                     }
                     
-                    xmlResponse.append("</D:multistatus>");
-                    resp.getWriter().write(xmlResponse.toString());
+                    resp.setContentType("text/xml; charset=UTF-8");
+                    resp.setStatus(207); // Multi-Status
+                    propfindWriter.write(resource, requestURI, depth, versionProperties, resp.getOutputStream());
                     
                 } catch (Exception e) {
-                    logger.error("PROPFIND 处理错误: {}", e.getMessage());
-                    resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    logger.error("PROPFIND 处理错误: {}", e.getMessage(), e);
+                    // 响应已开始输出时无法再修改状态码
+                    if (!resp.isCommitted()) {
+                        resp.reset();
+                        resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
                 }
             } else {
                 // 回退到基础实现
+                resp.setContentType("text/xml; charset=UTF-8");
+                resp.setStatus(207); // Multi-Status
                 resp.getWriter().write("""
                                        <?xml version="1.0" encoding="utf-8"?>
                                        <D:multistatus xmlns:D="DAV:">
@@ -411,8 +466,55 @@ public class WebDavConfig {
         protected void doCopy(HttpServletRequest req, HttpServletResponse resp) 
                 throws ServletException, IOException {
             logger.debug("WebDAV COPY 请求: {}", req.getRequestURI());
-            // TODO: 实现文件复制逻辑
-            resp.setStatus(HttpServletResponse.SC_CREATED);
+
+            if (resourceService == null) {
+                resp.setStatus(HttpServletResponse.SC_CREATED);
+                return;
+            }
+
+            String destination = extractDestinationPath(req);
+            if (destination == null) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "缺少或无效的 Destination 请求头");
+                return;
+            }
+            String depth = req.getHeader("Depth");
+            if (depth != null && !"0".equals(depth) && !"infinity".equalsIgnoreCase(depth)) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "COPY 仅支持 Depth: 0 或 infinity");
+                return;
+            }
+            boolean overwrite = !"F".equalsIgnoreCase(req.getHeader("Overwrite"));
+
+            tslc.beihaiyun.lyra.webdav.LyraWebDavResourceService.CopyStatus status =
+                resourceService.copyResource(req.getRequestURI(), destination, overwrite, !"0".equals(depth));
+            resp.setStatus(switch (status) {
+                case CREATED -> HttpServletResponse.SC_CREATED;
+                case OVERWRITTEN -> HttpServletResponse.SC_NO_CONTENT;
+                case NOT_FOUND -> HttpServletResponse.SC_NOT_FOUND;
+                case CONFLICT -> HttpServletResponse.SC_CONFLICT;
+                case PRECONDITION_FAILED -> HttpServletResponse.SC_PRECONDITION_FAILED;
+                case FORBIDDEN -> HttpServletResponse.SC_FORBIDDEN;
+                case FAILED -> HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            });
+        }
+
+        /**
+         * 从 Destination 请求头中解析目标路径（支持绝对URI与绝对路径）
+         * 与请求URI一样保持原始编码形式，由资源服务统一解析
+         */
+        private String extractDestinationPath(HttpServletRequest req) {
+            String destination = req.getHeader("Destination");
+            if (destination == null || destination.isBlank()) {
+                return null;
+            }
+            try {
+                String path = java.net.URI.create(destination.trim()).getRawPath();
+                if (path == null || !path.startsWith("/webdav/")) {
+                    return null;
+                }
+                return path;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
         }
 
         protected void doMove(HttpServletRequest req, HttpServletResponse resp) 
@@ -568,51 +670,6 @@ public class WebDavConfig {
             }
         }
         
-        /**
-         * 添加版本控制属性到PROPFIND响应
-         */
-        private void addVersionControlProperties(StringBuilder xmlResponse, tslc.beihaiyun.lyra.webdav.LyraResource resource) {
-            // 添加自定义命名空间的版本控制属性
-            if (resource.getCurrentVersionNumber() != null) {
-                xmlResponse.append("<lyra:version-number xmlns:lyra=\"http://lyra.beihaiyun.tslc/webdav\">")
-                           .append(resource.getCurrentVersionNumber())
-                           .append("</lyra:version-number>\n");
-            }
-            
-            if (resource.getTotalVersionCount() != null) {
-                xmlResponse.append("<lyra:total-versions xmlns:lyra=\"http://lyra.beihaiyun.tslc/webdav\">")
-                           .append(resource.getTotalVersionCount())
-                           .append("</lyra:total-versions>\n");
-            }
-            
-            if (resource.getLatestVersionComment() != null && !resource.getLatestVersionComment().isEmpty()) {
-                xmlResponse.append("<lyra:version-comment xmlns:lyra=\"http://lyra.beihaiyun.tslc/webdav\">")
-                           .append(escapeXml(resource.getLatestVersionComment()))
-                           .append("</lyra:version-comment>\n");
-            }
-            
-            if (resource.getLatestVersionDate() != null) {
-                xmlResponse.append("<lyra:version-date xmlns:lyra=\"http://lyra.beihaiyun.tslc/webdav\">")
-                           .append(resource.getLatestVersionDate())
-                           .append("</lyra:version-date>\n");
-            }
-            
-            // 添加版本控制标志
-            xmlResponse.append("<lyra:version-controlled xmlns:lyra=\"http://lyra.beihaiyun.tslc/webdav\">true</lyra:version-controlled>\n");
-        }
-        
-        /**
-         * XML转义
-         */
-        private String escapeXml(String text) {
-            if (text == null) return "";
-            return text.replace("&", "&amp;")
-                      .replace("<", "&lt;")
-                      .replace(">", "&gt;")
-                      .replace("\"", "&quot;")
-                      .replace("'", "&#x27;");
-        }
-        
         /**
          * 处理版本控制GET请求
          */
@@ -31,7 +31,7 @@ public class ConfigurationValidator {
     private static final Pattern PATH_PATTERN = Pattern.compile("^[a-zA-Z]?[:\\\\]?[\\w\\s/\\\\.-]+$");
     
     // 支持的存储后端类型
-    private static final Set<String> SUPPORTED_BACKENDS = Set.of("local", "nfs", "s3");
+    private static final Set<String> SUPPORTED_BACKENDS = Set.of("local", "nfs", "s3", "striped", "cdc");
 
     public ConfigurationValidator(Validator validator) {
         this.validator = validator;
@@ -113,11 +113,22 @@ public class ConfigurationValidator {
             result.addError("storage.backend", "不支持的存储后端类型：" + storage.getBackend());
         }
         
-        // 检查磁盘空间（仅本地存储）
-        if ("local".equals(storage.getBackend())) {
+        // 检查磁盘空间（仅本地存储与分块存储）
+        if ("local".equals(storage.getBackend()) || "cdc".equals(storage.getBackend())) {
             checkDiskSpace(storage.getBasePath(), result);
         }
         
+        // 条带化存储需要至少一个磁盘目录
+        if (storage.isStriped()) {
+            if (storage.getStripePathList().isEmpty()) {
+                result.addError("storage.stripePaths", "条带化存储至少需要配置一个磁盘目录");
+            }
+            for (String stripePath : storage.getStripePathList()) {
+                validateStoragePath(stripePath, "storage.stripePaths", result);
+                checkDiskSpace(stripePath, result);
+            }
+        }
+        
         // 验证最大文件大小合理性
         long maxSize = storage.getMaxFileSizeInBytes();
         if (maxSize > 5368709120L) { // 大于5GB
@@ -7,20 +7,19 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
@@ -36,6 +35,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -44,10 +45,17 @@ import tslc.beihaiyun.lyra.dto.FileResponse;
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.entity.UploadSession;
 import tslc.beihaiyun.lyra.repository.SpaceRepository;
 import tslc.beihaiyun.lyra.security.LyraUserPrincipal;
+import tslc.beihaiyun.lyra.service.ArchiveDownloadService;
+import tslc.beihaiyun.lyra.service.ChunkedUploadService;
+import tslc.beihaiyun.lyra.service.FileDownloadService;
 import tslc.beihaiyun.lyra.service.FileService;
 import tslc.beihaiyun.lyra.service.FolderService;
+import tslc.beihaiyun.lyra.service.IoGovernor;
+import tslc.beihaiyun.lyra.service.StorageService;
+import tslc.beihaiyun.lyra.util.FileUtils;
 
 /**
  * 文件操作控制器
@@ -63,80 +71,18 @@ import tslc.beihaiyun.lyra.service.FolderService;
 @RequiredArgsConstructor
 public class FileController {
 
+    /**
+     * 传输许可被拒绝时建议客户端重试的等待秒数
+     */
+    private static final String TRANSFER_RETRY_AFTER_SECONDS = "5";
+
     private final FileService fileService;
     private final FolderService folderService;
     private final SpaceRepository spaceRepository;
-    
-    // 分块上传会话管理（生产环境应使用Redis或数据库）
-    private final Map<String, ChunkedUploadSession> uploadSessions = new ConcurrentHashMap<>();
-
-    /**
-     * 分块上传会话信息
-     */
-    private static class ChunkedUploadSession {
-        private final String uploadId;
-        private final String filename;
-        private final long fileSize;
-        private final String fileHash;
-        private final int totalChunks;
-        private final int chunkSize;
-        private final Long spaceId;
-        private final Long folderId;
-        private final Long uploaderId;
-        private final LocalDateTime createdAt;
-        private final boolean[] completedChunks;
-        
-        public ChunkedUploadSession(String uploadId, String filename, long fileSize, String fileHash,
-                                   int totalChunks, int chunkSize, Long spaceId, Long folderId, Long uploaderId) {
-            this.uploadId = uploadId;
-            this.filename = filename;
-            this.fileSize = fileSize;
-            this.fileHash = fileHash;
-            this.totalChunks = totalChunks;
-            this.chunkSize = chunkSize;
-            this.spaceId = spaceId;
-            this.folderId = folderId;
-            this.uploaderId = uploaderId;
-            this.createdAt = LocalDateTime.now();
-            this.completedChunks = new boolean[totalChunks];
-        }
-        
-        // Getters
-        public String getUploadId() { return uploadId; }
-        public String getFilename() { return filename; }
-        public long getFileSize() { return fileSize; }
-        public String getFileHash() { return fileHash; }
-        public int getTotalChunks() { return totalChunks; }
-        public int getChunkSize() { return chunkSize; }
-        public Long getSpaceId() { return spaceId; }
-        public Long getFolderId() { return folderId; }
-        public Long getUploaderId() { return uploaderId; }
-        public LocalDateTime getCreatedAt() { return createdAt; }
-        public boolean[] getCompletedChunks() { return completedChunks; }
-        
-        public void markChunkCompleted(int chunkIndex) {
-            if (chunkIndex >= 0 && chunkIndex < totalChunks) {
-                completedChunks[chunkIndex] = true;
-            }
-        }
-        
-        public boolean isCompleted() {
-            for (boolean completed : completedChunks) {
-                if (!completed) return false;
-            }
-            return true;
-        }
-        
-        public List<Integer> getCompletedChunkIndexes() {
-            List<Integer> completed = new java.util.ArrayList<>();
-            for (int i = 0; i < totalChunks; i++) {
-                if (completedChunks[i]) {
-                    completed.add(i);
-                }
-            }
-            return completed;
-        }
-    }
+    private final FileDownloadService fileDownloadService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final ArchiveDownloadService archiveDownloadService;
+    private final IoGovernor ioGovernor;
 
     // ==================== 文件上传相关接口 ====================
 
@@ -184,8 +130,19 @@ public class FileController {
                 folder = folderOpt.get();
             }
             
+            // 申请传输许可，上传内容按用户和空间的带宽上限读取
+            Optional<IoGovernor.Permit> permitOpt = ioGovernor.tryAcquire(principal.getId(), space.getId());
+            if (permitOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, TRANSFER_RETRY_AFTER_SECONDS)
+                        .body(new FileResponse.FileUploadResponse(false, "当前传输过多，请稍后重试"));
+            }
+            
             // 执行上传
-            FileService.FileOperationResult result = fileService.uploadFile(file, space, folder, principal.getId());
+            FileService.FileOperationResult result;
+            try (IoGovernor.Permit permit = permitOpt.get()) {
+                result = fileService.uploadFile(permit.throttle(file), space, folder, principal.getId());
+            }
             
             if (result.isSuccess()) {
                 FileResponse.FileInfoResponse fileInfo = new FileResponse.FileInfoResponse(result.getFileEntity());
@@ -207,49 +164,98 @@ public class FileController {
     }
 
     /**
-     * 初始化分块上传
+     * 秒传
+     * 客户端先提交内容哈希与大小，服务器已有相同内容时直接创建文件记录，无需传输文件内容
      * 
-     * @param request 分块上传初始化请求
+     * @param request 秒传请求
      * @param principal 认证用户信息
-     * @return 分块上传响应
+     * @return 命中时返回文件信息；未命中返回404，客户端应继续正常上传
      */
-    @PostMapping("/upload/chunked/init")
-    public ResponseEntity<FileResponse.ChunkedUploadResponse> initChunkedUpload(
-            @Valid @RequestBody FileRequest.ChunkedUploadInitRequest request,
+    @PostMapping("/upload/instant")
+    public ResponseEntity<FileResponse.FileUploadResponse> instantUpload(
+            @Valid @RequestBody FileRequest.InstantUploadRequest request,
             @AuthenticationPrincipal LyraUserPrincipal principal) {
         
         try {
-            // 验证空间访问权限
             Optional<Space> spaceOpt = spaceRepository.findById(request.getSpaceId());
             if (spaceOpt.isEmpty()) {
-                return ResponseEntity.badRequest().build();
+                return ResponseEntity.badRequest()
+                        .body(new FileResponse.FileUploadResponse(false, "指定的空间不存在"));
             }
             
-            // 计算分块数量
-            int totalChunks = (int) Math.ceil((double) request.getFileSize() / request.getChunkSize());
-            String uploadId = java.util.UUID.randomUUID().toString();
+            Folder folder = null;
+            if (request.getFolderId() != null) {
+                Optional<Folder> folderOpt = folderService.getFolderById(request.getFolderId());
+                if (folderOpt.isEmpty()) {
+                    return ResponseEntity.badRequest()
+                            .body(new FileResponse.FileUploadResponse(false, "指定的文件夹不存在"));
+                }
+                folder = folderOpt.get();
+            }
             
-            // 创建上传会话
-            ChunkedUploadSession session = new ChunkedUploadSession(
-                    uploadId, request.getFilename(), request.getFileSize(), request.getFileHash(),
-                    totalChunks, request.getChunkSize(), request.getSpaceId(), request.getFolderId(),
-                    principal.getId());
+            Optional<StorageService.StorageResult> existing =
+                    fileService.findExistingContent(request.getFileHash(), request.getFileSize(),
+                            principal.getId());
+            if (existing.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new FileResponse.FileUploadResponse(false, "服务器不存在相同内容，请上传文件"));
+            }
             
-            uploadSessions.put(uploadId, session);
+            FileService.FileOperationResult result = fileService.createFileFromStorage(existing.get(),
+                    request.getFilename(), FileUtils.getMimeType(request.getFilename()),
+                    spaceOpt.get(), folder, principal.getId());
             
-            // 构建响应
-            FileResponse.ChunkedUploadResponse response = new FileResponse.ChunkedUploadResponse();
-            response.setUploadId(uploadId);
-            response.setTotalChunks(totalChunks);
-            response.setChunkSize(request.getChunkSize());
-            response.setCompletedChunks(List.of()); // 初始为空
-            response.setUploadCompleted(false);
+            if (!result.isSuccess()) {
+                return ResponseEntity.badRequest()
+                        .body(new FileResponse.FileUploadResponse(false, result.getMessage()));
+            }
             
-            log.info("用户 {} 初始化分块上传: {} (大小: {}, 分块数: {})", 
-                    principal.getUsername(), request.getFilename(), request.getFileSize(), totalChunks);
+            FileResponse.FileUploadResponse response = new FileResponse.FileUploadResponse(
+                    true, "秒传成功", new FileResponse.FileInfoResponse(result.getFileEntity()));
+            response.setDuplicate(true);
             
+            log.info("用户 {} 秒传文件: {}", principal.getUsername(), result.getFileEntity().getName());
             return ResponseEntity.ok(response);
             
+        } catch (Exception e) {
+            log.error("秒传异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new FileResponse.FileUploadResponse(false, "秒传失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 初始化分块上传
+     * 
+     * @param request 分块上传初始化请求
+     * @param principal 认证用户信息
+     * @return 分块上传响应
+     */
+    @PostMapping("/upload/chunked/init")
+    public ResponseEntity<FileResponse.ChunkedUploadResponse> initChunkedUpload(
+            @Valid @RequestBody FileRequest.ChunkedUploadInitRequest request,
+            @AuthenticationPrincipal LyraUserPrincipal principal) {
+        
+        try {
+            ChunkedUploadService.ChunkedUploadResult result = chunkedUploadService.initSession(
+                    request.getFilename(), request.getFileSize(), request.getFileHash(), request.getChunkSize(),
+                    request.getSpaceId(), request.getFolderId(), request.getDescription(), principal.getId());
+            
+            if (!result.isSuccess()) {
+                log.warn("初始化分块上传失败: {}", result.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
+            
+            if (result.isUploadCompleted()) {
+                log.info("用户 {} 分块上传秒传命中: {}", principal.getUsername(), request.getFilename());
+            } else {
+                log.info("用户 {} 初始化分块上传: {} (大小: {}, 分块数: {})", 
+                        principal.getUsername(), request.getFilename(), request.getFileSize(),
+                        result.getSession().getTotalChunks());
+            }
+            
+            return ResponseEntity.ok(toChunkedUploadResponse(result));
+            
         } catch (Exception e) {
             log.error("初始化分块上传异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -258,10 +264,12 @@ public class FileController {
 
     /**
      * 上传文件分块
+     * 不同分块可以并行上传，所有分块到齐后自动完成上传
      * 
      * @param uploadId 上传会话ID
      * @param chunkIndex 分块索引
      * @param chunk 分块数据
+     * @param chunkHash 分块SHA-256哈希值（可选）
      * @param principal 认证用户信息
      * @return 上传结果
      */
@@ -270,47 +278,35 @@ public class FileController {
             @PathVariable String uploadId,
             @PathVariable int chunkIndex,
             @RequestParam("chunk") MultipartFile chunk,
+            @RequestParam(value = "chunkHash", required = false) String chunkHash,
             @AuthenticationPrincipal LyraUserPrincipal principal) {
         
         try {
-            ChunkedUploadSession session = uploadSessions.get(uploadId);
-            if (session == null) {
+            Optional<UploadSession> sessionOpt = chunkedUploadService.getSession(uploadId);
+            if (sessionOpt.isEmpty()) {
                 return ResponseEntity.badRequest().build();
             }
             
             // 验证用户权限
-            if (!session.getUploaderId().equals(principal.getId())) {
+            if (!sessionOpt.get().getUploaderId().equals(principal.getId())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
             
-            // 验证分块索引
-            if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
-                return ResponseEntity.badRequest().build();
+            ChunkedUploadService.ChunkedUploadResult result;
+            try (InputStream data = chunk.getInputStream()) {
+                result = chunkedUploadService.uploadChunk(uploadId, chunkIndex, data, chunkHash, principal.getId());
             }
             
-            // TODO: 存储分块到临时位置
-            // 这里应该将分块保存到临时存储，实际实现需要结合具体的存储策略
-            
-            // 标记分块完成
-            session.markChunkCompleted(chunkIndex);
+            if (!result.isSuccess()) {
+                log.warn("上传分块失败: {}#{}, {}", uploadId, chunkIndex, result.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
             
-            // 构建响应
-            FileResponse.ChunkedUploadResponse response = new FileResponse.ChunkedUploadResponse();
-            response.setUploadId(uploadId);
-            response.setTotalChunks(session.getTotalChunks());
-            response.setChunkSize(session.getChunkSize());
-            response.setCompletedChunks(session.getCompletedChunkIndexes());
-            response.setUploadCompleted(session.isCompleted());
-            
-            // 如果所有分块都完成了，合并文件
-            if (session.isCompleted()) {
-                // TODO: 实现文件合并逻辑
-                // 这里应该将所有分块合并成完整文件，并调用fileService保存
-                uploadSessions.remove(uploadId);
-                log.info("用户 {} 完成分块上传: {}", principal.getUsername(), session.getFilename());
+            if (result.isUploadCompleted()) {
+                log.info("用户 {} 完成分块上传: {}", principal.getUsername(), result.getSession().getFilename());
             }
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(toChunkedUploadResponse(result));
             
         } catch (Exception e) {
             log.error("上传分块异常", e);
@@ -318,101 +314,206 @@ public class FileController {
         }
     }
 
+    /**
+     * 查询分块上传进度（用于断点续传）
+     * 
+     * @param uploadId 上传会话ID
+     * @param principal 认证用户信息
+     * @return 已接收的分块信息
+     */
+    @GetMapping("/upload/chunked/{uploadId}")
+    public ResponseEntity<FileResponse.ChunkedUploadResponse> getChunkedUploadStatus(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal LyraUserPrincipal principal) {
+        
+        Optional<UploadSession> sessionOpt = chunkedUploadService.getSession(uploadId);
+        if (sessionOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        UploadSession session = sessionOpt.get();
+        if (!session.getUploaderId().equals(principal.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(toChunkedUploadResponse(new ChunkedUploadService.ChunkedUploadResult(
+                true, null, session, session.getCompletedChunkIndexes(), false, null)));
+    }
+
+    /**
+     * 取消分块上传
+     * 
+     * @param uploadId 上传会话ID
+     * @param principal 认证用户信息
+     * @return 操作结果
+     */
+    @DeleteMapping("/upload/chunked/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abortChunkedUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal LyraUserPrincipal principal) {
+        
+        boolean aborted = chunkedUploadService.abortSession(uploadId, principal.getId());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", aborted);
+        response.put("message", aborted ? "上传已取消" : "上传会话不存在");
+        return aborted ? ResponseEntity.ok(response) : ResponseEntity.badRequest().body(response);
+    }
+
     // ==================== 文件下载相关接口 ====================
 
     /**
      * 下载文件
+     * 支持Range断点续传和基于内容哈希的条件请求
      * 
      * @param fileId 文件ID
      * @param principal 认证用户信息
-     * @return 文件流
+     * @param request HTTP请求
+     * @param response HTTP响应
      */
     @GetMapping("/{fileId}/download")
-    public ResponseEntity<InputStreamResource> downloadFile(
+    public void downloadFile(
             @PathVariable Long fileId,
-            @AuthenticationPrincipal LyraUserPrincipal principal) {
+            @AuthenticationPrincipal LyraUserPrincipal principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
-        try {
+        Optional<FileEntity> fileOpt = fileService.getFileById(fileId);
+        if (fileOpt.isEmpty() || fileOpt.get().getStatus() == FileEntity.FileStatus.DELETED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        FileEntity file = fileOpt.get();
+        
+        // TODO: 检查下载权限
+        
+        String encodedFilename = URLEncoder.encode(file.getName(), StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+        
+        Optional<IoGovernor.Permit> permitOpt = acquireTransfer(principal, file.getSpace().getId(), response);
+        if (permitOpt.isEmpty()) {
+            return;
+        }
+        
+        try (IoGovernor.Permit permit = permitOpt.get()) {
+            fileDownloadService.serve(file, request, response,
+                    "attachment; filename=\"" + encodedFilename + "\"", null, permit);
+            log.info("用户 {} 下载文件: {}, 状态={}", principal != null ? principal.getUsername() : null,
+                    file.getName(), response.getStatus());
+        } catch (IOException e) {
+            log.error("文件下载异常: {}", file.getName(), e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    /**
+     * 以ZIP归档打包下载多个文件和文件夹
+     * 归档边遍历边输出，文件夹包含其完整子树
+     * 
+     * @param fileIds 文件ID列表（可选）
+     * @param folderIds 文件夹ID列表（可选）
+     * @param principal 认证用户信息
+     * @param response HTTP响应
+     */
+    @GetMapping("/archive")
+    public void downloadArchive(
+            @RequestParam(required = false) List<Long> fileIds,
+            @RequestParam(required = false) List<Long> folderIds,
+            @AuthenticationPrincipal LyraUserPrincipal principal,
+            HttpServletResponse response) throws IOException {
+        
+        List<FileEntity> files = new ArrayList<>();
+        for (Long fileId : fileIds != null ? fileIds : List.<Long>of()) {
             Optional<FileEntity> fileOpt = fileService.getFileById(fileId);
-            if (fileOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+            if (fileOpt.isEmpty() || fileOpt.get().getStatus() == FileEntity.FileStatus.DELETED) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
-            
-            FileEntity file = fileOpt.get();
-            
-            // TODO: 检查下载权限
-            
-            Optional<InputStream> contentOpt = fileService.getFileContent(fileId);
-            if (contentOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+            files.add(fileOpt.get());
+        }
+        List<Folder> folders = new ArrayList<>();
+        for (Long folderId : folderIds != null ? folderIds : List.<Long>of()) {
+            Optional<Folder> folderOpt = folderService.getFolderById(folderId);
+            if (folderOpt.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
-            
-            InputStreamResource resource = new InputStreamResource(contentOpt.get());
-            
-            String encodedFilename = URLEncoder.encode(file.getName(), StandardCharsets.UTF_8)
-                    .replaceAll("\\+", "%20");
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(file.getMimeType() != null ? file.getMimeType() : "application/octet-stream"));
-            headers.setContentLength(file.getSizeBytes());
-            headers.set("Content-Disposition", "attachment; filename=\"" + encodedFilename + "\"");
-            
-            log.info("用户 {} 下载文件: {}", principal.getUsername(), file.getName());
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
-                    
+            folders.add(folderOpt.get());
+        }
+        if (files.isEmpty() && folders.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        // 响应开始输出后无法再拒绝，写出首个条目前确认选中项所在的空间都可读
+        if (!canReadSpaces(principal, files, folders)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        String archiveName = files.isEmpty() && folders.size() == 1 ? folders.get(0).getName() : "download";
+        // 选中项可能跨空间，仅按全局和用户范围限制
+        Optional<IoGovernor.Permit> permitOpt = acquireTransfer(principal, null, response);
+        if (permitOpt.isEmpty()) {
+            return;
+        }
+        try (IoGovernor.Permit permit = permitOpt.get()) {
+            archiveDownloadService.serve(archiveName,
+                    archiveDownloadService.selectionEntries(files, folders), response, permit);
+            log.info("用户 {} 打包下载: 文件={}, 文件夹={}", principal != null ? principal.getUsername() : null,
+                    files.size(), folders.size());
         } catch (IOException e) {
-            log.error("文件下载异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            log.error("打包下载异常: {}", archiveName, e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
         }
     }
 
     /**
      * 文件预览
+     * 支持Range请求，便于音视频拖动播放
      * 
      * @param fileId 文件ID
      * @param principal 认证用户信息
-     * @return 文件内容
+     * @param request HTTP请求
+     * @param response HTTP响应
      */
     @GetMapping("/{fileId}/preview")
-    public ResponseEntity<InputStreamResource> previewFile(
+    public void previewFile(
             @PathVariable Long fileId,
-            @AuthenticationPrincipal LyraUserPrincipal principal) {
+            @AuthenticationPrincipal LyraUserPrincipal principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
-        try {
-            Optional<FileEntity> fileOpt = fileService.getFileById(fileId);
-            if (fileOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            FileEntity file = fileOpt.get();
-            
-            // 检查文件是否支持预览
-            if (!isPreviewSupported(file.getMimeType())) {
-                return ResponseEntity.badRequest().build();
-            }
-            
-            Optional<InputStream> contentOpt = fileService.getFileContent(fileId);
-            if (contentOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            InputStreamResource resource = new InputStreamResource(contentOpt.get());
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
-            headers.setContentLength(file.getSizeBytes());
-            headers.setCacheControl("max-age=3600"); // 缓存1小时
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
-                    
+        Optional<FileEntity> fileOpt = fileService.getFileById(fileId);
+        if (fileOpt.isEmpty() || fileOpt.get().getStatus() == FileEntity.FileStatus.DELETED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        FileEntity file = fileOpt.get();
+        
+        // 检查文件是否支持预览
+        if (!isPreviewSupported(file.getMimeType())) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        
+        Optional<IoGovernor.Permit> permitOpt = acquireTransfer(principal, file.getSpace().getId(), response);
+        if (permitOpt.isEmpty()) {
+            return;
+        }
+        
+        try (IoGovernor.Permit permit = permitOpt.get()) {
+            fileDownloadService.serve(file, request, response, null, "max-age=3600", permit); // 缓存1小时
         } catch (IOException e) {
-            log.error("文件预览异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            log.error("文件预览异常: {}", file.getName(), e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
         }
     }
 
@@ -1026,32 +1127,40 @@ public class FileController {
             int successCount = 0;
             int failedCount = 0;
             
-            for (MultipartFile file : files) {
-                try {
-                    FileService.FileOperationResult result = fileService.uploadFile(file, space, folder, principal.getId());
-                    
-                    Map<String, Object> fileResult = new HashMap<>();
-                    fileResult.put("filename", file.getOriginalFilename());
-                    fileResult.put("success", result.isSuccess());
-                    fileResult.put("message", result.getMessage());
-                    
-                    if (result.isSuccess()) {
-                        fileResult.put("fileInfo", new FileResponse.FileInfoResponse(result.getFileEntity()));
-                        successCount++;
-                    } else {
-                        failedCount++;
-                    }
-                    
-                    uploadResults.add(fileResult);
-                    
-                } catch (Exception e) {
-                    Map<String, Object> fileResult = new HashMap<>();
-                    fileResult.put("filename", file.getOriginalFilename());
-                    fileResult.put("success", false);
-                    fileResult.put("message", "上传失败: " + e.getMessage());
-                    uploadResults.add(fileResult);
+            // 整批占用一个传输许可，各文件内容共享用户和空间的带宽上限
+            Optional<IoGovernor.Permit> permitOpt = ioGovernor.tryAcquire(principal.getId(), space.getId());
+            if (permitOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, TRANSFER_RETRY_AFTER_SECONDS)
+                    .body(Map.of("success", false, "message", "当前传输过多，请稍后重试"));
+            }
+            
+            // 并发存储各文件内容，文件记录一次性保存
+            List<FileService.FileOperationResult> results;
+            try (IoGovernor.Permit permit = permitOpt.get()) {
+                List<MultipartFile> throttled = new ArrayList<>(files.length);
+                for (MultipartFile file : files) {
+                    throttled.add(permit.throttle(file));
+                }
+                results = fileService.batchUploadFiles(throttled, space, folder, principal.getId());
+            }
+            
+            for (int i = 0; i < files.length; i++) {
+                FileService.FileOperationResult result = results.get(i);
+                
+                Map<String, Object> fileResult = new HashMap<>();
+                fileResult.put("filename", files[i].getOriginalFilename());
+                fileResult.put("success", result.isSuccess());
+                fileResult.put("message", result.getMessage());
+                
+                if (result.isSuccess()) {
+                    fileResult.put("fileInfo", new FileResponse.FileInfoResponse(result.getFileEntity()));
+                    successCount++;
+                } else {
                     failedCount++;
                 }
+                
+                uploadResults.add(fileResult);
             }
             
             Map<String, Object> data = Map.of(
@@ -1108,6 +1217,67 @@ public class FileController {
 
     // ==================== 私有辅助方法 ====================
 
+    /**
+     * 构建分块上传响应
+     * 
+     * @param result 分块上传结果
+     * @return 分块上传响应
+     */
+    private FileResponse.ChunkedUploadResponse toChunkedUploadResponse(ChunkedUploadService.ChunkedUploadResult result) {
+        UploadSession session = result.getSession();
+        FileResponse.ChunkedUploadResponse response = new FileResponse.ChunkedUploadResponse();
+        if (session != null) {
+            response.setUploadId(session.getUploadId());
+            response.setTotalChunks(session.getTotalChunks());
+            response.setChunkSize(session.getChunkSize());
+        }
+        response.setCompletedChunks(result.getCompletedChunks());
+        response.setUploadCompleted(result.isUploadCompleted());
+        if (result.getFileEntity() != null) {
+            response.setFileInfo(new FileResponse.FileInfoResponse(result.getFileEntity()));
+        }
+        return response;
+    }
+
+    /**
+     * 申请传输许可，排队超时时直接响应503
+     * 
+     * @param principal 认证用户信息
+     * @param spaceId 空间ID（可为null）
+     * @param response HTTP响应
+     * @return 许可，已响应503时为空
+     * @throws IOException 响应写出异常
+     */
+    private Optional<IoGovernor.Permit> acquireTransfer(LyraUserPrincipal principal, Long spaceId,
+                                                         HttpServletResponse response) throws IOException {
+        Optional<IoGovernor.Permit> permit = ioGovernor.tryAcquire(principal != null ? principal.getId() : null, spaceId);
+        if (permit.isEmpty()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, TRANSFER_RETRY_AFTER_SECONDS);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        return permit;
+    }
+
+    /**
+     * 检查用户能否读取选中文件和文件夹所在的全部空间
+     * 
+     * @param principal 认证用户信息
+     * @param files 选中的文件
+     * @param folders 选中的文件夹
+     * @return 是否全部可读
+     */
+    private boolean canReadSpaces(LyraUserPrincipal principal, List<FileEntity> files, List<Folder> folders) {
+        if (principal == null) {
+            return false;
+        }
+        Set<Long> spaceIds = new HashSet<>();
+        files.forEach(file -> spaceIds.add(file.getSpace() != null ? file.getSpace().getId() : null));
+        folders.forEach(folder -> spaceIds.add(folder.getSpace() != null ? folder.getSpace().getId() : null));
+        LocalDateTime now = LocalDateTime.now();
+        return spaceIds.stream().allMatch(spaceId ->
+                spaceId != null && spaceRepository.isReadableBy(spaceId, principal.getId(), now));
+    }
+
     /**
      * 检查文件是否支持预览
      * 
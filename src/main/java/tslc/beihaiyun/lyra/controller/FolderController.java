@@ -1,5 +1,7 @@
 package tslc.beihaiyun.lyra.controller;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -8,6 +10,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,6 +26,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,7 +37,9 @@ import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.repository.FolderRepository;
 import tslc.beihaiyun.lyra.repository.SpaceRepository;
 import tslc.beihaiyun.lyra.security.LyraUserPrincipal;
+import tslc.beihaiyun.lyra.service.ArchiveDownloadService;
 import tslc.beihaiyun.lyra.service.FolderService;
+import tslc.beihaiyun.lyra.service.IoGovernor;
 
 /**
  * 文件夹操作控制器
@@ -52,6 +58,8 @@ public class FolderController {
     private final FolderService folderService;
     private final SpaceRepository spaceRepository;
     private final FolderRepository folderRepository;
+    private final ArchiveDownloadService archiveDownloadService;
+    private final IoGovernor ioGovernor;
 
     /**
      * 创建文件夹
@@ -141,6 +149,50 @@ public class FolderController {
         }
     }
 
+    /**
+     * 以ZIP归档下载文件夹
+     * 遍历子树的同时流式输出，无需等待打包完成
+     */
+    @GetMapping("/{folderId}/download")
+    @PreAuthorize("hasRole('USER')")
+    public void downloadFolder(
+            @PathVariable Long folderId,
+            @AuthenticationPrincipal LyraUserPrincipal user,
+            HttpServletResponse response) throws IOException {
+
+        Optional<Folder> folderOpt = folderService.getFolderById(folderId);
+        if (folderOpt.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        Folder folder = folderOpt.get();
+        // 响应开始输出后无法再拒绝，写出首个条目前确认空间可读
+        if (user == null || folder.getSpace() == null
+                || !spaceRepository.isReadableBy(folder.getSpace().getId(), user.getId(), LocalDateTime.now())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        Optional<IoGovernor.Permit> permitOpt = ioGovernor.tryAcquire(user != null ? user.getId() : null,
+                folder.getSpace() != null ? folder.getSpace().getId() : null);
+        if (permitOpt.isEmpty()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try (IoGovernor.Permit permit = permitOpt.get()) {
+            archiveDownloadService.serve(folder.getName(), archiveDownloadService.folderEntries(folder), response,
+                    permit);
+            log.info("用户 {} 下载文件夹: {}", user != null ? user.getUsername() : null, folder.getPath());
+        } catch (IOException e) {
+            log.error("文件夹下载异常: {}", folder.getPath(), e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
     /**
      * 更新文件夹信息
      */
@@ -275,6 +327,61 @@ public class FolderController {
         }
     }
 
+    /**
+     * 键集分页获取文件夹的直接子项（子文件夹在前、文件在后）
+     */
+    @GetMapping("/children")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<FolderResponse.ApiResponse<FolderResponse.ChildListingResponse>> getChildren(
+            @RequestParam Long spaceId,
+            @RequestParam(required = false) Long parentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @AuthenticationPrincipal LyraUserPrincipal user) {
+
+        try {
+            if (size < 1 || size > 1000) {
+                return ResponseEntity.badRequest().body(
+                    FolderResponse.ApiResponse.error("分页大小必须在1到1000之间")
+                );
+            }
+
+            Optional<Space> spaceOpt = spaceRepository.findById(spaceId);
+            if (spaceOpt.isEmpty()) {
+                return ResponseEntity.badRequest().body(
+                    FolderResponse.ApiResponse.error("指定的空间不存在")
+                );
+            }
+
+            Space space = spaceOpt.get();
+            Folder parentFolder = null;
+            if (parentId != null) {
+                Optional<Folder> parentOpt = folderService.getFolderById(parentId);
+                if (parentOpt.isEmpty() || !space.getId().equals(parentOpt.get().getSpace().getId())) {
+                    return ResponseEntity.badRequest().body(
+                        FolderResponse.ApiResponse.error("指定的父文件夹不存在")
+                    );
+                }
+                parentFolder = parentOpt.get();
+            }
+
+            FolderService.ChildPage page = folderService.listChildren(space, parentFolder, cursor, size);
+            return ResponseEntity.ok(
+                FolderResponse.ApiResponse.success(FolderResponse.ChildListingResponse.fromPage(page))
+            );
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                FolderResponse.ApiResponse.error(e.getMessage())
+            );
+        } catch (Exception e) {
+            log.error("获取文件夹子项时发生异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                FolderResponse.ApiResponse.error("服务器内部错误: " + e.getMessage())
+            );
+        }
+    }
+
     /**
      * 构建文件夹树
      */
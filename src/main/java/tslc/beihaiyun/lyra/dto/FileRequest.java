@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Pattern;
 import java.util.List;
 
 /**
@@ -107,6 +108,45 @@ public class FileRequest {
         public void setChunkSize(Integer chunkSize) { this.chunkSize = chunkSize; }
     }
 
+    /**
+     * 秒传请求DTO（仅提交内容哈希与大小，服务器已有相同内容时无需传输文件）
+     */
+    public static class InstantUploadRequest {
+        
+        @NotBlank(message = "文件名不能为空")
+        @Size(max = 255, message = "文件名长度不能超过255个字符")
+        private String filename;
+        
+        @NotNull(message = "文件大小不能为空")
+        @Min(value = 1, message = "文件大小必须大于0")
+        private Long fileSize;
+        
+        @NotBlank(message = "文件哈希值不能为空")
+        @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "文件哈希值必须是SHA-256十六进制字符串")
+        private String fileHash;
+        
+        @NotNull(message = "空间ID不能为空")
+        private Long spaceId;
+        
+        private Long folderId;
+        
+        // Getters and Setters
+        public String getFilename() { return filename; }
+        public void setFilename(String filename) { this.filename = filename; }
+        
+        public Long getFileSize() { return fileSize; }
+        public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
+        
+        public String getFileHash() { return fileHash; }
+        public void setFileHash(String fileHash) { this.fileHash = fileHash; }
+        
+        public Long getSpaceId() { return spaceId; }
+        public void setSpaceId(Long spaceId) { this.spaceId = spaceId; }
+        
+        public Long getFolderId() { return folderId; }
+        public void setFolderId(Long folderId) { this.folderId = folderId; }
+    }
+
     /**
      * 文件移动请求DTO
      */
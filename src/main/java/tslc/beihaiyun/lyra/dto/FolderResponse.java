@@ -3,6 +3,7 @@ package tslc.beihaiyun.lyra.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.service.FolderService;
 
@@ -241,6 +242,63 @@ public class FolderResponse {
         private String message;
     }
 
+    /**
+     * 文件夹子项响应（子文件夹或文件）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FolderChildResponse {
+        
+        private String type;
+        private Long id;
+        private String name;
+        private String path;
+        private Long sizeBytes;
+        private String mimeType;
+        private LocalDateTime updatedAt;
+
+        /**
+         * 从子项转换为响应DTO
+         */
+        public static FolderChildResponse fromChild(FolderService.FolderChild child) {
+            if (child.isFolder()) {
+                Folder folder = child.getFolder();
+                return new FolderChildResponse("folder", folder.getId(), folder.getName(), folder.getPath(),
+                    folder.getSizeBytes(), null, folder.getUpdatedAt());
+            }
+            FileEntity file = child.getFile();
+            return new FolderChildResponse("file", file.getId(), file.getName(), file.getPath(),
+                file.getSizeBytes(), file.getMimeType(), file.getUpdatedAt());
+        }
+    }
+
+    /**
+     * 文件夹子项分页响应
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChildListingResponse {
+        
+        private List<FolderChildResponse> children;
+        private String nextCursor;
+        private Boolean hasMore;
+
+        /**
+         * 从子项分页结果转换为响应DTO
+         */
+        public static ChildListingResponse fromPage(FolderService.ChildPage page) {
+            return new ChildListingResponse(
+                page.getChildren().stream()
+                    .map(FolderChildResponse::fromChild)
+                    .collect(Collectors.toList()),
+                page.getNextCursor(),
+                page.hasMore()
+            );
+        }
+    }
+
     /**
      * API统一响应格式
      */
@@ -0,0 +1,424 @@
+package tslc.beihaiyun.lyra.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 内容块（Blob）实体类
+ * 记录存储层中一个按内容寻址的物理对象及其被文件、版本引用的次数
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Entity
+@Table(
+    name = "blobs",
+    indexes = {
+        @Index(name = "idx_blob_file_hash", columnList = "file_hash"),
+        @Index(name = "idx_blob_ref_count", columnList = "ref_count, orphaned_at"),
+        @Index(name = "idx_blob_last_verified", columnList = "last_verified_at")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_blob_storage_path", columnNames = {"storage_path"})
+    }
+)
+public class Blob extends BaseEntity {
+
+    /**
+     * 原样存储
+     */
+    public static final String CODEC_NONE = "none";
+
+    /**
+     * GZIP压缩存储
+     */
+    public static final String CODEC_GZIP = "gzip";
+
+    /**
+     * 内容定义分块存储（清单+块包文件）
+     */
+    public static final String CODEC_CHUNKED = "cdc";
+
+    /**
+     * 内容块ID（主键）
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * 内容哈希值（SHA-256）
+     */
+    @NotBlank(message = "内容哈希值不能为空")
+    @Size(max = 64, message = "内容哈希值长度不能超过64个字符")
+    @Column(name = "file_hash", length = 64, nullable = false)
+    private String fileHash;
+
+    /**
+     * 存储路径
+     */
+    @NotBlank(message = "存储路径不能为空")
+    @Size(max = 500, message = "存储路径长度不能超过500个字符")
+    @Column(name = "storage_path", length = 500, nullable = false)
+    private String storagePath;
+
+    /**
+     * 内容大小（字节）
+     */
+    @NotNull(message = "内容大小不能为空")
+    @Min(value = 0, message = "内容大小不能为负数")
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    /**
+     * 引用计数（文件与版本记录引用该内容块的次数）
+     */
+    @NotNull(message = "引用计数不能为空")
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount = 0L;
+
+    /**
+     * 引用计数归零的时间，为空表示仍被引用
+     */
+    @Column(name = "orphaned_at")
+    private LocalDateTime orphanedAt;
+
+    /**
+     * 垃圾回收认领该内容块的时间，为空表示未进入清除阶段；认领后不再接受新的引用
+     */
+    @Column(name = "tombstoned_at")
+    private LocalDateTime tombstonedAt;
+
+    /**
+     * 存储编码（none表示原样存储，gzip表示压缩存储）
+     */
+    @NotNull(message = "存储编码不能为空")
+    @Size(max = 16, message = "存储编码长度不能超过16个字符")
+    @Column(name = "codec", length = 16, nullable = false)
+    private String codec = CODEC_NONE;
+
+    /**
+     * 落盘大小（编码后的字节数）
+     */
+    @Column(name = "stored_size_bytes")
+    private Long storedSizeBytes;
+
+    /**
+     * 最近一次完整性校验的时间，为空表示从未校验
+     */
+    @Column(name = "last_verified_at")
+    private LocalDateTime lastVerifiedAt;
+
+    /**
+     * 最近一次尝试完整性校验的时间（无论结果），为空表示从未校验
+     */
+    @Column(name = "last_scrubbed_at")
+    private LocalDateTime lastScrubbedAt;
+
+    /**
+     * 首次发现内容损坏或丢失的时间，为空表示最近一次校验通过
+     */
+    @Column(name = "corrupted_at")
+    private LocalDateTime corruptedAt;
+
+    /**
+     * 默认构造函数
+     */
+    public Blob() {
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param fileHash 内容哈希值
+     * @param storagePath 存储路径
+     * @param sizeBytes 内容大小
+     */
+    public Blob(String fileHash, String storagePath, Long sizeBytes) {
+        this.fileHash = fileHash;
+        this.storagePath = storagePath;
+        this.sizeBytes = sizeBytes;
+    }
+
+    // ========== Getter 和 Setter 方法 ==========
+
+    /**
+     * 获取内容块ID
+     *
+     * @return 内容块ID
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * 设置内容块ID
+     *
+     * @param id 内容块ID
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * 获取内容哈希值
+     *
+     * @return 内容哈希值
+     */
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    /**
+     * 设置内容哈希值
+     *
+     * @param fileHash 内容哈希值
+     */
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
+    /**
+     * 获取存储路径
+     *
+     * @return 存储路径
+     */
+    public String getStoragePath() {
+        return storagePath;
+    }
+
+    /**
+     * 设置存储路径
+     *
+     * @param storagePath 存储路径
+     */
+    public void setStoragePath(String storagePath) {
+        this.storagePath = storagePath;
+    }
+
+    /**
+     * 获取内容大小
+     *
+     * @return 内容大小（字节）
+     */
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * 设置内容大小
+     *
+     * @param sizeBytes 内容大小（字节）
+     */
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * 获取引用计数
+     *
+     * @return 引用计数
+     */
+    public Long getRefCount() {
+        return refCount;
+    }
+
+    /**
+     * 设置引用计数
+     *
+     * @param refCount 引用计数
+     */
+    public void setRefCount(Long refCount) {
+        this.refCount = refCount;
+    }
+
+    /**
+     * 获取引用计数归零时间
+     *
+     * @return 归零时间
+     */
+    public LocalDateTime getOrphanedAt() {
+        return orphanedAt;
+    }
+
+    /**
+     * 设置引用计数归零时间
+     *
+     * @param orphanedAt 归零时间
+     */
+    public void setOrphanedAt(LocalDateTime orphanedAt) {
+        this.orphanedAt = orphanedAt;
+    }
+
+    /**
+     * 获取垃圾回收认领时间
+     *
+     * @return 认领时间
+     */
+    public LocalDateTime getTombstonedAt() {
+        return tombstonedAt;
+    }
+
+    /**
+     * 设置垃圾回收认领时间
+     *
+     * @param tombstonedAt 认领时间
+     */
+    public void setTombstonedAt(LocalDateTime tombstonedAt) {
+        this.tombstonedAt = tombstonedAt;
+    }
+
+    /**
+     * 获取存储编码
+     *
+     * @return 存储编码
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * 设置存储编码
+     *
+     * @param codec 存储编码
+     */
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 获取落盘大小
+     *
+     * @return 落盘大小（字节）
+     */
+    public Long getStoredSizeBytes() {
+        return storedSizeBytes;
+    }
+
+    /**
+     * 设置落盘大小
+     *
+     * @param storedSizeBytes 落盘大小（字节）
+     */
+    public void setStoredSizeBytes(Long storedSizeBytes) {
+        this.storedSizeBytes = storedSizeBytes;
+    }
+
+    /**
+     * 获取最近一次完整性校验的时间
+     *
+     * @return 校验时间
+     */
+    public LocalDateTime getLastVerifiedAt() {
+        return lastVerifiedAt;
+    }
+
+    /**
+     * 设置最近一次完整性校验的时间
+     *
+     * @param lastVerifiedAt 校验时间
+     */
+    public void setLastVerifiedAt(LocalDateTime lastVerifiedAt) {
+        this.lastVerifiedAt = lastVerifiedAt;
+    }
+
+    /**
+     * 获取最近一次尝试完整性校验的时间
+     *
+     * @return 尝试校验时间
+     */
+    public LocalDateTime getLastScrubbedAt() {
+        return lastScrubbedAt;
+    }
+
+    /**
+     * 设置最近一次尝试完整性校验的时间
+     *
+     * @param lastScrubbedAt 尝试校验时间
+     */
+    public void setLastScrubbedAt(LocalDateTime lastScrubbedAt) {
+        this.lastScrubbedAt = lastScrubbedAt;
+    }
+
+    /**
+     * 获取发现内容损坏的时间
+     *
+     * @return 损坏发现时间
+     */
+    public LocalDateTime getCorruptedAt() {
+        return corruptedAt;
+    }
+
+    /**
+     * 设置发现内容损坏的时间
+     *
+     * @param corruptedAt 损坏发现时间
+     */
+    public void setCorruptedAt(LocalDateTime corruptedAt) {
+        this.corruptedAt = corruptedAt;
+    }
+
+    // ========== 业务方法 ==========
+
+    /**
+     * 检查内容块是否已无引用
+     *
+     * @return 是否无引用
+     */
+    public boolean isOrphaned() {
+        return refCount == null || refCount <= 0;
+    }
+
+    /**
+     * 检查内容块是否已被垃圾回收认领
+     *
+     * @return 是否已认领
+     */
+    public boolean isTombstoned() {
+        return tombstonedAt != null;
+    }
+
+    /**
+     * 检查内容块是否已被校验为损坏
+     *
+     * @return 是否损坏
+     */
+    public boolean isCorrupted() {
+        return corruptedAt != null;
+    }
+
+    // ========== 重写方法 ==========
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Blob)) return false;
+        Blob that = (Blob) o;
+        return id != null && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Blob{" +
+                "id=" + id +
+                ", fileHash='" + fileHash + '\'' +
+                ", storagePath='" + storagePath + '\'' +
+                ", sizeBytes=" + sizeBytes +
+                ", refCount=" + refCount +
+                ", orphanedAt=" + orphanedAt +
+                ", tombstonedAt=" + tombstonedAt +
+                ", codec='" + codec + '\'' +
+                ", lastVerifiedAt=" + lastVerifiedAt +
+                ", corruptedAt=" + corruptedAt +
+                '}';
+    }
+}
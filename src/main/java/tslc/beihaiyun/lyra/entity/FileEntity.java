@@ -22,7 +22,9 @@ import java.util.Set;
         @Index(name = "idx_file_folder_id", columnList = "folder_id"),
         @Index(name = "idx_file_space_id", columnList = "space_id"),
         @Index(name = "idx_file_status", columnList = "status"),
-        @Index(name = "idx_file_hash", columnList = "file_hash")
+        @Index(name = "idx_file_hash", columnList = "file_hash"),
+        @Index(name = "idx_file_space_creator", columnList = "space_id, created_by, status"),
+        @Index(name = "idx_file_folder_status_name", columnList = "folder_id, status, name")
     },
     uniqueConstraints = {
         @UniqueConstraint(name = "uk_file_space_path", columnNames = {"space_id", "path"})
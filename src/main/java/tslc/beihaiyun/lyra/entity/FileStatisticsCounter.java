@@ -0,0 +1,226 @@
+package tslc.beihaiyun.lyra.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 文件统计计数实体类
+ * 按空间（及空间内的创建者）物化文件数量和总大小，随文件变更在同一事务内增量维护，
+ * 统计查询只读取一行；creator为空串的行为空间汇总行，space_id为0的行为创建者跨全部空间的汇总行
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Entity
+@Table(
+    name = "file_statistics",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_file_statistics_space_creator", columnNames = {"space_id", "creator"})
+    }
+)
+public class FileStatisticsCounter extends BaseEntity {
+
+    /**
+     * 空间汇总行的创建者标识
+     */
+    public static final String SPACE_TOTAL = "";
+
+    /**
+     * 创建者跨全部空间汇总行的空间ID
+     */
+    public static final long ALL_SPACES = 0L;
+
+    /**
+     * 计数ID（主键）
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * 空间ID（0表示全部空间）
+     */
+    @NotNull(message = "空间ID不能为空")
+    @Column(name = "space_id", nullable = false)
+    private Long spaceId;
+
+    /**
+     * 创建者（与文件的created_by一致，空串表示空间汇总）
+     */
+    @NotNull(message = "创建者不能为空")
+    @Size(max = 50, message = "创建者长度不能超过50个字符")
+    @Column(name = "creator", length = 50, nullable = false)
+    private String creator = SPACE_TOTAL;
+
+    /**
+     * 活跃文件数
+     */
+    @Column(name = "active_files", nullable = false)
+    private Long activeFiles = 0L;
+
+    /**
+     * 回收站文件数
+     */
+    @Column(name = "deleted_files", nullable = false)
+    private Long deletedFiles = 0L;
+
+    /**
+     * 归档文件数
+     */
+    @Column(name = "archived_files", nullable = false)
+    private Long archivedFiles = 0L;
+
+    /**
+     * 文件总大小（字节，含回收站和归档文件）
+     */
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize = 0L;
+
+    /**
+     * 最近的文件修改时间
+     */
+    @Column(name = "last_modified_at")
+    private LocalDateTime lastModifiedAt;
+
+    /**
+     * 默认构造函数
+     */
+    public FileStatisticsCounter() {
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param spaceId 空间ID
+     * @param creator 创建者（空串表示空间汇总）
+     */
+    public FileStatisticsCounter(Long spaceId, String creator) {
+        this.spaceId = spaceId;
+        this.creator = creator;
+    }
+
+    // ========== Getter 和 Setter 方法 ==========
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSpaceId() {
+        return spaceId;
+    }
+
+    public void setSpaceId(Long spaceId) {
+        this.spaceId = spaceId;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public void setCreator(String creator) {
+        this.creator = creator;
+    }
+
+    public Long getActiveFiles() {
+        return activeFiles;
+    }
+
+    public void setActiveFiles(Long activeFiles) {
+        this.activeFiles = activeFiles;
+    }
+
+    public Long getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    public void setDeletedFiles(Long deletedFiles) {
+        this.deletedFiles = deletedFiles;
+    }
+
+    public Long getArchivedFiles() {
+        return archivedFiles;
+    }
+
+    public void setArchivedFiles(Long archivedFiles) {
+        this.archivedFiles = archivedFiles;
+    }
+
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(Long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public LocalDateTime getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+
+    public void setLastModifiedAt(LocalDateTime lastModifiedAt) {
+        this.lastModifiedAt = lastModifiedAt;
+    }
+
+    // ========== 业务方法 ==========
+
+    /**
+     * 获取文件总数
+     *
+     * @return 各状态文件数之和
+     */
+    public long getTotalFiles() {
+        return activeFiles + deletedFiles + archivedFiles;
+    }
+
+    /**
+     * 检查计数是否与另一组计数一致
+     *
+     * @param other 另一组计数
+     * @return 是否一致
+     */
+    public boolean sameCountsAs(FileStatisticsCounter other) {
+        return activeFiles.equals(other.activeFiles)
+                && deletedFiles.equals(other.deletedFiles)
+                && archivedFiles.equals(other.archivedFiles)
+                && totalSize.equals(other.totalSize)
+                && Objects.equals(lastModifiedAt, other.lastModifiedAt);
+    }
+
+    // ========== 重写方法 ==========
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileStatisticsCounter)) return false;
+        FileStatisticsCounter that = (FileStatisticsCounter) o;
+        return id != null && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "FileStatisticsCounter{" +
+                "id=" + id +
+                ", spaceId=" + spaceId +
+                ", creator='" + creator + '\'' +
+                ", activeFiles=" + activeFiles +
+                ", deletedFiles=" + deletedFiles +
+                ", archivedFiles=" + archivedFiles +
+                ", totalSize=" + totalSize +
+                ", lastModifiedAt=" + lastModifiedAt +
+                '}';
+    }
+}
@@ -16,7 +16,8 @@ import jakarta.validation.constraints.*;
     name = "file_versions",
     indexes = {
         @Index(name = "idx_file_version_file_id", columnList = "file_id"),
-        @Index(name = "idx_file_version_created_at", columnList = "created_at")
+        @Index(name = "idx_file_version_created_at", columnList = "created_at"),
+        @Index(name = "idx_file_version_base", columnList = "base_version_id")
     },
     uniqueConstraints = {
         @UniqueConstraint(name = "uk_file_version_number", columnNames = {"file_id", "version_number"})
@@ -24,6 +25,16 @@ import jakarta.validation.constraints.*;
 )
 public class FileVersion extends BaseEntity {
 
+    /**
+     * 版本内容存储方式枚举
+     */
+    public enum StorageType {
+        /** 完整内容 */
+        FULL,
+        /** 相对基准版本的二进制差量 */
+        DELTA
+    }
+
     /**
      * 版本ID（主键）
      */
@@ -71,6 +82,20 @@ public class FileVersion extends BaseEntity {
     @Column(name = "storage_path", length = 1000, nullable = false)
     private String storagePath;
 
+    /**
+     * 内容存储方式，DELTA时存储路径指向差量数据
+     */
+    @NotNull(message = "存储方式不能为空")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_type", length = 10, nullable = false)
+    private StorageType storageType = StorageType.FULL;
+
+    /**
+     * 差量版本的基准版本ID
+     */
+    @Column(name = "base_version_id")
+    private Long baseVersionId;
+
     /**
      * 变更注释
      */
@@ -226,6 +251,42 @@ public class FileVersion extends BaseEntity {
         this.storagePath = storagePath;
     }
 
+    /**
+     * 获取内容存储方式
+     * 
+     * @return 存储方式
+     */
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * 设置内容存储方式
+     * 
+     * @param storageType 存储方式
+     */
+    public void setStorageType(StorageType storageType) {
+        this.storageType = storageType;
+    }
+
+    /**
+     * 获取基准版本ID
+     * 
+     * @return 基准版本ID，完整存储时为null
+     */
+    public Long getBaseVersionId() {
+        return baseVersionId;
+    }
+
+    /**
+     * 设置基准版本ID
+     * 
+     * @param baseVersionId 基准版本ID
+     */
+    public void setBaseVersionId(Long baseVersionId) {
+        this.baseVersionId = baseVersionId;
+    }
+
     /**
      * 获取变更注释
      * 
@@ -281,6 +342,15 @@ public class FileVersion extends BaseEntity {
         return versionNumber != null && versionNumber == 1;
     }
 
+    /**
+     * 检查是否以差量方式存储
+     * 
+     * @return 是否为差量版本
+     */
+    public boolean isDelta() {
+        return storageType == StorageType.DELTA;
+    }
+
     // ========== 重写方法 ==========
 
     @Override
@@ -304,6 +374,7 @@ public class FileVersion extends BaseEntity {
                 ", sizeBytes=" + sizeBytes +
                 ", fileHash='" + fileHash + '\'' +
                 ", storagePath='" + storagePath + '\'' +
+                ", storageType=" + storageType +
                 ", changeComment='" + changeComment + '\'' +
                 '}';
     }
@@ -20,7 +20,9 @@ import java.util.Set;
     indexes = {
         @Index(name = "idx_folder_parent_id", columnList = "parent_id"),
         @Index(name = "idx_folder_space_id", columnList = "space_id"),
-        @Index(name = "idx_folder_path", columnList = "path")
+        @Index(name = "idx_folder_path", columnList = "path"),
+        @Index(name = "idx_folder_parent_name", columnList = "parent_id, name"),
+        @Index(name = "idx_folder_space_root_name", columnList = "space_id, is_root, name")
     },
     uniqueConstraints = {
         @UniqueConstraint(name = "uk_folder_space_path", columnNames = {"space_id", "path"})
@@ -0,0 +1,506 @@
+package tslc.beihaiyun.lyra.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 分块上传会话实体类
+ * 持久化分块上传的元数据、临时文件位置和已接收分块位图，使上传可在服务重启后继续
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Entity
+@Table(
+    name = "upload_sessions",
+    indexes = {
+        @Index(name = "idx_upload_session_uploader", columnList = "uploader_id"),
+        @Index(name = "idx_upload_session_updated", columnList = "updated_at")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_upload_session_upload_id", columnNames = {"upload_id"})
+    }
+)
+public class UploadSession extends BaseEntity {
+
+    /**
+     * 会话ID（主键）
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * 上传标识（对外暴露的会话标识）
+     */
+    @NotBlank(message = "上传标识不能为空")
+    @Size(max = 36, message = "上传标识长度不能超过36个字符")
+    @Column(name = "upload_id", length = 36, nullable = false)
+    private String uploadId;
+
+    /**
+     * 文件名
+     */
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名长度不能超过255个字符")
+    @Column(name = "filename", length = 255, nullable = false)
+    private String filename;
+
+    /**
+     * 文件总大小（字节）
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小必须大于0")
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    /**
+     * 客户端声明的文件哈希值（SHA-256）
+     */
+    @Size(max = 64, message = "文件哈希值长度不能超过64个字符")
+    @Column(name = "file_hash", length = 64)
+    private String fileHash;
+
+    /**
+     * 分块大小（字节）
+     */
+    @NotNull(message = "分块大小不能为空")
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    /**
+     * 分块总数
+     */
+    @NotNull(message = "分块总数不能为空")
+    @Column(name = "total_chunks", nullable = false)
+    private Integer totalChunks;
+
+    /**
+     * 目标空间ID
+     */
+    @NotNull(message = "空间ID不能为空")
+    @Column(name = "space_id", nullable = false)
+    private Long spaceId;
+
+    /**
+     * 目标文件夹ID，为空表示空间根目录
+     */
+    @Column(name = "folder_id")
+    private Long folderId;
+
+    /**
+     * 上传者ID
+     */
+    @NotNull(message = "上传者ID不能为空")
+    @Column(name = "uploader_id", nullable = false)
+    private Long uploaderId;
+
+    /**
+     * 文件描述
+     */
+    @Size(max = 500, message = "描述长度不能超过500个字符")
+    @Column(name = "description", length = 500)
+    private String description;
+
+    /**
+     * 预分配的临时文件路径
+     */
+    @NotBlank(message = "临时文件路径不能为空")
+    @Size(max = 500, message = "临时文件路径长度不能超过500个字符")
+    @Column(name = "temp_path", length = 500, nullable = false)
+    private String tempPath;
+
+    /**
+     * 已接收分块位图（Base64编码的BitSet）
+     */
+    @Column(name = "chunk_bitmap", columnDefinition = "TEXT")
+    private String chunkBitmap;
+
+    /**
+     * 已接收分块数量
+     */
+    @Column(name = "completed_chunks", nullable = false)
+    private Integer completedChunks = 0;
+
+    /**
+     * 默认构造函数
+     */
+    public UploadSession() {
+    }
+
+    // ========== Getter 和 Setter 方法 ==========
+
+    /**
+     * 获取会话ID
+     *
+     * @return 会话ID
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * 设置会话ID
+     *
+     * @param id 会话ID
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * 获取上传标识
+     *
+     * @return 上传标识
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * 设置上传标识
+     *
+     * @param uploadId 上传标识
+     */
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * 获取文件名
+     *
+     * @return 文件名
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * 设置文件名
+     *
+     * @param filename 文件名
+     */
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    /**
+     * 获取文件总大小
+     *
+     * @return 文件总大小（字节）
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * 设置文件总大小
+     *
+     * @param fileSize 文件总大小（字节）
+     */
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * 获取客户端声明的文件哈希值
+     *
+     * @return 文件哈希值
+     */
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    /**
+     * 设置客户端声明的文件哈希值
+     *
+     * @param fileHash 文件哈希值
+     */
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
+    /**
+     * 获取分块大小
+     *
+     * @return 分块大小（字节）
+     */
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 设置分块大小
+     *
+     * @param chunkSize 分块大小（字节）
+     */
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 获取分块总数
+     *
+     * @return 分块总数
+     */
+    public Integer getTotalChunks() {
+        return totalChunks;
+    }
+
+    /**
+     * 设置分块总数
+     *
+     * @param totalChunks 分块总数
+     */
+    public void setTotalChunks(Integer totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    /**
+     * 获取目标空间ID
+     *
+     * @return 空间ID
+     */
+    public Long getSpaceId() {
+        return spaceId;
+    }
+
+    /**
+     * 设置目标空间ID
+     *
+     * @param spaceId 空间ID
+     */
+    public void setSpaceId(Long spaceId) {
+        this.spaceId = spaceId;
+    }
+
+    /**
+     * 获取目标文件夹ID
+     *
+     * @return 文件夹ID
+     */
+    public Long getFolderId() {
+        return folderId;
+    }
+
+    /**
+     * 设置目标文件夹ID
+     *
+     * @param folderId 文件夹ID
+     */
+    public void setFolderId(Long folderId) {
+        this.folderId = folderId;
+    }
+
+    /**
+     * 获取上传者ID
+     *
+     * @return 上传者ID
+     */
+    public Long getUploaderId() {
+        return uploaderId;
+    }
+
+    /**
+     * 设置上传者ID
+     *
+     * @param uploaderId 上传者ID
+     */
+    public void setUploaderId(Long uploaderId) {
+        this.uploaderId = uploaderId;
+    }
+
+    /**
+     * 获取文件描述
+     *
+     * @return 文件描述
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 设置文件描述
+     *
+     * @param description 文件描述
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * 获取临时文件路径
+     *
+     * @return 临时文件路径
+     */
+    public String getTempPath() {
+        return tempPath;
+    }
+
+    /**
+     * 设置临时文件路径
+     *
+     * @param tempPath 临时文件路径
+     */
+    public void setTempPath(String tempPath) {
+        this.tempPath = tempPath;
+    }
+
+    /**
+     * 获取已接收分块位图
+     *
+     * @return Base64编码的位图
+     */
+    public String getChunkBitmap() {
+        return chunkBitmap;
+    }
+
+    /**
+     * 设置已接收分块位图
+     *
+     * @param chunkBitmap Base64编码的位图
+     */
+    public void setChunkBitmap(String chunkBitmap) {
+        this.chunkBitmap = chunkBitmap;
+    }
+
+    /**
+     * 获取已接收分块数量
+     *
+     * @return 已接收分块数量
+     */
+    public Integer getCompletedChunks() {
+        return completedChunks;
+    }
+
+    /**
+     * 设置已接收分块数量
+     *
+     * @param completedChunks 已接收分块数量
+     */
+    public void setCompletedChunks(Integer completedChunks) {
+        this.completedChunks = completedChunks;
+    }
+
+    // ========== 业务方法 ==========
+
+    /**
+     * 检查分块是否已接收
+     *
+     * @param chunkIndex 分块索引
+     * @return 是否已接收
+     */
+    public boolean isChunkCompleted(int chunkIndex) {
+        return getChunkBitSet().get(chunkIndex);
+    }
+
+    /**
+     * 获取已接收分块位图的副本
+     *
+     * @return 分块位图
+     */
+    public BitSet getChunkBitSet() {
+        if (chunkBitmap == null || chunkBitmap.isEmpty()) {
+            return new BitSet(totalChunks != null ? totalChunks : 0);
+        }
+        return BitSet.valueOf(Base64.getDecoder().decode(chunkBitmap));
+    }
+
+    /**
+     * 标记分块已接收
+     *
+     * @param chunkIndex 分块索引
+     * @return 是否为首次接收该分块
+     */
+    public boolean markChunkCompleted(int chunkIndex) {
+        if (chunkIndex < 0 || chunkIndex >= totalChunks) {
+            return false;
+        }
+        BitSet bitmap = getChunkBitSet();
+        if (bitmap.get(chunkIndex)) {
+            return false;
+        }
+        bitmap.set(chunkIndex);
+        this.chunkBitmap = Base64.getEncoder().encodeToString(bitmap.toByteArray());
+        this.completedChunks = bitmap.cardinality();
+        return true;
+    }
+
+    /**
+     * 获取已接收的分块索引列表
+     *
+     * @return 分块索引列表
+     */
+    public List<Integer> getCompletedChunkIndexes() {
+        BitSet bitmap = getChunkBitSet();
+        List<Integer> indexes = new ArrayList<>(bitmap.cardinality());
+        for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * 检查所有分块是否均已接收
+     *
+     * @return 是否全部接收
+     */
+    public boolean isAllChunksCompleted() {
+        return completedChunks != null && completedChunks.equals(totalChunks);
+    }
+
+    /**
+     * 计算分块在文件中的起始偏移
+     *
+     * @param chunkIndex 分块索引
+     * @return 起始偏移（字节）
+     */
+    public long getChunkOffset(int chunkIndex) {
+        return (long) chunkIndex * chunkSize;
+    }
+
+    /**
+     * 计算分块的期望长度（最后一块可能不足分块大小）
+     *
+     * @param chunkIndex 分块索引
+     * @return 分块长度（字节）
+     */
+    public long getChunkLength(int chunkIndex) {
+        return Math.min(chunkSize, fileSize - getChunkOffset(chunkIndex));
+    }
+
+    // ========== 重写方法 ==========
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UploadSession)) return false;
+        UploadSession that = (UploadSession) o;
+        return id != null && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "UploadSession{" +
+                "id=" + id +
+                ", uploadId='" + uploadId + '\'' +
+                ", filename='" + filename + '\'' +
+                ", fileSize=" + fileSize +
+                ", chunkSize=" + chunkSize +
+                ", totalChunks=" + totalChunks +
+                ", completedChunks=" + completedChunks +
+                '}';
+    }
+}
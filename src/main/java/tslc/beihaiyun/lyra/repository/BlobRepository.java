@@ -0,0 +1,189 @@
+package tslc.beihaiyun.lyra.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tslc.beihaiyun.lyra.entity.Blob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 内容块Repository接口
+ * 提供内容块登记、引用计数和垃圾回收相关的数据访问操作
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, Long> {
+
+    /**
+     * 根据存储路径查找内容块
+     *
+     * @param storagePath 存储路径
+     * @return 内容块（可选）
+     */
+    Optional<Blob> findByStoragePath(String storagePath);
+
+    /**
+     * 查找指定哈希值下仍被引用的任一内容块（去重查询）
+     *
+     * @param fileHash 内容哈希值
+     * @param minRefCount 最小引用计数（不含）
+     * @return 内容块（可选）
+     */
+    Optional<Blob> findFirstByFileHashAndRefCountGreaterThanOrderByIdAsc(String fileHash, Long minRefCount);
+
+    /**
+     * 查询内容块当前引用计数（直接读库，不经过持久化上下文）
+     *
+     * @param storagePath 存储路径
+     * @return 引用计数（可选）
+     */
+    @Query("SELECT b.refCount FROM Blob b WHERE b.storagePath = :storagePath")
+    Optional<Long> findRefCountByStoragePath(@Param("storagePath") String storagePath);
+
+    /**
+     * 原子增加引用计数，已被垃圾回收认领的内容块不再接受引用
+     *
+     * @param storagePath 存储路径
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE Blob b SET b.refCount = b.refCount + 1, b.orphanedAt = NULL " +
+           "WHERE b.storagePath = :storagePath AND b.tombstonedAt IS NULL")
+    int incrementRefCount(@Param("storagePath") String storagePath);
+
+    /**
+     * 原子减少引用计数，计数归零时记录归零时间
+     *
+     * @param storagePath 存储路径
+     * @param now 当前时间
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE Blob b SET b.orphanedAt = CASE WHEN b.refCount <= 1 THEN :now ELSE NULL END, " +
+           "b.refCount = b.refCount - 1 " +
+           "WHERE b.storagePath = :storagePath AND b.refCount > 0")
+    int decrementRefCount(@Param("storagePath") String storagePath, @Param("now") LocalDateTime now);
+
+    /**
+     * 检查存储路径是否已登记
+     *
+     * @param storagePath 存储路径
+     * @return 是否已登记
+     */
+    boolean existsByStoragePath(String storagePath);
+
+    /**
+     * 检查存储路径上是否有无引用或已被认领的内容块（可能正在被垃圾回收清除）
+     *
+     * @param storagePath 存储路径
+     * @return 是否可能被回收
+     */
+    @Query("SELECT COUNT(b) > 0 FROM Blob b WHERE b.storagePath = :storagePath " +
+           "AND (b.refCount <= 0 OR b.tombstonedAt IS NOT NULL)")
+    boolean existsCollectableByStoragePath(@Param("storagePath") String storagePath);
+
+    /**
+     * 垃圾回收认领内容块：仅当引用计数仍为零时标记，同时锁定该行直到事务结束，
+     * 与并发的引用自增互斥
+     *
+     * @param id 内容块ID
+     * @param now 当前时间
+     * @return 更新的记录数，为0表示内容块已被重新引用
+     */
+    @Modifying
+    @Query("UPDATE Blob b SET b.tombstonedAt = COALESCE(b.tombstonedAt, :now) WHERE b.id = :id AND b.refCount <= 0")
+    int tombstone(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 查询引用计数已归零且超过宽限期的内容块（垃圾回收候选）
+     *
+     * @param before 归零时间上限
+     * @param pageable 分页参数（批大小）
+     * @return 候选内容块列表
+     */
+    @Query("SELECT b FROM Blob b WHERE b.refCount <= 0 AND b.orphanedAt < :before ORDER BY b.orphanedAt")
+    List<Blob> findCollectableBlobs(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * 统计内容块总数与总大小
+     *
+     * @return [数量, 总大小]
+     */
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.sizeBytes), 0) FROM Blob b")
+    List<Object[]> summarizeAll();
+
+    /**
+     * 统计无引用内容块数量与可回收大小
+     *
+     * @return [数量, 总大小]
+     */
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.sizeBytes), 0) FROM Blob b WHERE b.refCount <= 0")
+    List<Object[]> summarizeOrphaned();
+
+    /**
+     * 查询需要完整性校验的内容块：从未尝试过的优先，其余按上次尝试时间从早到晚，
+     * 校验失败的内容块因此排到队尾，不会反复占据批次
+     *
+     * @param verifiedBefore 上次校验时间早于该时间的才需要复检
+     * @param attemptedBefore 上次尝试时间早于该时间的才可再次选取
+     * @param pageable 分页参数（批大小）
+     * @return 待校验内容块列表
+     */
+    @Query("SELECT b FROM Blob b WHERE b.refCount > 0 " +
+           "AND (b.lastVerifiedAt IS NULL OR b.lastVerifiedAt < :verifiedBefore) " +
+           "AND (b.lastScrubbedAt IS NULL OR b.lastScrubbedAt < :attemptedBefore) " +
+           "ORDER BY CASE WHEN b.lastScrubbedAt IS NULL THEN 0 ELSE 1 END, b.lastScrubbedAt, b.id")
+    List<Blob> findScrubCandidates(@Param("verifiedBefore") LocalDateTime verifiedBefore,
+                                   @Param("attemptedBefore") LocalDateTime attemptedBefore, Pageable pageable);
+
+    /**
+     * 记录一批内容块校验通过
+     *
+     * @param ids 内容块ID列表
+     * @param now 校验时间
+     * @return 更新行数
+     */
+    @Modifying
+    @Query("UPDATE Blob b SET b.lastVerifiedAt = :now, b.lastScrubbedAt = :now, b.corruptedAt = NULL WHERE b.id IN :ids")
+    int markVerified(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 记录一批内容块校验失败，保留首次发现损坏的时间
+     *
+     * @param ids 内容块ID列表
+     * @param now 校验时间
+     * @return 更新行数
+     */
+    @Modifying
+    @Query("UPDATE Blob b SET b.lastVerifiedAt = :now, b.lastScrubbedAt = :now, " +
+           "b.corruptedAt = COALESCE(b.corruptedAt, :now) WHERE b.id IN :ids")
+    int markCorrupted(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 记录一批内容块校验未能完成，只更新尝试时间，不视为校验通过
+     *
+     * @param ids 内容块ID列表
+     * @param now 尝试时间
+     * @return 更新行数
+     */
+    @Modifying
+    @Query("UPDATE Blob b SET b.lastScrubbedAt = :now WHERE b.id IN :ids")
+    int markScrubFailed(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 统计已发现损坏且仍被引用的内容块数量
+     *
+     * @param minRefCount 引用计数下限（不含）
+     * @return 数量
+     */
+    long countByCorruptedAtIsNotNullAndRefCountGreaterThan(Long minRefCount);
+}
@@ -7,10 +7,14 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
@@ -85,6 +89,17 @@ public interface FileEntityRepository extends JpaRepository<FileEntity, Long> {
      */
     List<FileEntity> findBySpaceAndStatus(Space space, FileEntity.FileStatus status);
 
+    /**
+     * 根据ID查找文件并加行级写锁，直到当前事务结束
+     * 用于串行化同一文件上依赖"最新版本"的并发操作
+     * 
+     * @param id 文件ID
+     * @return 文件（可选）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FileEntity f WHERE f.id = :id")
+    Optional<FileEntity> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * 根据文件哈希值查找文件
      * 
@@ -129,6 +144,29 @@ public interface FileEntityRepository extends JpaRepository<FileEntity, Long> {
      */
     boolean existsBySpaceAndPathAndIdNot(Space space, String path, Long fileId);
 
+    /**
+     * 查询空间内匹配LIKE模式的文件路径，模式以'!'为转义字符
+     * 
+     * @param space 所属空间
+     * @param pattern 已转义的LIKE模式
+     * @return 文件路径列表
+     */
+    @Query("SELECT f.path FROM FileEntity f WHERE f.space = :space AND f.path LIKE :pattern ESCAPE '!'")
+    List<String> findPathsBySpaceAndPathLike(@Param("space") Space space, @Param("pattern") String pattern);
+
+    /**
+     * 查询空间内以指定前缀开头的文件路径（用于按前缀分配唯一文件名）
+     * LIKE在不区分大小写的排序规则下可能多返回路径，调用方需按前缀再过滤
+     * 
+     * @param space 所属空间
+     * @param prefix 路径前缀
+     * @return 文件路径列表
+     */
+    default List<String> findPathsBySpaceAndPathPrefix(Space space, String prefix) {
+        String escaped = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return findPathsBySpaceAndPathLike(space, escaped + "%");
+    }
+
     /**
      * 分页查询空间下的文件
      * 
@@ -166,6 +204,45 @@ public interface FileEntityRepository extends JpaRepository<FileEntity, Long> {
      */
     Page<FileEntity> findBySpaceAndStatus(Space space, FileEntity.FileStatus status, Pageable pageable);
 
+    /**
+     * 键集分页查询文件夹下特定状态的文件，按(名称, ID)排序
+     * 走(folder_id, status, name)索引，从上一页最后一项之后开始读取
+     * 
+     * @param folder 所属文件夹
+     * @param status 文件状态
+     * @param afterName 上一页最后一项的名称，首页传空串
+     * @param afterId 上一页最后一项的ID，首页传0
+     * @param pageable 仅用于限制返回条数
+     * @return 文件列表
+     */
+    @Query("SELECT f FROM FileEntity f WHERE f.folder = :folder AND f.status = :status " +
+           "AND (f.name > :afterName OR (f.name = :afterName AND f.id > :afterId)) " +
+           "ORDER BY f.name, f.id")
+    List<FileEntity> findChildrenAfter(@Param("folder") Folder folder,
+                                       @Param("status") FileEntity.FileStatus status,
+                                       @Param("afterName") String afterName,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    /**
+     * 键集分页查询空间根目录下特定状态的文件，按(名称, ID)排序
+     * 
+     * @param space 所属空间
+     * @param status 文件状态
+     * @param afterName 上一页最后一项的名称，首页传空串
+     * @param afterId 上一页最后一项的ID，首页传0
+     * @param pageable 仅用于限制返回条数
+     * @return 文件列表
+     */
+    @Query("SELECT f FROM FileEntity f WHERE f.space = :space AND f.folder IS NULL AND f.status = :status " +
+           "AND (f.name > :afterName OR (f.name = :afterName AND f.id > :afterId)) " +
+           "ORDER BY f.name, f.id")
+    List<FileEntity> findRootChildrenAfter(@Param("space") Space space,
+                                           @Param("status") FileEntity.FileStatus status,
+                                           @Param("afterName") String afterName,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
     /**
      * 根据空间和名称查找文件
      * 
@@ -318,6 +395,7 @@ public interface FileEntityRepository extends JpaRepository<FileEntity, Long> {
      * @param status 新状态
      * @return 更新的记录数
      */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE FileEntity f SET f.status = :status WHERE f.id IN :fileIds")
     int updateStatusByIds(@Param("fileIds") List<Long> fileIds, @Param("status") FileEntity.FileStatus status);
 
@@ -328,9 +406,82 @@ public interface FileEntityRepository extends JpaRepository<FileEntity, Long> {
      * @param newFolder 新文件夹
      * @return 更新的记录数
      */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE FileEntity f SET f.folder = :newFolder WHERE f.id IN :fileIds")
     int updateFolderByIds(@Param("fileIds") List<Long> fileIds, @Param("newFolder") Folder newFolder);
 
+    /**
+     * 批量更新文件状态并记录操作者
+     * 
+     * @param fileIds 文件ID列表
+     * @param status 新状态
+     * @param updatedBy 操作者
+     * @param updatedAt 更新时间
+     * @return 更新的记录数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE FileEntity f SET f.status = :status, f.updatedBy = :updatedBy, f.updatedAt = :updatedAt " +
+           "WHERE f.id IN :fileIds")
+    int updateStatusByIds(@Param("fileIds") List<Long> fileIds, @Param("status") FileEntity.FileStatus status,
+                          @Param("updatedBy") String updatedBy, @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 批量移动文件到目标空间和文件夹，路径由目标前缀与文件名拼接
+     * 
+     * @param fileIds 文件ID列表
+     * @param space 目标空间
+     * @param folder 目标文件夹（根目录为null）
+     * @param pathPrefix 目标路径前缀（根目录为空串，否则以"/"结尾）
+     * @param updatedBy 操作者
+     * @param updatedAt 更新时间
+     * @return 更新的记录数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE FileEntity f SET f.space = :space, f.folder = :folder, f.path = CONCAT(:pathPrefix, f.name), " +
+           "f.updatedBy = :updatedBy, f.updatedAt = :updatedAt WHERE f.id IN :fileIds")
+    int moveByIds(@Param("fileIds") List<Long> fileIds, @Param("space") Space space, @Param("folder") Folder folder,
+                  @Param("pathPrefix") String pathPrefix, @Param("updatedBy") String updatedBy,
+                  @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 查询空间中已被占用的路径（用于批量操作一次性检查重名）
+     * 
+     * @param space 所属空间
+     * @param paths 候选路径列表
+     * @return 占用结果 [文件ID, 路径]
+     */
+    @Query("SELECT f.id, f.path FROM FileEntity f WHERE f.space = :space AND f.path IN :paths")
+    List<Object[]> findIdAndPathBySpaceAndPathIn(@Param("space") Space space, @Param("paths") List<String> paths);
+
+    /**
+     * 查询空间中全部文件的ID和路径（用于构建路径索引，不加载实体）
+     * 
+     * @param space 所属空间
+     * @return 查询结果 [文件ID, 路径]
+     */
+    @Query("SELECT f.id, f.path FROM FileEntity f WHERE f.space = :space")
+    List<Object[]> findIdAndPathBySpace(@Param("space") Space space);
+
+    /**
+     * 批量删除文件的分享链接（永久删除文件前调用）
+     * 
+     * @param fileIds 文件ID列表
+     * @return 删除的记录数
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ShareLink s WHERE s.file.id IN :fileIds")
+    int deleteShareLinksByFileIds(@Param("fileIds") List<Long> fileIds);
+
+    /**
+     * 批量删除文件记录，调用前需先删除其历史版本与分享链接
+     * 
+     * @param fileIds 文件ID列表
+     * @return 删除的记录数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM FileEntity f WHERE f.id IN :fileIds")
+    int deleteByIds(@Param("fileIds") List<Long> fileIds);
+
     /**
      * 根据空间ID查找文件列表（用于级联查询）
      * 
@@ -446,4 +597,83 @@ public interface FileEntityRepository extends JpaRepository<FileEntity, Long> {
            "GROUP BY f.space.owner.id, f.space.owner.username " +
            "ORDER BY COUNT(f) DESC")
     List<Object[]> countFilesByUser();
-} 
\ No newline at end of file
+
+    /**
+     * 按状态汇总空间内的文件数量、总大小和最近修改时间（用于文件统计计数初始化）
+     *
+     * @param spaceId 空间ID
+     * @return 统计结果 [状态, 文件数量, 总大小, 最近修改时间]
+     */
+    @Query("SELECT f.status, COUNT(f), COALESCE(SUM(f.sizeBytes), 0), MAX(f.lastModifiedAt) FROM FileEntity f " +
+           "WHERE f.space.id = :spaceId GROUP BY f.status")
+    List<Object[]> summarizeStatisticsBySpace(@Param("spaceId") Long spaceId);
+
+    /**
+     * 按状态汇总空间内某创建者的文件数量、总大小和最近修改时间（用于文件统计计数初始化）
+     *
+     * @param spaceId 空间ID
+     * @param creator 创建者
+     * @return 统计结果 [状态, 文件数量, 总大小, 最近修改时间]
+     */
+    @Query("SELECT f.status, COUNT(f), COALESCE(SUM(f.sizeBytes), 0), MAX(f.lastModifiedAt) FROM FileEntity f " +
+           "WHERE f.space.id = :spaceId AND f.createdBy = :creator GROUP BY f.status")
+    List<Object[]> summarizeStatisticsBySpaceAndCreator(@Param("spaceId") Long spaceId,
+                                                        @Param("creator") String creator);
+
+    /**
+     * 按状态汇总某创建者在全部空间的文件数量、总大小和最近修改时间（用于文件统计计数初始化）
+     *
+     * @param creator 创建者
+     * @return 统计结果 [状态, 文件数量, 总大小, 最近修改时间]
+     */
+    @Query("SELECT f.status, COUNT(f), COALESCE(SUM(f.sizeBytes), 0), MAX(f.lastModifiedAt) FROM FileEntity f " +
+           "WHERE f.createdBy = :creator GROUP BY f.status")
+    List<Object[]> summarizeStatisticsByCreator(@Param("creator") String creator);
+
+    /**
+     * 按空间、创建者和状态汇总全部文件（用于文件统计计数对账）
+     *
+     * @return 统计结果 [空间ID, 创建者, 状态, 文件数量, 总大小, 最近修改时间]
+     */
+    @Query("SELECT f.space.id, f.createdBy, f.status, COUNT(f), COALESCE(SUM(f.sizeBytes), 0), " +
+           "MAX(f.lastModifiedAt) FROM FileEntity f GROUP BY f.space.id, f.createdBy, f.status")
+    List<Object[]> summarizeStatistics();
+
+    /**
+     * 统计引用指定存储路径的文件数量
+     * 
+     * @param storagePath 存储路径
+     * @return 引用数量
+     */
+    long countByStoragePath(String storagePath);
+
+    /**
+     * 在用户可读的空间内按哈希和大小查找正常状态的文件（秒传只能复用调用者已能读取的内容）
+     * 可读空间指用户拥有的空间，以及用户持有未过期授权的空间
+     * 
+     * @param fileHash 文件哈希值
+     * @param sizeBytes 文件大小
+     * @param userId 用户ID
+     * @param now 当前时间
+     * @param pageable 分页参数
+     * @return 文件列表
+     */
+    @Query("SELECT f FROM FileEntity f WHERE f.fileHash = :fileHash AND f.sizeBytes = :sizeBytes " +
+           "AND f.status = 'ACTIVE' AND (f.space.owner.id = :userId OR EXISTS (" +
+           "SELECT sp.id FROM SpacePermission sp WHERE sp.userId = :userId AND sp.spaceId = f.space.id " +
+           "AND sp.status = 'GRANTED' AND (sp.expiresAt IS NULL OR sp.expiresAt > :now))) " +
+           "ORDER BY f.id")
+    List<FileEntity> findReadableByHashAndSize(@Param("fileHash") String fileHash,
+                                               @Param("sizeBytes") Long sizeBytes,
+                                               @Param("userId") Long userId,
+                                               @Param("now") LocalDateTime now,
+                                               Pageable pageable);
+
+    /**
+     * 按存储路径汇总文件引用（用于重建内容块引用计数）
+     * 
+     * @return 汇总结果 [存储路径, 哈希值, 大小, 引用数量]
+     */
+    @Query("SELECT f.storagePath, MAX(f.fileHash), MAX(f.sizeBytes), COUNT(f) FROM FileEntity f GROUP BY f.storagePath")
+    List<Object[]> summarizeReferencesByStoragePath();
+}
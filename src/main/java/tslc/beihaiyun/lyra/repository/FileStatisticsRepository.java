@@ -0,0 +1,73 @@
+package tslc.beihaiyun.lyra.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tslc.beihaiyun.lyra.entity.FileStatisticsCounter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 文件统计计数Repository接口
+ * 提供统计计数行的读取和原子增量更新
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Repository
+public interface FileStatisticsRepository extends JpaRepository<FileStatisticsCounter, Long> {
+
+    /**
+     * 读取空间（或空间内某创建者）的统计计数
+     * 以标量查询直接读取数据库中的当前值，不受持久化上下文中已加载实体的影响
+     *
+     * @param spaceId 空间ID
+     * @param creator 创建者，空串表示空间汇总
+     * @return 至多一行 [活跃文件数, 回收站文件数, 归档文件数, 总大小, 最近修改时间]
+     */
+    @Query("SELECT c.activeFiles, c.deletedFiles, c.archivedFiles, c.totalSize, c.lastModifiedAt " +
+           "FROM FileStatisticsCounter c WHERE c.spaceId = :spaceId AND c.creator = :creator")
+    List<Object[]> findCounts(@Param("spaceId") Long spaceId, @Param("creator") String creator);
+
+    /**
+     * 检查统计计数行是否存在
+     *
+     * @param spaceId 空间ID
+     * @param creator 创建者，空串表示空间汇总
+     * @return 是否存在
+     */
+    boolean existsBySpaceIdAndCreator(Long spaceId, String creator);
+
+    /**
+     * 原子地累加统计计数，最近修改时间只前移不后退
+     *
+     * @param spaceId 空间ID
+     * @param creator 创建者，空串表示空间汇总
+     * @param activeDelta 活跃文件数变化量
+     * @param deletedDelta 回收站文件数变化量
+     * @param archivedDelta 归档文件数变化量
+     * @param sizeDelta 总大小变化量
+     * @param lastModifiedAt 本次变更涉及的最近修改时间，可为空
+     * @return 更新的行数，为0表示计数行尚不存在
+     */
+    @Modifying
+    @Query("UPDATE FileStatisticsCounter c SET " +
+           "c.activeFiles = c.activeFiles + :activeDelta, " +
+           "c.deletedFiles = c.deletedFiles + :deletedDelta, " +
+           "c.archivedFiles = c.archivedFiles + :archivedDelta, " +
+           "c.totalSize = c.totalSize + :sizeDelta, " +
+           "c.lastModifiedAt = CASE WHEN c.lastModifiedAt IS NULL OR c.lastModifiedAt < :lastModifiedAt " +
+           "THEN :lastModifiedAt ELSE c.lastModifiedAt END " +
+           "WHERE c.spaceId = :spaceId AND c.creator = :creator")
+    int applyDelta(@Param("spaceId") Long spaceId,
+                   @Param("creator") String creator,
+                   @Param("activeDelta") long activeDelta,
+                   @Param("deletedDelta") long deletedDelta,
+                   @Param("archivedDelta") long archivedDelta,
+                   @Param("sizeDelta") long sizeDelta,
+                   @Param("lastModifiedAt") LocalDateTime lastModifiedAt);
+}
@@ -3,6 +3,7 @@ package tslc.beihaiyun.lyra.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -10,6 +11,7 @@ import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.FileVersion;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -124,6 +126,20 @@ public interface FileVersionRepository extends JpaRepository<FileVersion, Long>
     @Query("SELECT COALESCE(SUM(fv.sizeBytes), 0) FROM FileVersion fv WHERE fv.file = :file")
     Long sumSizeBytesByFile(@Param("file") FileEntity file);
 
+    /**
+     * 批量查询多个文件的版本摘要：每个文件只返回最新版本一行，版本数由相关子查询统计
+     * 最新版本和版本数均可走(file_id, version_number)唯一索引，不加载历史版本
+     * 
+     * @param fileIds 文件ID列表
+     * @return 查询结果 [文件ID, 版本数, 最新版本号, 最新版本备注, 最新版本创建时间]
+     */
+    @Query("SELECT fv.file.id, " +
+           "(SELECT COUNT(fv2) FROM FileVersion fv2 WHERE fv2.file = fv.file), " +
+           "fv.versionNumber, fv.changeComment, fv.createdAt " +
+           "FROM FileVersion fv WHERE fv.file.id IN :fileIds AND fv.versionNumber = " +
+           "(SELECT MAX(fv3.versionNumber) FROM FileVersion fv3 WHERE fv3.file = fv.file)")
+    List<Object[]> summarizeByFileIds(@Param("fileIds") Collection<Long> fileIds);
+
     /**
      * 查询文件的指定数量的最新版本
      *
@@ -306,4 +322,61 @@ public interface FileVersionRepository extends JpaRepository<FileVersion, Long>
      */
     @Query("SELECT fv FROM FileVersion fv WHERE fv.file = :file ORDER BY fv.versionNumber DESC")
     List<FileVersion> findLatestByFile(@Param("file") FileEntity file, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * 统计引用指定存储路径的版本数量
+     * 
+     * @param storagePath 存储路径
+     * @return 引用数量
+     */
+    long countByStoragePath(String storagePath);
+
+    /**
+     * 按存储路径汇总版本引用（用于重建内容块引用计数）
+     * 差量版本的哈希与大小描述的是还原后的内容而非差量数据，因此只计入引用数量
+     * 
+     * @return 汇总结果 [存储路径, 哈希值, 大小, 引用数量]
+     */
+    default List<Object[]> summarizeReferencesByStoragePath() {
+        return summarizeReferencesByStoragePath(FileVersion.StorageType.FULL);
+    }
+
+    /**
+     * 按存储路径汇总版本引用，只取指定存储方式版本的哈希与大小
+     * 
+     * @param fullType 完整存储方式
+     * @return 汇总结果 [存储路径, 哈希值, 大小, 引用数量]
+     */
+    @Query("SELECT fv.storagePath, " +
+           "MAX(CASE WHEN fv.storageType = :fullType THEN fv.fileHash ELSE NULL END), " +
+           "MAX(CASE WHEN fv.storageType = :fullType THEN fv.sizeBytes ELSE NULL END), " +
+           "COUNT(fv) FROM FileVersion fv GROUP BY fv.storagePath")
+    List<Object[]> summarizeReferencesByStoragePath(@Param("fullType") FileVersion.StorageType fullType);
+
+    /**
+     * 查找以指定版本为基准的差量版本
+     * 
+     * @param baseVersionId 基准版本ID
+     * @return 差量版本列表
+     */
+    List<FileVersion> findByBaseVersionId(Long baseVersionId);
+
+    /**
+     * 查询多个文件的全部版本存储路径（用于批量永久删除时释放内容块引用）
+     * 
+     * @param fileIds 文件ID列表
+     * @return 存储路径列表，每个版本一项
+     */
+    @Query("SELECT fv.storagePath FROM FileVersion fv WHERE fv.file.id IN :fileIds")
+    List<String> findStoragePathsByFileIds(@Param("fileIds") List<Long> fileIds);
+
+    /**
+     * 批量删除多个文件的全部版本
+     * 
+     * @param fileIds 文件ID列表
+     * @return 删除的记录数
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM FileVersion fv WHERE fv.file.id IN :fileIds")
+    int deleteByFileIds(@Param("fileIds") List<Long> fileIds);
+}
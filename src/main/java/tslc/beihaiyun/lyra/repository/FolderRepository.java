@@ -121,6 +121,41 @@ public interface FolderRepository extends JpaRepository<Folder, Long> {
      */
     Page<Folder> findByParent(Folder parent, Pageable pageable);
 
+    /**
+     * 键集分页查询父文件夹下的子文件夹，按(名称, ID)排序
+     * 走(parent_id, name)索引，从上一页最后一项之后开始读取
+     * 
+     * @param parent 父文件夹
+     * @param afterName 上一页最后一项的名称，首页传空串
+     * @param afterId 上一页最后一项的ID，首页传0
+     * @param pageable 仅用于限制返回条数
+     * @return 文件夹列表
+     */
+    @Query("SELECT f FROM Folder f WHERE f.parent = :parent " +
+           "AND (f.name > :afterName OR (f.name = :afterName AND f.id > :afterId)) " +
+           "ORDER BY f.name, f.id")
+    List<Folder> findChildrenAfter(@Param("parent") Folder parent,
+                                   @Param("afterName") String afterName,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
+
+    /**
+     * 键集分页查询空间下的根文件夹，按(名称, ID)排序
+     * 
+     * @param space 所属空间
+     * @param afterName 上一页最后一项的名称，首页传空串
+     * @param afterId 上一页最后一项的ID，首页传0
+     * @param pageable 仅用于限制返回条数
+     * @return 文件夹列表
+     */
+    @Query("SELECT f FROM Folder f WHERE f.space = :space AND f.isRoot = true " +
+           "AND (f.name > :afterName OR (f.name = :afterName AND f.id > :afterId)) " +
+           "ORDER BY f.name, f.id")
+    List<Folder> findRootChildrenAfter(@Param("space") Space space,
+                                       @Param("afterName") String afterName,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
     /**
      * 根据空间和名称查找文件夹
      * 
@@ -157,6 +192,15 @@ public interface FolderRepository extends JpaRepository<Folder, Long> {
     @Query("SELECT f FROM Folder f WHERE :path LIKE CONCAT(f.path, '%') AND f.path != :path ORDER BY f.level")
     List<Folder> findAllAncestors(@Param("path") String path);
 
+    /**
+     * 查询空间中全部文件夹的ID和路径（用于构建路径索引，不加载实体）
+     * 
+     * @param space 所属空间
+     * @return 查询结果 [文件夹ID, 路径]
+     */
+    @Query("SELECT f.id, f.path FROM Folder f WHERE f.space = :space")
+    List<Object[]> findIdAndPathBySpace(@Param("space") Space space);
+
     /**
      * 统计空间下的文件夹数量
      * 
@@ -230,6 +274,35 @@ public interface FolderRepository extends JpaRepository<Folder, Long> {
     @Query("SELECT f FROM Folder f WHERE f.space = :space AND f.level > :levelThreshold ORDER BY f.level DESC")
     List<Folder> findDeepFolders(@Param("space") Space space, @Param("levelThreshold") Integer levelThreshold);
 
+    /**
+     * 汇总空间下文件夹的数量、总大小、最大层级和文件数
+     * 
+     * @param space 所属空间
+     * @return 单行统计结果 [文件夹数量, 总大小, 最大层级, 文件数]
+     */
+    @Query("SELECT COUNT(f), COALESCE(SUM(f.sizeBytes), 0), COALESCE(MAX(f.level), 0), " +
+           "COALESCE(SUM(f.fileCount), 0) FROM Folder f WHERE f.space = :space")
+    List<Object[]> summarizeBySpace(@Param("space") Space space);
+
+    /**
+     * 统计空间下的空文件夹数量
+     * 
+     * @param space 所属空间
+     * @return 空文件夹数量
+     */
+    @Query("SELECT COUNT(f) FROM Folder f WHERE f.space = :space AND f.fileCount = 0 AND " +
+           "NOT EXISTS (SELECT 1 FROM Folder c WHERE c.parent = f)")
+    long countEmptyFolders(@Param("space") Space space);
+
+    /**
+     * 查找空间下最大的非空文件夹
+     * 
+     * @param space 所属空间
+     * @param sizeThreshold 大小阈值（字节）
+     * @return 最大的文件夹（可选）
+     */
+    Optional<Folder> findFirstBySpaceAndSizeBytesGreaterThanOrderBySizeBytesDesc(Space space, Long sizeThreshold);
+
     /**
      * 根据路径前缀查找文件夹
      * 
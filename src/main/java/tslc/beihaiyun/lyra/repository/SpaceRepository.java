@@ -3,12 +3,15 @@ package tslc.beihaiyun.lyra.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.entity.User;
 
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +34,17 @@ public interface SpaceRepository extends JpaRepository<Space, Long> {
      */
     Optional<Space> findByName(String name);
 
+    /**
+     * 根据ID查找空间并加行级写锁，直到当前事务结束
+     * 用于串行化同一空间内需要先检查后插入的操作
+     * 
+     * @param id 空间ID
+     * @return 空间实体（可选）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Space s WHERE s.id = :id")
+    Optional<Space> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * 根据拥有者查找空间列表
      * 
@@ -256,6 +270,20 @@ public interface SpaceRepository extends JpaRepository<Space, Long> {
     @Query("SELECT s FROM Space s WHERE s.owner.id = :userId")
     List<Space> findByOwnerId(@Param("userId") Long userId);
 
+    /**
+     * 检查用户能否读取空间：拥有该空间，或持有该空间未过期的授权
+     *
+     * @param spaceId 空间ID
+     * @param userId 用户ID
+     * @param now 当前时间
+     * @return 是否可读
+     */
+    @Query("SELECT COUNT(s) > 0 FROM Space s WHERE s.id = :spaceId AND (s.owner.id = :userId OR EXISTS (" +
+           "SELECT sp.id FROM SpacePermission sp WHERE sp.userId = :userId AND sp.spaceId = s.id " +
+           "AND sp.status = 'GRANTED' AND (sp.expiresAt IS NULL OR sp.expiresAt > :now)))")
+    boolean isReadableBy(@Param("spaceId") Long spaceId, @Param("userId") Long userId,
+                         @Param("now") LocalDateTime now);
+
     /**
      * 查找最近更新的前100个空间（用于缓存预热）
      *
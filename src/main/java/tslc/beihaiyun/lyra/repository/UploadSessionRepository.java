@@ -0,0 +1,36 @@
+package tslc.beihaiyun.lyra.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tslc.beihaiyun.lyra.entity.UploadSession;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 分块上传会话Repository接口
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+
+    /**
+     * 根据上传标识查找会话
+     *
+     * @param uploadId 上传标识
+     * @return 上传会话（可选）
+     */
+    Optional<UploadSession> findByUploadId(String uploadId);
+
+    /**
+     * 查找最后活动时间早于指定时间的会话（过期会话）
+     *
+     * @param before 时间上限
+     * @return 过期会话列表
+     */
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime before);
+}
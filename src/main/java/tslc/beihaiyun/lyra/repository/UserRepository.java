@@ -7,10 +7,12 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.LockModeType;
 
 import tslc.beihaiyun.lyra.entity.User;
 import tslc.beihaiyun.lyra.entity.UserRole;
@@ -34,6 +36,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByUsername(String username);
 
+    /**
+     * 根据ID查找用户并加行级写锁，直到当前事务结束
+     * 用于串行化同一用户需要先检查后插入的操作
+     * 
+     * @param id 用户ID
+     * @return 用户实体（可选）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * 根据邮箱查找用户
      * 
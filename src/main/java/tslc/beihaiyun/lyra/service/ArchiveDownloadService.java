@@ -0,0 +1,418 @@
+package tslc.beihaiyun.lyra.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.Folder;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.util.BlobCodec;
+import tslc.beihaiyun.lyra.util.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 归档下载服务
+ * 将文件夹子树或多选的文件/文件夹以ZIP流式写出到响应：按需逐个文件夹遍历元数据，不预先收集整棵树，
+ * 内容逐块复制，内存占用与归档大小无关；已压缩的媒体和归档以零压缩级别写入，避免重复压缩；
+ * 写出当前条目的同时在后台打开并预读下一个条目的内容，掩盖存储层的首字节延迟；
+ * 响应开始后无法再改变状态码，读取失败的文件会列在归档末尾的失败清单中
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class ArchiveDownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveDownloadService.class);
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 预读缓冲区大小，预取线程会先填充一次该缓冲区
+     */
+    private static final int PREFETCH_BUFFER_SIZE = 256 * 1024;
+
+    private static final int PREFETCH_THREADS = 4;
+
+    /**
+     * 失败清单条目名，位于归档根目录
+     */
+    static final String FAILURE_MANIFEST_NAME = "下载失败的文件.txt";
+
+    private final FileEntityRepository fileEntityRepository;
+    private final FolderRepository folderRepository;
+    private final StorageService storageService;
+    private final StorageAccessTracker accessTracker;
+    private final ExecutorService prefetcher;
+
+    @Autowired
+    public ArchiveDownloadService(FileEntityRepository fileEntityRepository, FolderRepository folderRepository,
+                                  StorageService storageService, StorageAccessTracker accessTracker) {
+        this.fileEntityRepository = fileEntityRepository;
+        this.folderRepository = folderRepository;
+        this.storageService = storageService;
+        this.accessTracker = accessTracker;
+        AtomicInteger sequence = new AtomicInteger();
+        this.prefetcher = Executors.newFixedThreadPool(PREFETCH_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "archive-prefetch-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 停止预取线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    /**
+     * 归档条目：文件或目录
+     */
+    public static class ArchiveEntry {
+        private final String name;
+        private final FileEntity file;
+
+        private ArchiveEntry(String name, FileEntity file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        public String getName() { return name; }
+        public FileEntity getFile() { return file; }
+        public boolean isDirectory() { return file == null; }
+    }
+
+    // ==================== 条目遍历 ====================
+
+    /**
+     * 遍历文件夹子树，条目以文件夹名为根目录
+     *
+     * @param folder 文件夹
+     * @return 按需加载的条目序列
+     */
+    public Iterable<ArchiveEntry> folderEntries(Folder folder) {
+        return selectionEntries(List.of(), List.of(folder));
+    }
+
+    /**
+     * 遍历多选的文件和文件夹，选中项位于归档根目录，重名时自动追加序号
+     *
+     * @param files 选中的文件
+     * @param folders 选中的文件夹（包含其子树）
+     * @return 按需加载的条目序列
+     */
+    public Iterable<ArchiveEntry> selectionEntries(List<FileEntity> files, List<Folder> folders) {
+        return () -> new EntryWalker(files, folders);
+    }
+
+    // ==================== 归档写出 ====================
+
+    /**
+     * 以ZIP附件形式写出归档到HTTP响应
+     *
+     * @param archiveName 归档文件名（不含扩展名）
+     * @param entries 归档条目
+     * @param response HTTP响应
+     * @throws IOException 读取或写出异常
+     */
+    public void serve(String archiveName, Iterable<ArchiveEntry> entries, HttpServletResponse response)
+            throws IOException {
+        serve(archiveName, entries, response, null);
+    }
+
+    /**
+     * 在传输许可下以ZIP附件形式写出归档到HTTP响应
+     *
+     * @param archiveName 归档文件名（不含扩展名）
+     * @param entries 归档条目
+     * @param response HTTP响应
+     * @param permit 传输许可（可为空，表示不限速）
+     * @throws IOException 读取或写出异常
+     */
+    public void serve(String archiveName, Iterable<ArchiveEntry> entries, HttpServletResponse response,
+                      IoGovernor.Permit permit) throws IOException {
+        String encodedFilename = URLEncoder.encode(archiveName + ".zip", StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encodedFilename);
+        response.setHeader("Cache-Control", "no-store");
+        // 总长度未知，以分块传输立即开始输出
+        response.flushBuffer();
+
+        long written = writeZip(entries, response.getOutputStream(), permit);
+        logger.info("归档下载完成: {}.zip, 内容字节数={}", archiveName, written);
+    }
+
+    /**
+     * 将条目写为ZIP流
+     *
+     * @param entries 归档条目
+     * @param outputStream 输出流（不会被关闭）
+     * @return 写入的文件内容字节数（未压缩）
+     * @throws IOException 读取或写出异常
+     */
+    public long writeZip(Iterable<ArchiveEntry> entries, OutputStream outputStream) throws IOException {
+        return writeZip(entries, outputStream, null);
+    }
+
+    /**
+     * 在传输许可下将条目写为ZIP流，读取的文件内容按许可限速
+     *
+     * @param entries 归档条目
+     * @param outputStream 输出流（不会被关闭）
+     * @param permit 传输许可（可为空，表示不限速）
+     * @return 写入的文件内容字节数（未压缩）
+     * @throws IOException 读取或写出异常
+     */
+    public long writeZip(Iterable<ArchiveEntry> entries, OutputStream outputStream, IoGovernor.Permit permit)
+            throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new NonClosingOutputStream(outputStream), StandardCharsets.UTF_8);
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        long total = 0;
+
+        // 只记录根目录名称用于给失败清单避让重名，内存与归档大小无关
+        Set<String> rootNames = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+        Iterator<ArchiveEntry> iterator = entries.iterator();
+        ArchiveEntry current = iterator.hasNext() ? iterator.next() : null;
+        Future<InputStream> currentContent = prefetch(current, permit);
+        try {
+            while (current != null) {
+                // 在写出当前条目期间预取下一个文件
+                ArchiveEntry next = iterator.hasNext() ? iterator.next() : null;
+                Future<InputStream> nextContent = prefetch(next, permit);
+                try {
+                    total += writeEntry(zip, current, currentContent, buffer, failures);
+                } catch (IOException e) {
+                    discard(nextContent);
+                    throw e;
+                }
+                if (current.getName().indexOf('/') < 0) {
+                    rootNames.add(current.getName());
+                }
+                current = next;
+                currentContent = nextContent;
+            }
+            if (!failures.isEmpty()) {
+                writeFailureManifest(zip, FileUtils.generateUniqueFilename(FAILURE_MANIFEST_NAME, rootNames), failures);
+            }
+            zip.finish();
+            zip.flush();
+            return total;
+        } finally {
+            zip.close();
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    private long writeEntry(ZipOutputStream zip, ArchiveEntry entry, Future<InputStream> content, byte[] buffer,
+                            List<String> failures) throws IOException {
+        if (entry.isDirectory()) {
+            zip.putNextEntry(new ZipEntry(entry.getName() + "/"));
+            zip.closeEntry();
+            return 0;
+        }
+
+        FileEntity file = entry.getFile();
+        InputStream in;
+        try {
+            in = await(content);
+        } catch (IOException e) {
+            // 响应已开始输出，无法再改变状态码，跳过该文件并记入失败清单
+            logger.warn("归档时读取文件失败，已跳过: {} ({})", entry.getName(), file.getStoragePath(), e);
+            failures.add(entry.getName() + "\t" + e.getMessage());
+            return 0;
+        }
+
+        try (in) {
+            String mimeType = file.getMimeType() != null ? file.getMimeType() : FileUtils.getMimeType(file.getName());
+            zip.setLevel(BlobCodec.isCompressedType(mimeType) ? Deflater.NO_COMPRESSION : Deflater.BEST_SPEED);
+            ZipEntry zipEntry = new ZipEntry(entry.getName());
+            if (file.getLastModifiedAt() != null) {
+                zipEntry.setTimeLocal(file.getLastModifiedAt());
+            }
+            zip.putNextEntry(zipEntry);
+            long copied = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, read);
+                copied += read;
+            }
+            zip.closeEntry();
+            return copied;
+        }
+    }
+
+    /**
+     * 写出失败清单，每行一个未能写入归档的文件及原因
+     */
+    private void writeFailureManifest(ZipOutputStream zip, String name, List<String> failures) throws IOException {
+        zip.setLevel(Deflater.BEST_SPEED);
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(("以下文件读取失败，未包含在归档中：\n" + String.join("\n", failures) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        logger.warn("归档中有 {} 个文件读取失败，已写入失败清单: {}", failures.size(), name);
+    }
+
+    private Future<InputStream> prefetch(ArchiveEntry entry, IoGovernor.Permit permit) {
+        if (entry == null || entry.isDirectory()) {
+            return null;
+        }
+        String storagePath = entry.getFile().getStoragePath();
+        return prefetcher.submit(() -> {
+            accessTracker.recordAccess(storagePath);
+            InputStream raw = storageService.load(storagePath)
+                    .orElseThrow(() -> new FileNotFoundException("存储对象不存在: " + storagePath));
+            BufferedInputStream in = new BufferedInputStream(permit != null ? permit.throttle(raw) : raw,
+                                                             PREFETCH_BUFFER_SIZE);
+            try {
+                // 预读首个缓冲区后回退，写出线程直接从缓冲区开始复制
+                in.mark(1);
+                if (in.read() != -1) {
+                    in.reset();
+                }
+                return in;
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        });
+    }
+
+    private InputStream await(Future<InputStream> content) throws IOException {
+        try {
+            return content.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("归档写出被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void discard(Future<InputStream> content) {
+        if (content == null || content.cancel(true)) {
+            return;
+        }
+        try {
+            content.get().close();
+        } catch (Exception e) {
+            logger.debug("关闭预取内容失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按层遍历文件夹的条目迭代器，每次只加载一个文件夹的直接子项
+     */
+    private class EntryWalker implements Iterator<ArchiveEntry> {
+        private final Deque<ArchiveEntry> ready = new ArrayDeque<>();
+        private final Deque<PendingFolder> folders = new ArrayDeque<>();
+
+        private EntryWalker(List<FileEntity> files, List<Folder> selectedFolders) {
+            Set<String> rootNames = new HashSet<>();
+            for (FileEntity file : files) {
+                String name = FileUtils.generateUniqueFilename(file.getName(), rootNames);
+                rootNames.add(name);
+                ready.add(new ArchiveEntry(name, file));
+            }
+            for (Folder folder : selectedFolders) {
+                String name = FileUtils.generateUniqueFilename(folder.getName(), rootNames);
+                rootNames.add(name);
+                folders.add(new PendingFolder(folder, name));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready.isEmpty() && !folders.isEmpty()) {
+                expand(folders.poll());
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public ArchiveEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.poll();
+        }
+
+        private void expand(PendingFolder pending) {
+            Folder folder = pending.folder();
+            String prefix = pending.name();
+            ready.add(new ArchiveEntry(prefix, null));
+            for (FileEntity file : fileEntityRepository.findByFolder(folder)) {
+                if (file.getStatus() == FileEntity.FileStatus.ACTIVE) {
+                    ready.add(new ArchiveEntry(prefix + "/" + file.getName(), file));
+                }
+            }
+            for (Folder child : folderRepository.findByParent(folder)) {
+                folders.add(new PendingFolder(child, prefix + "/" + child.getName()));
+            }
+        }
+    }
+
+    /**
+     * 待展开的文件夹及其在归档中的路径
+     */
+    private record PendingFolder(Folder folder, String name) {
+    }
+
+    /**
+     * 忽略close的输出流包装，结束ZIP时不关闭底层响应流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
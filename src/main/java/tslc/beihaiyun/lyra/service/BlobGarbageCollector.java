@@ -0,0 +1,79 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+
+/**
+ * 内容块垃圾回收调度器
+ * 定期分批调用 {@link BlobService#collectGarbage(int)}，每批独立提交事务，避免长事务锁表
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Component
+public class BlobGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobGarbageCollector.class);
+
+    /**
+     * 单次调度最多执行的批次数，防止一次回收占用过久
+     */
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final BlobService blobService;
+    private final LyraProperties lyraProperties;
+
+    public BlobGarbageCollector(BlobService blobService, LyraProperties lyraProperties) {
+        this.blobService = blobService;
+        this.lyraProperties = lyraProperties;
+    }
+
+    /**
+     * 应用启动后，若内容块表尚为空则根据现有文件与版本建立引用计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeReferenceCounts() {
+        try {
+            if (blobService.getStatistics().getTotalBlobs() == 0) {
+                blobService.rebuildReferenceCounts();
+            }
+        } catch (Exception e) {
+            logger.warn("初始化内容块引用计数失败", e);
+        }
+    }
+
+    /**
+     * 定期执行垃圾回收
+     */
+    @Scheduled(fixedDelayString = "${lyra.storage.gc-interval-ms:3600000}",
+               initialDelayString = "${lyra.storage.gc-interval-ms:3600000}")
+    public void run() {
+        int batchSize = lyraProperties.getStorage().getGcBatchSize();
+        int totalCollected = 0;
+        long totalFreed = 0;
+
+        try {
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                BlobService.GarbageCollectionResult result = blobService.collectGarbage(batchSize);
+                totalCollected += result.getBlobsCollected();
+                totalFreed += result.getBytesFreed();
+
+                if (result.getCandidatesScanned() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("内容块垃圾回收执行失败", e);
+        }
+
+        if (totalCollected > 0) {
+            logger.info("本轮内容块垃圾回收: 回收数={}, 释放空间={}字节", totalCollected, totalFreed);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package tslc.beihaiyun.lyra.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.util.FileUtils;
+import tslc.beihaiyun.lyra.util.ThrottledInputStream;
+import tslc.beihaiyun.lyra.util.TokenBucket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipException;
+
+/**
+ * 内容块后台完整性校验器
+ * 定期按"从未校验优先、其余最久未尝试优先"的顺序取出一批内容块，由低优先级工作线程池并行重算哈希，
+ * 所有线程共享一个令牌桶读取带宽预算，避免挤占前台I/O；每批结果提交后即为进度检查点，中断后从未完成处继续。
+ * 读取失败的内容块同样记录尝试时间，本轮不再选取，下一轮排在其他内容块之后重试。
+ * 历史版本的内容（完整或差量）同样登记为内容块，因此一并被校验
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Component
+public class BlobScrubber {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobScrubber.class);
+
+    /**
+     * 单次调度最多执行的批次数，防止一次校验占用过久
+     */
+    private static final int MAX_BATCHES_PER_RUN = 50;
+
+    /**
+     * 校验结果
+     */
+    public enum Outcome {
+        /** 哈希一致 */
+        VALID,
+        /** 内容与登记的哈希不一致或编码损坏 */
+        CORRUPTED,
+        /** 物理对象不存在 */
+        MISSING,
+        /** 读取出错，下一轮调度重试 */
+        FAILED
+    }
+
+    /**
+     * 一次校验的汇总
+     */
+    public static class ScrubReport {
+        private final Map<Outcome, Integer> outcomes = new EnumMap<>(Outcome.class);
+        private long bytesRead;
+        private int batches;
+
+        public int getCount(Outcome outcome) { return outcomes.getOrDefault(outcome, 0); }
+        public int getScanned() { return outcomes.values().stream().mapToInt(Integer::intValue).sum(); }
+        public long getBytesRead() { return bytesRead; }
+        public int getBatches() { return batches; }
+    }
+
+    private final BlobService blobService;
+    private final StorageService storageService;
+    private final LyraProperties lyraProperties;
+    private final MeterRegistry meterRegistry;
+
+    private ExecutorService workers;
+    private TokenBucket bandwidth;
+    private volatile boolean stopping;
+
+    private final AtomicLong corruptedBlobs = new AtomicLong();
+    private Counter bytesCounter;
+    private Timer blobTimer;
+    private Timer throttleTimer;
+    private final Map<Outcome, Counter> outcomeCounters = new EnumMap<>(Outcome.class);
+
+    @Autowired
+    public BlobScrubber(BlobService blobService, StorageService storageService, LyraProperties lyraProperties,
+                        MeterRegistry meterRegistry) {
+        this.blobService = blobService;
+        this.storageService = storageService;
+        this.lyraProperties = lyraProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建工作线程池、带宽令牌桶并注册指标
+     */
+    @PostConstruct
+    public void init() {
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        int threads = config.getScrubThreads();
+        AtomicInteger sequence = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "blob-scrubber-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.bandwidth = TokenBucket.perSecond(FileUtils.parseFileSize(config.getScrubBandwidth()));
+
+        registerMetrics();
+        logger.info("内容块完整性校验器初始化完成 - 线程数: {}, 带宽上限: {}/s, 复检间隔: {}小时",
+                   threads, bandwidth.isLimited() ? FileUtils.formatFileSize(bandwidth.getRatePerSecond()) : "不限",
+                   config.getScrubRecheckHours());
+    }
+
+    /**
+     * 停止工作线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 定期执行后台校验
+     */
+    @Scheduled(fixedDelayString = "${lyra.storage.scrub-interval-ms:600000}",
+               initialDelayString = "${lyra.storage.scrub-interval-ms:600000}")
+    public void run() {
+        if (!Boolean.TRUE.equals(lyraProperties.getStorage().getScrubEnabled())) {
+            return;
+        }
+
+        try {
+            ScrubReport report = scrub(MAX_BATCHES_PER_RUN);
+            if (report.getScanned() > 0) {
+                logger.info("本轮内容块完整性校验: 校验数={}, 通过={}, 损坏={}, 丢失={}, 失败={}, 读取={}",
+                           report.getScanned(), report.getCount(Outcome.VALID), report.getCount(Outcome.CORRUPTED),
+                           report.getCount(Outcome.MISSING), report.getCount(Outcome.FAILED),
+                           FileUtils.formatFileSize(report.getBytesRead()));
+            }
+        } catch (Exception e) {
+            logger.error("内容块完整性校验执行失败", e);
+        }
+    }
+
+    /**
+     * 执行若干批校验，每批结果提交后作为检查点
+     *
+     * @param maxBatches 最多执行的批次数
+     * @return 校验汇总
+     */
+    public synchronized ScrubReport scrub(int maxBatches) {
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        int batchSize = config.getScrubBatchSize();
+        LocalDateTime passStartedAt = LocalDateTime.now();
+        LocalDateTime verifiedBefore = passStartedAt.minusHours(config.getScrubRecheckHours());
+        ScrubReport report = new ScrubReport();
+
+        for (int batch = 0; batch < maxBatches && !stopping; batch++) {
+            List<Blob> candidates = blobService.findScrubCandidates(verifiedBefore, passStartedAt, batchSize);
+            if (candidates.isEmpty()) {
+                break;
+            }
+
+            List<Future<Outcome>> futures = new ArrayList<>(candidates.size());
+            for (Blob blob : candidates) {
+                futures.add(workers.submit(() -> verify(blob, report)));
+            }
+
+            List<Long> verifiedIds = new ArrayList<>();
+            List<Long> corruptedIds = new ArrayList<>();
+            List<Long> failedIds = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                Outcome outcome = await(futures.get(i));
+                report.outcomes.merge(outcome, 1, Integer::sum);
+                outcomeCounters.get(outcome).increment();
+                switch (outcome) {
+                    case VALID -> verifiedIds.add(candidates.get(i).getId());
+                    case CORRUPTED, MISSING -> corruptedIds.add(candidates.get(i).getId());
+                    case FAILED -> failedIds.add(candidates.get(i).getId());
+                }
+            }
+
+            blobService.recordScrubResults(verifiedIds, corruptedIds, failedIds);
+            report.batches++;
+
+            // 整批都未能完成校验多半是存储整体不可用，停止本轮等待下次调度
+            if (candidates.size() < batchSize || verifiedIds.isEmpty() && corruptedIds.isEmpty()) {
+                break;
+            }
+        }
+
+        corruptedBlobs.set(blobService.countCorrupted());
+        return report;
+    }
+
+    /**
+     * 获取带宽令牌桶
+     *
+     * @return 令牌桶
+     */
+    public TokenBucket getBandwidth() {
+        return bandwidth;
+    }
+
+    // ==================== 内部方法 ====================
+
+    private Outcome verify(Blob blob, ScrubReport report) {
+        String storagePath = blob.getStoragePath();
+        long start = System.nanoTime();
+        try {
+            Optional<InputStream> content = storageService.load(storagePath);
+            if (content.isEmpty()) {
+                logger.error("内容块丢失: {}", storagePath);
+                return Outcome.MISSING;
+            }
+
+            try (ThrottledInputStream in = new ThrottledInputStream(content.get(), bandwidth)) {
+                String actualHash;
+                try {
+                    actualHash = FileUtils.calculateSHA256(in);
+                } finally {
+                    bytesCounter.increment(in.getBytesRead());
+                    throttleTimer.record(in.getThrottledNanos(), TimeUnit.NANOSECONDS);
+                    synchronized (report) {
+                        report.bytesRead += in.getBytesRead();
+                    }
+                }
+                if (!actualHash.equalsIgnoreCase(blob.getFileHash())) {
+                    logger.error("内容块哈希不一致: {}, 登记={}, 实际={}", storagePath, blob.getFileHash(), actualHash);
+                    return Outcome.CORRUPTED;
+                }
+                return Outcome.VALID;
+            }
+        } catch (EOFException | ZipException e) {
+            logger.error("内容块编码损坏: {}", storagePath, e);
+            return Outcome.CORRUPTED;
+        } catch (IOException e) {
+            if (!stopping) {
+                logger.warn("内容块校验读取失败，下次重试: {}", storagePath, e);
+            }
+            return Outcome.FAILED;
+        } finally {
+            blobTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Outcome await(Future<Outcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.FAILED;
+        } catch (ExecutionException e) {
+            logger.warn("内容块校验任务异常", e.getCause());
+            return Outcome.FAILED;
+        }
+    }
+
+    private void registerMetrics() {
+        this.bytesCounter = Counter.builder("lyra.scrub.bytes")
+                .description("完整性校验读取的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder("lyra.scrub.blobs")
+                    .description("完整性校验的内容块数")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.blobTimer = Timer.builder("lyra.scrub.blob.duration")
+                .description("单个内容块的校验耗时")
+                .register(meterRegistry);
+        this.throttleTimer = Timer.builder("lyra.scrub.throttled")
+                .description("因带宽预算限速而等待的时间")
+                .register(meterRegistry);
+        Gauge.builder("lyra.scrub.corrupted", corruptedBlobs, AtomicLong::get)
+                .description("已发现损坏且仍被引用的内容块数")
+                .register(meterRegistry);
+        Gauge.builder("lyra.scrub.bandwidth.limit.bytes", this, scrubber -> scrubber.bandwidth.getRatePerSecond())
+                .description("完整性校验每秒读取字节上限，0表示不限速")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,163 @@
+package tslc.beihaiyun.lyra.service;
+
+import tslc.beihaiyun.lyra.entity.Blob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 内容块服务接口
+ * 维护按内容寻址的物理对象的引用计数，并通过标记-清除方式回收无引用的内容块
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public interface BlobService {
+
+    /**
+     * 垃圾回收结果
+     */
+    class GarbageCollectionResult {
+        private final int candidatesScanned;
+        private final int blobsCollected;
+        private final int blobsRevived;
+        private final long bytesFreed;
+        private final List<String> errors;
+
+        public GarbageCollectionResult(int candidatesScanned, int blobsCollected, int blobsRevived,
+                                       long bytesFreed, List<String> errors) {
+            this.candidatesScanned = candidatesScanned;
+            this.blobsCollected = blobsCollected;
+            this.blobsRevived = blobsRevived;
+            this.bytesFreed = bytesFreed;
+            this.errors = errors;
+        }
+
+        public int getCandidatesScanned() { return candidatesScanned; }
+        public int getBlobsCollected() { return blobsCollected; }
+        public int getBlobsRevived() { return blobsRevived; }
+        public long getBytesFreed() { return bytesFreed; }
+        public List<String> getErrors() { return errors; }
+        public boolean isSuccessful() { return errors.isEmpty(); }
+    }
+
+    /**
+     * 内容块统计信息
+     */
+    class BlobStatistics {
+        private final long totalBlobs;
+        private final long totalBytes;
+        private final long orphanedBlobs;
+        private final long reclaimableBytes;
+
+        public BlobStatistics(long totalBlobs, long totalBytes, long orphanedBlobs, long reclaimableBytes) {
+            this.totalBlobs = totalBlobs;
+            this.totalBytes = totalBytes;
+            this.orphanedBlobs = orphanedBlobs;
+            this.reclaimableBytes = reclaimableBytes;
+        }
+
+        public long getTotalBlobs() { return totalBlobs; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getOrphanedBlobs() { return orphanedBlobs; }
+        public long getReclaimableBytes() { return reclaimableBytes; }
+    }
+
+    /**
+     * 增加内容块引用，内容块未登记时自动登记
+     *
+     * @param storagePath 存储路径
+     * @param fileHash 内容哈希值
+     * @param sizeBytes 内容大小
+     */
+    void acquire(String storagePath, String fileHash, long sizeBytes);
+
+    /**
+     * 增加存储结果对应内容块的引用
+     *
+     * @param storageResult 存储结果
+     */
+    void acquire(StorageService.StorageResult storageResult);
+
+    /**
+     * 将已写入存储但没有任何记录引用的内容登记为无引用内容块，由垃圾回收在宽限期后删除；
+     * 已登记的内容块保持不变。在独立事务中执行，可在外层事务回滚后调用
+     *
+     * @param storageResult 存储结果
+     */
+    void registerUnreferenced(StorageService.StorageResult storageResult);
+
+    /**
+     * 释放内容块引用，物理删除由垃圾回收完成
+     *
+     * @param storagePath 存储路径
+     * @return 释放后内容块是否已无引用（即可被回收）
+     */
+    boolean release(String storagePath);
+
+    /**
+     * 根据存储路径查找内容块
+     *
+     * @param storagePath 存储路径
+     * @return 内容块（可选）
+     */
+    Optional<Blob> findByStoragePath(String storagePath);
+
+    /**
+     * 根据哈希值查找仍被引用的内容块
+     *
+     * @param fileHash 内容哈希值
+     * @return 内容块（可选）
+     */
+    Optional<Blob> findLiveByHash(String fileHash);
+
+    /**
+     * 执行一批垃圾回收：复核候选内容块的真实引用后删除物理文件和登记记录
+     *
+     * @param batchSize 本批最多处理的候选数量
+     * @return 回收结果
+     */
+    GarbageCollectionResult collectGarbage(int batchSize);
+
+    /**
+     * 按文件和版本记录重建全部引用计数
+     *
+     * @return 登记或修正的内容块数量
+     */
+    int rebuildReferenceCounts();
+
+    /**
+     * 获取内容块统计信息
+     *
+     * @return 统计信息
+     */
+    BlobStatistics getStatistics();
+
+    /**
+     * 查询需要完整性校验的内容块，从未尝试或最久未尝试的优先
+     *
+     * @param verifiedBefore 上次校验时间早于该时间的才需要复检
+     * @param attemptedBefore 上次尝试时间早于该时间的才可再次选取
+     * @param limit 数量上限
+     * @return 待校验内容块列表
+     */
+    List<Blob> findScrubCandidates(LocalDateTime verifiedBefore, LocalDateTime attemptedBefore, int limit);
+
+    /**
+     * 提交一批校验结果，作为后台校验的进度检查点
+     *
+     * @param verifiedIds 校验通过的内容块ID
+     * @param corruptedIds 内容损坏或丢失的内容块ID
+     * @param failedIds 读取出错未能完成校验的内容块ID
+     */
+    void recordScrubResults(List<Long> verifiedIds, List<Long> corruptedIds, List<Long> failedIds);
+
+    /**
+     * 统计已发现损坏且仍被引用的内容块数量
+     *
+     * @return 数量
+     */
+    long countCorrupted();
+}
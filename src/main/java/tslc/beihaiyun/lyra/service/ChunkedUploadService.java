@@ -0,0 +1,106 @@
+package tslc.beihaiyun.lyra.service;
+
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.UploadSession;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 分块上传服务接口
+ * 分块直接写入预分配临时文件的对应偏移，支持并行上传与断点续传；
+ * 全部分块到齐后以重命名方式导入存储，不做合并复制
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public interface ChunkedUploadService {
+
+    /**
+     * 分块上传操作结果
+     */
+    class ChunkedUploadResult {
+        private final boolean success;
+        private final String message;
+        private final UploadSession session;
+        private final List<Integer> completedChunks;
+        private final boolean uploadCompleted;
+        private final FileEntity fileEntity;
+
+        public ChunkedUploadResult(boolean success, String message, UploadSession session,
+                                   List<Integer> completedChunks, boolean uploadCompleted, FileEntity fileEntity) {
+            this.success = success;
+            this.message = message;
+            this.session = session;
+            this.completedChunks = completedChunks;
+            this.uploadCompleted = uploadCompleted;
+            this.fileEntity = fileEntity;
+        }
+
+        public static ChunkedUploadResult failure(String message) {
+            return new ChunkedUploadResult(false, message, null, List.of(), false, null);
+        }
+
+        public boolean isSuccess() { return success; }
+        public String getMessage() { return message; }
+        public UploadSession getSession() { return session; }
+        public List<Integer> getCompletedChunks() { return completedChunks; }
+        public boolean isUploadCompleted() { return uploadCompleted; }
+        public FileEntity getFileEntity() { return fileEntity; }
+    }
+
+    /**
+     * 初始化上传会话并预分配临时文件
+     *
+     * @param filename 文件名
+     * @param fileSize 文件总大小
+     * @param fileHash 客户端声明的SHA-256哈希值
+     * @param chunkSize 分块大小
+     * @param spaceId 目标空间ID
+     * @param folderId 目标文件夹ID
+     * @param description 文件描述
+     * @param uploaderId 上传者ID
+     * @return 操作结果
+     */
+    ChunkedUploadResult initSession(String filename, long fileSize, String fileHash, int chunkSize,
+                                    Long spaceId, Long folderId, String description, Long uploaderId);
+
+    /**
+     * 接收一个分块，写入临时文件对应偏移；所有分块到齐时自动完成上传
+     *
+     * @param uploadId 上传标识
+     * @param chunkIndex 分块索引
+     * @param data 分块数据
+     * @param chunkHash 分块SHA-256哈希值（可选，提供时进行校验）
+     * @param uploaderId 上传者ID
+     * @return 操作结果
+     */
+    ChunkedUploadResult uploadChunk(String uploadId, int chunkIndex, InputStream data,
+                                    String chunkHash, Long uploaderId);
+
+    /**
+     * 获取上传会话
+     *
+     * @param uploadId 上传标识
+     * @return 上传会话（可选）
+     */
+    Optional<UploadSession> getSession(String uploadId);
+
+    /**
+     * 取消上传会话并删除临时文件
+     *
+     * @param uploadId 上传标识
+     * @param uploaderId 上传者ID
+     * @return 是否取消成功
+     */
+    boolean abortSession(String uploadId, Long uploaderId);
+
+    /**
+     * 清理过期的上传会话
+     *
+     * @return 清理的会话数量
+     */
+    int cleanupExpiredSessions();
+}
@@ -1,11 +1,18 @@
 package tslc.beihaiyun.lyra.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import tslc.beihaiyun.lyra.config.CacheConfig;
 import tslc.beihaiyun.lyra.config.LyraProperties;
 import tslc.beihaiyun.lyra.entity.FileEntity;
@@ -13,7 +20,11 @@ import tslc.beihaiyun.lyra.entity.FileEntity;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 文件缓存服务
@@ -30,10 +41,35 @@ public class FileCacheService {
     
     private final LyraProperties lyraProperties;
     private final StorageService storageService;
-    
+
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
     // 文件大小限制：小于1MB的文件才缓存内容
     private static final long CACHE_CONTENT_SIZE_LIMIT = 1024 * 1024; // 1MB
 
+    /**
+     * 路径缓存键映射跟踪的文件数上限和跟踪时长（与文件元数据缓存的TTL一致）
+     */
+    private static final long PATH_KEY_TRACKING_LIMIT = 100_000;
+    private static final Duration PATH_KEY_TRACKING_TTL = Duration.ofHours(2);
+
+    /**
+     * 文件ID到其路径缓存键的映射；映射项因容量或过期被淘汰时一并清除其路径缓存，
+     * 避免留下文件变更时无法精确失效的路径缓存
+     */
+    private final Map<Long, Set<String>> pathKeysByFileId = Caffeine.newBuilder()
+        .maximumSize(PATH_KEY_TRACKING_LIMIT)
+        .expireAfterWrite(PATH_KEY_TRACKING_TTL)
+        .executor(Runnable::run)
+        .<Long, Set<String>>removalListener((fileId, keys, cause) -> {
+            if (cause.wasEvicted() && keys != null) {
+                evictPathKeys(keys);
+            }
+        })
+        .build()
+        .asMap();
+
     public FileCacheService(LyraProperties lyraProperties, StorageService storageService) {
         this.lyraProperties = lyraProperties;
         this.storageService = storageService;
@@ -135,6 +171,46 @@ public class FileCacheService {
         evictFileContent(fileId);
     }
 
+    /**
+     * 登记按路径缓存的文件查询结果，作为该文件的二级缓存键
+     * 文件变更时据此精确清除所有指向它的路径缓存
+     *
+     * @param fileId 文件ID
+     * @param spaceId 空间ID
+     * @param path 查询路径（与缓存键中的路径一致）
+     */
+    public void trackPathKey(Long fileId, Long spaceId, String path) {
+        if (fileId == null) {
+            return;
+        }
+        // 在映射项上原子地追加，不会写入一个刚被淘汰的集合
+        String key = pathKey(spaceId, path);
+        pathKeysByFileId.compute(fileId, (id, keys) -> {
+            Set<String> tracked = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            tracked.add(key);
+            return tracked;
+        });
+    }
+
+    /**
+     * 按文件变更事件精确清除缓存
+     * 立即清除一次；处于事务中时提交后再清除一次，防止并发读取在提交前回填旧值
+     *
+     * @param event 文件变更事件
+     */
+    @EventListener
+    public void onFileChanged(FileChangedEvent event) {
+        evict(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(event);
+                }
+            });
+        }
+    }
+
     /**
      * 获取缓存的文件输入流
      * 优先从缓存获取，缓存未命中则从存储服务获取
@@ -201,6 +277,48 @@ public class FileCacheService {
         return new FileCacheStats();
     }
 
+    private void evict(FileChangedEvent event) {
+        Cache cache = fileMetadataCache();
+        if (cache == null) {
+            return;
+        }
+        Long fileId = event.getFileId();
+        if (fileId != null) {
+            cache.evict("file:" + fileId);
+            cache.evict("metadata:" + fileId);
+            if (event.isContentAffected()) {
+                cache.evict("content:" + fileId);
+            }
+            Set<String> trackedKeys = pathKeysByFileId.remove(fileId);
+            if (trackedKeys != null) {
+                trackedKeys.forEach(cache::evict);
+            }
+        }
+        // 新路径可能缓存了"不存在"的查询结果
+        if (event.getOldPath() != null) {
+            cache.evict(pathKey(event.getOldSpaceId(), event.getOldPath()));
+        }
+        if (event.getNewPath() != null) {
+            cache.evict(pathKey(event.getNewSpaceId(), event.getNewPath()));
+        }
+        logger.debug("按文件变更清除缓存: {}", event);
+    }
+
+    private void evictPathKeys(Set<String> keys) {
+        Cache cache = fileMetadataCache();
+        if (cache != null) {
+            keys.forEach(cache::evict);
+        }
+    }
+
+    private static String pathKey(Long spaceId, String path) {
+        return "path:" + spaceId + ":" + path;
+    }
+
+    private Cache fileMetadataCache() {
+        return cacheManager != null ? cacheManager.getCache(CacheConfig.FILE_METADATA_CACHE) : null;
+    }
+
     /**
      * 文件缓存统计信息
      */
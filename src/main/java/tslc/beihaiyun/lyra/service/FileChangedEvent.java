@@ -0,0 +1,101 @@
+package tslc.beihaiyun.lyra.service;
+
+import tslc.beihaiyun.lyra.entity.FileEntity;
+
+/**
+ * 文件变更事件
+ * 文件元数据或内容发生变化时发布，携带文件ID以及变更前后的空间和路径，
+ * 供缓存按键精确失效（按ID的元数据/内容缓存，以及按路径的查询缓存）
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public class FileChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        /** 新建文件（上传、创建、复制） */
+        CREATED,
+        /** 原位置元数据变化（状态等） */
+        UPDATED,
+        /** 内容变化 */
+        CONTENT_UPDATED,
+        /** 位置变化（重命名、移动） */
+        RELOCATED,
+        /** 永久删除 */
+        REMOVED
+    }
+
+    private final ChangeType type;
+    private final Long fileId;
+    private final Long oldSpaceId;
+    private final String oldPath;
+    private final Long newSpaceId;
+    private final String newPath;
+
+    public FileChangedEvent(ChangeType type, Long fileId, Long oldSpaceId, String oldPath,
+                            Long newSpaceId, String newPath) {
+        this.type = type;
+        this.fileId = fileId;
+        this.oldSpaceId = oldSpaceId;
+        this.oldPath = oldPath;
+        this.newSpaceId = newSpaceId;
+        this.newPath = newPath;
+    }
+
+    public static FileChangedEvent created(FileEntity file) {
+        return new FileChangedEvent(ChangeType.CREATED, file.getId(), null, null, spaceIdOf(file), file.getPath());
+    }
+
+    public static FileChangedEvent updated(FileEntity file) {
+        return inPlace(ChangeType.UPDATED, file);
+    }
+
+    public static FileChangedEvent contentUpdated(FileEntity file) {
+        return inPlace(ChangeType.CONTENT_UPDATED, file);
+    }
+
+    public static FileChangedEvent relocated(FileEntity file, Long oldSpaceId, String oldPath) {
+        return new FileChangedEvent(ChangeType.RELOCATED, file.getId(), oldSpaceId, oldPath,
+                                    spaceIdOf(file), file.getPath());
+    }
+
+    public static FileChangedEvent removed(FileEntity file) {
+        return new FileChangedEvent(ChangeType.REMOVED, file.getId(), spaceIdOf(file), file.getPath(), null, null);
+    }
+
+    /**
+     * 变更是否影响文件内容（需要失效内容缓存）
+     *
+     * @return 是否影响内容
+     */
+    public boolean isContentAffected() {
+        return type == ChangeType.CONTENT_UPDATED || type == ChangeType.REMOVED;
+    }
+
+    // Getters
+    public ChangeType getType() { return type; }
+    public Long getFileId() { return fileId; }
+    public Long getOldSpaceId() { return oldSpaceId; }
+    public String getOldPath() { return oldPath; }
+    public Long getNewSpaceId() { return newSpaceId; }
+    public String getNewPath() { return newPath; }
+
+    @Override
+    public String toString() {
+        return String.format("FileChangedEvent{type=%s, fileId=%d, old=%s:%s, new=%s:%s}",
+                type, fileId, oldSpaceId, oldPath, newSpaceId, newPath);
+    }
+
+    private static FileChangedEvent inPlace(ChangeType type, FileEntity file) {
+        Long spaceId = spaceIdOf(file);
+        return new FileChangedEvent(type, file.getId(), spaceId, file.getPath(), spaceId, file.getPath());
+    }
+
+    private static Long spaceIdOf(FileEntity file) {
+        return file.getSpace() != null ? file.getSpace().getId() : null;
+    }
+}
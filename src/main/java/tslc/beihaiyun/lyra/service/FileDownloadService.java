@@ -0,0 +1,449 @@
+package tslc.beihaiyun.lyra.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 文件下载服务
+ * 供REST下载/预览和WebDAV GET共用，支持条件请求（ETag/Last-Modified）、单区间和多区间请求，
+ * 优先通过容器sendfile或 {@link FileChannel#transferTo} 输出文件区间，避免经堆内缓冲区复制
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class FileDownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloadService.class);
+
+    /**
+     * 单个请求允许的最大区间数，超出时忽略Range返回完整内容
+     */
+    public static final int MAX_RANGES = 16;
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final StorageService storageService;
+    private final StorageAccessTracker accessTracker;
+
+    public FileDownloadService(StorageService storageService, StorageAccessTracker accessTracker) {
+        this.storageService = storageService;
+        this.accessTracker = accessTracker;
+    }
+
+    /**
+     * 字节区间（闭区间）
+     */
+    public static class ByteRange {
+        private final long start;
+        private final long end;
+
+        public ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long getLength() { return end - start + 1; }
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
+    /**
+     * 输出文件内容
+     *
+     * @param file 文件实体
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param contentDisposition Content-Disposition头（可为空）
+     * @param cacheControl Cache-Control头（可为空）
+     * @throws IOException 读取或写出异常
+     */
+    public void serve(FileEntity file, HttpServletRequest request, HttpServletResponse response,
+                      String contentDisposition, String cacheControl) throws IOException {
+        serve(file, request, response, contentDisposition, cacheControl, null);
+    }
+
+    /**
+     * 在传输许可下输出文件内容
+     * 容器的sendfile在处理方法返回后才发送，届时许可已归还，因此持有许可时不使用sendfile，
+     * 改为在方法内以transferTo完成输出；许可受带宽限制时不使用transferTo，改为经限速流复制
+     *
+     * @param file 文件实体
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param contentDisposition Content-Disposition头（可为空）
+     * @param cacheControl Cache-Control头（可为空）
+     * @param permit 传输许可（可为空，表示不限速）
+     * @throws IOException 读取或写出异常
+     */
+    public void serve(FileEntity file, HttpServletRequest request, HttpServletResponse response,
+                      String contentDisposition, String cacheControl, IoGovernor.Permit permit)
+            throws IOException {
+
+        accessTracker.recordAccess(file.getStoragePath());
+        Optional<Path> pathOpt = storageService.getPath(file.getStoragePath());
+        long size = pathOpt.isPresent() ? Files.size(pathOpt.get())
+                : (file.getSizeBytes() != null ? file.getSizeBytes() : 0L);
+        String etag = buildETag(file);
+        long lastModified = lastModifiedMillis(file);
+        String contentType = file.getMimeType() != null ? file.getMimeType() : DEFAULT_CONTENT_TYPE;
+
+        response.setHeader("ETag", etag);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+        if (cacheControl != null) {
+            response.setHeader("Cache-Control", cacheControl);
+        }
+
+        // 条件请求：If-None-Match 优先于 If-Modified-Since
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (contentDisposition != null) {
+            response.setHeader("Content-Disposition", contentDisposition);
+        }
+
+        List<ByteRange> ranges = null;
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader != null && isIfRangeSatisfied(request, etag, lastModified)) {
+            ranges = parseRanges(rangeHeader, size);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setHeader("Content-Range", "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(size);
+            if (!headOnly && size > 0) {
+                writeRegion(file, pathOpt, 0, size, request, response, true, permit);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", "bytes " + range + "/" + size);
+            response.setContentLengthLong(range.getLength());
+            if (!headOnly) {
+                writeRegion(file, pathOpt, range.getStart(), range.getLength(), request, response, true, permit);
+            }
+            return;
+        }
+
+        writeMultipart(file, pathOpt, ranges, size, contentType, headOnly, request, response, permit);
+    }
+
+    /**
+     * 根据内容哈希生成强ETag，缺少哈希时退化为基于ID和版本的弱ETag
+     *
+     * @param file 文件实体
+     * @return ETag
+     */
+    public static String buildETag(FileEntity file) {
+        if (file.getFileHash() != null && !file.getFileHash().isEmpty()) {
+            return "\"" + file.getFileHash() + "\"";
+        }
+        return "W/\"" + file.getId() + "-" + file.getVersion() + "\"";
+    }
+
+    /**
+     * 解析Range请求头
+     *
+     * @param rangeHeader Range头，例如 bytes=0-99,200-,-50
+     * @param size 文件大小
+     * @return 按起始位置排序并合并重叠后的区间；格式无效或区间过多时返回null（应忽略Range），
+     *         所有区间均不可满足时返回空列表
+     */
+    public static List<ByteRange> parseRanges(String rangeHeader, long size) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+
+        String[] specs = rangeHeader.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+
+            try {
+                if (first.isEmpty()) {
+                    // 后缀区间：最后N个字节
+                    if (last.isEmpty()) {
+                        return null;
+                    }
+                    long suffixLength = Long.parseLong(last);
+                    if (suffixLength <= 0 || size == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, size - suffixLength);
+                    end = size - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+                    if (end < start) {
+                        return null;
+                    }
+                    if (start >= size) {
+                        continue;
+                    }
+                    end = Math.min(end, size - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (start < 0) {
+                return null;
+            }
+            ranges.add(new ByteRange(start, end));
+        }
+
+        return coalesce(ranges);
+    }
+
+    // ==================== 条件请求 ====================
+
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, etag);
+        }
+
+        long ifModifiedSince = readDateHeader(request, "If-Modified-Since");
+        return ifModifiedSince > 0 && lastModified > 0 && lastModified <= ifModifiedSince;
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            // If-Range 要求强比较
+            return !etag.startsWith("W/") && value.equals(etag);
+        }
+
+        long date = readDateHeader(request, "If-Range");
+        return date > 0 && lastModified > 0 && lastModified <= date;
+    }
+
+    private static boolean matchesETag(String headerValue, String etag) {
+        String opaque = stripWeak(etag);
+        for (String candidate : headerValue.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || stripWeak(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long readDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static long lastModifiedMillis(FileEntity file) {
+        LocalDateTime time = file.getLastModifiedAt() != null ? file.getLastModifiedAt() : file.getUpdatedAt();
+        if (time == null) {
+            return -1;
+        }
+        // HTTP日期精确到秒，截断后才能与If-Modified-Since正确比较
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return millis - Math.floorMod(millis, 1000L);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() <= 1) {
+            return ranges;
+        }
+
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> merged = new ArrayList<>();
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.getStart() <= current.getEnd() + 1) {
+                current = new ByteRange(current.getStart(), Math.max(current.getEnd(), next.getEnd()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    // ==================== 内容输出 ====================
+
+    private void writeMultipart(FileEntity file, Optional<Path> pathOpt, List<ByteRange> ranges, long size,
+                                String contentType, boolean headOnly,
+                                HttpServletRequest request, HttpServletResponse response,
+                                IoGovernor.Permit permit) throws IOException {
+        String boundary = "LYRA_" + UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        long contentLength = closing.length;
+        for (ByteRange range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + range + "/" + size + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(header);
+            contentLength += header.length + range.getLength();
+        }
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            out.write(partHeaders.get(i));
+            writeRegion(file, pathOpt, range.getStart(), range.getLength(), request, response, false, permit);
+        }
+        out.write(closing);
+    }
+
+    /**
+     * 输出文件区间：容器支持sendfile且不持有传输许可时交由容器零拷贝发送，否则使用FileChannel.transferTo，
+     * 存储后端不提供本地路径或传输受带宽限制时退化为流式复制
+     */
+    private void writeRegion(FileEntity file, Optional<Path> pathOpt, long start, long length,
+                             HttpServletRequest request, HttpServletResponse response,
+                             boolean allowSendfile, IoGovernor.Permit permit) throws IOException {
+        boolean throttled = permit != null && permit.isThrottled();
+        if (pathOpt.isPresent() && !throttled) {
+            Path path = pathOpt.get();
+
+            if (allowSendfile && permit == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, path.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, start + length);
+                return;
+            }
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // 目标通道包装响应流，不关闭以免提前结束响应
+                WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                long remaining = length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        throw new EOFException("文件内容短于预期: " + file.getStoragePath());
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+            return;
+        }
+
+        Optional<InputStream> streamOpt = storageService.load(file.getStoragePath());
+        if (streamOpt.isEmpty()) {
+            throw new IOException("无法读取文件内容: " + file.getStoragePath());
+        }
+
+        logger.debug("存储后端未提供本地路径或传输受限速，使用流式输出: {}", file.getStoragePath());
+        try (InputStream raw = streamOpt.get()) {
+            // 在原始流上跳过区间之前的内容，跳过的字节不计入带宽
+            raw.skipNBytes(start);
+            InputStream in = throttled ? permit.throttle(raw) : raw;
+            try {
+                copy(in, response.getOutputStream(), length);
+            } finally {
+                if (in != raw) {
+                    in.close();
+                }
+            }
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(STREAM_BUFFER_SIZE, Math.max(length, 1))];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("文件内容短于预期");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+}
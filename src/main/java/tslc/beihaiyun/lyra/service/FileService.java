@@ -89,6 +89,19 @@ public interface FileService {
      */
     FileOperationResult uploadFile(MultipartFile file, Space space, Folder folder, Long uploaderId);
 
+    /**
+     * 批量上传文件
+     * 各文件内容并发写入存储，全部完成后一次性写入文件记录
+     * 
+     * @param files 上传的文件列表
+     * @param space 目标空间
+     * @param folder 目标文件夹（可为null表示根目录）
+     * @param uploaderId 上传者ID
+     * @return 与输入顺序一致的逐个文件操作结果
+     */
+    List<FileOperationResult> batchUploadFiles(List<MultipartFile> files, Space space, Folder folder,
+                                               Long uploaderId);
+
     /**
      * 从输入流创建文件
      * 
@@ -103,6 +116,31 @@ public interface FileService {
     FileOperationResult createFile(InputStream inputStream, String filename, String contentType, 
                                  Space space, Folder folder, Long creatorId);
 
+    /**
+     * 基于已写入存储层的内容创建文件记录（分块上传、秒传等场景）
+     * 
+     * @param storageResult 存储结果
+     * @param filename 文件名
+     * @param contentType 内容类型
+     * @param space 目标空间
+     * @param folder 目标文件夹
+     * @param creatorId 创建者ID
+     * @return 文件操作结果
+     */
+    FileOperationResult createFileFromStorage(StorageService.StorageResult storageResult, String filename,
+                                              String contentType, Space space, Folder folder, Long creatorId);
+
+    /**
+     * 按内容哈希和大小查找用户已能读取的内容（秒传）
+     * 只在用户拥有或获得授权的空间内查找，避免仅凭哈希值引用他人的私有文件
+     * 
+     * @param fileHash 内容SHA-256哈希值
+     * @param sizeBytes 内容大小
+     * @param userId 上传用户ID
+     * @return 可直接引用的存储结果（可选）
+     */
+    Optional<StorageService.StorageResult> findExistingContent(String fileHash, long sizeBytes, Long userId);
+
     /**
      * 根据ID获取文件
      * 
@@ -139,6 +177,20 @@ public interface FileService {
      */
     FileOperationResult updateFileContent(Long fileId, InputStream inputStream, Long updaterId);
 
+    /**
+     * 将文件指向一个已存储的内容块（内容已由存储层或版本服务写入）
+     * 同步维护新旧内容块的引用计数
+     * 
+     * @param fileId 文件ID
+     * @param storagePath 新内容的存储路径
+     * @param fileHash 新内容的哈希值
+     * @param sizeBytes 新内容的大小
+     * @param updaterId 更新者ID
+     * @return 文件操作结果
+     */
+    FileOperationResult updateFileStorage(Long fileId, String storagePath, String fileHash,
+                                          long sizeBytes, Long updaterId);
+
     /**
      * 更新文件信息
      * 
@@ -168,6 +220,15 @@ public interface FileService {
      */
     boolean permanentDeleteFile(Long fileId, Long deleterId);
 
+    /**
+     * 彻底删除文件夹及其全部子文件夹和文件（包括回收站中的文件）
+     * 
+     * @param folderId 文件夹ID
+     * @param deleterId 删除者ID
+     * @return 操作是否成功
+     */
+    boolean permanentDeleteFolder(Long folderId, Long deleterId);
+
     // ==================== 文件操作 ====================
 
     /**
@@ -183,6 +244,7 @@ public interface FileService {
 
     /**
      * 复制文件
+     * 只创建引用同一内容块的新文件记录，不复制物理内容；目标位置重名时自动生成唯一文件名
      * 
      * @param fileId 源文件ID
      * @param targetSpace 目标空间
@@ -192,6 +254,33 @@ public interface FileService {
      */
     FileOperationResult copyFile(Long fileId, Space targetSpace, Folder targetFolder, Long operatorId);
 
+    /**
+     * 以指定文件名复制文件
+     * 
+     * @param fileId 源文件ID
+     * @param targetSpace 目标空间
+     * @param targetFolder 目标文件夹（可为null）
+     * @param targetName 目标文件名，为null时沿用源文件名并在重名时自动生成唯一文件名
+     * @param operatorId 操作者ID
+     * @return 文件操作结果，指定的目标文件名已存在时失败
+     */
+    FileOperationResult copyFile(Long fileId, Space targetSpace, Folder targetFolder, String targetName,
+                                 Long operatorId);
+
+    /**
+     * 递归复制文件夹
+     * 逐层创建文件夹副本，其中的文件只创建引用同一内容块的新记录，不复制物理内容
+     * 
+     * @param folderId 源文件夹ID
+     * @param targetSpace 目标空间
+     * @param targetParent 目标父文件夹（可为null表示空间根目录）
+     * @param targetName 目标文件夹名，为null时沿用源文件夹名
+     * @param operatorId 操作者ID
+     * @return 批量操作结果，总数为复制的文件夹与文件数之和
+     */
+    BatchOperationResult copyFolder(Long folderId, Space targetSpace, Folder targetParent, String targetName,
+                                    Long operatorId);
+
     /**
      * 重命名文件
      * 
@@ -351,6 +440,14 @@ public interface FileService {
      */
     FileStatistics getUserFileStatistics(Long userId, Space space);
 
+    /**
+     * 获取用户在全部空间的文件统计信息
+     * 
+     * @param userId 用户ID
+     * @return 文件统计信息
+     */
+    FileStatistics getUserFileStatistics(Long userId);
+
     /**
      * 检查文件名是否在空间中已存在
      * 
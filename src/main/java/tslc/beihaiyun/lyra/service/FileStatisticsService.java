@@ -0,0 +1,406 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.FileStatisticsCounter;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FileStatisticsRepository;
+import tslc.beihaiyun.lyra.repository.SpaceRepository;
+import tslc.beihaiyun.lyra.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 文件统计服务
+ * 按空间、空间内创建者以及创建者跨全部空间物化文件统计计数：文件变更时在同一事务内以原子增量语句更新计数行，
+ * 统计查询只读取一行；计数行不存在时锁定所属空间（或用户）后由聚合查询初始化，后台任务定期以文件表为准对账
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class FileStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStatisticsService.class);
+
+    private final FileStatisticsRepository statisticsRepository;
+    private final FileEntityRepository fileEntityRepository;
+    private final SpaceRepository spaceRepository;
+    private final UserRepository userRepository;
+
+    public FileStatisticsService(FileStatisticsRepository statisticsRepository,
+                                 FileEntityRepository fileEntityRepository,
+                                 SpaceRepository spaceRepository,
+                                 UserRepository userRepository) {
+        this.statisticsRepository = statisticsRepository;
+        this.fileEntityRepository = fileEntityRepository;
+        this.spaceRepository = spaceRepository;
+        this.userRepository = userRepository;
+    }
+
+    // ==================== 增量维护 ====================
+
+    /**
+     * 记录新增的文件
+     *
+     * @param file 已保存的文件
+     */
+    @Transactional
+    public void recordAdded(FileEntity file) {
+        apply(new Changes().added(file));
+    }
+
+    /**
+     * 记录文件内容大小变化
+     *
+     * @param file 已更新的文件
+     * @param deltaBytes 大小变化量
+     */
+    @Transactional
+    public void recordResized(FileEntity file, long deltaBytes) {
+        apply(new Changes().resized(file, deltaBytes));
+    }
+
+    /**
+     * 将累积的变更写入计数行
+     * 须在文件变更写入数据库之后调用：计数行不存在时按聚合查询初始化，结果已包含本次变更；
+     * 初始化前锁定所属空间并重新尝试累加，并发的首次写入会等待先到者提交后累加到其计数行，
+     * 而不是重复插入触发唯一约束使业务操作回滚
+     *
+     * @param changes 累积的变更
+     */
+    @Transactional
+    public void apply(Changes changes) {
+        for (Map.Entry<Key, Delta> entry : changes.deltas.entrySet()) {
+            Key key = entry.getKey();
+            Delta delta = entry.getValue();
+            if (delta.isEmpty()) {
+                continue;
+            }
+            // 先以普通查询判断计数行是否存在，避免不存在时的累加语句在部分数据库上持有间隙锁
+            if (statisticsRepository.existsBySpaceIdAndCreator(key.spaceId(), key.creator())
+                && applyDelta(key, delta) > 0) {
+                continue;
+            }
+            lockOwner(key);
+            if (applyDelta(key, delta) == 0) {
+                FileStatisticsCounter counter = summarize(key);
+                statisticsRepository.save(counter);
+                logger.debug("初始化文件统计计数: {}", counter);
+            }
+        }
+    }
+
+    /**
+     * 锁定计数行的归属：空间行或跨空间汇总行对应的用户行
+     */
+    private void lockOwner(Key key) {
+        if (!key.isUserTotal()) {
+            spaceRepository.findByIdForUpdate(key.spaceId());
+            return;
+        }
+        try {
+            userRepository.findByIdForUpdate(Long.valueOf(key.creator()));
+        } catch (NumberFormatException e) {
+            // 非用户ID的创建者（如system）没有可锁定的行，并发初始化由对账兜底
+            logger.debug("创建者不是用户ID，跳过锁定: {}", key.creator());
+        }
+    }
+
+    private int applyDelta(Key key, Delta delta) {
+        return statisticsRepository.applyDelta(key.spaceId(), key.creator(),
+            delta.active, delta.deleted, delta.archived, delta.size, delta.lastModifiedAt);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 获取空间文件统计
+     *
+     * @param spaceId 空间ID
+     * @return 文件统计信息
+     */
+    @Transactional(readOnly = true)
+    public FileService.FileStatistics getSpaceStatistics(Long spaceId) {
+        return getStatistics(new Key(spaceId, FileStatisticsCounter.SPACE_TOTAL));
+    }
+
+    /**
+     * 获取空间内某创建者的文件统计
+     *
+     * @param spaceId 空间ID
+     * @param creator 创建者（与文件的created_by一致）
+     * @return 文件统计信息
+     */
+    @Transactional(readOnly = true)
+    public FileService.FileStatistics getCreatorStatistics(Long spaceId, String creator) {
+        return getStatistics(new Key(spaceId, creator));
+    }
+
+    /**
+     * 获取创建者在全部空间的文件统计
+     *
+     * @param creator 创建者（与文件的created_by一致）
+     * @return 文件统计信息
+     */
+    @Transactional(readOnly = true)
+    public FileService.FileStatistics getCreatorTotalStatistics(String creator) {
+        return getStatistics(new Key(FileStatisticsCounter.ALL_SPACES, creator));
+    }
+
+    // ==================== 对账 ====================
+
+    /**
+     * 以文件表为准重算全部计数行
+     * 对账期间提交的变更可能被覆盖，偏差由下一次对账修正；没有文件的计数行直接删除，下次变更时重新初始化
+     */
+    @Scheduled(fixedDelayString = "${lyra.storage.stats-reconcile-interval-ms:21600000}",
+               initialDelayString = "${lyra.storage.stats-reconcile-interval-ms:21600000}")
+    @Transactional
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Key, FileStatisticsCounter> expected = new HashMap<>();
+        for (Object[] row : fileEntityRepository.summarizeStatistics()) {
+            Long spaceId = (Long) row[0];
+            String creator = (String) row[1];
+            Object[] summary = {row[2], row[3], row[4], row[5]};
+            Key spaceKey = new Key(spaceId, FileStatisticsCounter.SPACE_TOTAL);
+            accumulate(expected.computeIfAbsent(spaceKey, Key::newCounter), summary);
+            if (isTrackedCreator(creator)) {
+                accumulate(expected.computeIfAbsent(new Key(spaceId, creator), Key::newCounter), summary);
+                accumulate(expected.computeIfAbsent(new Key(FileStatisticsCounter.ALL_SPACES, creator),
+                    Key::newCounter), summary);
+            }
+        }
+
+        int corrected = 0;
+        int removed = 0;
+        for (FileStatisticsCounter counter : statisticsRepository.findAll()) {
+            FileStatisticsCounter actual = expected.remove(new Key(counter.getSpaceId(), counter.getCreator()));
+            if (actual == null) {
+                statisticsRepository.delete(counter);
+                removed++;
+            } else if (!counter.sameCountsAs(actual)) {
+                counter.setActiveFiles(actual.getActiveFiles());
+                counter.setDeletedFiles(actual.getDeletedFiles());
+                counter.setArchivedFiles(actual.getArchivedFiles());
+                counter.setTotalSize(actual.getTotalSize());
+                counter.setLastModifiedAt(actual.getLastModifiedAt());
+                corrected++;
+            }
+        }
+        statisticsRepository.saveAll(expected.values());
+
+        logger.info("文件统计对账完成: 修正={}, 新建={}, 删除={}, 耗时={}ms",
+                   corrected, expected.size(), removed, System.currentTimeMillis() - start);
+    }
+
+    // ==================== 内部方法 ====================
+
+    private FileService.FileStatistics getStatistics(Key key) {
+        List<Object[]> rows = statisticsRepository.findCounts(key.spaceId(), key.creator());
+        if (rows.isEmpty()) {
+            // 计数行尚未初始化（该空间或创建者还没有经过服务的文件变更），退回聚合查询
+            FileStatisticsCounter counter = summarize(key);
+            return new FileService.FileStatistics(counter.getTotalFiles(), counter.getTotalSize(),
+                    counter.getActiveFiles(), counter.getDeletedFiles(), counter.getArchivedFiles(),
+                    counter.getLastModifiedAt());
+        }
+
+        Object[] row = rows.get(0);
+        long activeFiles = ((Number) row[0]).longValue();
+        long deletedFiles = ((Number) row[1]).longValue();
+        long archivedFiles = ((Number) row[2]).longValue();
+        return new FileService.FileStatistics(activeFiles + deletedFiles + archivedFiles,
+                ((Number) row[3]).longValue(), activeFiles, deletedFiles, archivedFiles, (LocalDateTime) row[4]);
+    }
+
+    /**
+     * 按聚合查询计算计数行
+     */
+    private FileStatisticsCounter summarize(Key key) {
+        List<Object[]> rows;
+        if (key.isUserTotal()) {
+            rows = fileEntityRepository.summarizeStatisticsByCreator(key.creator());
+        } else if (FileStatisticsCounter.SPACE_TOTAL.equals(key.creator())) {
+            rows = fileEntityRepository.summarizeStatisticsBySpace(key.spaceId());
+        } else {
+            rows = fileEntityRepository.summarizeStatisticsBySpaceAndCreator(key.spaceId(), key.creator());
+        }
+        FileStatisticsCounter counter = key.newCounter();
+        rows.forEach(row -> accumulate(counter, row));
+        return counter;
+    }
+
+    /**
+     * 累加一条按状态分组的汇总结果 [状态, 文件数量, 总大小, 最近修改时间]
+     */
+    private static void accumulate(FileStatisticsCounter counter, Object[] row) {
+        FileEntity.FileStatus status = (FileEntity.FileStatus) row[0];
+        long count = ((Number) row[1]).longValue();
+        long size = ((Number) row[2]).longValue();
+        LocalDateTime lastModifiedAt = (LocalDateTime) row[3];
+
+        if (status != null) {
+            switch (status) {
+                case ACTIVE -> counter.setActiveFiles(counter.getActiveFiles() + count);
+                case DELETED -> counter.setDeletedFiles(counter.getDeletedFiles() + count);
+                case ARCHIVED -> counter.setArchivedFiles(counter.getArchivedFiles() + count);
+            }
+        }
+        counter.setTotalSize(counter.getTotalSize() + size);
+        counter.setLastModifiedAt(later(counter.getLastModifiedAt(), lastModifiedAt));
+    }
+
+    private static boolean isTrackedCreator(String creator) {
+        return creator != null && !creator.isEmpty();
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+
+    private record Key(Long spaceId, String creator) {
+
+        boolean isUserTotal() {
+            return spaceId == FileStatisticsCounter.ALL_SPACES;
+        }
+
+        FileStatisticsCounter newCounter() {
+            return new FileStatisticsCounter(spaceId, creator);
+        }
+    }
+
+    private static final class Delta {
+        private long active;
+        private long deleted;
+        private long archived;
+        private long size;
+        private LocalDateTime lastModifiedAt;
+
+        void add(FileEntity.FileStatus status, long count, long sizeDelta, LocalDateTime modifiedAt) {
+            if (status != null) {
+                switch (status) {
+                    case ACTIVE -> active += count;
+                    case DELETED -> deleted += count;
+                    case ARCHIVED -> archived += count;
+                }
+            }
+            size += sizeDelta;
+            lastModifiedAt = later(lastModifiedAt, modifiedAt);
+        }
+
+        boolean isEmpty() {
+            return active == 0 && deleted == 0 && archived == 0 && size == 0 && lastModifiedAt == null;
+        }
+    }
+
+    /**
+     * 一次操作中累积的统计变更，按空间和创建者合并后由{@link #apply(Changes)}一次写入
+     */
+    public static final class Changes {
+
+        private final Map<Key, Delta> deltas = new LinkedHashMap<>();
+
+        /**
+         * 新增文件
+         *
+         * @param file 文件
+         * @return 当前变更集
+         */
+        public Changes added(FileEntity file) {
+            return add(spaceIdOf(file), file, file.getStatus(), 1, sizeOf(file), file.getLastModifiedAt());
+        }
+
+        /**
+         * 永久删除文件
+         *
+         * @param file 文件
+         * @return 当前变更集
+         */
+        public Changes removed(FileEntity file) {
+            return add(spaceIdOf(file), file, file.getStatus(), -1, -sizeOf(file), null);
+        }
+
+        /**
+         * 文件状态变化
+         *
+         * @param file 文件
+         * @param from 原状态
+         * @param to 新状态
+         * @return 当前变更集
+         */
+        public Changes statusChanged(FileEntity file, FileEntity.FileStatus from, FileEntity.FileStatus to) {
+            if (from != to) {
+                add(spaceIdOf(file), file, from, -1, 0, null);
+                add(spaceIdOf(file), file, to, 1, 0, null);
+            }
+            return this;
+        }
+
+        /**
+         * 文件在空间之间移动，同一空间内移动不影响统计
+         *
+         * @param file 文件
+         * @param fromSpaceId 原空间ID
+         * @param toSpaceId 目标空间ID
+         * @return 当前变更集
+         */
+        public Changes moved(FileEntity file, Long fromSpaceId, Long toSpaceId) {
+            if (!Objects.equals(fromSpaceId, toSpaceId)) {
+                add(fromSpaceId, file, file.getStatus(), -1, -sizeOf(file), null);
+                add(toSpaceId, file, file.getStatus(), 1, sizeOf(file), file.getLastModifiedAt());
+            }
+            return this;
+        }
+
+        /**
+         * 文件内容大小变化
+         *
+         * @param file 文件
+         * @param deltaBytes 大小变化量
+         * @return 当前变更集
+         */
+        public Changes resized(FileEntity file, long deltaBytes) {
+            return add(spaceIdOf(file), file, null, 0, deltaBytes, file.getLastModifiedAt());
+        }
+
+        private Changes add(Long spaceId, FileEntity file, FileEntity.FileStatus status, long count, long sizeDelta,
+                            LocalDateTime modifiedAt) {
+            if (spaceId == null) {
+                return this;
+            }
+            deltas.computeIfAbsent(new Key(spaceId, FileStatisticsCounter.SPACE_TOTAL), key -> new Delta())
+                  .add(status, count, sizeDelta, modifiedAt);
+            if (isTrackedCreator(file.getCreatedBy())) {
+                deltas.computeIfAbsent(new Key(spaceId, file.getCreatedBy()), key -> new Delta())
+                      .add(status, count, sizeDelta, modifiedAt);
+                deltas.computeIfAbsent(new Key(FileStatisticsCounter.ALL_SPACES, file.getCreatedBy()),
+                      key -> new Delta())
+                      .add(status, count, sizeDelta, modifiedAt);
+            }
+            return this;
+        }
+
+        private static Long spaceIdOf(FileEntity file) {
+            return file.getSpace() != null ? file.getSpace().getId() : null;
+        }
+
+        private static long sizeOf(FileEntity file) {
+            return file.getSizeBytes() != null ? file.getSizeBytes() : 0L;
+        }
+    }
+}
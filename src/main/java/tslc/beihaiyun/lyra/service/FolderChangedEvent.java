@@ -0,0 +1,36 @@
+package tslc.beihaiyun.lyra.service;
+
+import tslc.beihaiyun.lyra.entity.Folder;
+
+/**
+ * 文件夹变更事件
+ * 文件夹新建、重命名、移动、复制或删除时发布；这些操作可能连带改变子文件夹和文件的路径，
+ * 因此只携带文件夹ID和所属空间ID，按路径缓存的消费方应整体失效该空间
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public class FolderChangedEvent {
+
+    private final Long folderId;
+    private final Long spaceId;
+
+    public FolderChangedEvent(Long folderId, Long spaceId) {
+        this.folderId = folderId;
+        this.spaceId = spaceId;
+    }
+
+    public static FolderChangedEvent of(Folder folder) {
+        return new FolderChangedEvent(folder.getId(), folder.getSpace() != null ? folder.getSpace().getId() : null);
+    }
+
+    // Getters
+    public Long getFolderId() { return folderId; }
+    public Long getSpaceId() { return spaceId; }
+
+    @Override
+    public String toString() {
+        return String.format("FolderChangedEvent{folderId=%d, spaceId=%d}", folderId, spaceId);
+    }
+}
@@ -2,6 +2,7 @@ package tslc.beihaiyun.lyra.service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
 
@@ -121,6 +122,45 @@ public interface FolderService {
         public Folder getLargestFolder() { return largestFolder; }
     }
 
+    /**
+     * 文件夹子项（子文件夹或文件）
+     */
+    class FolderChild {
+        private final Folder folder;
+        private final FileEntity file;
+
+        private FolderChild(Folder folder, FileEntity file) {
+            this.folder = folder;
+            this.file = file;
+        }
+
+        public static FolderChild of(Folder folder) { return new FolderChild(folder, null); }
+        public static FolderChild of(FileEntity file) { return new FolderChild(null, file); }
+
+        public boolean isFolder() { return folder != null; }
+        public Folder getFolder() { return folder; }
+        public FileEntity getFile() { return file; }
+        public Long getId() { return folder != null ? folder.getId() : file.getId(); }
+        public String getName() { return folder != null ? folder.getName() : file.getName(); }
+    }
+
+    /**
+     * 子项分页结果（子文件夹在前、文件在后，各自按名称排序）
+     */
+    class ChildPage {
+        private final List<FolderChild> children;
+        private final String nextCursor;
+
+        public ChildPage(List<FolderChild> children, String nextCursor) {
+            this.children = children;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<FolderChild> getChildren() { return children; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean hasMore() { return nextCursor != null; }
+    }
+
     // ==================== 基础CRUD操作 ====================
 
     /**
@@ -189,6 +229,19 @@ public interface FolderService {
      */
     List<Folder> getRootFolders(Space space);
 
+    /**
+     * 键集分页列出文件夹的直接子项（子文件夹和活跃文件）
+     * 只读取当前文件夹下的行，代价与页大小相关而与空间规模无关
+     * 
+     * @param space 所属空间
+     * @param parentFolder 父文件夹（null表示空间根目录）
+     * @param cursor 上一页返回的游标，首页传null
+     * @param limit 每页最大条数
+     * @return 子项分页结果
+     * @throws IllegalArgumentException 游标格式无效
+     */
+    ChildPage listChildren(Space space, Folder parentFolder, String cursor, int limit);
+
     /**
      * 获取文件夹的所有祖先路径
      * 
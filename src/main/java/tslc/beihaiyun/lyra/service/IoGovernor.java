@@ -0,0 +1,404 @@
+package tslc.beihaiyun.lyra.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.util.FileUtils;
+import tslc.beihaiyun.lyra.util.ThrottledInputStream;
+import tslc.beihaiyun.lyra.util.TokenBucket;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * I/O传输调控器
+ * 在全局、用户、空间三个范围上分别限制同时进行的传输数和每秒传输字节数，
+ * 防止单个用户的批量同步或上传占满磁盘带宽和请求线程；
+ * 传输开始前申请许可（并发数已满时排队等待，超时则拒绝），传输中的内容流经许可限速，
+ * 读取的字节需同时满足所有相关范围的令牌桶；
+ * 名额按空间、用户、全局由窄到宽申请，排队等待自己范围名额的请求不会占住全局名额
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Component
+public class IoGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(IoGovernor.class);
+
+    /**
+     * 用户和空间限制器闲置（无进行中的传输）超过该时长后被清除
+     */
+    private static final long LIMITER_IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    /**
+     * 限制范围
+     */
+    public enum Scope {
+        GLOBAL, USER, SPACE
+    }
+
+    private final LyraProperties lyraProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Limiter globalLimiter;
+    private final Map<Long, Limiter> userLimiters = new ConcurrentHashMap<>();
+    private final Map<Long, Limiter> spaceLimiters = new ConcurrentHashMap<>();
+    private final AtomicInteger activeTransfers = new AtomicInteger();
+
+    private final Map<Scope, Counter> rejectedCounters = new EnumMap<>(Scope.class);
+    private Counter bytesCounter;
+    private Timer throttleTimer;
+
+    @Autowired
+    public IoGovernor(LyraProperties lyraProperties, MeterRegistry meterRegistry) {
+        this.lyraProperties = lyraProperties;
+        this.meterRegistry = meterRegistry;
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        this.globalLimiter = new Limiter(config.getIoGlobalBandwidth(), config.getIoGlobalConcurrency());
+        registerMetrics();
+        logger.info("I/O传输调控器初始化完成 - 带宽上限(全局/用户/空间): {}/{}/{}, 并发上限(全局/用户/空间): {}/{}/{}",
+                   config.getIoGlobalBandwidth(), config.getIoUserBandwidth(), config.getIoSpaceBandwidth(),
+                   config.getIoGlobalConcurrency(), config.getIoUserConcurrency(), config.getIoSpaceConcurrency());
+    }
+
+    /**
+     * 申请一次传输的许可
+     * 并发数已满时最多排队等待配置的超时时间
+     *
+     * @param userId 用户ID（可为null）
+     * @param spaceId 空间ID（可为null）
+     * @return 许可，排队超时时为空
+     */
+    public Optional<Permit> tryAcquire(Long userId, Long spaceId) {
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        List<Limiter> limiters = new ArrayList<>(3);
+        List<Scope> scopes = new ArrayList<>(3);
+        if (spaceId != null) {
+            limiters.add(checkOut(spaceLimiters, spaceId, config.getIoSpaceBandwidth(), config.getIoSpaceConcurrency()));
+            scopes.add(Scope.SPACE);
+        }
+        if (userId != null) {
+            limiters.add(checkOut(userLimiters, userId, config.getIoUserBandwidth(), config.getIoUserConcurrency()));
+            scopes.add(Scope.USER);
+        }
+        limiters.add(globalLimiter);
+        scopes.add(Scope.GLOBAL);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getIoQueueTimeoutMs());
+        List<Semaphore> held = new ArrayList<>(limiters.size());
+        try {
+            for (int i = 0; i < limiters.size(); i++) {
+                Semaphore slots = limiters.get(i).slots;
+                if (slots == null) {
+                    continue;
+                }
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!slots.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    release(held);
+                    checkIn(limiters);
+                    rejectedCounters.get(scopes.get(i)).increment();
+                    logger.debug("传输许可排队超时: 范围={}, 用户={}, 空间={}", scopes.get(i), userId, spaceId);
+                    return Optional.empty();
+                }
+                held.add(slots);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(held);
+            checkIn(limiters);
+            return Optional.empty();
+        }
+
+        List<TokenBucket> buckets = new ArrayList<>(limiters.size());
+        for (Limiter limiter : limiters) {
+            if (limiter.bandwidth.isLimited()) {
+                buckets.add(limiter.bandwidth);
+            }
+        }
+        activeTransfers.incrementAndGet();
+        return Optional.of(new Permit(limiters, held, buckets.toArray(new TokenBucket[0])));
+    }
+
+    /**
+     * 清除闲置的用户和空间限制器，避免映射随用户和空间数无限增长
+     */
+    @Scheduled(fixedDelay = 300000) // 5分钟
+    public void evictIdleLimiters() {
+        int evicted = evictIdleLimiters(LIMITER_IDLE_NANOS);
+        if (evicted > 0) {
+            logger.debug("清除闲置的传输限制器: {}", evicted);
+        }
+    }
+
+    /**
+     * 清除无进行中传输且闲置超过指定时长的限制器
+     *
+     * @param idleNanos 闲置时长（纳秒）
+     * @return 清除的限制器数
+     */
+    int evictIdleLimiters(long idleNanos) {
+        long now = System.nanoTime();
+        return evictIdle(userLimiters, now, idleNanos) + evictIdle(spaceLimiters, now, idleNanos);
+    }
+
+    /**
+     * 获取当前跟踪的用户和空间限制器数
+     *
+     * @return 限制器数
+     */
+    int getTrackedLimiters() {
+        return userLimiters.size() + spaceLimiters.size();
+    }
+
+    /**
+     * 获取当前进行中的传输数
+     *
+     * @return 传输数
+     */
+    public int getActiveTransfers() {
+        return activeTransfers.get();
+    }
+
+    /**
+     * 传输许可
+     * 关闭时归还并发名额；经许可包装的流按所有相关范围的带宽上限限速
+     */
+    public final class Permit implements AutoCloseable {
+        private final List<Limiter> limiters;
+        private final List<Semaphore> held;
+        private final TokenBucket[] buckets;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit(List<Limiter> limiters, List<Semaphore> held, TokenBucket[] buckets) {
+            this.limiters = limiters;
+            this.held = held;
+            this.buckets = buckets;
+        }
+
+        /**
+         * 是否受带宽限制，受限时不应使用绕过流的零拷贝输出
+         *
+         * @return 是否限速
+         */
+        public boolean isThrottled() {
+            return buckets.length > 0;
+        }
+
+        /**
+         * 按许可限速包装输入流
+         *
+         * @param in 原始输入流
+         * @return 限速后的输入流，不限速时返回原流
+         */
+        public InputStream throttle(InputStream in) {
+            if (!isThrottled()) {
+                return in;
+            }
+            return new ThrottledInputStream(in, buckets) {
+                private boolean recorded;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!recorded) {
+                            recorded = true;
+                            bytesCounter.increment(getBytesRead());
+                            throttleTimer.record(getThrottledNanos(), TimeUnit.NANOSECONDS);
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * 按许可限速包装上传文件，读取内容时限速
+         *
+         * @param file 上传文件
+         * @return 限速后的上传文件，不限速时返回原对象
+         */
+        public MultipartFile throttle(MultipartFile file) {
+            return isThrottled() && file != null ? new ThrottledMultipartFile(file, this) : file;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(held);
+                checkIn(limiters);
+                activeTransfers.decrementAndGet();
+            }
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    private static void release(List<Semaphore> held) {
+        for (Semaphore slots : held) {
+            slots.release();
+        }
+        held.clear();
+    }
+
+    /**
+     * 取出范围的限制器并登记一次使用，登记与清除在同一映射项上互斥，使用中的限制器不会被清除
+     */
+    private static Limiter checkOut(Map<Long, Limiter> limiters, Long id, String bandwidth, int concurrency) {
+        return limiters.compute(id, (key, limiter) -> {
+            Limiter current = limiter != null ? limiter : new Limiter(bandwidth, concurrency);
+            current.inUse.incrementAndGet();
+            return current;
+        });
+    }
+
+    private void checkIn(List<Limiter> limiters) {
+        long now = System.nanoTime();
+        for (Limiter limiter : limiters) {
+            if (limiter == globalLimiter) {
+                continue;
+            }
+            limiter.lastUsedNanos = now;
+            limiter.inUse.decrementAndGet();
+        }
+    }
+
+    private static int evictIdle(Map<Long, Limiter> limiters, long now, long idleNanos) {
+        int evicted = 0;
+        for (Long id : limiters.keySet()) {
+            boolean[] removed = new boolean[1];
+            limiters.computeIfPresent(id, (key, limiter) -> {
+                removed[0] = limiter.inUse.get() == 0 && now - limiter.lastUsedNanos >= idleNanos;
+                return removed[0] ? null : limiter;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private void registerMetrics() {
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        for (Scope scope : Scope.values()) {
+            String tag = scope.name().toLowerCase();
+            rejectedCounters.put(scope, Counter.builder("lyra.io.rejected")
+                    .description("因并发传输数已满而被拒绝的传输数")
+                    .tag("scope", tag)
+                    .register(meterRegistry));
+        }
+        registerLimit(Scope.GLOBAL, config.getIoGlobalBandwidth(), config.getIoGlobalConcurrency());
+        registerLimit(Scope.USER, config.getIoUserBandwidth(), config.getIoUserConcurrency());
+        registerLimit(Scope.SPACE, config.getIoSpaceBandwidth(), config.getIoSpaceConcurrency());
+
+        this.bytesCounter = Counter.builder("lyra.io.throttled.bytes")
+                .description("经限速流传输的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.throttleTimer = Timer.builder("lyra.io.throttled")
+                .description("传输因带宽上限而等待的时间")
+                .register(meterRegistry);
+        Gauge.builder("lyra.io.active", activeTransfers, AtomicInteger::get)
+                .description("进行中的传输数")
+                .register(meterRegistry);
+    }
+
+    private void registerLimit(Scope scope, String bandwidth, int concurrency) {
+        String tag = scope.name().toLowerCase();
+        long bytesPerSecond = FileUtils.parseFileSize(bandwidth);
+        Gauge.builder("lyra.io.limit.bandwidth", () -> bytesPerSecond)
+                .description("每秒传输字节上限，0表示不限速")
+                .baseUnit("bytes")
+                .tag("scope", tag)
+                .register(meterRegistry);
+        Gauge.builder("lyra.io.limit.concurrency", () -> concurrency)
+                .description("并发传输数上限，0表示不限制")
+                .tag("scope", tag)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单个范围的带宽令牌桶与并发名额
+     */
+    private static class Limiter {
+        private final TokenBucket bandwidth;
+        private final Semaphore slots;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        private Limiter(String bandwidth, int concurrency) {
+            this.bandwidth = TokenBucket.perSecond(FileUtils.parseFileSize(bandwidth));
+            this.slots = concurrency > 0 ? new Semaphore(concurrency, true) : null;
+        }
+    }
+
+    /**
+     * 读取内容时限速的上传文件包装
+     */
+    private static class ThrottledMultipartFile implements MultipartFile {
+        private final MultipartFile delegate;
+        private final Permit permit;
+
+        private ThrottledMultipartFile(MultipartFile delegate, Permit permit) {
+            this.delegate = delegate;
+            this.permit = permit;
+        }
+
+        @Override
+        public String getName() { return delegate.getName(); }
+
+        @Override
+        public String getOriginalFilename() { return delegate.getOriginalFilename(); }
+
+        @Override
+        public String getContentType() { return delegate.getContentType(); }
+
+        @Override
+        public boolean isEmpty() { return delegate.isEmpty(); }
+
+        @Override
+        public long getSize() { return delegate.getSize(); }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            try (InputStream in = getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return permit.throttle(delegate.getInputStream());
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            try (InputStream in = getInputStream()) {
+                Files.copy(in, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
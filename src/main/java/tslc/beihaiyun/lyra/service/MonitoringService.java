@@ -48,6 +48,9 @@ public class MonitoringService {
     @Autowired
     private LyraProperties lyraProperties;
 
+    @Autowired
+    private StorageUsageTracker storageUsageTracker;
+
     // 业务指标缓存
     private final AtomicLong totalUsers = new AtomicLong(0);
     private final AtomicLong activeUsers = new AtomicLong(0);
@@ -125,6 +128,14 @@ public class MonitoringService {
                 .description("存储空间使用率")
                 .register(meterRegistry);
 
+        Gauge.builder("lyra.storage.objects", storageUsageTracker, StorageUsageTracker::getObjectCount)
+                .description("存储对象数量")
+                .register(meterRegistry);
+
+        Gauge.builder("lyra.storage.objects.bytes", storageUsageTracker, StorageUsageTracker::getStoredBytes)
+                .description("存储对象总大小（字节）")
+                .register(meterRegistry);
+
         // 系统配置指标
         Gauge.builder("lyra.config.max.users", lyraProperties.getSystem(), s -> s.getMaxUsers())
                 .description("系统最大用户数限制")
@@ -0,0 +1,125 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储访问热度统计器
+ * 记录每个存储路径的读取次数，定期将所有计数减半使热度随时间衰减，供分层存储判断工作集；
+ * 记录操作只更新内存中的计数，不做任何I/O
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Component
+public class StorageAccessTracker {
+
+    /**
+     * 最多跟踪的路径数，超出时淘汰热度最低的条目
+     */
+    private static final int MAX_TRACKED = 100_000;
+
+    private final Map<String, AtomicLong> heats = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次读取
+     *
+     * @param storagePath 存储路径
+     */
+    public void recordAccess(String storagePath) {
+        if (storagePath == null) {
+            return;
+        }
+        heats.computeIfAbsent(storagePath, key -> new AtomicLong()).incrementAndGet();
+        if (heats.size() > MAX_TRACKED) {
+            prune(MAX_TRACKED * 9 / 10);
+        }
+    }
+
+    /**
+     * 获取路径当前的热度
+     *
+     * @param storagePath 存储路径
+     * @return 衰减后的访问次数，未被访问过时为0
+     */
+    public long getScore(String storagePath) {
+        AtomicLong heat = heats.get(storagePath);
+        return heat != null ? heat.get() : 0L;
+    }
+
+    /**
+     * 按热度从高到低返回热度不低于阈值的路径
+     *
+     * @param minScore 最低热度
+     * @param limit 最大数量
+     * @return 存储路径列表
+     */
+    public List<String> getHottest(long minScore, int limit) {
+        List<Map.Entry<String, Long>> candidates = new ArrayList<>();
+        heats.forEach((path, heat) -> {
+            long score = heat.get();
+            if (score >= minScore) {
+                candidates.add(Map.entry(path, score));
+            }
+        });
+        candidates.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        List<String> result = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            result.add(candidates.get(i).getKey());
+        }
+        return result;
+    }
+
+    /**
+     * 移除路径的热度记录（内容被删除或移动时调用）
+     *
+     * @param storagePath 存储路径
+     */
+    public void forget(String storagePath) {
+        if (storagePath != null) {
+            heats.remove(storagePath);
+        }
+    }
+
+    /**
+     * 获取当前跟踪的路径数量
+     *
+     * @return 路径数量
+     */
+    public int getTrackedCount() {
+        return heats.size();
+    }
+
+    /**
+     * 热度衰减：所有计数减半，归零的条目被移除
+     */
+    @Scheduled(fixedRateString = "${lyra.storage.tier-decay-interval-ms:21600000}",
+               initialDelayString = "${lyra.storage.tier-decay-interval-ms:21600000}")
+    public void decay() {
+        heats.forEach((path, heat) -> {
+            if (heat.updateAndGet(value -> value / 2) == 0) {
+                heats.remove(path, heat);
+            }
+        });
+    }
+
+    private synchronized void prune(int keep) {
+        if (heats.size() <= keep) {
+            return;
+        }
+        List<Map.Entry<String, AtomicLong>> entries = new ArrayList<>(heats.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().get()));
+        for (int i = 0; i < entries.size() - keep; i++) {
+            heats.remove(entries.get(i).getKey());
+        }
+    }
+}
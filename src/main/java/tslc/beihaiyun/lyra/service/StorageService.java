@@ -26,18 +26,38 @@ public interface StorageService {
         private final String fileHash;
         private final long sizeBytes;
         private final boolean isDuplicate;
+        private final String detectedContentType;
+        private final String codec;
+        private final long storedSizeBytes;
 
         public StorageResult(String storagePath, String fileHash, long sizeBytes, boolean isDuplicate) {
+            this(storagePath, fileHash, sizeBytes, isDuplicate, null);
+        }
+
+        public StorageResult(String storagePath, String fileHash, long sizeBytes, boolean isDuplicate,
+                             String detectedContentType) {
+            this(storagePath, fileHash, sizeBytes, isDuplicate, detectedContentType, null, sizeBytes);
+        }
+
+        public StorageResult(String storagePath, String fileHash, long sizeBytes, boolean isDuplicate,
+                             String detectedContentType, String codec, long storedSizeBytes) {
             this.storagePath = storagePath;
             this.fileHash = fileHash;
             this.sizeBytes = sizeBytes;
             this.isDuplicate = isDuplicate;
+            this.detectedContentType = detectedContentType;
+            this.codec = codec;
+            this.storedSizeBytes = storedSizeBytes;
         }
 
         public String getStoragePath() { return storagePath; }
         public String getFileHash() { return fileHash; }
         public long getSizeBytes() { return sizeBytes; }
         public boolean isDuplicate() { return isDuplicate; }
+        public String getDetectedContentType() { return detectedContentType; }
+        /** 存储编码，为空表示未知（如复用已有内容） */
+        public String getCodec() { return codec; }
+        public long getStoredSizeBytes() { return storedSizeBytes; }
     }
 
     /**
@@ -71,6 +91,18 @@ public interface StorageService {
      */
     StorageResult store(byte[] content, String filename, String contentType) throws IOException;
 
+    /**
+     * 导入已在本地落盘且哈希已知的文件
+     * 文件通过重命名移入存储目录，不再复制内容；命中去重时直接删除源文件
+     * 
+     * @param sourceFile 源文件路径（导入后不再存在）
+     * @param filename 文件名
+     * @param fileHash 已计算的SHA-256哈希值
+     * @return 存储结果
+     * @throws IOException 导入异常
+     */
+    StorageResult importFile(Path sourceFile, String filename, String fileHash) throws IOException;
+
     /**
      * 读取文件内容
      * 
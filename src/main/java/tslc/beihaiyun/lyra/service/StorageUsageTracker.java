@@ -0,0 +1,200 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储用量统计器
+ * 在存储写入/删除时增量维护物理对象计数器，统计查询为O(1)；
+ * 后台低优先级任务定期扫描存储目录进行对账，修正增量维护的偏差。
+ * 每个空间和每个用户（跨全部空间）的逻辑用量由 {@link FileStatisticsService} 以计数行持久化维护，
+ * 同样是O(1)读取，此处不再重复计数
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Component
+public class StorageUsageTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageUsageTracker.class);
+
+    private final LyraProperties lyraProperties;
+
+    // ==================== 物理存储计数 ====================
+
+    private final AtomicLong objectCount = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    /**
+     * 对账扫描期间发生的增量，扫描结束后叠加到扫描结果上
+     */
+    private final AtomicLong scanObjectDelta = new AtomicLong();
+    private final AtomicLong scanBytesDelta = new AtomicLong();
+    private volatile boolean scanning = false;
+    private volatile boolean reconciled = false;
+
+    public StorageUsageTracker(LyraProperties lyraProperties) {
+        this.lyraProperties = lyraProperties;
+    }
+
+    // ==================== 物理存储 ====================
+
+    /**
+     * 记录新写入的存储对象
+     *
+     * @param sizeBytes 对象大小
+     */
+    public void recordObjectStored(long sizeBytes) {
+        adjustObjects(1, sizeBytes);
+    }
+
+    /**
+     * 记录被删除的存储对象
+     *
+     * @param sizeBytes 对象大小
+     */
+    public void recordObjectDeleted(long sizeBytes) {
+        adjustObjects(-1, -sizeBytes);
+    }
+
+    /**
+     * 获取存储对象数量
+     *
+     * @return 对象数量
+     */
+    public long getObjectCount() {
+        return Math.max(0, objectCount.get());
+    }
+
+    /**
+     * 获取存储对象总字节数
+     *
+     * @return 总字节数
+     */
+    public long getStoredBytes() {
+        return Math.max(0, storedBytes.get());
+    }
+
+    /**
+     * 计数器是否已经过至少一次对账
+     *
+     * @return 是否已对账
+     */
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    // ==================== 对账 ====================
+
+    /**
+     * 应用启动后执行首次对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        Thread thread = new Thread(this::reconcile, "storage-usage-reconcile");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * 定期对账
+     */
+    @Scheduled(fixedDelayString = "${lyra.storage.stats-reconcile-interval-ms:21600000}",
+               initialDelayString = "${lyra.storage.stats-reconcile-interval-ms:21600000}")
+    public void scheduledReconcile() {
+        Thread current = Thread.currentThread();
+        int priority = current.getPriority();
+        current.setPriority(Thread.MIN_PRIORITY);
+        try {
+            reconcile();
+        } finally {
+            current.setPriority(priority);
+        }
+    }
+
+    /**
+     * 以存储目录为准重算计数器
+     */
+    public synchronized void reconcile() {
+        long start = System.currentTimeMillis();
+        try {
+            reconcileObjects();
+            reconciled = true;
+            logger.info("存储统计对账完成: 对象数={}, 总大小={}字节, 耗时={}ms",
+                       getObjectCount(), getStoredBytes(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("存储统计对账失败", e);
+        }
+    }
+
+    private void reconcileObjects() throws IOException {
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        List<String> roots = config.isStriped() ? config.getStripePathList() : List.of(config.getBasePath());
+
+        scanObjectDelta.set(0);
+        scanBytesDelta.set(0);
+        scanning = true;
+        try {
+            long[] totals = new long[2];
+            for (String root : roots) {
+                Path rootPath = Paths.get(root).toAbsolutePath();
+                if (!Files.isDirectory(rootPath)) {
+                    continue;
+                }
+                Files.walkFileTree(rootPath, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) {
+                            totals[0]++;
+                            totals[1] += attrs.size();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+
+            // 扫描期间的写入可能已被扫描到，也可能没有；以扫描结果加期间增量为准，偏差由下一次对账修正
+            synchronized (objectCount) {
+                objectCount.set(totals[0] + scanObjectDelta.get());
+                storedBytes.set(totals[1] + scanBytesDelta.get());
+            }
+        } finally {
+            scanning = false;
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void adjustObjects(long countDelta, long bytesDelta) {
+        synchronized (objectCount) {
+            objectCount.addAndGet(countDelta);
+            storedBytes.addAndGet(bytesDelta);
+            if (scanning) {
+                scanObjectDelta.addAndGet(countDelta);
+                scanBytesDelta.addAndGet(bytesDelta);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileVersion;
+import tslc.beihaiyun.lyra.repository.FileVersionRepository;
+import tslc.beihaiyun.lyra.util.BinaryDelta;
+import tslc.beihaiyun.lyra.util.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 版本差量存储服务
+ * 采用反向差量：最新版本始终完整存储，创建新版本时把上一版本改存为相对新版本的二进制差量，
+ * 版本号为关键帧间隔整数倍的版本保持完整存储，使还原链长度不超过关键帧间隔；
+ * 还原时从链上最近的完整版本依次应用差量，还原结果按容量缓存最近使用的版本
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class VersionDeltaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionDeltaService.class);
+
+    /**
+     * 差量不超过原内容该比例时才改存差量
+     */
+    private static final double MAX_DELTA_RATIO = 0.5;
+
+    private static final String DELTA_CONTENT_TYPE = "application/octet-stream";
+
+    private final FileVersionRepository fileVersionRepository;
+    private final StorageService storageService;
+    private final BlobService blobService;
+    private final LyraProperties lyraProperties;
+
+    /**
+     * 还原结果缓存（版本ID -> 内容），按访问顺序淘汰
+     */
+    private final Map<Long, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    @Autowired
+    public VersionDeltaService(FileVersionRepository fileVersionRepository, StorageService storageService,
+                               BlobService blobService, LyraProperties lyraProperties) {
+        this.fileVersionRepository = fileVersionRepository;
+        this.storageService = storageService;
+        this.blobService = blobService;
+        this.lyraProperties = lyraProperties;
+    }
+
+    // ==================== 差量编码 ====================
+
+    /**
+     * 新版本创建后，将上一版本改存为相对新版本的差量
+     *
+     * @param previous 上一版本
+     * @param current 新创建的版本
+     * @return 是否改存为差量
+     * @throws IOException 读取或写入内容失败
+     */
+    public boolean deltify(FileVersion previous, FileVersion current) throws IOException {
+        if (!isDeltaCandidate(previous, current)) {
+            return false;
+        }
+
+        byte[] base = readFull(current);
+        byte[] target = readFull(previous);
+        if (base == null || target == null) {
+            return false;
+        }
+
+        byte[] delta = BinaryDelta.encode(base, target);
+        if (delta.length > target.length * MAX_DELTA_RATIO) {
+            logger.debug("差量收益不足，保持完整存储: 版本ID={}, 差量={}, 原内容={}",
+                        previous.getId(), delta.length, target.length);
+            return false;
+        }
+
+        StorageService.StorageResult stored = storageService.store(delta,
+            "v" + previous.getVersionNumber() + ".delta", DELTA_CONTENT_TYPE);
+        blobService.acquire(stored);
+
+        String fullPath = previous.getStoragePath();
+        previous.setStorageType(FileVersion.StorageType.DELTA);
+        previous.setBaseVersionId(current.getId());
+        previous.setStoragePath(stored.getStoragePath());
+        fileVersionRepository.save(previous);
+        blobService.release(fullPath);
+
+        logger.debug("版本改存为差量: 版本ID={}, 基准版本ID={}, {} -> {}", previous.getId(), current.getId(),
+                    FileUtils.formatFileSize(target.length), FileUtils.formatFileSize(delta.length));
+        return true;
+    }
+
+    /**
+     * 将差量版本恢复为完整存储（其基准版本即将被删除或需要直接引用其内容时调用）
+     *
+     * @param version 版本
+     * @throws IOException 还原或写入失败
+     */
+    public void rehydrate(FileVersion version) throws IOException {
+        if (!version.isDelta()) {
+            return;
+        }
+
+        byte[] content = materialize(version);
+        StorageService.StorageResult stored = storageService.store(content,
+            version.getFile().getName(), version.getFile().getMimeType());
+        blobService.acquire(stored);
+
+        String deltaPath = version.getStoragePath();
+        version.setStorageType(FileVersion.StorageType.FULL);
+        version.setBaseVersionId(null);
+        version.setStoragePath(stored.getStoragePath());
+        fileVersionRepository.save(version);
+        blobService.release(deltaPath);
+    }
+
+    /**
+     * 删除版本前调用：以该版本为基准的差量版本全部恢复为完整存储
+     *
+     * @param version 即将删除的版本
+     * @throws IOException 还原失败
+     */
+    public void detachDependents(FileVersion version) throws IOException {
+        if (version.getId() == null) {
+            return;
+        }
+        for (FileVersion dependent : fileVersionRepository.findByBaseVersionId(version.getId())) {
+            rehydrate(dependent);
+        }
+        evict(version.getId());
+    }
+
+    // ==================== 内容还原 ====================
+
+    /**
+     * 以流方式打开版本内容，差量版本边读边还原
+     *
+     * @param version 版本
+     * @return 内容流
+     * @throws IOException 读取失败或差量链损坏
+     */
+    public Optional<InputStream> open(FileVersion version) throws IOException {
+        if (!version.isDelta()) {
+            return storageService.load(version.getStoragePath());
+        }
+
+        byte[] cached = cacheGet(version.getId());
+        if (cached != null) {
+            return Optional.of(new ByteArrayInputStream(cached));
+        }
+
+        byte[] base = materialize(baseOf(version));
+        Optional<InputStream> delta = storageService.load(version.getStoragePath());
+        if (delta.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(BinaryDelta.apply(base, delta.get()));
+    }
+
+    /**
+     * 还原版本的完整内容：沿差量链找到最近的完整版本或缓存项，再依次应用差量
+     *
+     * @param version 版本
+     * @return 完整内容
+     * @throws IOException 读取失败或差量链损坏
+     */
+    public byte[] materialize(FileVersion version) throws IOException {
+        Deque<FileVersion> chain = new ArrayDeque<>();
+        Set<Long> visited = new HashSet<>();
+        FileVersion current = version;
+        byte[] content;
+
+        while (true) {
+            if (current.getId() != null && !visited.add(current.getId())) {
+                throw new IOException("版本差量链存在环: 版本ID=" + version.getId());
+            }
+            content = current.getId() != null ? cacheGet(current.getId()) : null;
+            if (content != null) {
+                break;
+            }
+            if (!current.isDelta()) {
+                content = readFull(current);
+                if (content == null) {
+                    throw new IOException("版本内容不存在: 版本ID=" + current.getId());
+                }
+                break;
+            }
+            chain.push(current);
+            current = baseOf(current);
+        }
+
+        while (!chain.isEmpty()) {
+            FileVersion next = chain.pop();
+            InputStream delta = storageService.load(next.getStoragePath())
+                .orElseThrow(() -> new IOException("差量数据不存在: 版本ID=" + next.getId()));
+            content = BinaryDelta.applyFully(content, delta);
+            cachePut(next.getId(), content);
+        }
+        return content;
+    }
+
+    /**
+     * 从缓存移除版本的还原结果
+     *
+     * @param versionId 版本ID
+     */
+    public synchronized void evict(Long versionId) {
+        byte[] removed = cache.remove(versionId);
+        if (removed != null) {
+            cachedBytes -= removed.length;
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    private boolean isDeltaCandidate(FileVersion previous, FileVersion current) {
+        if (previous == null || current == null || current.getId() == null || previous.isDelta()) {
+            return false;
+        }
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        int keyframeInterval = config.getVersionKeyframeInterval();
+        if (previous.getVersionNumber() != null && previous.getVersionNumber() % keyframeInterval == 0) {
+            return false;
+        }
+        long maxSize = FileUtils.parseFileSize(config.getVersionDeltaMaxSize());
+        return previous.getSizeBytes() != null && previous.getSizeBytes() > 0 && previous.getSizeBytes() <= maxSize
+            && current.getSizeBytes() != null && current.getSizeBytes() <= maxSize
+            && !Objects.equals(previous.getStoragePath(), current.getStoragePath());
+    }
+
+    private FileVersion baseOf(FileVersion version) throws IOException {
+        Long baseVersionId = version.getBaseVersionId();
+        if (baseVersionId == null) {
+            throw new IOException("差量版本缺少基准版本: 版本ID=" + version.getId());
+        }
+        return fileVersionRepository.findById(baseVersionId)
+            .orElseThrow(() -> new IOException("差量基准版本不存在: 版本ID=" + baseVersionId));
+    }
+
+    private byte[] readFull(FileVersion version) throws IOException {
+        Optional<InputStream> content = storageService.load(version.getStoragePath());
+        if (content.isEmpty()) {
+            return null;
+        }
+        try (InputStream in = content.get()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private synchronized byte[] cacheGet(Long versionId) {
+        return cache.get(versionId);
+    }
+
+    private synchronized void cachePut(Long versionId, byte[] content) {
+        long capacity = FileUtils.parseFileSize(lyraProperties.getStorage().getVersionCacheSize());
+        if (versionId == null || content.length > capacity) {
+            return;
+        }
+        byte[] previous = cache.put(versionId, content);
+        cachedBytes += content.length - (previous != null ? previous.length : 0);
+
+        Iterator<Map.Entry<Long, byte[]>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > capacity && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+}
@@ -8,7 +8,9 @@ import tslc.beihaiyun.lyra.entity.FileVersion;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -152,6 +154,29 @@ public interface VersionService {
         public double getCompressionRatio() { return compressionRatio; }
     }
 
+    /**
+     * 版本摘要（WebDAV 版本属性所需的最小信息）
+     */
+    class VersionSummary {
+        private final long totalVersions;
+        private final int latestVersionNumber;
+        private final String latestComment;
+        private final LocalDateTime latestVersionTime;
+
+        public VersionSummary(long totalVersions, int latestVersionNumber, String latestComment,
+                              LocalDateTime latestVersionTime) {
+            this.totalVersions = totalVersions;
+            this.latestVersionNumber = latestVersionNumber;
+            this.latestComment = latestComment;
+            this.latestVersionTime = latestVersionTime;
+        }
+
+        public long getTotalVersions() { return totalVersions; }
+        public int getLatestVersionNumber() { return latestVersionNumber; }
+        public String getLatestComment() { return latestComment; }
+        public LocalDateTime getLatestVersionTime() { return latestVersionTime; }
+    }
+
     // ==================== 版本创建和管理 ====================
 
     /**
@@ -416,6 +441,14 @@ public interface VersionService {
      */
     VersionStatistics getVersionStatistics(FileEntity file);
 
+    /**
+     * 批量获取文件的版本摘要，一次聚合查询完成，不加载历史版本
+     * 
+     * @param fileIds 文件ID集合
+     * @return 文件ID到版本摘要的映射，无版本的文件不在结果中
+     */
+    Map<Long, VersionSummary> getVersionSummaries(Collection<Long> fileIds);
+
     /**
      * 统计文件版本数量
      * 
@@ -0,0 +1,337 @@
+package tslc.beihaiyun.lyra.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FileVersionRepository;
+import tslc.beihaiyun.lyra.service.BlobService;
+import tslc.beihaiyun.lyra.service.StorageService;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 内容块服务实现
+ * 引用计数通过条件UPDATE原子维护；回收时先按候选批次"标记"，逐个打上墓碑认领后，
+ * 再复核文件与版本表中的真实引用并"清除"。被认领的内容块不再接受引用，存储层也不会向其路径写入新内容
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+@Transactional
+public class BlobServiceImpl implements BlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobServiceImpl.class);
+
+    private final BlobRepository blobRepository;
+    private final FileEntityRepository fileEntityRepository;
+    private final FileVersionRepository fileVersionRepository;
+    private final StorageService storageService;
+    private final LyraProperties lyraProperties;
+
+    @Autowired
+    public BlobServiceImpl(BlobRepository blobRepository,
+                           FileEntityRepository fileEntityRepository,
+                           FileVersionRepository fileVersionRepository,
+                           StorageService storageService,
+                           LyraProperties lyraProperties) {
+        this.blobRepository = blobRepository;
+        this.fileEntityRepository = fileEntityRepository;
+        this.fileVersionRepository = fileVersionRepository;
+        this.storageService = storageService;
+        this.lyraProperties = lyraProperties;
+    }
+
+    @Override
+    public void acquire(String storagePath, String fileHash, long sizeBytes) {
+        if (storagePath == null || storagePath.isEmpty()) {
+            return;
+        }
+
+        int updated = blobRepository.incrementRefCount(storagePath);
+        if (updated == 0) {
+            ensureRegistrable(storagePath);
+            Blob blob = new Blob(fileHash, storagePath, sizeBytes);
+            blob.setRefCount(1L);
+            blobRepository.save(blob);
+            logger.debug("登记新内容块: {}", storagePath);
+        }
+    }
+
+    @Override
+    public void acquire(StorageService.StorageResult storageResult) {
+        String storagePath = storageResult.getStoragePath();
+        if (storagePath == null || storagePath.isEmpty()) {
+            return;
+        }
+
+        int updated = blobRepository.incrementRefCount(storagePath);
+        if (updated == 0) {
+            ensureRegistrable(storagePath);
+            Blob blob = new Blob(storageResult.getFileHash(), storagePath, storageResult.getSizeBytes());
+            blob.setRefCount(1L);
+            if (storageResult.getCodec() != null) {
+                blob.setCodec(storageResult.getCodec());
+                blob.setStoredSizeBytes(storageResult.getStoredSizeBytes());
+            }
+            blobRepository.save(blob);
+            logger.debug("登记新内容块: {}, 编码: {}", storagePath, blob.getCodec());
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void registerUnreferenced(StorageService.StorageResult storageResult) {
+        String storagePath = storageResult.getStoragePath();
+        if (storagePath == null || storagePath.isEmpty() || blobRepository.existsByStoragePath(storagePath)) {
+            return;
+        }
+
+        Blob blob = new Blob(storageResult.getFileHash(), storagePath, storageResult.getSizeBytes());
+        blob.setRefCount(0L);
+        blob.setOrphanedAt(LocalDateTime.now());
+        if (storageResult.getCodec() != null) {
+            blob.setCodec(storageResult.getCodec());
+            blob.setStoredSizeBytes(storageResult.getStoredSizeBytes());
+        }
+        blobRepository.save(blob);
+        logger.info("登记无引用内容块，等待回收: {}", storagePath);
+    }
+
+    @Override
+    public boolean release(String storagePath) {
+        if (storagePath == null || storagePath.isEmpty()) {
+            return false;
+        }
+
+        int updated = blobRepository.decrementRefCount(storagePath, LocalDateTime.now());
+        if (updated == 0) {
+            // 未登记的历史数据不做任何物理操作，交由引用计数重建处理
+            logger.debug("释放未登记或已无引用的内容块: {}", storagePath);
+            return false;
+        }
+
+        return blobRepository.findRefCountByStoragePath(storagePath)
+                .map(refCount -> refCount <= 0)
+                .orElse(false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Blob> findByStoragePath(String storagePath) {
+        return blobRepository.findByStoragePath(storagePath);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Blob> findLiveByHash(String fileHash) {
+        if (fileHash == null || fileHash.isEmpty()) {
+            return Optional.empty();
+        }
+        return blobRepository.findFirstByFileHashAndRefCountGreaterThanOrderByIdAsc(fileHash, 0L);
+    }
+
+    @Override
+    public GarbageCollectionResult collectGarbage(int batchSize) {
+        int gracePeriod = lyraProperties.getStorage().getGcGracePeriodMinutes();
+        LocalDateTime orphanedBefore = LocalDateTime.now().minusMinutes(gracePeriod);
+
+        // 标记阶段：取出宽限期外引用归零的候选
+        List<Blob> candidates = blobRepository.findCollectableBlobs(orphanedBefore, PageRequest.of(0, batchSize));
+
+        int collected = 0;
+        int revived = 0;
+        long bytesFreed = 0;
+        List<String> errors = new ArrayList<>();
+
+        for (Blob blob : candidates) {
+            String storagePath = blob.getStoragePath();
+            try {
+                // 认领：引用计数仍为零时打上墓碑并锁定该行，此后并发的引用自增会失败而不是引用即将删除的内容
+                if (blobRepository.tombstone(blob.getId(), LocalDateTime.now()) == 0) {
+                    revived++;
+                    continue;
+                }
+
+                // 复核真实引用，修正计数漂移（例如历史数据或异常中断的事务）
+                long liveReferences = fileEntityRepository.countByStoragePath(storagePath)
+                        + fileVersionRepository.countByStoragePath(storagePath);
+                if (liveReferences > 0) {
+                    blob.setRefCount(liveReferences);
+                    blob.setOrphanedAt(null);
+                    blob.setTombstonedAt(null);
+                    blobRepository.save(blob);
+                    revived++;
+                    logger.warn("内容块引用计数漂移已修正: {}, 实际引用数={}", storagePath, liveReferences);
+                    continue;
+                }
+
+                // 清除阶段：删除物理文件后删除登记记录
+                if (storageService.exists(storagePath) && !storageService.delete(storagePath)) {
+                    errors.add("删除内容块失败: " + storagePath);
+                    continue;
+                }
+
+                blobRepository.delete(blob);
+                collected++;
+                bytesFreed += blob.getSizeBytes() != null ? blob.getSizeBytes() : 0;
+
+            } catch (Exception e) {
+                String error = "回收内容块失败: " + storagePath + ", 错误=" + e.getMessage();
+                errors.add(error);
+                logger.warn(error, e);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            logger.info("内容块垃圾回收完成: 候选数={}, 回收数={}, 修正数={}, 释放空间={}字节",
+                       candidates.size(), collected, revived, bytesFreed);
+        }
+
+        return new GarbageCollectionResult(candidates.size(), collected, revived, bytesFreed, errors);
+    }
+
+    @Override
+    public int rebuildReferenceCounts() {
+        // 汇总文件与版本两张表的引用：存储路径 -> [哈希值, 大小, 引用数]
+        Map<String, Object[]> references = new HashMap<>();
+        mergeReferences(references, fileEntityRepository.summarizeReferencesByStoragePath());
+        mergeReferences(references, fileVersionRepository.summarizeReferencesByStoragePath());
+
+        Map<String, Blob> existing = blobRepository.findAll().stream()
+                .collect(Collectors.toMap(Blob::getStoragePath, Function.identity(), (a, b) -> a));
+
+        LocalDateTime now = LocalDateTime.now();
+        int changed = 0;
+
+        for (Map.Entry<String, Object[]> entry : references.entrySet()) {
+            String storagePath = entry.getKey();
+            Object[] reference = entry.getValue();
+            long refCount = (Long) reference[2];
+
+            Blob blob = existing.remove(storagePath);
+            if (blob == null) {
+                String fileHash = (String) reference[0];
+                if (fileHash == null) {
+                    continue;
+                }
+                blob = new Blob(fileHash, storagePath, (Long) reference[1]);
+            } else if (blob.getRefCount() != null && blob.getRefCount() == refCount) {
+                continue;
+            }
+
+            blob.setRefCount(refCount);
+            blob.setOrphanedAt(null);
+            blobRepository.save(blob);
+            changed++;
+        }
+
+        // 剩余登记记录已无任何引用，进入回收候选
+        for (Blob blob : existing.values()) {
+            if (!blob.isOrphaned() || blob.getOrphanedAt() == null) {
+                blob.setRefCount(0L);
+                blob.setOrphanedAt(now);
+                blobRepository.save(blob);
+                changed++;
+            }
+        }
+
+        logger.info("内容块引用计数重建完成: 引用路径数={}, 变更记录数={}", references.size(), changed);
+        return changed;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BlobStatistics getStatistics() {
+        Object[] all = firstRow(blobRepository.summarizeAll());
+        Object[] orphaned = firstRow(blobRepository.summarizeOrphaned());
+        return new BlobStatistics(
+            toLong(all[0]), toLong(all[1]),
+            toLong(orphaned[0]), toLong(orphaned[1])
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Blob> findScrubCandidates(LocalDateTime verifiedBefore, LocalDateTime attemptedBefore, int limit) {
+        return blobRepository.findScrubCandidates(verifiedBefore, attemptedBefore, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public void recordScrubResults(List<Long> verifiedIds, List<Long> corruptedIds, List<Long> failedIds) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!verifiedIds.isEmpty()) {
+            blobRepository.markVerified(verifiedIds, now);
+        }
+        if (!corruptedIds.isEmpty()) {
+            blobRepository.markCorrupted(corruptedIds, now);
+        }
+        if (!failedIds.isEmpty()) {
+            blobRepository.markScrubFailed(failedIds, now);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countCorrupted() {
+        return blobRepository.countByCorruptedAtIsNotNullAndRefCountGreaterThan(0L);
+    }
+
+    /**
+     * 登记新内容块前的检查：同一路径上的内容块已被垃圾回收认领，或物理内容已不存在时拒绝登记，
+     * 由调用方的事务回滚，避免留下指向已删除内容的引用
+     *
+     * @param storagePath 存储路径
+     */
+    private void ensureRegistrable(String storagePath) {
+        if (blobRepository.existsByStoragePath(storagePath)) {
+            throw new IllegalStateException("内容块正在被回收，无法引用: " + storagePath);
+        }
+        if (!storageService.exists(storagePath)) {
+            throw new IllegalStateException("内容块不存在，无法引用: " + storagePath);
+        }
+    }
+
+    /**
+     * 合并一组引用汇总结果
+     *
+     * @param target 合并目标
+     * @param rows 汇总行 [存储路径, 哈希值, 大小, 引用数]
+     */
+    private void mergeReferences(Map<String, Object[]> target, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            String storagePath = (String) row[0];
+            if (storagePath == null) {
+                continue;
+            }
+            long count = toLong(row[3]);
+            target.merge(storagePath,
+                new Object[]{row[1], toLong(row[2]), count},
+                (left, right) -> new Object[]{
+                    left[0] != null ? left[0] : right[0],
+                    Math.max((Long) left[1], (Long) right[1]),
+                    (Long) left[2] + (Long) right[2]
+                });
+        }
+    }
+
+    private Object[] firstRow(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[]{0L, 0L} : rows.get(0);
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
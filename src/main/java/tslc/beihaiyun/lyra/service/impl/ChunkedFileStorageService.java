@@ -0,0 +1,864 @@
+package tslc.beihaiyun.lyra.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.service.StorageUsageTracker;
+import tslc.beihaiyun.lyra.util.BlobCodec;
+import tslc.beihaiyun.lyra.util.ContentDefinedChunker;
+import tslc.beihaiyun.lyra.util.FileUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 内容定义分块存储服务实现
+ * 写入时以FastCDC将内容切分为变长块，块按SHA-256去重后追加到块包文件（.packs/pack-NNNNNN.pack），
+ * 存储路径只保存一份块哈希清单（"存储路径.cdc"）；对大文件的局部修改只会产生少量新块，
+ * 读取时按清单顺序从块包中流式取出各块。切换到该后端前的原样或压缩对象仍由父类读取
+ *
+ * <p>块包记录格式：块哈希(32字节) | 块长度(int) | 块数据；启动时扫描记录头重建内存索引，
+ * 末尾不完整的记录（写入中断）会被截断。清单格式：魔数"LCM1" | 原始大小(long) | 块数(int) | [块哈希 | 块长度]*</p>
+ *
+ * <p>删除只移除清单，块由后台压缩以标记-清除方式回收：扫描全部清单得到存活块集合，
+ * 无引用字节占比超过阈值的块包把存活块搬到当前块包后整体删除。压缩期间新写入、复制或移动的清单
+ * 所引用的块会登记为存活，不会被清除</p>
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+@ConditionalOnProperty(name = "lyra.storage.backend", havingValue = "cdc")
+public class ChunkedFileStorageService extends LocalFileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedFileStorageService.class);
+
+    /**
+     * 清单文件后缀
+     */
+    public static final String MANIFEST_SUFFIX = ".cdc";
+
+    private static final String PACK_DIRECTORY = ".packs";
+    private static final Pattern PACK_NAME = Pattern.compile("pack-(\\d{6})\\.pack");
+    private static final byte[] MANIFEST_MAGIC = {'L', 'C', 'M', '1'};
+    private static final int HASH_LENGTH = 32;
+    private static final int RECORD_HEADER_LENGTH = HASH_LENGTH + Integer.BYTES;
+    private static final int MANIFEST_ENTRY_LENGTH = HASH_LENGTH + Integer.BYTES;
+
+    /**
+     * 单个块包文件的大小上限，超过后滚动到新文件
+     */
+    private static final long PACK_SIZE_LIMIT = 256L * 1024 * 1024;
+
+    private final LyraProperties lyraProperties;
+
+    private ContentDefinedChunker chunker;
+    private Path packDirectory;
+
+    /**
+     * 块索引（块哈希 -> 块位置）
+     */
+    private final Map<ChunkKey, ChunkLocation> index = new ConcurrentHashMap<>();
+
+    /**
+     * 块包读取通道（块包编号 -> 只读通道）
+     */
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+
+    private final Object appendLock = new Object();
+    private FileChannel activePack;
+    private int activePackId;
+    private long activePackSize;
+
+    /**
+     * 清单写入（含复制、移动）持读锁；压缩开始时短暂持写锁，等待进行中的写入落盘后再开始标记
+     */
+    private final ReadWriteLock manifestLock = new ReentrantReadWriteLock();
+
+    /**
+     * 压缩进行中时写入或引用过的块，视为存活；仅在持有appendLock时读写
+     */
+    private volatile Set<ChunkKey> touchedDuringCompaction;
+
+    /**
+     * 已被压缩删除的块包读取通道，推迟到下一次压缩时关闭，保证正在读取的流不受影响
+     */
+    private final List<FileChannel> retiredReaders = new ArrayList<>();
+
+    /**
+     * 块哈希，以4个long保存以降低索引内存占用
+     */
+    private record ChunkKey(long h0, long h1, long h2, long h3) {
+
+        static ChunkKey of(byte[] digest) {
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            return new ChunkKey(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        static ChunkKey read(ByteBuffer buffer) {
+            return new ChunkKey(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(h0).putLong(h1).putLong(h2).putLong(h3);
+        }
+    }
+
+    /**
+     * 块在块包中的位置
+     */
+    private record ChunkLocation(int packId, long offset, int length) {
+    }
+
+    /**
+     * 块清单
+     */
+    private record Manifest(long size, List<ChunkKey> chunks, int[] lengths) {
+    }
+
+    /**
+     * 块包压缩结果
+     *
+     * @param packsRewritten 重写并删除的块包数
+     * @param chunksDropped 清除的无引用块数
+     * @param bytesReclaimed 释放的磁盘字节数
+     */
+    public record CompactionResult(int packsRewritten, int chunksDropped, long bytesReclaimed) {
+    }
+
+    @Autowired
+    public ChunkedFileStorageService(LyraProperties lyraProperties, FileEntityRepository fileEntityRepository,
+                                     BlobRepository blobRepository, StorageUsageTracker usageTracker) {
+        super(lyraProperties, fileEntityRepository, blobRepository, usageTracker);
+        this.lyraProperties = lyraProperties;
+    }
+
+    /**
+     * 初始化分块器，扫描块包重建索引并打开当前追加的块包
+     */
+    @PostConstruct
+    @Override
+    public void init() {
+        super.init();
+
+        long averageSize = FileUtils.parseFileSize(lyraProperties.getStorage().getCdcAverageChunkSize());
+        if (averageSize > ContentDefinedChunker.MAX_AVERAGE_SIZE) {
+            logger.warn("平均分块大小 {} 超过上限，按 {} 处理", FileUtils.formatFileSize(averageSize),
+                       FileUtils.formatFileSize(ContentDefinedChunker.MAX_AVERAGE_SIZE));
+        }
+        this.chunker = new ContentDefinedChunker((int) Math.min(averageSize, ContentDefinedChunker.MAX_AVERAGE_SIZE));
+        this.packDirectory = getBasePath().resolve(PACK_DIRECTORY);
+
+        try {
+            FileUtils.ensureDirectoryExists(packDirectory);
+            int lastPackId = loadIndex();
+            openActivePack(lastPackId);
+        } catch (IOException e) {
+            throw new RuntimeException("分块存储初始化失败", e);
+        }
+
+        logger.info("分块存储初始化完成 - 块包目录: {}, 已索引块数: {}, 当前块包: {}",
+                   packDirectory, index.size(), activePackId);
+    }
+
+    /**
+     * 关闭块包通道
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (appendLock) {
+            closeQuietly(activePack);
+            activePack = null;
+        }
+        readers.values().forEach(this::closeQuietly);
+        readers.clear();
+        synchronized (retiredReaders) {
+            retiredReaders.forEach(this::closeQuietly);
+            retiredReaders.clear();
+        }
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 切分源文件并只追加尚未存储过的块，随后原子写入清单；存储大小记为本次新追加的块字节数
+     */
+    @Override
+    protected StorageResult placeEncoded(Path source, String storagePath, String fileHash, long fileSize,
+                                         String mimeType) throws IOException {
+        manifestLock.readLock().lock();
+        try {
+            return placeChunked(source, storagePath, fileHash, fileSize, mimeType);
+        } finally {
+            manifestLock.readLock().unlock();
+        }
+    }
+
+    private StorageResult placeChunked(Path source, String storagePath, String fileHash, long fileSize,
+                                       String mimeType) throws IOException {
+        MessageDigest digest = sha256();
+        List<ChunkKey> chunks = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        long[] appendedBytes = new long[1];
+
+        try (InputStream in = Files.newInputStream(source)) {
+            chunker.split(in, (buffer, offset, length) -> {
+                digest.update(buffer, offset, length);
+                ChunkKey key = ChunkKey.of(digest.digest());
+                appendedBytes[0] += append(key, buffer, offset, length);
+                chunks.add(key);
+                lengths.add(length);
+            });
+        }
+        // 清单落盘前保证其引用的块已持久化
+        forceActivePack();
+
+        Path manifestFile = Files.createTempFile(getTempPath(), "manifest_", ".tmp");
+        try {
+            Files.write(manifestFile, encodeManifest(fileSize, chunks, lengths));
+            place(manifestFile, storagePath + MANIFEST_SUFFIX, true);
+        } finally {
+            FileUtils.safeDelete(manifestFile);
+        }
+        // 清除同一存储路径其他编码的残留副本
+        remove(storagePath);
+        remove(storagePath + BlobCodec.GZIP_SUFFIX);
+        FileUtils.safeDelete(source);
+
+        logger.debug("分块写入完成: {} - 块数: {}, 新增块字节: {}", storagePath, chunks.size(),
+                    FileUtils.formatFileSize(appendedBytes[0]));
+        return new StorageResult(storagePath, fileHash, fileSize, false, mimeType,
+            Blob.CODEC_CHUNKED, appendedBytes[0]);
+    }
+
+    // ==================== 读取 ====================
+
+    @Override
+    public Optional<InputStream> load(String storagePath) throws IOException {
+        Path manifestPath = resolve(storagePath + MANIFEST_SUFFIX);
+        if (!Files.exists(manifestPath)) {
+            return super.load(storagePath);
+        }
+        return Optional.of(new ChunkInputStream(readManifest(manifestPath)));
+    }
+
+    /**
+     * 分块对象没有完整的物理文件，只为父类存储的原样对象返回路径
+     */
+    @Override
+    public Optional<Path> getPath(String storagePath) {
+        if (Files.exists(resolve(storagePath + MANIFEST_SUFFIX))) {
+            return Optional.empty();
+        }
+        return super.getPath(storagePath);
+    }
+
+    @Override
+    public boolean exists(String storagePath) {
+        return Files.isRegularFile(resolve(storagePath + MANIFEST_SUFFIX)) || super.exists(storagePath);
+    }
+
+    @Override
+    public long getFileSize(String storagePath) {
+        Path manifestPath = resolve(storagePath + MANIFEST_SUFFIX);
+        if (!Files.exists(manifestPath)) {
+            return super.getFileSize(storagePath);
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(manifestPath))) {
+            readManifestHeader(in);
+            return in.readLong();
+        } catch (IOException e) {
+            logger.warn("读取分块清单失败: {}", storagePath, e);
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean verifyIntegrity(String storagePath, String expectedHash) {
+        Path manifestPath = resolve(storagePath + MANIFEST_SUFFIX);
+        if (!Files.exists(manifestPath)) {
+            return super.verifyIntegrity(storagePath, expectedHash);
+        }
+        try (InputStream in = new ChunkInputStream(readManifest(manifestPath))) {
+            return FileUtils.calculateSHA256(in).equals(expectedHash);
+        } catch (IOException e) {
+            logger.warn("验证文件完整性失败: {}", storagePath, e);
+            return false;
+        }
+    }
+
+    // ==================== 变更 ====================
+
+    /**
+     * 只删除清单；块可能被其他清单共享，由块包压缩回收
+     */
+    @Override
+    public boolean delete(String storagePath) {
+        if (!remove(storagePath + MANIFEST_SUFFIX)) {
+            return super.delete(storagePath);
+        }
+        remove(storagePath);
+        remove(storagePath + BlobCodec.GZIP_SUFFIX);
+        logger.debug("文件删除成功: {}", storagePath);
+        return true;
+    }
+
+    /**
+     * 分块对象只复制清单，块数据天然共享
+     */
+    @Override
+    public boolean copy(String sourcePath, String targetPath) throws IOException {
+        Path manifestPath = resolve(sourcePath + MANIFEST_SUFFIX);
+        if (!Files.exists(manifestPath)) {
+            return super.copy(sourcePath, targetPath);
+        }
+        manifestLock.readLock().lock();
+        try {
+            touchChunks(manifestPath);
+            place(manifestPath, targetPath + MANIFEST_SUFFIX, false);
+            logger.debug("文件复制成功: {} -> {}", sourcePath, targetPath);
+            return true;
+        } catch (IOException e) {
+            logger.error("文件复制失败: {} -> {}", sourcePath, targetPath, e);
+            throw new IOException("文件复制失败", e);
+        } finally {
+            manifestLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean move(String sourcePath, String targetPath) throws IOException {
+        Path manifestPath = resolve(sourcePath + MANIFEST_SUFFIX);
+        if (!Files.exists(manifestPath)) {
+            return super.move(sourcePath, targetPath);
+        }
+        manifestLock.readLock().lock();
+        try {
+            touchChunks(manifestPath);
+            long manifestSize = Files.size(manifestPath);
+            place(manifestPath, targetPath + MANIFEST_SUFFIX, true);
+            getUsageTracker().recordObjectDeleted(manifestSize);
+            logger.debug("文件移动成功: {} -> {}", sourcePath, targetPath);
+            return true;
+        } catch (IOException e) {
+            logger.error("文件移动失败: {} -> {}", sourcePath, targetPath, e);
+            throw new IOException("文件移动失败", e);
+        } finally {
+            manifestLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取已索引的块数
+     *
+     * @return 块数
+     */
+    public int getChunkCount() {
+        return index.size();
+    }
+
+    // ==================== 压缩 ====================
+
+    /**
+     * 定期压缩块包
+     */
+    @Scheduled(fixedDelayString = "${lyra.storage.cdc-compaction-interval-ms:21600000}",
+               initialDelayString = "${lyra.storage.cdc-compaction-interval-ms:21600000}")
+    public void scheduledCompaction() {
+        try {
+            compact(lyraProperties.getStorage().getCdcCompactionMinDeadPercent());
+        } catch (Exception e) {
+            logger.error("块包压缩失败", e);
+        }
+    }
+
+    /**
+     * 标记-清除压缩块包：以全部清单为根标记存活块，无引用字节占比达到阈值的块包
+     * 将存活块搬到当前块包后删除；占比不足的块包保持不变，其中的无引用块仍可被去重复用
+     *
+     * @param minDeadPercent 触发重写的无引用字节占比（百分比）
+     * @return 压缩结果
+     * @throws IOException 扫描或重写失败
+     */
+    public synchronized CompactionResult compact(int minDeadPercent) throws IOException {
+        // 等待进行中的清单写入完成，此后开始的写入都会登记其引用的块
+        manifestLock.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                touchedDuringCompaction = new HashSet<>();
+            }
+        } finally {
+            manifestLock.writeLock().unlock();
+        }
+        closeRetiredReaders();
+
+        try {
+            Set<ChunkKey> live = markLiveChunks();
+
+            // 按块包统计存活字节，记录头计入存活字节
+            Map<Integer, Long> liveBytes = new HashMap<>();
+            index.forEach((key, location) -> {
+                if (live.contains(key)) {
+                    liveBytes.merge(location.packId(), (long) RECORD_HEADER_LENGTH + location.length(), Long::sum);
+                }
+            });
+
+            int packsRewritten = 0;
+            int chunksDropped = 0;
+            long bytesReclaimed = 0;
+            for (int packId : new ArrayList<>(readers.keySet())) {
+                long packSize = Files.size(packFile(packId));
+                if (packSize == 0) {
+                    continue;
+                }
+                long dead = packSize - liveBytes.getOrDefault(packId, 0L);
+                if (dead * 100 < packSize * (long) minDeadPercent) {
+                    continue;
+                }
+                int dropped = rewritePack(packId, live);
+                if (dropped >= 0) {
+                    packsRewritten++;
+                    chunksDropped += dropped;
+                    bytesReclaimed += dead;
+                }
+            }
+
+            if (packsRewritten > 0) {
+                logger.info("块包压缩完成: 重写块包数={}, 清除块数={}, 释放空间={}",
+                           packsRewritten, chunksDropped, FileUtils.formatFileSize(bytesReclaimed));
+            }
+            return new CompactionResult(packsRewritten, chunksDropped, bytesReclaimed);
+        } finally {
+            synchronized (appendLock) {
+                touchedDuringCompaction = null;
+            }
+        }
+    }
+
+    /**
+     * 扫描存储目录下的全部清单，收集被引用的块
+     */
+    private Set<ChunkKey> markLiveChunks() throws IOException {
+        Set<ChunkKey> live = new HashSet<>();
+        Path basePath = getBasePath();
+        List<Path> manifests;
+        try (Stream<Path> files = Files.walk(basePath)) {
+            manifests = files
+                .filter(file -> !file.startsWith(packDirectory))
+                .filter(file -> file.getFileName().toString().endsWith(MANIFEST_SUFFIX))
+                .toList();
+        } catch (UncheckedIOException e) {
+            throw new IOException("扫描分块清单失败，放弃压缩", e.getCause());
+        }
+        for (Path manifestPath : manifests) {
+            try {
+                live.addAll(readManifest(manifestPath).chunks());
+            } catch (NoSuchFileException e) {
+                // 扫描期间被删除或移走，移走的目标清单已登记其块
+            } catch (IOException e) {
+                // 无法解析的清单按最保守的方式处理：放弃本次压缩，避免误删
+                throw new IOException("读取分块清单失败，放弃压缩: " + manifestPath, e);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 将块包中的存活块搬到当前块包并删除原块包；整个过程持有appendLock，与写入互斥
+     *
+     * @return 清除的块数；块包无需处理时返回-1
+     */
+    private int rewritePack(int packId, Set<ChunkKey> live) throws IOException {
+        synchronized (appendLock) {
+            if (packId == activePackId) {
+                // 当前块包先封存，存活块搬入新的块包
+                if (activePackSize == 0) {
+                    return -1;
+                }
+                rollActivePack();
+            }
+
+            FileChannel source = readers.get(packId);
+            if (source == null) {
+                return -1;
+            }
+
+            int dropped = 0;
+            List<Map.Entry<ChunkKey, ChunkLocation>> entries = index.entrySet().stream()
+                .filter(entry -> entry.getValue().packId() == packId)
+                .toList();
+            for (Map.Entry<ChunkKey, ChunkLocation> entry : entries) {
+                ChunkKey key = entry.getKey();
+                ChunkLocation location = entry.getValue();
+                if (live.contains(key) || touchedDuringCompaction.contains(key)) {
+                    ByteBuffer data = ByteBuffer.allocate(location.length());
+                    readFully(source, data, location.offset());
+                    writeRecord(key, data.array(), 0, location.length());
+                } else {
+                    index.remove(key, location);
+                    dropped++;
+                }
+            }
+            // 原块包删除前保证搬迁的块已持久化
+            activePack.force(false);
+
+            readers.remove(packId);
+            synchronized (retiredReaders) {
+                retiredReaders.add(source);
+            }
+            Files.deleteIfExists(packFile(packId));
+            logger.debug("块包已重写: {} - 清除块数: {}", packFile(packId), dropped);
+            return dropped;
+        }
+    }
+
+    /**
+     * 压缩进行中时把清单引用的块登记为存活
+     */
+    private void touchChunks(Path manifestPath) throws IOException {
+        synchronized (appendLock) {
+            if (touchedDuringCompaction == null) {
+                return;
+            }
+        }
+        List<ChunkKey> chunks = readManifest(manifestPath).chunks();
+        synchronized (appendLock) {
+            if (touchedDuringCompaction != null) {
+                touchedDuringCompaction.addAll(chunks);
+            }
+        }
+    }
+
+    private void closeRetiredReaders() {
+        synchronized (retiredReaders) {
+            retiredReaders.forEach(this::closeQuietly);
+            retiredReaders.clear();
+        }
+    }
+
+    // ==================== 块包 ====================
+
+    /**
+     * 扫描全部块包重建索引
+     *
+     * @return 最大的块包编号，没有块包时为-1
+     * @throws IOException 读取失败
+     */
+    private int loadIndex() throws IOException {
+        List<Integer> packIds = new ArrayList<>();
+        try (Stream<Path> files = Files.list(packDirectory)) {
+            files.forEach(file -> {
+                Matcher matcher = PACK_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    packIds.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        packIds.sort(null);
+
+        for (int packId : packIds) {
+            FileChannel channel = FileChannel.open(packFile(packId), StandardOpenOption.READ);
+            readers.put(packId, channel);
+            long valid = scanPack(packId, channel);
+            if (valid < channel.size()) {
+                logger.warn("块包末尾记录不完整，截断: {} ({} -> {})", packFile(packId), channel.size(), valid);
+                try (FileChannel writer = FileChannel.open(packFile(packId), StandardOpenOption.WRITE)) {
+                    writer.truncate(valid);
+                }
+            }
+        }
+        return packIds.isEmpty() ? -1 : packIds.get(packIds.size() - 1);
+    }
+
+    private long scanPack(int packId, FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        while (position + RECORD_HEADER_LENGTH <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            ChunkKey key = ChunkKey.read(header);
+            int length = header.getInt();
+            if (length < 0 || position + RECORD_HEADER_LENGTH + length > size) {
+                break;
+            }
+            index.putIfAbsent(key, new ChunkLocation(packId, position + RECORD_HEADER_LENGTH, length));
+            position += RECORD_HEADER_LENGTH + length;
+        }
+        return position;
+    }
+
+    private void openActivePack(int lastPackId) throws IOException {
+        synchronized (appendLock) {
+            int packId = lastPackId;
+            if (packId < 0 || Files.size(packFile(packId)) >= PACK_SIZE_LIMIT) {
+                packId++;
+            }
+            openPack(packId);
+        }
+    }
+
+    /**
+     * 封存当前块包并切换到下一个编号的新块包，调用方须持有appendLock
+     */
+    private void rollActivePack() throws IOException {
+        activePack.force(false);
+        activePack.close();
+        openPack(activePackId + 1);
+    }
+
+    private void openPack(int packId) throws IOException {
+        synchronized (appendLock) {
+            Path file = packFile(packId);
+            this.activePack = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.activePackId = packId;
+            this.activePackSize = activePack.size();
+            if (!readers.containsKey(packId)) {
+                readers.put(packId, FileChannel.open(file, StandardOpenOption.READ));
+            }
+        }
+    }
+
+    /**
+     * 追加一个块；块已存在时不写入
+     *
+     * @return 新写入的块字节数
+     */
+    private long append(ChunkKey key, byte[] buffer, int offset, int length) throws IOException {
+        // 压缩进行中时必须在锁内登记并判断，避免复用的块恰好在此时被清除
+        if (touchedDuringCompaction == null && index.containsKey(key)) {
+            return 0;
+        }
+        synchronized (appendLock) {
+            if (touchedDuringCompaction != null) {
+                touchedDuringCompaction.add(key);
+            }
+            if (index.containsKey(key)) {
+                return 0;
+            }
+            writeRecord(key, buffer, offset, length);
+            return length;
+        }
+    }
+
+    /**
+     * 向当前块包写入一条块记录并更新索引，调用方须持有appendLock
+     */
+    private void writeRecord(ChunkKey key, byte[] buffer, int offset, int length) throws IOException {
+        if (activePackSize >= PACK_SIZE_LIMIT) {
+            rollActivePack();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + length);
+        key.write(record);
+        record.putInt(length);
+        record.put(buffer, offset, length);
+        record.flip();
+
+        long position = activePackSize;
+        while (record.hasRemaining()) {
+            activePack.write(record, position + record.position());
+        }
+        activePackSize += RECORD_HEADER_LENGTH + length;
+        index.put(key, new ChunkLocation(activePackId, position + RECORD_HEADER_LENGTH, length));
+    }
+
+    private void forceActivePack() throws IOException {
+        synchronized (appendLock) {
+            activePack.force(false);
+        }
+    }
+
+    private byte[] readChunk(ChunkKey key) throws IOException {
+        // 块可能恰好被压缩搬到新的块包，原块包已下线时按最新索引重试一次
+        for (int attempt = 0; ; attempt++) {
+            ChunkLocation location = index.get(key);
+            if (location == null) {
+                throw new IOException("内容块缺失: " + key);
+            }
+            FileChannel channel = readers.get(location.packId());
+            if (channel == null) {
+                if (attempt == 0) {
+                    continue;
+                }
+                throw new IOException("块包不存在: " + location.packId());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            readFully(channel, buffer, location.offset());
+            return buffer.array();
+        }
+    }
+
+    private Path packFile(int packId) {
+        return packDirectory.resolve(String.format("pack-%06d.pack", packId));
+    }
+
+    // ==================== 清单 ====================
+
+    private byte[] encodeManifest(long size, List<ChunkKey> chunks, List<Integer> lengths) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+            MANIFEST_MAGIC.length + Long.BYTES + Integer.BYTES + chunks.size() * MANIFEST_ENTRY_LENGTH);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MANIFEST_MAGIC);
+        out.writeLong(size);
+        out.writeInt(chunks.size());
+        ByteBuffer entry = ByteBuffer.allocate(MANIFEST_ENTRY_LENGTH);
+        for (int i = 0; i < chunks.size(); i++) {
+            entry.clear();
+            chunks.get(i).write(entry);
+            entry.putInt(lengths.get(i));
+            out.write(entry.array());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private Manifest readManifest(Path manifestPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(manifestPath))) {
+            readManifestHeader(in);
+            long size = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("分块清单格式错误: " + manifestPath);
+            }
+            List<ChunkKey> chunks = new ArrayList<>(count);
+            int[] lengths = new int[count];
+            byte[] entry = new byte[MANIFEST_ENTRY_LENGTH];
+            for (int i = 0; i < count; i++) {
+                in.readFully(entry);
+                ByteBuffer buffer = ByteBuffer.wrap(entry);
+                chunks.add(ChunkKey.read(buffer));
+                lengths[i] = buffer.getInt();
+            }
+            return new Manifest(size, chunks, lengths);
+        }
+    }
+
+    private void readManifestHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MANIFEST_MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MANIFEST_MAGIC)) {
+            throw new IOException("不是有效的分块清单");
+        }
+    }
+
+    // ==================== 内部方法 ====================
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("块包数据不完整");
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("关闭块包通道失败", e);
+        }
+    }
+
+    /**
+     * 按清单顺序逐块读取的内容流
+     */
+    private final class ChunkInputStream extends InputStream {
+        private final Manifest manifest;
+        private int nextChunk;
+        private byte[] current = new byte[0];
+        private int position;
+
+        private ChunkInputStream(Manifest manifest) {
+            this.manifest = manifest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (position == current.length) {
+                if (nextChunk >= manifest.chunks().size()) {
+                    return false;
+                }
+                byte[] chunk = readChunk(manifest.chunks().get(nextChunk));
+                if (chunk.length != manifest.lengths()[nextChunk]) {
+                    throw new IOException("内容块长度与清单不符: 第" + nextChunk + "块");
+                }
+                current = chunk;
+                position = 0;
+                nextChunk++;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package tslc.beihaiyun.lyra.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Folder;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.entity.UploadSession;
+import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.repository.SpaceRepository;
+import tslc.beihaiyun.lyra.repository.UploadSessionRepository;
+import tslc.beihaiyun.lyra.service.BlobService;
+import tslc.beihaiyun.lyra.service.ChunkedUploadService;
+import tslc.beihaiyun.lyra.service.FileService;
+import tslc.beihaiyun.lyra.service.StorageService;
+import tslc.beihaiyun.lyra.util.FileUtils;
+import tslc.beihaiyun.lyra.util.IngestPipeline;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分块上传服务实现
+ * 各分块通过定位写入互不干扰地并行落盘；位图更新与增量哈希按会话串行执行，
+ * 只对已连续到达的前缀推进哈希，完成时无需再整体读取或合并文件
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadServiceImpl.class);
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final String UPLOAD_DIRECTORY = "uploads";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final SpaceRepository spaceRepository;
+    private final FolderRepository folderRepository;
+    private final StorageService storageService;
+    private final FileService fileService;
+    private final BlobService blobService;
+    private final LyraProperties lyraProperties;
+
+    /**
+     * 会话运行期状态（增量哈希），服务重启后丢失时在完成阶段重新计算
+     */
+    private final ConcurrentHashMap<String, SessionState> sessionStates = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ChunkedUploadServiceImpl(UploadSessionRepository uploadSessionRepository,
+                                    SpaceRepository spaceRepository,
+                                    FolderRepository folderRepository,
+                                    StorageService storageService,
+                                    FileService fileService,
+                                    BlobService blobService,
+                                    LyraProperties lyraProperties) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.spaceRepository = spaceRepository;
+        this.folderRepository = folderRepository;
+        this.storageService = storageService;
+        this.fileService = fileService;
+        this.blobService = blobService;
+        this.lyraProperties = lyraProperties;
+    }
+
+    /**
+     * 会话运行期状态
+     */
+    private static final class SessionState {
+        private final MessageDigest digest = IngestPipeline.newSha256();
+        private long hashedOffset;
+        private boolean finished;
+
+        private void reset() {
+            digest.reset();
+            hashedOffset = 0;
+        }
+    }
+
+    @Override
+    public ChunkedUploadResult initSession(String filename, long fileSize, String fileHash, int chunkSize,
+                                           Long spaceId, Long folderId, String description, Long uploaderId) {
+        if (filename == null || filename.trim().isEmpty()) {
+            return ChunkedUploadResult.failure("文件名不能为空");
+        }
+        if (fileSize <= 0 || chunkSize <= 0) {
+            return ChunkedUploadResult.failure("文件大小和分块大小必须大于0");
+        }
+
+        long maxFileSize = lyraProperties.getStorage().getMaxFileSizeInBytes();
+        if (fileSize > maxFileSize) {
+            return ChunkedUploadResult.failure("文件大小超过限制: " + FileUtils.formatFileSize(maxFileSize));
+        }
+
+        Optional<Space> spaceOpt = spaceId != null ? spaceRepository.findById(spaceId) : Optional.empty();
+        if (spaceOpt.isEmpty()) {
+            return ChunkedUploadResult.failure("指定的空间不存在");
+        }
+        Folder folder = null;
+        if (folderId != null) {
+            folder = folderRepository.findById(folderId).orElse(null);
+            if (folder == null) {
+                return ChunkedUploadResult.failure("指定的文件夹不存在");
+            }
+        }
+
+        // 服务器已有相同内容时直接创建文件记录，不再建立会话接收分块
+        Optional<StorageService.StorageResult> existing = fileService.findExistingContent(fileHash, fileSize, uploaderId);
+        if (existing.isPresent()) {
+            FileService.FileOperationResult result = fileService.createFileFromStorage(existing.get(), filename,
+                    FileUtils.getMimeType(filename), spaceOpt.get(), folder, uploaderId);
+            if (result.isSuccess()) {
+                logger.info("分块上传秒传命中: 文件={}, 哈希={}", filename, fileHash);
+                return new ChunkedUploadResult(true, "秒传成功", null, List.of(), true, result.getFileEntity());
+            }
+            logger.warn("秒传创建文件失败，回退为分块上传: {}", result.getMessage());
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path tempFile = null;
+
+        try {
+            Path uploadDirectory = resolveUploadDirectory();
+            if (Files.getFileStore(uploadDirectory).getUsableSpace() < fileSize) {
+                return ChunkedUploadResult.failure("存储空间不足");
+            }
+
+            // 预分配为稀疏文件，分块按偏移直接写入，完成时无需合并
+            tempFile = uploadDirectory.resolve(uploadId + ".part");
+            try (RandomAccessFile file = new RandomAccessFile(tempFile.toFile(), "rw")) {
+                file.setLength(fileSize);
+            }
+
+            UploadSession session = new UploadSession();
+            session.setUploadId(uploadId);
+            session.setFilename(FileUtils.sanitizeFilename(filename));
+            session.setFileSize(fileSize);
+            session.setFileHash(fileHash != null ? fileHash.toLowerCase() : null);
+            session.setChunkSize(chunkSize);
+            session.setTotalChunks(Math.toIntExact((fileSize + chunkSize - 1) / chunkSize));
+            session.setSpaceId(spaceId);
+            session.setFolderId(folderId);
+            session.setUploaderId(uploaderId);
+            session.setDescription(description);
+            session.setTempPath(tempFile.toString());
+            session = uploadSessionRepository.save(session);
+
+            logger.debug("创建分块上传会话: {}, 文件={}, 分块数={}", uploadId, filename, session.getTotalChunks());
+            return new ChunkedUploadResult(true, "上传会话已创建", session, List.of(), false, null);
+
+        } catch (Exception e) {
+            if (tempFile != null) {
+                FileUtils.safeDelete(tempFile);
+            }
+            logger.error("创建分块上传会话失败: {}", filename, e);
+            return ChunkedUploadResult.failure("创建上传会话失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public ChunkedUploadResult uploadChunk(String uploadId, int chunkIndex, InputStream data,
+                                           String chunkHash, Long uploaderId) {
+        Optional<UploadSession> sessionOpt = uploadSessionRepository.findByUploadId(uploadId);
+        if (sessionOpt.isEmpty()) {
+            return ChunkedUploadResult.failure("上传会话不存在或已过期");
+        }
+
+        UploadSession session = sessionOpt.get();
+        if (!session.getUploaderId().equals(uploaderId)) {
+            return ChunkedUploadResult.failure("无权访问该上传会话");
+        }
+        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            return ChunkedUploadResult.failure("分块索引无效: " + chunkIndex);
+        }
+
+        if (session.isChunkCompleted(chunkIndex)) {
+            // 重传已确认的分块不再覆盖写入，避免与已推进的增量哈希不一致
+            return new ChunkedUploadResult(true, "分块已存在", session,
+                                           session.getCompletedChunkIndexes(), false, null);
+        }
+
+        Path tempFile = Paths.get(session.getTempPath());
+        if (!Files.exists(tempFile)) {
+            return ChunkedUploadResult.failure("临时文件已丢失，请重新发起上传");
+        }
+
+        // 写入阶段不加锁，不同分块可并行落盘；
+        // 带校验哈希的分块先写入暂存文件，校验通过后才写入临时文件，损坏的分块不会覆盖已写入的内容
+        long chunkOffset = session.getChunkOffset(chunkIndex);
+        long chunkLength = session.getChunkLength(chunkIndex);
+        boolean verify = chunkHash != null && !chunkHash.isBlank();
+        Path stagedChunk = null;
+        try {
+            if (!verify) {
+                writeChunk(tempFile, chunkOffset, chunkLength, data);
+            } else {
+                stagedChunk = Files.createTempFile(tempFile.getParent(), tempFile.getFileName() + "." + chunkIndex + ".",
+                                                   ".chunk");
+                String actualChunkHash = writeChunk(stagedChunk, 0, chunkLength, data);
+                if (!chunkHash.equalsIgnoreCase(actualChunkHash)) {
+                    logger.warn("分块校验失败: {}#{}", uploadId, chunkIndex);
+                    return ChunkedUploadResult.failure("分块校验失败，请重新上传该分块");
+                }
+                copyChunk(stagedChunk, tempFile, chunkOffset, chunkLength);
+            }
+        } catch (IOException e) {
+            logger.warn("分块写入失败: {}#{}, 错误={}", uploadId, chunkIndex, e.getMessage());
+            return ChunkedUploadResult.failure("分块写入失败: " + e.getMessage());
+        } finally {
+            if (stagedChunk != null) {
+                FileUtils.safeDelete(stagedChunk);
+            }
+        }
+
+        SessionState state = sessionStates.computeIfAbsent(uploadId, key -> new SessionState());
+        synchronized (state) {
+            if (state.finished) {
+                return ChunkedUploadResult.failure("上传已完成");
+            }
+
+            Optional<UploadSession> currentOpt = uploadSessionRepository.findByUploadId(uploadId);
+            if (currentOpt.isEmpty()) {
+                sessionStates.remove(uploadId);
+                return ChunkedUploadResult.failure("上传会话不存在或已过期");
+            }
+
+            UploadSession current = currentOpt.get();
+            if (current.markChunkCompleted(chunkIndex)) {
+                current = uploadSessionRepository.save(current);
+            }
+
+            advanceHash(current, state, tempFile);
+
+            if (!current.isAllChunksCompleted()) {
+                return new ChunkedUploadResult(true, "分块上传成功", current,
+                                               current.getCompletedChunkIndexes(), false, null);
+            }
+
+            return completeUpload(current, state, tempFile);
+        }
+    }
+
+    @Override
+    public Optional<UploadSession> getSession(String uploadId) {
+        return uploadSessionRepository.findByUploadId(uploadId);
+    }
+
+    @Override
+    public boolean abortSession(String uploadId, Long uploaderId) {
+        Optional<UploadSession> sessionOpt = uploadSessionRepository.findByUploadId(uploadId);
+        if (sessionOpt.isEmpty() || !sessionOpt.get().getUploaderId().equals(uploaderId)) {
+            return false;
+        }
+
+        discardSession(sessionOpt.get());
+        logger.info("分块上传会话已取消: {}", uploadId);
+        return true;
+    }
+
+    @Override
+    @Scheduled(fixedDelay = 3600000, initialDelay = 600000)
+    public int cleanupExpiredSessions() {
+        LocalDateTime before = LocalDateTime.now()
+                .minusHours(lyraProperties.getStorage().getUploadSessionTtlHours());
+
+        int cleaned = 0;
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(before)) {
+            try {
+                discardSession(session);
+                cleaned++;
+            } catch (Exception e) {
+                logger.warn("清理过期上传会话失败: {}", session.getUploadId(), e);
+            }
+        }
+
+        if (cleaned > 0) {
+            logger.info("清理了 {} 个过期的分块上传会话", cleaned);
+        }
+        return cleaned;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 完成上传：校验整体哈希后以重命名方式导入存储并创建文件记录
+     */
+    private ChunkedUploadResult completeUpload(UploadSession session, SessionState state, Path tempFile) {
+        String uploadId = session.getUploadId();
+        state.finished = true;
+        sessionStates.remove(uploadId);
+
+        try {
+            if (state.hashedOffset < session.getFileSize()) {
+                // 运行期状态在重启后丢失，或推进过程中出错：对完整文件重新计算
+                state.reset();
+                advanceHash(session, state, tempFile);
+                if (state.hashedOffset < session.getFileSize()) {
+                    discardSession(session);
+                    return ChunkedUploadResult.failure("读取临时文件失败，请重新发起上传");
+                }
+            }
+            String actualHash = FileUtils.toHex(state.digest.digest());
+
+            if (session.getFileHash() != null && !session.getFileHash().equalsIgnoreCase(actualHash)) {
+                discardSession(session);
+                logger.warn("分块上传文件校验失败: {}, 期望={}, 实际={}", uploadId, session.getFileHash(), actualHash);
+                return ChunkedUploadResult.failure("文件校验失败，哈希值不匹配");
+            }
+
+            Optional<Space> spaceOpt = spaceRepository.findById(session.getSpaceId());
+            if (spaceOpt.isEmpty()) {
+                discardSession(session);
+                return ChunkedUploadResult.failure("指定的空间不存在");
+            }
+            Folder folder = session.getFolderId() != null
+                    ? folderRepository.findById(session.getFolderId()).orElse(null)
+                    : null;
+
+            StorageService.StorageResult storageResult =
+                    storageService.importFile(tempFile, session.getFilename(), actualHash);
+
+            FileService.FileOperationResult result = fileService.createFileFromStorage(
+                    storageResult, session.getFilename(), null, spaceOpt.get(), folder, session.getUploaderId());
+            uploadSessionRepository.delete(session);
+
+            if (!result.isSuccess()) {
+                if (!storageResult.isDuplicate()) {
+                    // 导入的内容没有任何引用：登记后立即释放，交由垃圾回收复核删除
+                    blobService.acquire(storageResult);
+                    blobService.release(storageResult.getStoragePath());
+                }
+                return ChunkedUploadResult.failure(result.getMessage());
+            }
+
+            logger.info("分块上传完成: {}, 文件={}, 大小={}", uploadId, session.getFilename(),
+                       FileUtils.formatFileSize(session.getFileSize()));
+            return new ChunkedUploadResult(true, "上传完成", session, session.getCompletedChunkIndexes(),
+                                           true, result.getFileEntity());
+
+        } catch (Exception e) {
+            logger.error("完成分块上传失败: {}", uploadId, e);
+            discardSession(session);
+            return ChunkedUploadResult.failure("完成上传失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将分块写入临时文件的指定偏移，同时计算分块哈希
+     */
+    private String writeChunk(Path tempFile, long offset, long expectedLength, InputStream data) throws IOException {
+        MessageDigest digest = IngestPipeline.newSha256();
+        byte[] buffer = new byte[IO_BUFFER_SIZE];
+        ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+        long written = 0;
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            int bytesRead;
+            while ((bytesRead = data.read(buffer)) != -1) {
+                if (written + bytesRead > expectedLength) {
+                    throw new IOException("分块大小超过预期: " + expectedLength);
+                }
+                digest.update(buffer, 0, bytesRead);
+
+                wrapper.clear().limit(bytesRead);
+                long position = offset + written;
+                while (wrapper.hasRemaining()) {
+                    position += channel.write(wrapper, position);
+                }
+                written += bytesRead;
+            }
+        }
+
+        if (written != expectedLength) {
+            throw new IOException("分块大小不符: 期望 " + expectedLength + ", 实际 " + written);
+        }
+        return FileUtils.toHex(digest.digest());
+    }
+
+    /**
+     * 将校验通过的暂存分块复制到临时文件的分块位置
+     */
+    private void copyChunk(Path stagedChunk, Path tempFile, long offset, long length) throws IOException {
+        try (FileChannel source = FileChannel.open(stagedChunk, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            long copied = 0;
+            while (copied < length) {
+                long transferred = target.transferFrom(source, offset + copied, length - copied);
+                if (transferred <= 0) {
+                    throw new EOFException("暂存分块短于预期: " + length);
+                }
+                copied += transferred;
+            }
+        }
+    }
+
+    /**
+     * 沿已连续到达的分块推进增量哈希
+     */
+    private void advanceHash(UploadSession session, SessionState state, Path tempFile) {
+        long fileSize = session.getFileSize();
+        if (state.hashedOffset >= fileSize) {
+            return;
+        }
+
+        BitSet received = session.getChunkBitSet();
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            while (state.hashedOffset < fileSize) {
+                int chunkIndex = (int) (state.hashedOffset / session.getChunkSize());
+                if (!received.get(chunkIndex)) {
+                    break;
+                }
+
+                long end = session.getChunkOffset(chunkIndex) + session.getChunkLength(chunkIndex);
+                long position = state.hashedOffset;
+                while (position < end) {
+                    buffer.clear().limit((int) Math.min(IO_BUFFER_SIZE, end - position));
+                    int bytesRead = channel.read(buffer, position);
+                    if (bytesRead < 0) {
+                        throw new IOException("临时文件长度不足");
+                    }
+                    buffer.flip();
+                    state.digest.update(buffer);
+                    position += bytesRead;
+                }
+                state.hashedOffset = end;
+            }
+        } catch (IOException e) {
+            // 增量状态已不可信，完成阶段会整体重算
+            logger.warn("推进增量哈希失败: {}, 错误={}", session.getUploadId(), e.getMessage());
+            state.reset();
+        }
+    }
+
+    /**
+     * 删除会话记录、运行期状态及临时文件
+     */
+    private void discardSession(UploadSession session) {
+        sessionStates.remove(session.getUploadId());
+        FileUtils.safeDelete(Paths.get(session.getTempPath()));
+        uploadSessionRepository.delete(session);
+    }
+
+    /**
+     * 解析分块上传临时目录（位于存储临时目录下的子目录，避免被临时文件清理误删）
+     */
+    private Path resolveUploadDirectory() throws IOException {
+        Path directory = Paths.get(lyraProperties.getStorage().getTempPath())
+                .toAbsolutePath()
+                .resolve(UPLOAD_DIRECTORY);
+        FileUtils.ensureDirectoryExists(directory);
+        return directory;
+    }
+}
@@ -3,21 +3,36 @@ package tslc.beihaiyun.lyra.service.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import tslc.beihaiyun.lyra.config.CacheConfig;
+import tslc.beihaiyun.lyra.config.LyraProperties;
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.entity.FileVersion;
+import tslc.beihaiyun.lyra.repository.FileVersionRepository;
 import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.service.BlobService;
 import tslc.beihaiyun.lyra.service.FileCacheService;
+import tslc.beihaiyun.lyra.service.FileChangedEvent;
 import tslc.beihaiyun.lyra.service.FileService;
+import tslc.beihaiyun.lyra.service.FileStatisticsService;
+import tslc.beihaiyun.lyra.service.FolderChangedEvent;
+import tslc.beihaiyun.lyra.service.StorageAccessTracker;
 import tslc.beihaiyun.lyra.service.StorageService;
 import tslc.beihaiyun.lyra.util.FileUtils;
 
@@ -26,8 +41,22 @@ import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -44,67 +73,105 @@ public class FileServiceImpl implements FileService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileServiceImpl.class);
 
+    /**
+     * 批量操作中单条语句处理的最大记录数，避免IN列表过长
+     */
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    /**
+     * 新文件记录因路径唯一约束冲突而重新分配文件名的最大次数
+     */
+    private static final int MAX_PATH_CONFLICT_RETRIES = 3;
+
     private final FileEntityRepository fileEntityRepository;
     private final FolderRepository folderRepository;
     private final StorageService storageService;
     private final FileCacheService fileCacheService;
+    private final BlobService blobService;
+    private final FileVersionRepository fileVersionRepository;
+    private final FileStatisticsService fileStatistics;
+    private final StorageAccessTracker accessTracker;
+    private final LyraProperties lyraProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 新文件记录的写入事务；调用方不在事务中时每次写入都在独立的新事务中进行
+     */
+    private final TransactionTemplate recordTransaction;
+
+    /**
+     * 进行中的事务已分配但尚未提交的文件路径（空间ID:路径）
+     */
+    private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public FileServiceImpl(FileEntityRepository fileEntityRepository,
                           FolderRepository folderRepository,
                           StorageService storageService,
-                          FileCacheService fileCacheService) {
+                          FileCacheService fileCacheService,
+                          BlobService blobService,
+                          FileVersionRepository fileVersionRepository,
+                          FileStatisticsService fileStatistics,
+                          StorageAccessTracker accessTracker,
+                          LyraProperties lyraProperties,
+                          ApplicationEventPublisher eventPublisher,
+                          PlatformTransactionManager transactionManager) {
         this.fileEntityRepository = fileEntityRepository;
         this.folderRepository = folderRepository;
         this.storageService = storageService;
         this.fileCacheService = fileCacheService;
+        this.blobService = blobService;
+        this.fileVersionRepository = fileVersionRepository;
+        this.fileStatistics = fileStatistics;
+        this.accessTracker = accessTracker;
+        this.lyraProperties = lyraProperties;
+        this.eventPublisher = eventPublisher;
+        this.recordTransaction = new TransactionTemplate(transactionManager);
     }
 
     // ==================== 基础CRUD操作 ====================
 
     @Override
-    @CacheEvict(value = CacheConfig.FILE_METADATA_CACHE, allEntries = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public FileOperationResult uploadFile(MultipartFile file, Space space, Folder folder, Long uploaderId) {
         String originalFilename = file != null ? file.getOriginalFilename() : "unknown";
         try {
             // 验证输入参数
-            if (file == null || file.isEmpty()) {
-                return new FileOperationResult(false, "上传文件不能为空", (FileEntity) null);
-            }
-
-            if (originalFilename == null || originalFilename.trim().isEmpty()) {
-                return new FileOperationResult(false, "文件名不能为空", (FileEntity) null);
+            String invalidReason = validateUpload(file);
+            if (invalidReason != null) {
+                return new FileOperationResult(false, invalidReason, (FileEntity) null);
             }
 
             // 清理文件名
             String sanitizedFilename = FileUtils.sanitizeFilename(originalFilename);
             
-            // 检查文件名是否已存在
-            if (isFilenameExists(space, folder, sanitizedFilename, null)) {
-                sanitizedFilename = generateUniqueFilename(space, folder, sanitizedFilename);
-            }
+            // 分配不冲突的文件名
+            String allocatedFilename = allocateFilename(space, folder, sanitizedFilename);
 
             // 存储文件
             StorageService.StorageResult storageResult = storageService.store(file);
 
-            // 创建文件实体
-            FileEntity fileEntity = createFileEntity(
-                sanitizedFilename,
-                originalFilename,
-                generateFilePath(folder, sanitizedFilename),
-                folder,
-                space,
-                storageResult.getSizeBytes(),
-                file.getContentType(),
-                storageResult.getFileHash(),
-                storageResult.getStoragePath(),
-                uploaderId
-            );
-
             // 保存到数据库
-            fileEntity = fileEntityRepository.save(fileEntity);
-
-            logger.info("文件上传成功: {}, 用户: {}, 空间: {}", sanitizedFilename, uploaderId, space.getId());
+            FileEntity fileEntity = insertWithUniquePath(space, folder, sanitizedFilename, allocatedFilename, name -> {
+                FileEntity entity = fileEntityRepository.save(createFileEntity(
+                    name,
+                    originalFilename,
+                    generateFilePath(folder, name),
+                    folder,
+                    space,
+                    storageResult.getSizeBytes(),
+                    resolveContentType(file.getContentType(), storageResult),
+                    storageResult.getFileHash(),
+                    storageResult.getStoragePath(),
+                    uploaderId
+                ));
+                blobService.acquire(storageResult);
+                fileStatistics.recordAdded(entity);
+                eventPublisher.publishEvent(FileChangedEvent.created(entity));
+                return entity;
+            });
+
+            logger.info("文件上传成功: {}, 用户: {}, 空间: {}", fileEntity.getName(), uploaderId, space.getId());
             return new FileOperationResult(true, "文件上传成功", fileEntity);
 
         } catch (IOException e) {
@@ -117,7 +184,117 @@ public class FileServiceImpl implements FileService {
     }
 
     @Override
-    @CacheEvict(value = CacheConfig.FILE_METADATA_CACHE, allEntries = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<FileOperationResult> batchUploadFiles(List<MultipartFile> files, Space space, Folder folder,
+                                                      Long uploaderId) {
+        // 第一阶段：在虚拟线程上并发哈希并写入存储，由信号量限制同时写入的文件数；
+        // 调用方不在事务中时此阶段不开启事务，也不占用数据库连接
+        Semaphore permits = new Semaphore(lyraProperties.getStorage().getUploadParallelism());
+        List<Future<StorageService.StorageResult>> stored = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                stored.add(executor.submit(() -> {
+                    if (validateUpload(file) != null) {
+                        return null;
+                    }
+                    permits.acquire();
+                    try {
+                        return storageService.store(file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        // 第二阶段：按提交顺序分配文件名，准备文件记录
+        FileOperationResult[] results = new FileOperationResult[files.size()];
+        List<FileEntity> entities = new ArrayList<>();
+        List<StorageService.StorageResult> storageResults = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String originalFilename = file != null ? file.getOriginalFilename() : "unknown";
+            String invalidReason = validateUpload(file);
+            if (invalidReason != null) {
+                results[i] = new FileOperationResult(false, invalidReason, (FileEntity) null);
+                continue;
+            }
+
+            StorageService.StorageResult storageResult;
+            try {
+                storageResult = stored.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[i] = new FileOperationResult(false, "系统错误: " + e.getMessage(), e);
+                continue;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    logger.error("文件上传失败: {}", originalFilename, cause);
+                    results[i] = new FileOperationResult(false, "文件上传失败: " + cause.getMessage(),
+                                                         (Exception) cause);
+                } else {
+                    logger.error("文件上传过程中发生未知错误: {}", originalFilename, cause);
+                    Exception exception = cause instanceof Exception ? (Exception) cause : e;
+                    results[i] = new FileOperationResult(false, "系统错误: " + cause.getMessage(), exception);
+                }
+                continue;
+            }
+
+            String filename = allocateFilename(space, folder, FileUtils.sanitizeFilename(originalFilename));
+            entities.add(createFileEntity(
+                filename,
+                originalFilename,
+                generateFilePath(folder, filename),
+                folder,
+                space,
+                storageResult.getSizeBytes(),
+                resolveContentType(file.getContentType(), storageResult),
+                storageResult.getFileHash(),
+                storageResult.getStoragePath(),
+                uploaderId
+            ));
+            storageResults.add(storageResult);
+            positions.add(i);
+        }
+
+        // 第三阶段：只为写入文件记录开启事务
+        List<FileEntity> saved;
+        try {
+            saved = recordTransaction.execute(status -> {
+                // 已写入的新内容在事务提交后才有内容块登记，事务未能提交时交给垃圾回收
+                releaseOnRollback(stored);
+                List<FileEntity> records = fileEntityRepository.saveAll(entities);
+                FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+                for (int j = 0; j < records.size(); j++) {
+                    blobService.acquire(storageResults.get(j));
+                    changes.added(records.get(j));
+                    eventPublisher.publishEvent(FileChangedEvent.created(records.get(j)));
+                }
+                fileStatistics.apply(changes);
+                return records;
+            });
+        } catch (Exception e) {
+            logger.error("批量保存文件记录失败: 文件数={}, 用户: {}, 空间: {}",
+                entities.size(), uploaderId, space.getId(), e);
+            for (Integer position : positions) {
+                results[position] = new FileOperationResult(false, "保存文件记录失败: " + e.getMessage(), e);
+            }
+            return Arrays.asList(results);
+        }
+
+        for (int j = 0; j < saved.size(); j++) {
+            results[positions.get(j)] = new FileOperationResult(true, "文件上传成功", saved.get(j));
+        }
+
+        logger.info("批量上传完成: 总数={}, 成功={}, 用户: {}, 空间: {}",
+            files.size(), saved.size(), uploaderId, space.getId());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public FileOperationResult createFile(InputStream inputStream, String filename, String contentType,
                                         Space space, Folder folder, Long creatorId) {
         try {
@@ -133,32 +310,16 @@ public class FileServiceImpl implements FileService {
             // 清理文件名
             String sanitizedFilename = FileUtils.sanitizeFilename(filename);
             
-            // 检查文件名是否已存在
-            if (isFilenameExists(space, folder, sanitizedFilename, null)) {
-                sanitizedFilename = generateUniqueFilename(space, folder, sanitizedFilename);
-            }
+            // 分配不冲突的文件名
+            String allocatedFilename = allocateFilename(space, folder, sanitizedFilename);
 
             // 存储文件
-            StorageService.StorageResult storageResult = storageService.store(inputStream, sanitizedFilename, contentType);
+            StorageService.StorageResult storageResult = storageService.store(inputStream, allocatedFilename, contentType);
 
-            // 创建文件实体
-            FileEntity fileEntity = createFileEntity(
-                sanitizedFilename,
-                filename,
-                generateFilePath(folder, sanitizedFilename),
-                folder,
-                space,
-                storageResult.getSizeBytes(),
-                contentType,
-                storageResult.getFileHash(),
-                storageResult.getStoragePath(),
-                creatorId
-            );
-
-            // 保存到数据库
-            fileEntity = fileEntityRepository.save(fileEntity);
+            FileEntity fileEntity = insertWithUniquePath(space, folder, sanitizedFilename, allocatedFilename,
+                name -> saveStoredFile(storageResult, name, filename, contentType, space, folder, creatorId));
 
-            logger.info("文件创建成功: {}, 用户: {}, 空间: {}", sanitizedFilename, creatorId, space.getId());
+            logger.info("文件创建成功: {}, 用户: {}, 空间: {}", fileEntity.getName(), creatorId, space.getId());
             return new FileOperationResult(true, "文件创建成功", fileEntity);
 
         } catch (IOException e) {
@@ -170,6 +331,53 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public FileOperationResult createFileFromStorage(StorageService.StorageResult storageResult, String filename,
+                                                     String contentType, Space space, Folder folder, Long creatorId) {
+        try {
+            if (storageResult == null || storageResult.getStoragePath() == null) {
+                return new FileOperationResult(false, "存储结果不能为空", (FileEntity) null);
+            }
+
+            if (filename == null || filename.trim().isEmpty()) {
+                return new FileOperationResult(false, "文件名不能为空", (FileEntity) null);
+            }
+
+            String sanitizedFilename = FileUtils.sanitizeFilename(filename);
+            String allocatedFilename = allocateFilename(space, folder, sanitizedFilename);
+
+            FileEntity fileEntity = insertWithUniquePath(space, folder, sanitizedFilename, allocatedFilename,
+                name -> saveStoredFile(storageResult, name, filename, contentType, space, folder, creatorId));
+
+            logger.info("文件创建成功: {}, 用户: {}, 空间: {}, 复用已有内容: {}",
+                       fileEntity.getName(), creatorId, space.getId(), storageResult.isDuplicate());
+            return new FileOperationResult(true, "文件创建成功", fileEntity);
+
+        } catch (Exception e) {
+            logger.error("基于存储内容创建文件失败: {}", filename, e);
+            return new FileOperationResult(false, "系统错误: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StorageService.StorageResult> findExistingContent(String fileHash, long sizeBytes, Long userId) {
+        if (fileHash == null || fileHash.isBlank() || sizeBytes <= 0 || userId == null) {
+            return Optional.empty();
+        }
+
+        // 只复用用户已能读取的文件内容，哈希与大小同时匹配且物理内容仍在时才认为命中
+        String normalizedHash = fileHash.toLowerCase();
+        return fileEntityRepository.findReadableByHashAndSize(normalizedHash, sizeBytes, userId,
+                        LocalDateTime.now(), PageRequest.of(0, 1))
+                .stream()
+                .map(FileEntity::getStoragePath)
+                .filter(storagePath -> storagePath != null && storageService.exists(storagePath))
+                .findFirst()
+                .map(storagePath -> new StorageService.StorageResult(storagePath, normalizedHash, sizeBytes, true));
+    }
+
     @Override
     @Transactional(readOnly = true)
     @Cacheable(value = CacheConfig.FILE_METADATA_CACHE, key = "'file:' + #fileId",
@@ -191,7 +399,10 @@ public class FileServiceImpl implements FileService {
         if (space == null || path == null || path.trim().isEmpty()) {
             return Optional.empty();
         }
-        return fileEntityRepository.findBySpaceAndPath(space, path.trim());
+        // 仅在缓存未命中时执行，登记路径缓存键以便文件变更时精确清除
+        Optional<FileEntity> file = fileEntityRepository.findBySpaceAndPath(space, path.trim());
+        file.ifPresent(found -> fileCacheService.trackPathKey(found.getId(), space.getId(), path));
+        return file;
     }
 
     @Override
@@ -207,6 +418,9 @@ public class FileServiceImpl implements FileService {
             return Optional.empty();
         }
 
+        // 记录访问热度，供分层存储选取工作集
+        accessTracker.recordAccess(file.getStoragePath());
+
         // 使用文件缓存服务获取文件流
         return fileCacheService.getCachedFileStream(fileId, file);
     }
@@ -228,10 +442,12 @@ public class FileServiceImpl implements FileService {
             StorageService.StorageResult storageResult = storageService.store(
                 inputStream, fileEntity.getName(), fileEntity.getMimeType());
 
-            // 删除旧文件
-            storageService.delete(fileEntity.getStoragePath());
+            // 引用新内容块并释放旧内容块，旧内容可能被其他文件或历史版本共享，物理删除交由垃圾回收
+            blobService.acquire(storageResult);
+            blobService.release(fileEntity.getStoragePath());
 
             // 更新文件信息
+            long deltaBytes = storageResult.getSizeBytes() - sizeOf(fileEntity);
             fileEntity.setSizeBytes(storageResult.getSizeBytes());
             fileEntity.setFileHash(storageResult.getFileHash());
             fileEntity.setStoragePath(storageResult.getStoragePath());
@@ -240,9 +456,8 @@ public class FileServiceImpl implements FileService {
             fileEntity.setUpdatedBy(updaterId.toString());
 
             fileEntity = fileEntityRepository.save(fileEntity);
-
-            // 清除文件缓存
-            fileCacheService.evictAllFileCache(fileId);
+            fileStatistics.recordResized(fileEntity, deltaBytes);
+            eventPublisher.publishEvent(FileChangedEvent.contentUpdated(fileEntity));
 
             logger.info("文件内容更新成功: {}, 用户: {}", fileEntity.getName(), updaterId);
             return new FileOperationResult(true, "文件内容更新成功", fileEntity);
@@ -256,6 +471,43 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    public FileOperationResult updateFileStorage(Long fileId, String storagePath, String fileHash,
+                                                 long sizeBytes, Long updaterId) {
+        try {
+            Optional<FileEntity> fileOptional = fileEntityRepository.findById(fileId);
+            if (!fileOptional.isPresent()) {
+                return new FileOperationResult(false, "文件不存在", (FileEntity) null);
+            }
+
+            FileEntity fileEntity = fileOptional.get();
+            String previousStoragePath = fileEntity.getStoragePath();
+
+            if (!storagePath.equals(previousStoragePath)) {
+                blobService.acquire(storagePath, fileHash, sizeBytes);
+                blobService.release(previousStoragePath);
+            }
+
+            long deltaBytes = sizeBytes - sizeOf(fileEntity);
+            fileEntity.setSizeBytes(sizeBytes);
+            fileEntity.setFileHash(fileHash);
+            fileEntity.setStoragePath(storagePath);
+            fileEntity.setVersion(fileEntity.getVersion() + 1);
+            fileEntity.setLastModifiedAt(LocalDateTime.now());
+            fileEntity.setUpdatedBy(updaterId != null ? updaterId.toString() : "system");
+
+            fileEntity = fileEntityRepository.save(fileEntity);
+            fileStatistics.recordResized(fileEntity, deltaBytes);
+            eventPublisher.publishEvent(FileChangedEvent.contentUpdated(fileEntity));
+
+            return new FileOperationResult(true, "文件内容更新成功", fileEntity);
+
+        } catch (Exception e) {
+            logger.error("更新文件存储引用失败: {}", fileId, e);
+            return new FileOperationResult(false, "系统错误: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public FileOperationResult updateFileInfo(Long fileId, String newName, String newDescription, Long updaterId) {
         try {
@@ -270,6 +522,7 @@ public class FileServiceImpl implements FileService {
             }
 
             boolean updated = false;
+            String oldPath = fileEntity.getPath();
 
             // 更新文件名
             if (newName != null && !newName.trim().isEmpty()) {
@@ -297,6 +550,8 @@ public class FileServiceImpl implements FileService {
             if (updated) {
                 fileEntity.setUpdatedBy(updaterId.toString());
                 fileEntity = fileEntityRepository.save(fileEntity);
+                eventPublisher.publishEvent(FileChangedEvent.relocated(fileEntity,
+                    fileEntity.getSpace().getId(), oldPath));
                 logger.info("文件信息更新成功: {}, 用户: {}", fileEntity.getName(), updaterId);
                 return new FileOperationResult(true, "文件信息更新成功", fileEntity);
             } else {
@@ -310,7 +565,6 @@ public class FileServiceImpl implements FileService {
     }
 
     @Override
-    @CacheEvict(value = CacheConfig.FILE_METADATA_CACHE, allEntries = true)
     public boolean deleteFile(Long fileId, Long deleterId) {
         try {
             Optional<FileEntity> fileOptional = getFileById(fileId);
@@ -326,12 +580,13 @@ public class FileServiceImpl implements FileService {
             }
 
             // 标记为删除状态
+            FileEntity.FileStatus previousStatus = fileEntity.getStatus();
             fileEntity.setStatus(FileEntity.FileStatus.DELETED);
             fileEntity.setUpdatedBy(deleterId.toString());
             fileEntityRepository.save(fileEntity);
-
-            // 清除文件缓存
-            fileCacheService.evictAllFileCache(fileId);
+            fileStatistics.apply(new FileStatisticsService.Changes()
+                .statusChanged(fileEntity, previousStatus, FileEntity.FileStatus.DELETED));
+            eventPublisher.publishEvent(FileChangedEvent.updated(fileEntity));
 
             logger.info("文件删除成功: {}, 用户: {}", fileEntity.getName(), deleterId);
             return true;
@@ -352,28 +607,74 @@ public class FileServiceImpl implements FileService {
             }
 
             FileEntity fileEntity = fileOptional.get();
+            purgeFile(fileEntity);
+            fileStatistics.apply(new FileStatisticsService.Changes().removed(fileEntity));
+            eventPublisher.publishEvent(FileChangedEvent.removed(fileEntity));
 
-            // 删除物理文件
-            boolean storageDeleted = storageService.delete(fileEntity.getStoragePath());
-            if (!storageDeleted) {
-                logger.warn("物理文件删除失败，但继续删除数据库记录: {}", fileEntity.getStoragePath());
+            logger.info("文件永久删除成功: {}, 用户: {}", fileEntity.getName(), deleterId);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("文件永久删除失败: {}", fileId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean permanentDeleteFolder(Long folderId, Long deleterId) {
+        try {
+            Optional<Folder> folderOptional = folderRepository.findById(folderId);
+            if (folderOptional.isEmpty()) {
+                logger.warn("尝试永久删除不存在的文件夹: {}", folderId);
+                return false;
             }
 
-            // 删除数据库记录
-            fileEntityRepository.delete(fileEntity);
+            // 广度优先收集整棵子树
+            Folder root = folderOptional.get();
+            List<Folder> folders = new ArrayList<>();
+            folders.add(root);
+            for (int i = 0; i < folders.size(); i++) {
+                folders.addAll(folderRepository.findByParent(folders.get(i)));
+            }
 
-            // 清除文件缓存
-            fileCacheService.evictAllFileCache(fileId);
+            FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+            int fileCount = 0;
+            for (Folder folder : folders) {
+                for (FileEntity file : fileEntityRepository.findByFolder(folder)) {
+                    purgeFile(file);
+                    changes.removed(file);
+                    eventPublisher.publishEvent(FileChangedEvent.removed(file));
+                    fileCount++;
+                }
+            }
+            // 自底向上删除文件夹
+            for (int i = folders.size() - 1; i >= 0; i--) {
+                folderRepository.delete(folders.get(i));
+            }
+            fileStatistics.apply(changes);
+            eventPublisher.publishEvent(FolderChangedEvent.of(root));
 
-            logger.info("文件永久删除成功: {}, 用户: {}", fileEntity.getName(), deleterId);
+            logger.info("文件夹永久删除成功: {}, 文件夹={}, 文件={}, 用户: {}",
+                root.getPath(), folders.size(), fileCount, deleterId);
             return true;
 
         } catch (Exception e) {
-            logger.error("文件永久删除失败: {}", fileId, e);
+            logger.error("文件夹永久删除失败: {}", folderId, e);
             return false;
         }
     }
 
+    /**
+     * 释放文件及其级联删除的历史版本对内容块的引用并删除记录，物理删除交由垃圾回收
+     */
+    private void purgeFile(FileEntity fileEntity) {
+        blobService.release(fileEntity.getStoragePath());
+        for (FileVersion version : fileVersionRepository.findByFile(fileEntity)) {
+            blobService.release(version.getStoragePath());
+        }
+        fileEntityRepository.delete(fileEntity);
+    }
+
     // ==================== 文件操作 ====================
 
     @Override
@@ -395,6 +696,8 @@ public class FileServiceImpl implements FileService {
             }
 
             // 更新文件信息
+            Space sourceSpace = fileEntity.getSpace();
+            String sourcePath = fileEntity.getPath();
             fileEntity.setSpace(targetSpace);
             fileEntity.setFolder(targetFolder);
             fileEntity.setPath(generateFilePath(targetFolder, fileEntity.getName()));
@@ -402,6 +705,13 @@ public class FileServiceImpl implements FileService {
 
             fileEntity = fileEntityRepository.save(fileEntity);
 
+            if (sourceSpace == null || !Objects.equals(sourceSpace.getId(), targetSpace.getId())) {
+                fileStatistics.apply(new FileStatisticsService.Changes().moved(fileEntity,
+                    sourceSpace != null ? sourceSpace.getId() : null, targetSpace.getId()));
+            }
+            eventPublisher.publishEvent(FileChangedEvent.relocated(fileEntity,
+                sourceSpace != null ? sourceSpace.getId() : null, sourcePath));
+
             logger.info("文件移动成功: {} -> {}, 用户: {}", 
                 fileEntity.getName(), targetSpace.getName(), operatorId);
             return new FileOperationResult(true, "文件移动成功", fileEntity);
@@ -414,6 +724,12 @@ public class FileServiceImpl implements FileService {
 
     @Override
     public FileOperationResult copyFile(Long fileId, Space targetSpace, Folder targetFolder, Long operatorId) {
+        return copyFile(fileId, targetSpace, targetFolder, null, operatorId);
+    }
+
+    @Override
+    public FileOperationResult copyFile(Long fileId, Space targetSpace, Folder targetFolder, String targetName,
+                                        Long operatorId) {
         try {
             Optional<FileEntity> sourceFileOptional = getFileById(fileId);
             if (!sourceFileOptional.isPresent()) {
@@ -425,34 +741,23 @@ public class FileServiceImpl implements FileService {
                 return new FileOperationResult(false, "源文件已被删除", (FileEntity) null);
             }
 
-            // 生成新文件名（如果目标位置已存在同名文件）
-            String newFilename = sourceFile.getName();
-            if (isFilenameExists(targetSpace, targetFolder, newFilename, null)) {
-                newFilename = generateUniqueFilename(targetSpace, targetFolder, newFilename);
-            }
-
-            // 复制物理文件
-            String newStoragePath = FileUtils.generateStoragePath(sourceFile.getFileHash(), newFilename);
-            boolean copySuccess = storageService.copy(sourceFile.getStoragePath(), newStoragePath);
-            if (!copySuccess) {
-                return new FileOperationResult(false, "物理文件复制失败", (FileEntity) null);
+            String newFilename;
+            if (targetName != null) {
+                newFilename = FileUtils.sanitizeFilename(targetName);
+                if (isFilenameExists(targetSpace, targetFolder, newFilename, null)) {
+                    return new FileOperationResult(false, "目标位置已存在同名文件", (FileEntity) null);
+                }
+            } else {
+                // 生成新文件名（如果目标位置已存在同名文件）
+                newFilename = allocateFilename(targetSpace, targetFolder, sourceFile.getName());
             }
 
-            // 创建新文件实体
-            FileEntity newFileEntity = createFileEntity(
-                newFilename,
-                sourceFile.getOriginalName(),
-                generateFilePath(targetFolder, newFilename),
-                targetFolder,
-                targetSpace,
-                sourceFile.getSizeBytes(),
-                sourceFile.getMimeType(),
-                sourceFile.getFileHash(),
-                newStoragePath,
-                operatorId
-            );
-
-            newFileEntity = fileEntityRepository.save(newFileEntity);
+            // 内容按哈希寻址且不可变，副本直接引用同一内容块，只增加引用计数
+            FileEntity newFileEntity = fileEntityRepository.save(copyOf(sourceFile, newFilename, targetFolder,
+                                                                        targetSpace, operatorId));
+            blobService.acquire(sourceFile.getStoragePath(), sourceFile.getFileHash(), sizeOf(sourceFile));
+            fileStatistics.recordAdded(newFileEntity);
+            eventPublisher.publishEvent(FileChangedEvent.created(newFileEntity));
 
             logger.info("文件复制成功: {} -> {}, 用户: {}", 
                 sourceFile.getName(), newFilename, operatorId);
@@ -464,6 +769,68 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    public BatchOperationResult copyFolder(Long folderId, Space targetSpace, Folder targetParent, String targetName,
+                                           Long operatorId) {
+        List<String> errorMessages = new ArrayList<>();
+        Optional<Folder> sourceOptional = folderRepository.findById(folderId);
+        if (sourceOptional.isEmpty()) {
+            errorMessages.add("文件夹ID " + folderId + ": 源文件夹不存在");
+            return new BatchOperationResult(1, 0, 1, errorMessages);
+        }
+
+        Folder source = sourceOptional.get();
+        for (Folder ancestor = targetParent; ancestor != null; ancestor = ancestor.getParent()) {
+            if (Objects.equals(ancestor.getId(), source.getId())) {
+                errorMessages.add("文件夹ID " + folderId + ": 不能复制到自身或其子文件夹中");
+                return new BatchOperationResult(1, 0, 1, errorMessages);
+            }
+        }
+
+        String rootName = targetName != null ? FileUtils.sanitizeFilename(targetName) : source.getName();
+        if (folderRepository.existsBySpaceAndPath(targetSpace, buildFolderPath(targetParent, rootName))) {
+            errorMessages.add("文件夹ID " + folderId + ": 目标位置已存在同名文件夹");
+            return new BatchOperationResult(1, 0, 1, errorMessages);
+        }
+
+        // 按层级广度优先复制，文件只复制元数据并增加内容块引用
+        int folderCount = 0;
+        int fileCount = 0;
+        List<Folder[]> pending = new ArrayList<>();
+        pending.add(new Folder[]{source, folderRepository.save(copyOf(source, rootName, targetParent,
+                                                                      targetSpace, operatorId))});
+        for (int i = 0; i < pending.size(); i++) {
+            Folder original = pending.get(i)[0];
+            Folder copy = pending.get(i)[1];
+            folderCount++;
+
+            List<FileEntity> files = fileEntityRepository.findByFolder(original).stream()
+                .filter(file -> file.getStatus() == FileEntity.FileStatus.ACTIVE)
+                .map(file -> copyOf(file, file.getName(), copy, targetSpace, operatorId))
+                .collect(Collectors.toList());
+            FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+            for (FileEntity file : fileEntityRepository.saveAll(files)) {
+                blobService.acquire(file.getStoragePath(), file.getFileHash(), sizeOf(file));
+                changes.added(file);
+                eventPublisher.publishEvent(FileChangedEvent.created(file));
+                fileCount++;
+            }
+            fileStatistics.apply(changes);
+
+            for (Folder child : folderRepository.findByParent(original)) {
+                pending.add(new Folder[]{child, folderRepository.save(copyOf(child, child.getName(), copy,
+                                                                             targetSpace, operatorId))});
+            }
+        }
+
+        eventPublisher.publishEvent(FolderChangedEvent.of(pending.get(0)[1]));
+
+        int total = folderCount + fileCount;
+        logger.info("文件夹复制成功: {} -> {}, 文件夹={}, 文件={}, 用户: {}",
+            source.getPath(), buildFolderPath(targetParent, rootName), folderCount, fileCount, operatorId);
+        return new BatchOperationResult(total, total, 0, errorMessages);
+    }
+
     @Override
     public FileOperationResult renameFile(Long fileId, String newName, Long operatorId) {
         return updateFileInfo(fileId, newName, null, operatorId);
@@ -474,21 +841,26 @@ public class FileServiceImpl implements FileService {
     @Override
     public BatchOperationResult batchDeleteFiles(List<Long> fileIds, Long deleterId) {
         List<String> errorMessages = new ArrayList<>();
-        int successCount = 0;
-        int totalCount = fileIds.size();
-
-        for (Long fileId : fileIds) {
-            try {
-                if (deleteFile(fileId, deleterId)) {
-                    successCount++;
-                } else {
-                    errorMessages.add("文件ID " + fileId + ": 删除失败");
-                }
-            } catch (Exception e) {
-                errorMessages.add("文件ID " + fileId + ": " + e.getMessage());
+        Map<Long, FileEntity> files = loadBatch(fileIds, errorMessages);
+
+        // 已在回收站的文件视为删除成功，其余按块一次性更新状态
+        List<Long> toDelete = new ArrayList<>();
+        FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+        for (FileEntity file : files.values()) {
+            if (file.getStatus() != FileEntity.FileStatus.DELETED) {
+                toDelete.add(file.getId());
+                changes.statusChanged(file, file.getStatus(), FileEntity.FileStatus.DELETED);
             }
         }
+        LocalDateTime now = LocalDateTime.now();
+        for (List<Long> chunk : chunks(toDelete)) {
+            fileEntityRepository.updateStatusByIds(chunk, FileEntity.FileStatus.DELETED, deleterId.toString(), now);
+        }
+        fileStatistics.apply(changes);
+        files.values().forEach(file -> eventPublisher.publishEvent(FileChangedEvent.updated(file)));
 
+        int totalCount = fileIds.size();
+        int successCount = files.size();
         int failureCount = totalCount - successCount;
         logger.info("批量删除文件完成: 总数={}, 成功={}, 失败={}", totalCount, successCount, failureCount);
         
@@ -498,22 +870,58 @@ public class FileServiceImpl implements FileService {
     @Override
     public BatchOperationResult batchMoveFiles(List<Long> fileIds, Space targetSpace, Folder targetFolder, Long operatorId) {
         List<String> errorMessages = new ArrayList<>();
-        int successCount = 0;
-        int totalCount = fileIds.size();
-
-        for (Long fileId : fileIds) {
-            try {
-                FileOperationResult result = moveFile(fileId, targetSpace, targetFolder, operatorId);
-                if (result.isSuccess()) {
-                    successCount++;
-                } else {
-                    errorMessages.add("文件ID " + fileId + ": " + result.getMessage());
+        Map<Long, FileEntity> files = loadBatch(fileIds, errorMessages);
+
+        // 过滤已删除文件和批内重名，剩余文件的目标路径一次性查询占用情况
+        Map<String, FileEntity> byTargetPath = new LinkedHashMap<>();
+        for (FileEntity file : files.values()) {
+            String targetPath = generateFilePath(targetFolder, file.getName());
+            if (file.getStatus() == FileEntity.FileStatus.DELETED) {
+                errorMessages.add("文件ID " + file.getId() + ": 文件已被删除");
+            } else if (byTargetPath.putIfAbsent(targetPath, file) != null) {
+                errorMessages.add("文件ID " + file.getId() + ": 目标位置已存在同名文件");
+            }
+        }
+        // 只有确实要移动的文件才不算占用；批内被过滤掉的文件（如回收站中的）仍占着原路径
+        Set<Long> movingIds = byTargetPath.values().stream().map(FileEntity::getId).collect(Collectors.toSet());
+        for (List<String> chunk : chunks(new ArrayList<>(byTargetPath.keySet()))) {
+            for (Object[] occupied : fileEntityRepository.findIdAndPathBySpaceAndPathIn(targetSpace, chunk)) {
+                FileEntity file = byTargetPath.get((String) occupied[1]);
+                if (file != null && !movingIds.contains((Long) occupied[0])) {
+                    byTargetPath.remove((String) occupied[1]);
+                    errorMessages.add("文件ID " + file.getId() + ": 目标位置已存在同名文件");
                 }
-            } catch (Exception e) {
-                errorMessages.add("文件ID " + fileId + ": " + e.getMessage());
             }
         }
 
+        // 批量更新会清空持久化上下文，跨空间用量和变更事件在更新前准备
+        List<FileEntity> moving = new ArrayList<>(byTargetPath.values());
+        Long targetSpaceId = targetSpace.getId();
+        List<FileChangedEvent> events = new ArrayList<>(moving.size());
+        for (Map.Entry<String, FileEntity> entry : byTargetPath.entrySet()) {
+            FileEntity file = entry.getValue();
+            Long sourceSpaceId = file.getSpace() != null ? file.getSpace().getId() : null;
+            events.add(new FileChangedEvent(FileChangedEvent.ChangeType.RELOCATED, file.getId(),
+                sourceSpaceId, file.getPath(), targetSpaceId, entry.getKey()));
+        }
+        FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+        for (FileEntity file : moving) {
+            Space sourceSpace = file.getSpace();
+            if (sourceSpace == null || !Objects.equals(sourceSpace.getId(), targetSpace.getId())) {
+                changes.moved(file, sourceSpace != null ? sourceSpace.getId() : null, targetSpaceId);
+            }
+        }
+        String pathPrefix = targetFolder == null ? "" : generateFilePath(targetFolder, "");
+        LocalDateTime now = LocalDateTime.now();
+        for (List<FileEntity> chunk : chunks(moving)) {
+            List<Long> ids = chunk.stream().map(FileEntity::getId).collect(Collectors.toList());
+            fileEntityRepository.moveByIds(ids, targetSpace, targetFolder, pathPrefix, operatorId.toString(), now);
+        }
+        fileStatistics.apply(changes);
+        events.forEach(eventPublisher::publishEvent);
+
+        int totalCount = fileIds.size();
+        int successCount = moving.size();
         int failureCount = totalCount - successCount;
         logger.info("批量移动文件完成: 总数={}, 成功={}, 失败={}", totalCount, successCount, failureCount);
         
@@ -652,6 +1060,7 @@ public class FileServiceImpl implements FileService {
             }
 
             // 检查恢复位置是否有同名文件
+            String oldPath = fileEntity.getPath();
             if (isFilenameExists(fileEntity.getSpace(), fileEntity.getFolder(), fileEntity.getName(), fileId)) {
                 // 生成新的文件名
                 String newName = generateUniqueFilename(fileEntity.getSpace(), fileEntity.getFolder(), fileEntity.getName());
@@ -662,6 +1071,10 @@ public class FileServiceImpl implements FileService {
             fileEntity.setStatus(FileEntity.FileStatus.ACTIVE);
             fileEntity.setUpdatedBy(restorerId.toString());
             fileEntityRepository.save(fileEntity);
+            fileStatistics.apply(new FileStatisticsService.Changes()
+                .statusChanged(fileEntity, FileEntity.FileStatus.DELETED, FileEntity.FileStatus.ACTIVE));
+            eventPublisher.publishEvent(FileChangedEvent.relocated(fileEntity,
+                fileEntity.getSpace().getId(), oldPath));
 
             logger.info("文件从回收站恢复成功: {}, 用户: {}", fileEntity.getName(), restorerId);
             return true;
@@ -675,21 +1088,28 @@ public class FileServiceImpl implements FileService {
     @Override
     public BatchOperationResult batchRestoreFilesFromRecycleBin(List<Long> fileIds, Long restorerId) {
         List<String> errorMessages = new ArrayList<>();
-        int successCount = 0;
-        int totalCount = fileIds.size();
-
-        for (Long fileId : fileIds) {
-            try {
-                if (restoreFileFromRecycleBin(fileId, restorerId)) {
-                    successCount++;
-                } else {
-                    errorMessages.add("文件ID " + fileId + ": 恢复失败");
-                }
-            } catch (Exception e) {
-                errorMessages.add("文件ID " + fileId + ": " + e.getMessage());
+        Map<Long, FileEntity> files = loadBatch(fileIds, errorMessages);
+
+        // 回收站中的文件仍占用原路径（空间内路径唯一），恢复时无需改名，直接按块更新状态
+        List<Long> toRestore = new ArrayList<>();
+        FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+        for (FileEntity file : files.values()) {
+            if (file.getStatus() == FileEntity.FileStatus.DELETED) {
+                toRestore.add(file.getId());
+                changes.statusChanged(file, FileEntity.FileStatus.DELETED, FileEntity.FileStatus.ACTIVE);
+            } else {
+                errorMessages.add("文件ID " + file.getId() + ": 文件未在回收站中");
             }
         }
+        LocalDateTime now = LocalDateTime.now();
+        for (List<Long> chunk : chunks(toRestore)) {
+            fileEntityRepository.updateStatusByIds(chunk, FileEntity.FileStatus.ACTIVE, restorerId.toString(), now);
+        }
+        fileStatistics.apply(changes);
+        files.values().forEach(file -> eventPublisher.publishEvent(FileChangedEvent.updated(file)));
 
+        int totalCount = fileIds.size();
+        int successCount = toRestore.size();
         int failureCount = totalCount - successCount;
         logger.info("批量恢复文件完成: 总数={}, 成功={}, 失败={}", totalCount, successCount, failureCount);
         
@@ -700,13 +1120,7 @@ public class FileServiceImpl implements FileService {
     public int emptyRecycleBin(Space space, Long operatorId) {
         try {
             List<FileEntity> deletedFiles = fileEntityRepository.findBySpaceAndStatus(space, FileEntity.FileStatus.DELETED);
-            int count = 0;
-
-            for (FileEntity file : deletedFiles) {
-                if (permanentDeleteFile(file.getId(), operatorId)) {
-                    count++;
-                }
-            }
+            int count = purgeFiles(deletedFiles);
 
             logger.info("清空回收站完成: 空间={}, 删除文件数={}, 操作者={}", space.getName(), count, operatorId);
             return count;
@@ -721,17 +1135,8 @@ public class FileServiceImpl implements FileService {
     public int cleanupExpiredRecycleBinFiles(int retentionDays) {
         try {
             LocalDateTime cutoffDate = LocalDateTime.now().minus(retentionDays, ChronoUnit.DAYS);
-            List<FileEntity> expiredFiles = fileEntityRepository.findByStatus(FileEntity.FileStatus.DELETED)
-                    .stream()
-                    .filter(file -> file.getUpdatedAt().isBefore(cutoffDate))
-                    .collect(Collectors.toList());
-
-            int count = 0;
-            for (FileEntity file : expiredFiles) {
-                if (permanentDeleteFile(file.getId(), 0L)) { // 系统清理，操作者ID为0
-                    count++;
-                }
-            }
+            List<FileEntity> expiredFiles = fileEntityRepository.findDeletedFilesOlderThan(cutoffDate);
+            int count = purgeFiles(expiredFiles);
 
             logger.info("自动清理过期回收站文件完成: 删除文件数={}, 保留天数={}", count, retentionDays);
             return count;
@@ -747,48 +1152,19 @@ public class FileServiceImpl implements FileService {
     @Override
     @Transactional(readOnly = true)
     public FileStatistics getFileStatistics(Space space) {
-        List<FileEntity> allFiles = fileEntityRepository.findBySpace(space);
-        
-        long totalFiles = allFiles.size();
-        long totalSize = allFiles.stream().mapToLong(FileEntity::getSizeBytes).sum();
-        long activeFiles = allFiles.stream().mapToLong(file -> 
-            file.getStatus() == FileEntity.FileStatus.ACTIVE ? 1 : 0).sum();
-        long deletedFiles = allFiles.stream().mapToLong(file -> 
-            file.getStatus() == FileEntity.FileStatus.DELETED ? 1 : 0).sum();
-        long archivedFiles = allFiles.stream().mapToLong(file -> 
-            file.getStatus() == FileEntity.FileStatus.ARCHIVED ? 1 : 0).sum();
-        
-        LocalDateTime lastModified = allFiles.stream()
-                .map(FileEntity::getLastModifiedAt)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-
-        return new FileStatistics(totalFiles, totalSize, activeFiles, deletedFiles, archivedFiles, lastModified);
+        return fileStatistics.getSpaceStatistics(space.getId());
     }
 
     @Override
     @Transactional(readOnly = true)
     public FileStatistics getUserFileStatistics(Long userId, Space space) {
-        List<FileEntity> userFiles = fileEntityRepository.findBySpace(space)
-                .stream()
-                .filter(file -> userId.toString().equals(file.getCreatedBy()))
-                .collect(Collectors.toList());
-        
-        long totalFiles = userFiles.size();
-        long totalSize = userFiles.stream().mapToLong(FileEntity::getSizeBytes).sum();
-        long activeFiles = userFiles.stream().mapToLong(file -> 
-            file.getStatus() == FileEntity.FileStatus.ACTIVE ? 1 : 0).sum();
-        long deletedFiles = userFiles.stream().mapToLong(file -> 
-            file.getStatus() == FileEntity.FileStatus.DELETED ? 1 : 0).sum();
-        long archivedFiles = userFiles.stream().mapToLong(file -> 
-            file.getStatus() == FileEntity.FileStatus.ARCHIVED ? 1 : 0).sum();
-        
-        LocalDateTime lastModified = userFiles.stream()
-                .map(FileEntity::getLastModifiedAt)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
+        return fileStatistics.getCreatorStatistics(space.getId(), userId.toString());
+    }
 
-        return new FileStatistics(totalFiles, totalSize, activeFiles, deletedFiles, archivedFiles, lastModified);
+    @Override
+    @Transactional(readOnly = true)
+    public FileStatistics getUserFileStatistics(Long userId) {
+        return fileStatistics.getCreatorTotalStatistics(userId.toString());
     }
 
     @Override
@@ -817,6 +1193,71 @@ public class FileServiceImpl implements FileService {
 
     // ==================== 私有辅助方法 ====================
 
+    /**
+     * 按块加载批量操作涉及的文件，保持请求顺序并去重，不存在的ID记入错误信息
+     */
+    private Map<Long, FileEntity> loadBatch(List<Long> fileIds, List<String> errorMessages) {
+        List<Long> distinctIds = fileIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Long, FileEntity> found = new HashMap<>();
+        for (List<Long> chunk : chunks(distinctIds)) {
+            for (FileEntity file : fileEntityRepository.findAllById(chunk)) {
+                found.put(file.getId(), file);
+            }
+        }
+
+        Map<Long, FileEntity> files = new LinkedHashMap<>();
+        for (Long fileId : fileIds) {
+            FileEntity file = fileId != null ? found.get(fileId) : null;
+            if (file == null) {
+                errorMessages.add("文件ID " + fileId + ": 文件不存在");
+            } else if (files.putIfAbsent(fileId, file) != null) {
+                errorMessages.add("文件ID " + fileId + ": 重复的文件ID");
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 按块永久删除文件：先删除版本与分享链接，再删除文件记录，最后释放内容块引用并更新用量
+     *
+     * @return 删除的文件数
+     */
+    private int purgeFiles(List<FileEntity> files) {
+        int count = 0;
+        for (List<FileEntity> chunk : chunks(files)) {
+            List<Long> ids = chunk.stream().map(FileEntity::getId).collect(Collectors.toList());
+            List<String> versionPaths = fileVersionRepository.findStoragePathsByFileIds(ids);
+
+            // 释放文件及其历史版本对内容块的引用，物理删除交由垃圾回收；删除语句会清空持久化上下文，故先行结算
+            FileStatisticsService.Changes changes = new FileStatisticsService.Changes();
+            for (FileEntity file : chunk) {
+                blobService.release(file.getStoragePath());
+                changes.removed(file);
+                eventPublisher.publishEvent(FileChangedEvent.removed(file));
+            }
+            for (String versionPath : versionPaths) {
+                blobService.release(versionPath);
+            }
+
+            fileVersionRepository.deleteByFileIds(ids);
+            fileEntityRepository.deleteShareLinksByFileIds(ids);
+            count += fileEntityRepository.deleteByIds(ids);
+            fileStatistics.apply(changes);
+        }
+        return count;
+    }
+
+    /**
+     * 将列表切分为批量语句可接受大小的块
+     */
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>((items.size() + BULK_CHUNK_SIZE - 1) / BULK_CHUNK_SIZE);
+        for (int from = 0; from < items.size(); from += BULK_CHUNK_SIZE) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + BULK_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
     /**
      * 创建文件实体
      */
@@ -844,6 +1285,100 @@ public class FileServiceImpl implements FileService {
         return fileEntity;
     }
 
+    /**
+     * 创建引用同一内容块的文件副本
+     */
+    private FileEntity copyOf(FileEntity source, String name, Folder folder, Space space, Long operatorId) {
+        return createFileEntity(
+            name,
+            source.getOriginalName(),
+            generateFilePath(folder, name),
+            folder,
+            space,
+            sizeOf(source),
+            source.getMimeType(),
+            source.getFileHash(),
+            source.getStoragePath(),
+            operatorId
+        );
+    }
+
+    /**
+     * 创建文件夹副本（不含子项）
+     */
+    private Folder copyOf(Folder source, String name, Folder parent, Space space, Long operatorId) {
+        Folder folder = new Folder();
+        folder.setName(name);
+        folder.setPath(buildFolderPath(parent, name));
+        folder.setParent(parent);
+        folder.setSpace(space);
+        folder.setLevel(parent != null ? parent.getLevel() + 1 : 0);
+        folder.setIsRoot(parent == null);
+        folder.setSizeBytes(source.getSizeBytes() != null ? source.getSizeBytes() : 0L);
+        folder.setFileCount(source.getFileCount() != null ? source.getFileCount() : 0);
+        folder.setCreatedBy(operatorId.toString());
+        folder.setUpdatedBy(operatorId.toString());
+        return folder;
+    }
+
+    /**
+     * 构建文件夹路径，与文件夹服务的路径格式一致
+     */
+    private String buildFolderPath(Folder parentFolder, String folderName) {
+        if (parentFolder == null) {
+            return "/" + folderName;
+        }
+        return parentFolder.getPath() + "/" + folderName;
+    }
+
+    /**
+     * 为已存储的内容创建文件记录并登记内容块引用
+     */
+    private FileEntity saveStoredFile(StorageService.StorageResult storageResult, String sanitizedFilename,
+                                      String originalFilename, String contentType,
+                                      Space space, Folder folder, Long creatorId) {
+        FileEntity fileEntity = createFileEntity(
+            sanitizedFilename,
+            originalFilename,
+            generateFilePath(folder, sanitizedFilename),
+            folder,
+            space,
+            storageResult.getSizeBytes(),
+            resolveContentType(contentType, storageResult),
+            storageResult.getFileHash(),
+            storageResult.getStoragePath(),
+            creatorId
+        );
+
+        fileEntity = fileEntityRepository.save(fileEntity);
+        blobService.acquire(storageResult);
+        fileStatistics.recordAdded(fileEntity);
+        return fileEntity;
+    }
+
+    /**
+     * 获取文件大小，未知时按0计
+     */
+    private long sizeOf(FileEntity fileEntity) {
+        return fileEntity.getSizeBytes() != null ? fileEntity.getSizeBytes() : 0L;
+    }
+
+    /**
+     * 确定文件的MIME类型
+     * 客户端未提供或仅提供通用类型时，使用存储层嗅探出的类型
+     * 
+     * @param declaredType 客户端声明的类型
+     * @param storageResult 存储结果
+     * @return MIME类型
+     */
+    private String resolveContentType(String declaredType, StorageService.StorageResult storageResult) {
+        if (declaredType != null && !declaredType.isBlank() && !"application/octet-stream".equals(declaredType)) {
+            return declaredType;
+        }
+        String detected = storageResult.getDetectedContentType();
+        return detected != null ? detected : declaredType;
+    }
+
     /**
      * 生成文件路径
      */
@@ -861,25 +1396,141 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    /**
+     * 校验上传文件
+     * 
+     * @return 不合法的原因，合法时为null
+     */
+    private String validateUpload(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return "上传文件不能为空";
+        }
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || originalFilename.trim().isEmpty()) {
+            return "文件名不能为空";
+        }
+        return null;
+    }
+
+    /**
+     * 分配文件名：原名可用时直接使用，否则生成带序号的唯一文件名
+     */
+    private String allocateFilename(Space space, Folder folder, String filename) {
+        if (!isFilenameExists(space, folder, filename, null) && reservePath(space, generateFilePath(folder, filename))) {
+            return filename;
+        }
+        return generateUniqueFilename(space, folder, filename);
+    }
+
+    /**
+     * 写入新文件记录；其他实例并发占用了同一路径导致唯一约束冲突时，重新分配文件名后在新事务中重试
+     * 调用方已在事务中时冲突会使整个事务回滚，此时不再重试
+     *
+     * @param filename 请求的文件名，重新分配时以它为基础
+     * @param allocatedFilename 首次写入使用的文件名
+     * @param insert 按给定文件名写入记录
+     */
+    private FileEntity insertWithUniquePath(Space space, Folder folder, String filename, String allocatedFilename,
+                                            Function<String, FileEntity> insert) {
+        String candidate = allocatedFilename;
+        for (int attempt = 0; ; attempt++) {
+            String name = candidate;
+            try {
+                return recordTransaction.execute(status -> insert.apply(name));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_PATH_CONFLICT_RETRIES || TransactionSynchronizationManager.isActualTransactionActive()
+                    || !isFilenameExists(space, folder, name, null)) {
+                    throw e;
+                }
+                logger.warn("文件路径已被并发占用，重新分配文件名: {}", generateFilePath(folder, name));
+                candidate = generateUniqueFilename(space, folder, filename);
+            }
+        }
+    }
+
     /**
      * 生成唯一文件名
+     * 一次前缀查询取出目录下所有以"原名_"开头的路径，在内存中选出最小的空闲序号
      */
     private String generateUniqueFilename(Space space, Folder folder, String originalFilename) {
         String nameWithoutExt = FileUtils.getNameWithoutExtension(originalFilename);
         String extension = FileUtils.getFileExtension(originalFilename);
-        
-        int counter = 1;
+        String suffix = extension.isEmpty() ? "" : "." + extension;
+
+        // LIKE的匹配结果与排序规则有关（如不区分大小写），只认精确以前缀开头的路径
+        String prefix = generateFilePath(folder, nameWithoutExt + "_");
+        Set<Integer> usedCounters = new HashSet<>();
+        for (String path : fileEntityRepository.findPathsBySpaceAndPathPrefix(space, prefix)) {
+            if (path.startsWith(prefix) && path.length() > prefix.length() + suffix.length()
+                && path.endsWith(suffix)) {
+                String counter = path.substring(prefix.length(), path.length() - suffix.length());
+                if (counter.matches("[1-9]\\d{0,8}")) {
+                    usedCounters.add(Integer.parseInt(counter));
+                }
+            }
+        }
+
+        // 序号已被进行中的其他事务预留时顺延
+        int counter = 0;
         String newFilename;
-        
         do {
-            if (extension.isEmpty()) {
-                newFilename = nameWithoutExt + "_" + counter;
-            } else {
-                newFilename = nameWithoutExt + "_" + counter + "." + extension;
-            }
-            counter++;
-        } while (isFilenameExists(space, folder, newFilename, null) && counter < 1000);
-        
+            do {
+                counter++;
+            } while (usedCounters.contains(counter));
+            newFilename = nameWithoutExt + "_" + counter + suffix;
+        } while (!reservePath(space, generateFilePath(folder, newFilename)));
+
         return newFilename;
     }
+
+    /**
+     * 当前事务未提交时，把批量写入的新内容登记为无引用内容块，由垃圾回收在宽限期后删除
+     */
+    private void releaseOnRollback(List<Future<StorageService.StorageResult>> stored) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                for (Future<StorageService.StorageResult> future : stored) {
+                    if (future.state() != Future.State.SUCCESS || future.resultNow() == null
+                        || future.resultNow().isDuplicate()) {
+                        continue;
+                    }
+                    try {
+                        blobService.registerUnreferenced(future.resultNow());
+                    } catch (Exception e) {
+                        logger.warn("登记未提交的内容块失败: {}", future.resultNow().getStoragePath(), e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 在当前事务结束前预留空间内的文件路径，防止并发事务在提交前分配到同一路径
+     * 跨实例的并发由(space_id, path)唯一约束兜底
+     *
+     * @return 是否预留成功，路径已被进行中的事务预留时返回false
+     */
+    private boolean reservePath(Space space, String path) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return true;
+        }
+        String key = space.getId() + ":" + path;
+        if (!pendingPaths.add(key)) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                pendingPaths.remove(key);
+            }
+        });
+        return true;
+    }
 } 
\ No newline at end of file
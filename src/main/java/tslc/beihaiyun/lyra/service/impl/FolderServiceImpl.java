@@ -3,19 +3,25 @@ package tslc.beihaiyun.lyra.service.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tslc.beihaiyun.lyra.config.CacheConfig;
+import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
 import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.service.FolderChangedEvent;
 import tslc.beihaiyun.lyra.service.FolderService;
 import tslc.beihaiyun.lyra.util.FileUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -34,10 +40,15 @@ public class FolderServiceImpl implements FolderService {
     private static final Logger logger = LoggerFactory.getLogger(FolderServiceImpl.class);
 
     private final FolderRepository folderRepository;
+    private final FileEntityRepository fileEntityRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public FolderServiceImpl(FolderRepository folderRepository) {
+    public FolderServiceImpl(FolderRepository folderRepository, FileEntityRepository fileEntityRepository,
+                             ApplicationEventPublisher eventPublisher) {
         this.folderRepository = folderRepository;
+        this.fileEntityRepository = fileEntityRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // ==================== 基础CRUD操作 ====================
@@ -85,6 +96,7 @@ public class FolderServiceImpl implements FolderService {
 
             // 保存到数据库
             folder = folderRepository.save(folder);
+            eventPublisher.publishEvent(FolderChangedEvent.of(folder));
 
             logger.info("文件夹创建成功: {}, 路径: {}, 创建者: {}", sanitizedName, path, creatorId);
             return new FolderOperationResult(true, "文件夹创建成功", folder);
@@ -145,6 +157,7 @@ public class FolderServiceImpl implements FolderService {
             }
 
             folder = folderRepository.save(folder);
+            eventPublisher.publishEvent(FolderChangedEvent.of(folder));
             logger.info("文件夹信息更新成功: {}, 操作者: {}", folder.getName(), updaterId);
             return new FolderOperationResult(true, "文件夹信息更新成功", folder);
 
@@ -177,6 +190,7 @@ public class FolderServiceImpl implements FolderService {
             }
 
             folderRepository.delete(folder);
+            eventPublisher.publishEvent(FolderChangedEvent.of(folder));
             logger.info("文件夹删除成功: {}, 操作者: {}, 强制删除: {}", folder.getName(), deleterId, force);
             return true;
 
@@ -206,6 +220,48 @@ public class FolderServiceImpl implements FolderService {
         return folderRepository.findBySpaceAndIsRootTrue(space);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ChildPage listChildren(Space space, Folder parentFolder, String cursor, int limit) {
+        if (space == null || limit <= 0) {
+            return new ChildPage(Collections.emptyList(), null);
+        }
+
+        ChildCursor after = ChildCursor.decode(cursor);
+        List<FolderChild> children = new ArrayList<>();
+
+        // 先列子文件夹，游标已进入文件部分时跳过
+        if (after == null || after.folder) {
+            String afterName = after != null ? after.name : "";
+            long afterId = after != null ? after.id : 0L;
+            Pageable page = PageRequest.of(0, limit + 1);
+            List<Folder> folders = parentFolder != null
+                ? folderRepository.findChildrenAfter(parentFolder, afterName, afterId, page)
+                : folderRepository.findRootChildrenAfter(space, afterName, afterId, page);
+            for (Folder folder : folders) {
+                if (children.size() == limit) {
+                    return new ChildPage(children, ChildCursor.encode(children.get(limit - 1)));
+                }
+                children.add(FolderChild.of(folder));
+            }
+            after = null;
+        }
+
+        String afterName = after != null ? after.name : "";
+        long afterId = after != null ? after.id : 0L;
+        Pageable page = PageRequest.of(0, limit - children.size() + 1);
+        List<FileEntity> files = parentFolder != null
+            ? fileEntityRepository.findChildrenAfter(parentFolder, FileEntity.FileStatus.ACTIVE, afterName, afterId, page)
+            : fileEntityRepository.findRootChildrenAfter(space, FileEntity.FileStatus.ACTIVE, afterName, afterId, page);
+        for (FileEntity file : files) {
+            if (children.size() == limit) {
+                return new ChildPage(children, ChildCursor.encode(children.get(limit - 1)));
+            }
+            children.add(FolderChild.of(file));
+        }
+        return new ChildPage(children, null);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Folder> getAncestorFolders(Folder folder) {
@@ -275,6 +331,7 @@ public class FolderServiceImpl implements FolderService {
             updateChildrenPaths(oldPath, folder.getPath());
 
             folder = folderRepository.save(folder);
+            eventPublisher.publishEvent(FolderChangedEvent.of(folder));
             logger.info("文件夹移动成功: {} -> {}, 操作者: {}", oldPath, folder.getPath(), operatorId);
             return new FolderOperationResult(true, "文件夹移动成功", folder);
 
@@ -413,20 +470,18 @@ public class FolderServiceImpl implements FolderService {
             return new FolderStatistics(0, 0, 0, 0, 0, null);
         }
 
-        long totalFolders = folderRepository.countBySpace(space);
-        Long totalSize = folderRepository.sumSizeBytesBySpace(space);
-        List<Folder> deepFolders = folderRepository.findDeepFolders(space, 0);
-        int maxDepth = deepFolders.isEmpty() ? 0 : deepFolders.get(0).getLevel();
-        long emptyFolders = folderRepository.findEmptyFolders(space).size();
-        List<Folder> largeFolders = folderRepository.findLargeFolders(space, 0L);
-        Folder largestFolder = largeFolders.isEmpty() ? null : largeFolders.get(0);
-        
-        // 计算总文件数
-        long fileCount = folderRepository.findBySpace(space).stream()
-                .mapToInt(Folder::getFileCount)
-                .sum();
+        // 数量、大小、层级和文件数由一次聚合查询得出，不加载文件夹实体
+        Object[] summary = folderRepository.summarizeBySpace(space).get(0);
+        long totalFolders = ((Number) summary[0]).longValue();
+        long totalSize = ((Number) summary[1]).longValue();
+        int maxDepth = ((Number) summary[2]).intValue();
+        long fileCount = ((Number) summary[3]).longValue();
+        long emptyFolders = folderRepository.countEmptyFolders(space);
+        Folder largestFolder = folderRepository
+                .findFirstBySpaceAndSizeBytesGreaterThanOrderBySizeBytesDesc(space, 0L)
+                .orElse(null);
 
-        return new FolderStatistics(totalFolders, totalSize != null ? totalSize : 0, maxDepth, emptyFolders, fileCount, largestFolder);
+        return new FolderStatistics(totalFolders, totalSize, maxDepth, emptyFolders, fileCount, largestFolder);
     }
 
     @Override
@@ -640,4 +695,41 @@ public class FolderServiceImpl implements FolderService {
         // TODO: 删除文件夹中的文件
         // 这里需要与FileService集成
     }
-} 
\ No newline at end of file
+
+    /**
+     * 子项键集游标：类型、ID和名称，以URL安全的Base64编码对外传递
+     */
+    private static final class ChildCursor {
+        private final boolean folder;
+        private final long id;
+        private final String name;
+
+        private ChildCursor(boolean folder, long id, String name) {
+            this.folder = folder;
+            this.id = id;
+            this.name = name;
+        }
+
+        static String encode(FolderChild child) {
+            String raw = (child.isFolder() ? "D" : "F") + ":" + child.getId() + ":" + child.getName();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ChildCursor decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":", 3);
+                if (parts.length != 3 || !("D".equals(parts[0]) || "F".equals(parts[0]))) {
+                    throw new IllegalArgumentException("无效的分页游标");
+                }
+                return new ChildCursor("D".equals(parts[0]), Long.parseLong(parts[1]), parts[2]);
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException 也属于 IllegalArgumentException
+                throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+            }
+        }
+    }
+}
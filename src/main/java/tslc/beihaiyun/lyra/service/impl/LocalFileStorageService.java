@@ -3,47 +3,65 @@ package tslc.beihaiyun.lyra.service.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
 import tslc.beihaiyun.lyra.repository.FileEntityRepository;
 import tslc.beihaiyun.lyra.service.StorageService;
+import tslc.beihaiyun.lyra.service.StorageUsageTracker;
+import tslc.beihaiyun.lyra.util.BlobCodec;
 import tslc.beihaiyun.lyra.util.FileUtils;
+import tslc.beihaiyun.lyra.util.IngestPipeline;
 
 import jakarta.annotation.PostConstruct;
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * 本地文件系统存储服务实现
- * 提供基于本地文件系统的文件存储、读取、删除等操作
+ * 提供基于本地文件系统的文件存储、读取、删除等操作；
+ * 可压缩的内容以GZIP形式保存在"存储路径.gz"，存储路径本身保持不变，读取时透明解压
  * 
  * @author SkyFrost
  * @version 1.0.0
  * @since 2025-07-20
  */
 @Service
+@ConditionalOnExpression("!'${lyra.storage.backend:local}'.matches('striped|cdc')")
 public class LocalFileStorageService implements StorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocalFileStorageService.class);
 
     private final LyraProperties lyraProperties;
     private final FileEntityRepository fileEntityRepository;
+    private final BlobRepository blobRepository;
+    private final StorageUsageTracker usageTracker;
 
     private Path basePath;
     private Path tempPath;
     private long maxFileSize;
     private String allowedTypes;
     private boolean enableDeduplication;
+    private boolean compressionEnabled;
+    private long compressionMinSize;
 
     @Autowired
-    public LocalFileStorageService(LyraProperties lyraProperties, FileEntityRepository fileEntityRepository) {
+    public LocalFileStorageService(LyraProperties lyraProperties, FileEntityRepository fileEntityRepository,
+                                   BlobRepository blobRepository, StorageUsageTracker usageTracker) {
         this.lyraProperties = lyraProperties;
         this.fileEntityRepository = fileEntityRepository;
+        this.blobRepository = blobRepository;
+        this.usageTracker = usageTracker;
     }
 
     /**
@@ -58,6 +76,8 @@ public class LocalFileStorageService implements StorageService {
         this.maxFileSize = FileUtils.parseFileSize(config.getMaxFileSize());
         this.allowedTypes = config.getAllowedTypes();
         this.enableDeduplication = config.getEnableDeduplication();
+        this.compressionEnabled = Boolean.TRUE.equals(config.getCompressionEnabled());
+        this.compressionMinSize = FileUtils.parseFileSize(config.getCompressionMinSize());
 
         try {
             // 确保存储目录存在
@@ -73,6 +93,7 @@ public class LocalFileStorageService implements StorageService {
     public StorageResult store(MultipartFile file) throws IOException {
         validateFile(file);
         
+        // 直接消费容器已落盘的分片流，由写入管道一次性完成哈希与校验，不再额外回读
         try (InputStream inputStream = file.getInputStream()) {
             return store(inputStream, file.getOriginalFilename(), file.getContentType());
         }
@@ -80,21 +101,13 @@ public class LocalFileStorageService implements StorageService {
 
     @Override
     public StorageResult store(InputStream inputStream, String filename, String contentType) throws IOException {
-        // 创建临时文件来计算哈希值
         Path tempFile = createTempFile(filename);
-        String fileHash;
-        long fileSize;
         
         try {
-            // 将输入流写入临时文件并计算哈希值
-            try (FileOutputStream tempOutput = new FileOutputStream(tempFile.toFile());
-                 BufferedInputStream bufferedInput = new BufferedInputStream(inputStream)) {
-                
-                fileSize = FileUtils.copyStream(bufferedInput, tempOutput);
-            }
-            
-            // 计算文件哈希值
-            fileHash = FileUtils.calculateSHA256(tempFile);
+            // 单遍写入：写盘的同时计算哈希、统计字节数、校验大小上限并嗅探类型
+            IngestPipeline.IngestResult ingest = IngestPipeline.ingest(inputStream, tempFile, maxFileSize, filename);
+            String fileHash = ingest.getFileHash();
+            long fileSize = ingest.getSizeBytes();
             
             // 检查文件去重
             if (enableDeduplication) {
@@ -102,22 +115,18 @@ public class LocalFileStorageService implements StorageService {
                 if (existingPath.isPresent()) {
                     // 删除临时文件
                     FileUtils.safeDelete(tempFile);
-                    return new StorageResult(existingPath.get(), fileHash, fileSize, true);
+                    return new StorageResult(existingPath.get(), fileHash, fileSize, true,
+                        ingest.getDetectedMimeType());
                 }
             }
             
-            // 生成存储路径
-            String storagePath = FileUtils.generateStoragePath(fileHash, filename);
-            Path targetPath = basePath.resolve(storagePath);
-            
-            // 确保目标目录存在
-            FileUtils.ensureDirectoryExists(targetPath.getParent());
+            // 生成存储路径并按编码放置到最终位置
+            String storagePath = allocateStoragePath(fileHash, filename);
+            StorageResult result = placeEncoded(tempFile, storagePath, fileHash, fileSize,
+                ingest.getDetectedMimeType());
             
-            // 移动临时文件到最终位置
-            Files.move(tempFile, targetPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            logger.debug("文件存储成功: {} -> {}", filename, storagePath);
-            return new StorageResult(storagePath, fileHash, fileSize, false);
+            logger.debug("文件存储成功: {} -> {} ({})", filename, storagePath, result.getCodec());
+            return result;
             
         } catch (Exception e) {
             // 清理临时文件
@@ -133,13 +142,44 @@ public class LocalFileStorageService implements StorageService {
         }
     }
 
+    @Override
+    public StorageResult importFile(Path sourceFile, String filename, String fileHash) throws IOException {
+        long fileSize = Files.size(sourceFile);
+        if (fileSize > maxFileSize) {
+            FileUtils.safeDelete(sourceFile);
+            throw new IOException("文件大小超过限制: " + FileUtils.formatFileSize(maxFileSize));
+        }
+
+        String detectedMimeType = FileUtils.detectMimeType(readHeader(sourceFile), filename);
+
+        if (enableDeduplication) {
+            Optional<String> existingPath = findDuplicateFile(fileHash);
+            if (existingPath.isPresent()) {
+                FileUtils.safeDelete(sourceFile);
+                return new StorageResult(existingPath.get(), fileHash, fileSize, true, detectedMimeType);
+            }
+        }
+
+        // 不压缩时同一文件系统内为原子重命名；跨文件系统时由JDK退化为复制后删除
+        String storagePath = allocateStoragePath(fileHash, filename);
+        StorageResult result = placeEncoded(sourceFile, storagePath, fileHash, fileSize, detectedMimeType);
+
+        logger.debug("文件导入成功: {} -> {} ({})", filename, storagePath, result.getCodec());
+        return result;
+    }
+
     @Override
     public Optional<InputStream> load(String storagePath) throws IOException {
-        Path filePath = basePath.resolve(storagePath);
+        Path filePath = resolve(storagePath);
+        boolean compressed = false;
         
         if (!Files.exists(filePath)) {
-            logger.warn("文件不存在: {}", storagePath);
-            return Optional.empty();
+            filePath = resolveCompressed(storagePath);
+            compressed = true;
+            if (!Files.exists(filePath)) {
+                logger.warn("文件不存在: {}", storagePath);
+                return Optional.empty();
+            }
         }
         
         if (!Files.isReadable(filePath)) {
@@ -149,29 +189,31 @@ public class LocalFileStorageService implements StorageService {
         
         try {
             InputStream inputStream = Files.newInputStream(filePath);
-            return Optional.of(inputStream);
+            return Optional.of(compressed ? BlobCodec.decompress(inputStream) : inputStream);
         } catch (IOException e) {
             logger.error("读取文件失败: {}", storagePath, e);
             throw new IOException("读取文件失败: " + storagePath, e);
         }
     }
 
+    /**
+     * 只返回未压缩的物理文件；压缩对象没有可直接零拷贝发送的原始字节，调用方应回退到{@link #load}
+     */
     @Override
     public Optional<Path> getPath(String storagePath) {
-        Path filePath = basePath.resolve(storagePath);
+        Path filePath = resolve(storagePath);
         return Files.exists(filePath) ? Optional.of(filePath) : Optional.empty();
     }
 
     @Override
     public boolean exists(String storagePath) {
-        Path filePath = basePath.resolve(storagePath);
-        return Files.exists(filePath) && Files.isRegularFile(filePath);
+        return Files.isRegularFile(resolve(storagePath)) || Files.isRegularFile(resolveCompressed(storagePath));
     }
 
     @Override
     public boolean delete(String storagePath) {
-        Path filePath = basePath.resolve(storagePath);
-        boolean result = FileUtils.safeDelete(filePath);
+        boolean removedCompressed = remove(storagePath + BlobCodec.GZIP_SUFFIX);
+        boolean result = remove(storagePath) | removedCompressed;
         
         if (result) {
             logger.debug("文件删除成功: {}", storagePath);
@@ -184,12 +226,16 @@ public class LocalFileStorageService implements StorageService {
 
     @Override
     public long getFileSize(String storagePath) {
-        Path filePath = basePath.resolve(storagePath);
+        Path filePath = resolve(storagePath);
         
         try {
             if (Files.exists(filePath)) {
                 return Files.size(filePath);
             }
+            Path compressedPath = resolveCompressed(storagePath);
+            if (Files.exists(compressedPath)) {
+                return BlobCodec.uncompressedSize(compressedPath);
+            }
         } catch (IOException e) {
             logger.warn("获取文件大小失败: {}", storagePath, e);
         }
@@ -205,12 +251,19 @@ public class LocalFileStorageService implements StorageService {
     @Override
     public boolean verifyIntegrity(String storagePath, String expectedHash) {
         try {
-            Path filePath = basePath.resolve(storagePath);
-            if (!Files.exists(filePath)) {
+            Path filePath = resolve(storagePath);
+            String actualHash;
+            if (Files.exists(filePath)) {
+                actualHash = FileUtils.calculateSHA256(filePath);
+            } else if (Files.exists(resolveCompressed(storagePath))) {
+                // 校验的是原始内容的哈希，需要解压后计算
+                try (InputStream in = BlobCodec.decompress(Files.newInputStream(resolveCompressed(storagePath)))) {
+                    actualHash = FileUtils.calculateSHA256(in);
+                }
+            } else {
                 return false;
             }
             
-            String actualHash = FileUtils.calculateSHA256(filePath);
             return actualHash.equals(expectedHash);
         } catch (IOException e) {
             logger.warn("验证文件完整性失败: {}", storagePath, e);
@@ -224,7 +277,15 @@ public class LocalFileStorageService implements StorageService {
             return Optional.empty();
         }
         
-        // 查询数据库中是否存在相同哈希值的文件
+        // 优先查内容块登记表（按哈希索引，只返回仍被引用的内容块）
+        Optional<String> registered = blobRepository.findFirstByFileHashAndRefCountGreaterThanOrderByIdAsc(fileHash, 0L)
+                .map(blob -> blob.getStoragePath())
+                .filter(this::exists);
+        if (registered.isPresent()) {
+            return registered;
+        }
+        
+        // 回退到文件表，兼容尚未登记的历史数据
         return fileEntityRepository.findByFileHash(fileHash)
                 .stream()
                 .filter(file -> exists(file.getStoragePath()))
@@ -234,20 +295,21 @@ public class LocalFileStorageService implements StorageService {
 
     @Override
     public boolean copy(String sourcePath, String targetPath) throws IOException {
-        Path source = basePath.resolve(sourcePath);
-        Path target = basePath.resolve(targetPath);
+        Path source = resolve(sourcePath);
+        String suffix = "";
         
         if (!Files.exists(source)) {
-            logger.warn("源文件不存在: {}", sourcePath);
-            return false;
+            // 压缩对象原样复制，目标沿用相同编码
+            source = resolveCompressed(sourcePath);
+            suffix = BlobCodec.GZIP_SUFFIX;
+            if (!Files.exists(source)) {
+                logger.warn("源文件不存在: {}", sourcePath);
+                return false;
+            }
         }
         
         try {
-            // 确保目标目录存在
-            FileUtils.ensureDirectoryExists(target.getParent());
-            
-            // 复制文件
-            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            place(source, targetPath + suffix, false);
             logger.debug("文件复制成功: {} -> {}", sourcePath, targetPath);
             return true;
         } catch (IOException e) {
@@ -258,20 +320,26 @@ public class LocalFileStorageService implements StorageService {
 
     @Override
     public boolean move(String sourcePath, String targetPath) throws IOException {
-        Path source = basePath.resolve(sourcePath);
-        Path target = basePath.resolve(targetPath);
+        Path source = resolve(sourcePath);
+        String suffix = "";
         
         if (!Files.exists(source)) {
-            logger.warn("源文件不存在: {}", sourcePath);
-            return false;
+            source = resolveCompressed(sourcePath);
+            suffix = BlobCodec.GZIP_SUFFIX;
+            if (!Files.exists(source)) {
+                logger.warn("源文件不存在: {}", sourcePath);
+                return false;
+            }
         }
         
         try {
-            // 确保目标目录存在
-            FileUtils.ensureDirectoryExists(target.getParent());
-            
-            // 移动文件
-            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            // 移动文件后清理源路径残留的另一种编码的副本，以及目标路径上另一种编码的旧内容
+            String otherSuffix = suffix.isEmpty() ? BlobCodec.GZIP_SUFFIX : "";
+            long sourceSize = Files.size(source);
+            place(source, targetPath + suffix, true);
+            usageTracker.recordObjectDeleted(sourceSize);
+            remove(sourcePath + otherSuffix);
+            remove(targetPath + otherSuffix);
             logger.debug("文件移动成功: {} -> {}", sourcePath, targetPath);
             return true;
         } catch (IOException e) {
@@ -318,24 +386,139 @@ public class LocalFileStorageService implements StorageService {
     @Override
     public StorageStats getStorageStats() {
         try {
-            FileStore fileStore = Files.getFileStore(basePath);
-            long totalSpace = fileStore.getTotalSpace();
-            long freeSpace = fileStore.getUsableSpace();
+            // 多个存储根目录位于同一文件系统时只统计一次
+            Set<FileStore> fileStores = new LinkedHashSet<>();
+            for (Path root : storageRoots()) {
+                fileStores.add(Files.getFileStore(root));
+            }
+            long totalSpace = 0;
+            long freeSpace = 0;
+            for (FileStore fileStore : fileStores) {
+                totalSpace += fileStore.getTotalSpace();
+                freeSpace += fileStore.getUsableSpace();
+            }
             long usedSpace = totalSpace - freeSpace;
             
-            // 统计文件数量
-            AtomicLong fileCount = new AtomicLong(0);
-            Files.walk(basePath)
-                .filter(Files::isRegularFile)
-                .forEach(path -> fileCount.incrementAndGet());
-            
-            return new StorageStats(totalSpace, usedSpace, freeSpace, fileCount.get());
+            // 文件数量由增量计数器维护，不再遍历存储目录
+            return new StorageStats(totalSpace, usedSpace, freeSpace, usageTracker.getObjectCount());
         } catch (IOException e) {
             logger.error("获取存储统计信息失败", e);
             return new StorageStats(0, 0, 0, 0);
         }
     }
 
+    // ==================== 存储布局 ====================
+
+    /**
+     * 为新内容分配存储路径；同一天同哈希的默认路径上若有无引用的旧内容块（可能正被垃圾回收清除），
+     * 改用带随机后缀的独立路径，避免新写入的内容随旧内容块一起被删除
+     * 
+     * @param fileHash 文件哈希值
+     * @param filename 原始文件名
+     * @return 存储路径
+     */
+    protected String allocateStoragePath(String fileHash, String filename) {
+        String storagePath = FileUtils.generateStoragePath(fileHash, filename);
+        if (blobRepository.existsCollectableByStoragePath(storagePath)) {
+            String suffix = UUID.randomUUID().toString().substring(0, 8);
+            storagePath = FileUtils.generateStoragePath(fileHash + "-" + suffix, filename);
+        }
+        return storagePath;
+    }
+
+    /**
+     * 定位存储路径对应的物理文件；文件不存在时返回其应在的位置
+     * 
+     * @param storagePath 存储路径
+     * @return 物理文件路径
+     */
+    protected Path resolve(String storagePath) {
+        return basePath.resolve(storagePath);
+    }
+
+    /**
+     * 定位存储路径对应的压缩物理文件
+     * 
+     * @param storagePath 存储路径
+     * @return 压缩物理文件路径
+     */
+    protected Path resolveCompressed(String storagePath) {
+        return resolve(storagePath + BlobCodec.GZIP_SUFFIX);
+    }
+
+    /**
+     * 将源文件放置到存储路径
+     * 
+     * @param source 源文件
+     * @param storagePath 目标存储路径
+     * @param move 为true时移动源文件，否则复制
+     * @throws IOException 放置失败
+     */
+    protected void place(Path source, String storagePath, boolean move) throws IOException {
+        Path target = basePath.resolve(storagePath);
+        FileUtils.ensureDirectoryExists(target.getParent());
+
+        long replacedSize = sizeIfExists(target);
+        if (move) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        recordReplaced(replacedSize, Files.size(target));
+    }
+
+    /**
+     * 删除存储路径对应的物理文件
+     * 
+     * @param storagePath 存储路径
+     * @return 是否删除了文件
+     */
+    protected boolean remove(String storagePath) {
+        Path filePath = basePath.resolve(storagePath);
+        long size = sizeIfExists(filePath);
+        boolean result = FileUtils.safeDelete(filePath);
+        if (result && size >= 0) {
+            usageTracker.recordObjectDeleted(size);
+        }
+        return result;
+    }
+
+    /**
+     * 获取所有存储根目录
+     * 
+     * @return 存储根目录列表
+     */
+    protected List<Path> storageRoots() {
+        return List.of(basePath);
+    }
+
+    /**
+     * 获取基础存储目录
+     * 
+     * @return 基础存储目录
+     */
+    protected Path getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * 获取临时文件目录
+     * 
+     * @return 临时文件目录
+     */
+    protected Path getTempPath() {
+        return tempPath;
+    }
+
+    /**
+     * 获取存储用量统计器
+     * 
+     * @return 存储用量统计器
+     */
+    protected StorageUsageTracker getUsageTracker() {
+        return usageTracker;
+    }
+
     /**
      * 验证上传的文件
      * 
@@ -363,6 +546,82 @@ public class LocalFileStorageService implements StorageService {
         }
     }
 
+    /**
+     * 获取文件大小，文件不存在时返回-1
+     * 
+     * @param path 文件路径
+     * @return 文件大小
+     */
+    protected long sizeIfExists(Path path) {
+        try {
+            return Files.isRegularFile(path) ? Files.size(path) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 记录写入到目标位置的新对象，覆盖已有文件时只计大小变化
+     * 
+     * @param replacedSize 被覆盖文件的大小，-1表示目标原先不存在
+     * @param newSize 新对象大小
+     */
+    protected void recordReplaced(long replacedSize, long newSize) {
+        if (replacedSize >= 0) {
+            usageTracker.recordObjectDeleted(replacedSize);
+        }
+        usageTracker.recordObjectStored(newSize);
+    }
+
+    /**
+     * 按采样压缩率选择编码并放置源文件：值得压缩时写入"存储路径.gz"，否则原样放置；
+     * 同时清除另一种编码的残留副本，保证同一存储路径只有一种物理形式
+     * 
+     * @param source 源文件（放置后被移走或删除）
+     * @param storagePath 存储路径
+     * @param fileHash 原始内容哈希
+     * @param fileSize 原始内容大小
+     * @param mimeType 嗅探得到的MIME类型
+     * @return 存储结果
+     * @throws IOException 放置失败
+     */
+    protected StorageResult placeEncoded(Path source, String storagePath, String fileHash, long fileSize,
+                                         String mimeType) throws IOException {
+        if (compressionEnabled && BlobCodec.isCompressible(source, fileSize, mimeType, compressionMinSize)) {
+            Path compressed = Files.createTempFile(tempPath, "codec_", ".gz");
+            try {
+                long storedSize = BlobCodec.compress(source, compressed);
+                // 采样只是估计，整体压缩收益不足时仍原样存储
+                if (storedSize < fileSize) {
+                    place(compressed, storagePath + BlobCodec.GZIP_SUFFIX, true);
+                    remove(storagePath);
+                    FileUtils.safeDelete(source);
+                    return new StorageResult(storagePath, fileHash, fileSize, false, mimeType,
+                        Blob.CODEC_GZIP, storedSize);
+                }
+            } finally {
+                FileUtils.safeDelete(compressed);
+            }
+        }
+
+        place(source, storagePath, true);
+        remove(storagePath + BlobCodec.GZIP_SUFFIX);
+        return new StorageResult(storagePath, fileHash, fileSize, false, mimeType, Blob.CODEC_NONE, fileSize);
+    }
+
+    /**
+     * 读取文件头部用于类型嗅探
+     * 
+     * @param file 文件路径
+     * @return 文件头部字节
+     * @throws IOException 读取失败
+     */
+    private byte[] readHeader(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.readNBytes(IngestPipeline.SNIFF_SIZE);
+        }
+    }
+
     /**
      * 创建临时文件
      * 
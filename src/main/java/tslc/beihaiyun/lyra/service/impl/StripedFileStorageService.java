@@ -0,0 +1,491 @@
+package tslc.beihaiyun.lyra.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.service.StorageUsageTracker;
+import tslc.beihaiyun.lyra.util.BlobCodec;
+import tslc.beihaiyun.lyra.util.FileUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 多磁盘条带化存储服务实现
+ * 按内容哈希以最高随机权重（Rendezvous）哈希将内容块分布到多个磁盘挂载目录，
+ * 每块磁盘使用独立的I/O线程池执行副本写入与读取定位，单块磁盘变慢时读取转向其他副本；
+ * 磁盘集合变化后在后台重新均衡，新增磁盘时只迁移应归属新磁盘的内容
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+@ConditionalOnProperty(name = "lyra.storage.backend", havingValue = "striped")
+public class StripedFileStorageService extends LocalFileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedFileStorageService.class);
+
+    /**
+     * 记录上次均衡完成时磁盘布局的文件（位于临时目录）
+     */
+    private static final String LAYOUT_FILE = "stripe-layout";
+
+    /**
+     * 读取定位时等待单块磁盘响应的最长时间，超时即尝试下一个副本
+     */
+    private static final long DISK_PROBE_TIMEOUT_MS = 2000;
+
+    /**
+     * 副本写入与删除互斥的分段锁数量
+     */
+    private static final int REPLICA_LOCK_STRIPES = 64;
+
+    private final LyraProperties lyraProperties;
+    private final BlobRepository blobRepository;
+    private final Object[] replicaLocks = new Object[REPLICA_LOCK_STRIPES];
+    private final List<Disk> disks = new ArrayList<>();
+    private int replicas;
+
+    /**
+     * 切换到条带化存储前的单目录存储，只读回退并在均衡时迁出
+     */
+    private Path legacyRoot;
+
+    /**
+     * 条带磁盘
+     */
+    private static class Disk {
+        private final String id;
+        private final Path root;
+        private final ExecutorService ioPool;
+
+        private Disk(Path root, ExecutorService ioPool) {
+            this.id = root.toString();
+            this.root = root;
+            this.ioPool = ioPool;
+        }
+    }
+
+    @Autowired
+    public StripedFileStorageService(LyraProperties lyraProperties, FileEntityRepository fileEntityRepository,
+                                     BlobRepository blobRepository, StorageUsageTracker usageTracker) {
+        super(lyraProperties, fileEntityRepository, blobRepository, usageTracker);
+        this.lyraProperties = lyraProperties;
+        this.blobRepository = blobRepository;
+        for (int i = 0; i < replicaLocks.length; i++) {
+            replicaLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * 初始化磁盘列表与每块磁盘的I/O线程池
+     */
+    @PostConstruct
+    @Override
+    public void init() {
+        super.init();
+
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        List<String> paths = config.getStripePathList();
+        if (paths.isEmpty()) {
+            throw new IllegalStateException("条带化存储未配置磁盘目录: lyra.storage.stripe-paths");
+        }
+
+        try {
+            for (int i = 0; i < paths.size(); i++) {
+                Path root = Paths.get(paths.get(i)).toAbsolutePath().normalize();
+                FileUtils.ensureDirectoryExists(root);
+                disks.add(new Disk(root, newIoPool(i, config.getStripeIoThreads())));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("条带化存储初始化失败", e);
+        }
+
+        this.replicas = Math.min(config.getStripeReplicas(), disks.size());
+
+        Path basePath = getBasePath().normalize();
+        boolean baseIsDisk = disks.stream().anyMatch(disk -> disk.root.equals(basePath));
+        this.legacyRoot = baseIsDisk ? null : basePath;
+
+        logger.info("条带化存储初始化完成 - 磁盘数: {}, 副本数: {}, 每盘I/O线程: {}",
+                   disks.size(), replicas, config.getStripeIoThreads());
+    }
+
+    /**
+     * 关闭I/O线程池
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Disk disk : disks) {
+            disk.ioPool.shutdown();
+        }
+    }
+
+    // ==================== 存储布局 ====================
+
+    @Override
+    protected Path resolve(String storagePath) {
+        List<Disk> ranked = rank(storagePath);
+        List<Path> unresponsive = new ArrayList<>();
+        for (Disk disk : ranked) {
+            Path candidate = disk.root.resolve(storagePath);
+            Boolean found = probe(disk, candidate);
+            if (found == null) {
+                unresponsive.add(candidate);
+            } else if (found) {
+                return candidate;
+            }
+        }
+        // 其余副本都不存在时才在调用线程上等待慢盘，不能把未响应当作不存在
+        for (Path candidate : unresponsive) {
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        if (legacyRoot != null) {
+            Path candidate = legacyRoot.resolve(storagePath);
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        return ranked.get(0).root.resolve(storagePath);
+    }
+
+    @Override
+    protected void place(Path source, String storagePath, boolean move) throws IOException {
+        List<Disk> targets = rank(storagePath).subList(0, replicas);
+
+        // 所有副本都在各自磁盘的线程池中并行写入；移动源文件的主副本必须等其余副本复制完成后再放置
+        Disk primary = targets.get(0);
+        List<Future<?>> pending = new ArrayList<>();
+        for (Disk disk : targets.subList(1, targets.size())) {
+            pending.add(submitWrite(disk, source, storagePath, false));
+        }
+        if (!move) {
+            pending.add(submitWrite(primary, source, storagePath, false));
+        }
+        awaitAll(pending);
+
+        if (move) {
+            awaitAll(List.of(submitWrite(primary, source, storagePath, true)));
+        }
+    }
+
+    /**
+     * 删除与均衡复制副本互斥，避免均衡把垃圾回收刚删除的内容块复制回来
+     */
+    @Override
+    public boolean delete(String storagePath) {
+        synchronized (lockFor(storagePath)) {
+            return super.delete(storagePath);
+        }
+    }
+
+    @Override
+    protected boolean remove(String storagePath) {
+        boolean removed = false;
+        for (Path root : allRoots()) {
+            Path filePath = root.resolve(storagePath);
+            long size = sizeIfExists(filePath);
+            if (FileUtils.safeDelete(filePath)) {
+                if (size >= 0) {
+                    getUsageTracker().recordObjectDeleted(size);
+                }
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    protected List<Path> storageRoots() {
+        return disks.stream().map(disk -> disk.root).collect(Collectors.toList());
+    }
+
+    // ==================== 重新均衡 ====================
+
+    /**
+     * 应用启动后，若磁盘布局与上次均衡时不同则在后台执行均衡
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalanceIfLayoutChanged() {
+        String layout = layoutFingerprint();
+        Path layoutFile = getTempPath().resolve(LAYOUT_FILE);
+        try {
+            if (Files.exists(layoutFile) && layout.equals(Files.readString(layoutFile, StandardCharsets.UTF_8))) {
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("读取条带布局记录失败: {}", layoutFile, e);
+        }
+
+        Thread thread = new Thread(() -> {
+            if (rebalance()) {
+                try {
+                    Files.writeString(layoutFile, layout, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    logger.warn("写入条带布局记录失败: {}", layoutFile, e);
+                }
+            }
+        }, "stripe-rebalance");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * 将每个内容块迁移到其应归属的磁盘，并补齐缺失的副本
+     *
+     * @return 是否全部处理成功
+     */
+    public synchronized boolean rebalance() {
+        long start = System.currentTimeMillis();
+        AtomicInteger relocated = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        for (Path root : allRoots()) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && !file.getFileName().toString().endsWith(".part")) {
+                            String storagePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+                            try {
+                                if (relocate(root, file, storagePath)) {
+                                    relocated.incrementAndGet();
+                                }
+                            } catch (IOException e) {
+                                failed.incrementAndGet();
+                                logger.warn("条带均衡迁移失败: {}", file, e);
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        failed.incrementAndGet();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                logger.error("条带均衡扫描失败: {}", root, e);
+            }
+        }
+
+        logger.info("条带均衡完成: 迁移={}, 失败={}, 耗时={}ms",
+                   relocated.get(), failed.get(), System.currentTimeMillis() - start);
+        return failed.get() == 0;
+    }
+
+    /**
+     * 确保内容块在其目标磁盘上都有副本，不属于目标磁盘的副本在复制完成后删除；
+     * 复制前在副本锁内复核内容块仍存在且仍被引用，无引用的内容块留给垃圾回收处理
+     *
+     * @return 是否删除了非目标位置的副本
+     */
+    private boolean relocate(Path root, Path file, String storagePath) throws IOException {
+        synchronized (lockFor(storagePath)) {
+            if (!Files.exists(file) || blobRepository.existsCollectableByStoragePath(logicalPath(storagePath))) {
+                return false;
+            }
+            return copyToTargets(root, file, storagePath);
+        }
+    }
+
+    private boolean copyToTargets(Path root, Path file, String storagePath) throws IOException {
+        List<Disk> targets = rank(storagePath).subList(0, replicas);
+
+        List<Future<?>> pending = new ArrayList<>();
+        boolean onTarget = false;
+        for (Disk disk : targets) {
+            Path targetPath = disk.root.resolve(storagePath);
+            if (disk.root.equals(root)) {
+                onTarget = true;
+            } else if (!Files.exists(targetPath)) {
+                pending.add(disk.ioPool.submit(() -> {
+                    writeReplica(file, targetPath, false);
+                    return null;
+                }));
+            }
+        }
+        awaitAll(pending);
+
+        if (onTarget) {
+            return false;
+        }
+        long size = sizeIfExists(file);
+        if (FileUtils.safeDelete(file) && size >= 0) {
+            getUsageTracker().recordObjectDeleted(size);
+        }
+        return true;
+    }
+
+    // ==================== 内部方法 ====================
+
+    /**
+     * 按最高随机权重为存储路径对所有磁盘排序，排名前N的磁盘保存该内容块
+     */
+    private List<Disk> rank(String storagePath) {
+        String key = placementKey(storagePath);
+        List<Disk> ranked = new ArrayList<>(disks);
+        ranked.sort(Comparator.comparingLong((Disk disk) -> score(disk.id, key)).reversed());
+        return ranked;
+    }
+
+    /**
+     * 放置键：存储路径中的内容哈希，同一内容无论日期目录如何都落在相同磁盘
+     */
+    static String placementKey(String storagePath) {
+        String name = storagePath.substring(storagePath.lastIndexOf('/') + 1);
+        int dot = name.indexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return stem.matches("[0-9a-f]{64}") ? stem : storagePath;
+    }
+
+    /**
+     * 计算磁盘对放置键的权重（FNV-1a 64位哈希加混淆）
+     */
+    static long score(String diskId, String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (diskId + '|' + key).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+
+    /**
+     * 在磁盘的I/O线程池中检查文件是否存在
+     *
+     * @return 是否存在；磁盘未在限定时间内响应时返回null
+     */
+    private Boolean probe(Disk disk, Path candidate) {
+        Future<Boolean> future = disk.ioPool.submit(() -> Files.exists(candidate));
+        try {
+            return future.get(DISK_PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("磁盘响应超时，尝试其他副本: {}", disk.id);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private Future<?> submitWrite(Disk disk, Path source, String storagePath, boolean move) {
+        return disk.ioPool.submit(() -> {
+            writeReplica(source, disk.root.resolve(storagePath), move);
+            return null;
+        });
+    }
+
+    /**
+     * 同一内容块的各编码变体共用一把锁
+     */
+    private Object lockFor(String storagePath) {
+        return replicaLocks[Math.floorMod(logicalPath(storagePath).hashCode(), replicaLocks.length)];
+    }
+
+    private static String logicalPath(String storagePath) {
+        return storagePath.endsWith(BlobCodec.GZIP_SUFFIX)
+                ? storagePath.substring(0, storagePath.length() - BlobCodec.GZIP_SUFFIX.length())
+                : storagePath;
+    }
+
+    private void writeReplica(Path source, Path target, boolean move) throws IOException {
+        FileUtils.ensureDirectoryExists(target.getParent());
+        long replacedSize = sizeIfExists(target);
+        if (move) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            // 先写入同目录临时文件再重命名，读者不会看到写了一半的副本
+            Path partial = target.resolveSibling(target.getFileName() + ".part");
+            try {
+                Files.copy(source, partial, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                FileUtils.safeDelete(partial);
+            }
+        }
+        recordReplaced(replacedSize, Files.size(target));
+    }
+
+    private void awaitAll(List<Future<?>> pending) throws IOException {
+        IOException failure = null;
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IOException("等待副本写入被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failure = cause instanceof IOException ? (IOException) cause : new IOException("副本写入失败", cause);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private List<Path> allRoots() {
+        List<Path> roots = storageRoots();
+        if (legacyRoot == null) {
+            return roots;
+        }
+        List<Path> all = new ArrayList<>(roots);
+        all.add(legacyRoot);
+        return all;
+    }
+
+    private String layoutFingerprint() {
+        return "replicas=" + replicas + ";disks=" + disks.stream()
+                .map(disk -> disk.id)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private static ExecutorService newIoPool(int diskIndex, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stripe-io-" + diskIndex + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,320 @@
+package tslc.beihaiyun.lyra.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.service.StorageAccessTracker;
+import tslc.beihaiyun.lyra.service.StorageService;
+import tslc.beihaiyun.lyra.util.FileUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 冷热分层存储服务
+ * 以装饰器方式包装容量层存储：所有内容始终完整保存在容量层，热层（高速磁盘）只保存按访问热度选出的工作集副本；
+ * 读取时优先命中热层，迁移在后台定时执行，提升先写临时文件再原子重命名，降级只删除热层副本，均不阻塞读取
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "lyra.storage.tier-enabled", havingValue = "true")
+public class TieredStorageService implements StorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredStorageService.class);
+
+    /**
+     * 每轮迁移考察的热点路径上限
+     */
+    private static final int MAX_CANDIDATES = 10_000;
+
+    private final StorageService capacityTier;
+    private final StorageAccessTracker accessTracker;
+    private final LyraProperties lyraProperties;
+
+    private Path fastPath;
+    private long fastCapacity;
+
+    /**
+     * 热层中的副本（存储路径 -> 大小）
+     */
+    private final Map<String, Long> fastResidents = new ConcurrentHashMap<>();
+    private final AtomicLong fastUsedBytes = new AtomicLong();
+
+    @Autowired
+    public TieredStorageService(LocalFileStorageService capacityTier, StorageAccessTracker accessTracker,
+                                LyraProperties lyraProperties) {
+        this.capacityTier = capacityTier;
+        this.accessTracker = accessTracker;
+        this.lyraProperties = lyraProperties;
+    }
+
+    /**
+     * 初始化热层目录并登记已有副本
+     */
+    @PostConstruct
+    public void init() {
+        LyraProperties.StorageConfig config = lyraProperties.getStorage();
+        this.fastPath = Paths.get(config.getTierFastPath()).toAbsolutePath().normalize();
+        this.fastCapacity = FileUtils.parseFileSize(config.getTierFastCapacity());
+
+        try {
+            FileUtils.ensureDirectoryExists(fastPath);
+            Files.walkFileTree(fastPath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (file.getFileName().toString().endsWith(".part")) {
+                        FileUtils.safeDelete(file);
+                    } else {
+                        String storagePath = fastPath.relativize(file).toString().replace(File.separatorChar, '/');
+                        fastResidents.put(storagePath, attrs.size());
+                        fastUsedBytes.addAndGet(attrs.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("分层存储初始化失败", e);
+        }
+
+        logger.info("分层存储初始化完成 - 热层路径: {}, 容量: {}, 已有副本: {}",
+                   fastPath, FileUtils.formatFileSize(fastCapacity), fastResidents.size());
+    }
+
+    // ==================== 写入（始终写入容量层） ====================
+
+    @Override
+    public StorageResult store(MultipartFile file) throws IOException {
+        return capacityTier.store(file);
+    }
+
+    @Override
+    public StorageResult store(InputStream inputStream, String filename, String contentType) throws IOException {
+        return capacityTier.store(inputStream, filename, contentType);
+    }
+
+    @Override
+    public StorageResult store(byte[] content, String filename, String contentType) throws IOException {
+        return capacityTier.store(content, filename, contentType);
+    }
+
+    @Override
+    public StorageResult importFile(Path sourceFile, String filename, String fileHash) throws IOException {
+        return capacityTier.importFile(sourceFile, filename, fileHash);
+    }
+
+    // ==================== 读取（优先热层） ====================
+
+    @Override
+    public Optional<InputStream> load(String storagePath) throws IOException {
+        Optional<Path> fast = fastCopy(storagePath);
+        if (fast.isPresent()) {
+            try {
+                return Optional.of(Files.newInputStream(fast.get()));
+            } catch (NoSuchFileException e) {
+                // 刚被降级，回退到容量层
+                fastResidents.remove(storagePath);
+            }
+        }
+        return capacityTier.load(storagePath);
+    }
+
+    @Override
+    public Optional<Path> getPath(String storagePath) {
+        Optional<Path> fast = fastCopy(storagePath);
+        return fast.isPresent() ? fast : capacityTier.getPath(storagePath);
+    }
+
+    @Override
+    public boolean exists(String storagePath) {
+        return capacityTier.exists(storagePath);
+    }
+
+    @Override
+    public long getFileSize(String storagePath) {
+        return capacityTier.getFileSize(storagePath);
+    }
+
+    @Override
+    public String calculateHash(InputStream inputStream) throws IOException {
+        return capacityTier.calculateHash(inputStream);
+    }
+
+    @Override
+    public boolean verifyIntegrity(String storagePath, String expectedHash) {
+        return capacityTier.verifyIntegrity(storagePath, expectedHash);
+    }
+
+    @Override
+    public Optional<String> findDuplicateFile(String fileHash) {
+        return capacityTier.findDuplicateFile(fileHash);
+    }
+
+    // ==================== 变更（同步失效热层副本） ====================
+
+    @Override
+    public boolean delete(String storagePath) {
+        demote(storagePath);
+        accessTracker.forget(storagePath);
+        return capacityTier.delete(storagePath);
+    }
+
+    @Override
+    public boolean copy(String sourcePath, String targetPath) throws IOException {
+        demote(targetPath);
+        return capacityTier.copy(sourcePath, targetPath);
+    }
+
+    @Override
+    public boolean move(String sourcePath, String targetPath) throws IOException {
+        demote(sourcePath);
+        demote(targetPath);
+        accessTracker.forget(sourcePath);
+        return capacityTier.move(sourcePath, targetPath);
+    }
+
+    @Override
+    public int cleanupTempFiles() {
+        return capacityTier.cleanupTempFiles();
+    }
+
+    @Override
+    public StorageStats getStorageStats() {
+        return capacityTier.getStorageStats();
+    }
+
+    // ==================== 迁移 ====================
+
+    /**
+     * 按访问热度重新选取工作集：热度达到阈值的路径按热度从高到低装入热层容量，
+     * 不在工作集中的热层副本被降级
+     */
+    @Scheduled(fixedDelayString = "${lyra.storage.tier-migration-interval-ms:300000}",
+               initialDelayString = "${lyra.storage.tier-migration-interval-ms:300000}")
+    public synchronized void migrate() {
+        int threshold = lyraProperties.getStorage().getTierPromoteThreshold();
+        List<String> hottest = accessTracker.getHottest(threshold, MAX_CANDIDATES);
+
+        Set<String> workingSet = new HashSet<>();
+        long plannedBytes = 0;
+        for (String storagePath : hottest) {
+            Long residentSize = fastResidents.get(storagePath);
+            if (residentSize == null && capacityTier.getPath(storagePath).isEmpty()) {
+                // 压缩对象没有可直接提供的原始文件，留在容量层
+                continue;
+            }
+            long size = residentSize != null ? residentSize : capacityTier.getFileSize(storagePath);
+            if (size < 0 || plannedBytes + size > fastCapacity) {
+                continue;
+            }
+            workingSet.add(storagePath);
+            plannedBytes += size;
+        }
+
+        int demoted = 0;
+        for (String storagePath : Set.copyOf(fastResidents.keySet())) {
+            if (!workingSet.contains(storagePath)) {
+                demote(storagePath);
+                demoted++;
+            }
+        }
+
+        int promoted = 0;
+        for (String storagePath : hottest) {
+            if (workingSet.contains(storagePath) && !fastResidents.containsKey(storagePath)) {
+                if (promote(storagePath)) {
+                    promoted++;
+                }
+            }
+        }
+
+        if (promoted > 0 || demoted > 0) {
+            logger.info("分层迁移完成: 提升={}, 降级={}, 热层占用={}/{}", promoted, demoted,
+                       FileUtils.formatFileSize(fastUsedBytes.get()), FileUtils.formatFileSize(fastCapacity));
+        }
+    }
+
+    /**
+     * 判断路径当前是否有热层副本
+     *
+     * @param storagePath 存储路径
+     * @return 是否在热层
+     */
+    public boolean isInFastTier(String storagePath) {
+        return fastResidents.containsKey(storagePath);
+    }
+
+    /**
+     * 获取热层已用字节数
+     *
+     * @return 已用字节数
+     */
+    public long getFastTierUsedBytes() {
+        return fastUsedBytes.get();
+    }
+
+    // ==================== 内部方法 ====================
+
+    private Optional<Path> fastCopy(String storagePath) {
+        if (!fastResidents.containsKey(storagePath)) {
+            return Optional.empty();
+        }
+        Path path = fastPath.resolve(storagePath);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private boolean promote(String storagePath) {
+        Optional<Path> source = capacityTier.getPath(storagePath);
+        if (source.isEmpty()) {
+            return false;
+        }
+
+        Path target = fastPath.resolve(storagePath);
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            FileUtils.ensureDirectoryExists(target.getParent());
+            Files.copy(source.get(), partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(target);
+            Long previous = fastResidents.put(storagePath, size);
+            fastUsedBytes.addAndGet(size - (previous != null ? previous : 0L));
+            return true;
+        } catch (IOException e) {
+            logger.warn("提升到热层失败: {}", storagePath, e);
+            FileUtils.safeDelete(partial);
+            return false;
+        }
+    }
+
+    private void demote(String storagePath) {
+        Long size = fastResidents.remove(storagePath);
+        if (size != null) {
+            fastUsedBytes.addAndGet(-size);
+            // 已打开的读取流在POSIX文件系统上不受删除影响
+            FileUtils.safeDelete(fastPath.resolve(storagePath));
+        }
+    }
+}
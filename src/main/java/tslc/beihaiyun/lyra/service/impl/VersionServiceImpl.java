@@ -3,6 +3,7 @@ package tslc.beihaiyun.lyra.service.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -10,8 +11,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.FileVersion;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
 import tslc.beihaiyun.lyra.repository.FileVersionRepository;
+import tslc.beihaiyun.lyra.service.BlobService;
+import tslc.beihaiyun.lyra.service.FileChangedEvent;
+import tslc.beihaiyun.lyra.service.FileStatisticsService;
 import tslc.beihaiyun.lyra.service.StorageService;
+import tslc.beihaiyun.lyra.service.VersionDeltaService;
 import tslc.beihaiyun.lyra.service.VersionService;
 
 import java.io.IOException;
@@ -23,7 +29,8 @@ import java.util.stream.Collectors;
 
 /**
  * 版本控制服务实现
- * 提供文件版本管理的完整功能，包括版本创建、查询、回滚、清理等操作
+ * 提供文件版本管理的完整功能，包括版本创建、查询、回滚、清理等操作；
+ * 历史版本由{@link VersionDeltaService}按反向差量存储，读取时透明还原
  * 
  * @author SkyFrost
  * @version 1.0.0
@@ -36,12 +43,25 @@ public class VersionServiceImpl implements VersionService {
     private static final Logger logger = LoggerFactory.getLogger(VersionServiceImpl.class);
 
     private final FileVersionRepository fileVersionRepository;
+    private final FileEntityRepository fileEntityRepository;
     private final StorageService storageService;
+    private final BlobService blobService;
+    private final VersionDeltaService versionDeltaService;
+    private final FileStatisticsService fileStatistics;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public VersionServiceImpl(FileVersionRepository fileVersionRepository, StorageService storageService) {
+    public VersionServiceImpl(FileVersionRepository fileVersionRepository, FileEntityRepository fileEntityRepository,
+                              StorageService storageService, BlobService blobService,
+                              VersionDeltaService versionDeltaService, FileStatisticsService fileStatistics,
+                              ApplicationEventPublisher eventPublisher) {
         this.fileVersionRepository = fileVersionRepository;
+        this.fileEntityRepository = fileEntityRepository;
         this.storageService = storageService;
+        this.blobService = blobService;
+        this.versionDeltaService = versionDeltaService;
+        this.fileStatistics = fileStatistics;
+        this.eventPublisher = eventPublisher;
     }
 
     // ==================== 版本创建和管理 ====================
@@ -61,8 +81,12 @@ public class VersionServiceImpl implements VersionService {
             StorageService.StorageResult storageResult = storageService.store(
                 inputStream, file.getName(), file.getMimeType());
 
+            // 锁定文件行后再取最新版本，避免并发创建版本时对同一上一版本重复做差量编码
+            lockFile(file);
+
             // 获取下一个版本号
-            Integer nextVersionNumber = getNextVersionNumber(file);
+            Optional<FileVersion> previousVersion = getLatestVersion(file);
+            Integer nextVersionNumber = previousVersion.map(latest -> latest.getVersionNumber() + 1).orElse(1);
             
             // 创建版本实体
             FileVersion version = new FileVersion();
@@ -76,6 +100,8 @@ public class VersionServiceImpl implements VersionService {
 
             // 保存版本
             version = fileVersionRepository.save(version);
+            blobService.acquire(storageResult);
+            compactPreviousVersion(previousVersion, version);
 
             logger.info("文件版本创建成功: 文件ID={}, 版本号={}, 创建者={}", 
                        file.getId(), nextVersionNumber, creatorId);
@@ -107,8 +133,12 @@ public class VersionServiceImpl implements VersionService {
                 return new VersionOperationResult(false, "存储文件不存在: " + storagePath, (FileVersion) null);
             }
 
+            // 锁定文件行后再取最新版本，避免并发创建版本时对同一上一版本重复做差量编码
+            lockFile(file);
+
             // 获取下一个版本号
-            Integer nextVersionNumber = getNextVersionNumber(file);
+            Optional<FileVersion> previousVersion = getLatestVersion(file);
+            Integer nextVersionNumber = previousVersion.map(latest -> latest.getVersionNumber() + 1).orElse(1);
             
             // 创建版本实体
             FileVersion version = new FileVersion();
@@ -122,6 +152,8 @@ public class VersionServiceImpl implements VersionService {
 
             // 保存版本
             version = fileVersionRepository.save(version);
+            blobService.acquire(storagePath, fileHash, fileSize != null ? fileSize : 0L);
+            compactPreviousVersion(previousVersion, version);
 
             logger.info("文件版本创建成功: 文件ID={}, 版本号={}, 存储路径={}", 
                        file.getId(), nextVersionNumber, storagePath);
@@ -157,11 +189,11 @@ public class VersionServiceImpl implements VersionService {
                 return false;
             }
 
-            // 删除存储文件
-            boolean storageDeleted = storageService.delete(version.getStoragePath());
-            if (!storageDeleted) {
-                logger.warn("删除版本存储文件失败: 路径={}", version.getStoragePath());
-            }
+            // 以该版本为基准的差量版本先恢复为完整存储
+            versionDeltaService.detachDependents(version);
+
+            // 释放内容块引用（内容可能与其他版本或文件共享，物理删除交由垃圾回收）
+            blobService.release(version.getStoragePath());
 
             // 删除版本记录
             fileVersionRepository.delete(version);
@@ -297,8 +329,7 @@ public class VersionServiceImpl implements VersionService {
             return Optional.empty();
         }
 
-        FileVersion version = versionOpt.get();
-        return storageService.load(version.getStoragePath());
+        return openVersionContent(versionOpt.get());
     }
 
     @Override
@@ -330,7 +361,16 @@ public class VersionServiceImpl implements VersionService {
 
         // 验证文件哈希值
         if (version.getFileHash() != null && !version.getFileHash().isEmpty()) {
-            return storageService.verifyIntegrity(version.getStoragePath(), version.getFileHash());
+            if (!version.isDelta()) {
+                return storageService.verifyIntegrity(version.getStoragePath(), version.getFileHash());
+            }
+            // 差量版本校验还原后的内容
+            try (InputStream content = versionDeltaService.open(version).orElse(null)) {
+                return content != null && version.getFileHash().equals(storageService.calculateHash(content));
+            } catch (IOException e) {
+                logger.warn("差量版本还原失败: 版本ID={}", versionId, e);
+                return false;
+            }
         }
 
         return true;
@@ -355,7 +395,7 @@ public class VersionServiceImpl implements VersionService {
 
             if (createNewVersion) {
                 // 创建新版本
-                try (InputStream contentStream = storageService.load(targetVersion.getStoragePath()).orElse(null)) {
+                try (InputStream contentStream = openVersionContent(targetVersion).orElse(null)) {
                     if (contentStream == null) {
                         return new VersionOperationResult(false, "无法读取目标版本内容", (FileVersion) null);
                     }
@@ -364,12 +404,30 @@ public class VersionServiceImpl implements VersionService {
                     return createVersion(file, contentStream, rollbackComment, operatorId);
                 }
             } else {
+                // 文件需要直接引用版本的完整内容
+                lockFile(file);
+                if (targetVersion.isDelta()) {
+                    versionDeltaService.rehydrate(targetVersion);
+                }
+
+                // 文件改为引用目标版本的内容块，并释放对原内容块的引用
+                String previousStoragePath = file.getStoragePath();
+                long targetSize = targetVersion.getSizeBytes() != null ? targetVersion.getSizeBytes() : 0L;
+                if (!Objects.equals(targetVersion.getStoragePath(), previousStoragePath)) {
+                    blobService.acquire(targetVersion.getStoragePath(), targetVersion.getFileHash(), targetSize);
+                    blobService.release(previousStoragePath);
+                }
+
                 // 直接更新文件信息
+                long deltaBytes = targetSize - (file.getSizeBytes() != null ? file.getSizeBytes() : 0L);
                 file.setSizeBytes(targetVersion.getSizeBytes());
                 file.setFileHash(targetVersion.getFileHash());
                 file.setStoragePath(targetVersion.getStoragePath());
                 file.setLastModifiedAt(LocalDateTime.now());
                 file.setUpdatedBy(operatorId != null ? operatorId.toString() : "system");
+                file = fileEntityRepository.save(file);
+                fileStatistics.recordResized(file, deltaBytes);
+                eventPublisher.publishEvent(FileChangedEvent.contentUpdated(file));
 
                 logger.info("文件回滚成功: 文件ID={}, 目标版本={}, 操作者={}", 
                            file.getId(), targetVersionNumber, operatorId);
@@ -512,15 +570,17 @@ public class VersionServiceImpl implements VersionService {
                 }
             }
 
-            // 执行删除
+            // 执行删除：从旧到新，差量版本总是先于其基准版本删除，避免无谓的还原
+            versionsToDelete.sort(Comparator.comparing(FileVersion::getVersionNumber));
             int deletedCount = 0;
             long spaceFreed = 0;
 
             for (FileVersion version : versionsToDelete) {
                 try {
-                    // 删除存储文件
-                    boolean storageDeleted = storageService.delete(version.getStoragePath());
-                    if (storageDeleted) {
+                    versionDeltaService.detachDependents(version);
+
+                    // 释放内容块引用，仅当内容块不再被引用时计入可回收空间
+                    if (blobService.release(version.getStoragePath())) {
                         spaceFreed += version.getSizeBytes();
                     }
 
@@ -581,8 +641,8 @@ public class VersionServiceImpl implements VersionService {
             int deletedCount = 0;
             for (FileVersion version : orphanedVersions) {
                 try {
-                    // 删除存储文件
-                    storageService.delete(version.getStoragePath());
+                    // 释放内容块引用
+                    blobService.release(version.getStoragePath());
                     // 删除版本记录
                     fileVersionRepository.delete(version);
                     deletedCount++;
@@ -626,9 +686,12 @@ public class VersionServiceImpl implements VersionService {
                     for (int i = 1; i < versions.size(); i++) {
                         FileVersion versionToDelete = versions.get(i);
                         try {
-                            // 注意：不删除存储文件，因为可能被其他版本引用
+                            // 重复版本与保留版本共享内容块，释放引用后由垃圾回收决定是否真正删除
+                            versionDeltaService.detachDependents(versionToDelete);
                             fileVersionRepository.delete(versionToDelete);
-                            spaceFreed += versionToDelete.getSizeBytes();
+                            if (blobService.release(versionToDelete.getStoragePath())) {
+                                spaceFreed += versionToDelete.getSizeBytes();
+                            }
                             deletedCount++;
                         } catch (Exception e) {
                             errors.add("删除重复版本失败: 版本号=" + versionToDelete.getVersionNumber());
@@ -704,6 +767,24 @@ public class VersionServiceImpl implements VersionService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, VersionSummary> getVersionSummaries(Collection<Long> fileIds) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, VersionSummary> summaries = new HashMap<>();
+        for (Object[] row : fileVersionRepository.summarizeByFileIds(fileIds)) {
+            summaries.put((Long) row[0], new VersionSummary(
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).intValue(),
+                (String) row[3],
+                (LocalDateTime) row[4]));
+        }
+        return summaries;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public long countVersions(FileEntity file) {
@@ -833,6 +914,39 @@ public class VersionServiceImpl implements VersionService {
 
     // ==================== 私有辅助方法 ====================
 
+    /**
+     * 打开版本内容，差量版本透明还原
+     */
+    private Optional<InputStream> openVersionContent(FileVersion version) throws IOException {
+        if (version.isDelta()) {
+            return versionDeltaService.open(version);
+        }
+        return storageService.load(version.getStoragePath());
+    }
+
+    /**
+     * 对文件行加写锁直到当前事务结束，串行化同一文件的版本创建
+     */
+    private void lockFile(FileEntity file) {
+        if (file.getId() != null) {
+            fileEntityRepository.findByIdForUpdate(file.getId());
+        }
+    }
+
+    /**
+     * 将上一版本改存为相对新版本的差量；差量只是存储优化，失败时保持完整存储
+     */
+    private void compactPreviousVersion(Optional<FileVersion> previousVersion, FileVersion newVersion) {
+        if (previousVersion.isEmpty()) {
+            return;
+        }
+        try {
+            versionDeltaService.deltify(previousVersion.get(), newVersion);
+        } catch (Exception e) {
+            logger.warn("上一版本差量编码失败，保持完整存储: 版本ID={}", previousVersion.get().getId(), e);
+        }
+    }
+
     /**
      * 根据保留数量选择要删除的版本
      */
@@ -0,0 +1,323 @@
+package tslc.beihaiyun.lyra.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 二进制差量编解码工具
+ * 以固定大小的块为单位对基准内容建立滚动哈希索引，扫描目标内容时用匹配块向前后扩展为复制指令，
+ * 其余部分作为插入字面量；解码时按指令从基准内容复制或从差量流读取，以流方式逐段产出目标内容
+ *
+ * <p>差量格式：魔数"LD1" | 基准长度 | 目标长度 | 指令序列 | 结束标记，长度与偏移均为无符号变长整数；
+ * 指令为 COPY(偏移, 长度) 或 INSERT(长度, 字节)</p>
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public final class BinaryDelta {
+
+    private static final byte[] MAGIC = {'L', 'D', '1'};
+
+    private static final int OP_END = 0;
+    private static final int OP_COPY = 1;
+    private static final int OP_INSERT = 2;
+
+    /**
+     * 索引块大小
+     */
+    private static final int BLOCK_SIZE = 32;
+
+    /**
+     * 滚动哈希的乘数
+     */
+    private static final int PRIME = 0x01000193;
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * 计算由基准内容生成目标内容的差量
+     *
+     * @param base 基准内容
+     * @param target 目标内容
+     * @return 差量数据
+     */
+    public static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, target.length / 8));
+        out.write(MAGIC, 0, MAGIC.length);
+        writeVarLong(out, base.length);
+        writeVarLong(out, target.length);
+
+        if (base.length < BLOCK_SIZE || target.length < BLOCK_SIZE) {
+            writeInsert(out, target, 0, target.length);
+            out.write(OP_END);
+            return out.toByteArray();
+        }
+
+        BlockIndex index = new BlockIndex(base);
+        int highPower = power(BLOCK_SIZE - 1);
+        int literalStart = 0;
+        int position = 0;
+        int hash = hash(target, 0);
+
+        while (position + BLOCK_SIZE <= target.length) {
+            int match = index.find(hash, target, position);
+            if (match < 0) {
+                if (position + BLOCK_SIZE < target.length) {
+                    hash = (hash - target[position] * highPower) * PRIME + target[position + BLOCK_SIZE];
+                }
+                position++;
+                continue;
+            }
+
+            // 向后扩展匹配区间
+            int length = BLOCK_SIZE;
+            while (match + length < base.length && position + length < target.length
+                    && base[match + length] == target[position + length]) {
+                length++;
+            }
+            // 向前吞并尚未输出的字面量
+            while (position > literalStart && match > 0 && base[match - 1] == target[position - 1]) {
+                match--;
+                position--;
+                length++;
+            }
+
+            writeInsert(out, target, literalStart, position - literalStart);
+            out.write(OP_COPY);
+            writeVarLong(out, match);
+            writeVarLong(out, length);
+
+            position += length;
+            literalStart = position;
+            if (position + BLOCK_SIZE <= target.length) {
+                hash = hash(target, position);
+            }
+        }
+
+        writeInsert(out, target, literalStart, target.length - literalStart);
+        out.write(OP_END);
+        return out.toByteArray();
+    }
+
+    /**
+     * 以流方式应用差量
+     *
+     * @param base 基准内容
+     * @param delta 差量数据流，随返回流一起关闭
+     * @return 目标内容流
+     * @throws IOException 差量格式错误或与基准内容不匹配
+     */
+    public static InputStream apply(byte[] base, InputStream delta) throws IOException {
+        return new DeltaInputStream(base, delta);
+    }
+
+    /**
+     * 应用差量并返回完整的目标内容
+     *
+     * @param base 基准内容
+     * @param delta 差量数据流
+     * @return 目标内容
+     * @throws IOException 差量格式错误或与基准内容不匹配
+     */
+    public static byte[] applyFully(byte[] base, InputStream delta) throws IOException {
+        try (InputStream in = apply(base, delta)) {
+            return in.readAllBytes();
+        }
+    }
+
+    // ==================== 内部实现 ====================
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            hash = hash * PRIME + data[offset + i];
+        }
+        return hash;
+    }
+
+    private static int power(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= PRIME;
+        }
+        return result;
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        out.write(OP_INSERT);
+        writeVarLong(out, length);
+        out.write(data, offset, length);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("差量数据不完整");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("差量数据格式错误");
+    }
+
+    /**
+     * 基准内容的块哈希索引（开放寻址，同一哈希保留最先出现的块）
+     */
+    private static final class BlockIndex {
+        private final byte[] base;
+        private final int[] hashes;
+        private final int[] offsets;
+        private final int mask;
+
+        BlockIndex(byte[] base) {
+            this.base = base;
+            int blocks = base.length / BLOCK_SIZE;
+            int capacity = Integer.highestOneBit(Math.max(2, blocks * 2 - 1)) << 1;
+            this.hashes = new int[capacity];
+            this.offsets = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(offsets, -1);
+
+            for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+                int hash = hash(base, offset);
+                int slot = mix(hash) & mask;
+                while (offsets[slot] >= 0 && hashes[slot] != hash) {
+                    slot = (slot + 1) & mask;
+                }
+                if (offsets[slot] < 0) {
+                    hashes[slot] = hash;
+                    offsets[slot] = offset;
+                }
+            }
+        }
+
+        int find(int hash, byte[] target, int position) {
+            int slot = mix(hash) & mask;
+            while (offsets[slot] >= 0) {
+                if (hashes[slot] == hash) {
+                    int offset = offsets[slot];
+                    return Arrays.equals(base, offset, offset + BLOCK_SIZE, target, position, position + BLOCK_SIZE)
+                        ? offset : -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * 逐条解码差量指令的目标内容流
+     */
+    private static final class DeltaInputStream extends InputStream {
+        private final byte[] base;
+        private final InputStream delta;
+        private final long targetLength;
+        private long produced;
+        private int op = -1;
+        private long copyOffset;
+        private long remaining;
+        private boolean finished;
+
+        DeltaInputStream(byte[] base, InputStream delta) throws IOException {
+            this.base = base;
+            this.delta = delta;
+            byte[] magic = delta.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("不是有效的差量数据");
+            }
+            long baseLength = readVarLong(delta);
+            if (baseLength != base.length) {
+                throw new IOException("差量与基准内容长度不匹配: " + baseLength + " != " + base.length);
+            }
+            this.targetLength = readVarLong(delta);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (remaining == 0) {
+                if (finished || !nextOp()) {
+                    return -1;
+                }
+            }
+
+            int n = (int) Math.min(length, remaining);
+            if (op == OP_COPY) {
+                System.arraycopy(base, (int) copyOffset, buffer, offset, n);
+                copyOffset += n;
+            } else {
+                n = delta.read(buffer, offset, n);
+                if (n < 0) {
+                    throw new EOFException("差量数据不完整");
+                }
+            }
+            remaining -= n;
+            produced += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delta.close();
+        }
+
+        private boolean nextOp() throws IOException {
+            op = delta.read();
+            switch (op) {
+                case OP_END -> {
+                    finished = true;
+                    if (produced != targetLength) {
+                        throw new IOException("差量还原长度不符: " + produced + " != " + targetLength);
+                    }
+                    return false;
+                }
+                case OP_COPY -> {
+                    copyOffset = readVarLong(delta);
+                    remaining = readVarLong(delta);
+                    if (copyOffset + remaining > base.length) {
+                        throw new IOException("差量复制指令越界");
+                    }
+                }
+                case OP_INSERT -> remaining = readVarLong(delta);
+                default -> throw new IOException(op < 0 ? "差量数据不完整" : "未知的差量指令: " + op);
+            }
+            if (produced + remaining > targetLength) {
+                throw new IOException("差量还原长度超出声明");
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package tslc.beihaiyun.lyra.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 内容块压缩编解码工具
+ * 写入时对文件首、中、尾三段采样试压缩以判断是否值得压缩，避免对已压缩的媒体和归档做无用功；
+ * 压缩格式为GZIP，读取时以流方式解压，未压缩大小从GZIP尾部的ISIZE字段读取
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public final class BlobCodec {
+
+    /**
+     * GZIP压缩对象在存储路径上附加的后缀
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 每段采样的字节数
+     */
+    private static final int SAMPLE_SIZE = 16 * 1024;
+
+    /**
+     * 采样压缩率低于该值才压缩
+     */
+    private static final double MAX_SAMPLE_RATIO = 0.75;
+
+    /**
+     * GZIP的ISIZE字段只有32位，达到该大小的文件不压缩以保证能从尾部得到准确的原始大小
+     */
+    private static final long MAX_COMPRESSIBLE_SIZE = 0xFFFFFFFFL;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 自身已是压缩格式的MIME类型
+     */
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+        "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+        "application/x-rar-compressed", "application/vnd.rar", "application/x-bzip2", "application/x-xz",
+        "application/zstd", "application/pdf", "application/java-archive",
+        "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+        "application/vnd.openxmlformats-officedocument.presentationml.presentation"
+    );
+
+    private BlobCodec() {
+    }
+
+    /**
+     * 判断文件是否值得压缩
+     *
+     * @param file 文件路径
+     * @param size 文件大小
+     * @param mimeType 嗅探得到的MIME类型，可为空
+     * @param minSize 最小压缩大小
+     * @return 是否值得压缩
+     * @throws IOException 读取采样失败
+     */
+    public static boolean isCompressible(Path file, long size, String mimeType, long minSize) throws IOException {
+        if (size < minSize || size >= MAX_COMPRESSIBLE_SIZE || isCompressedType(mimeType)) {
+            return false;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long sampled = 0;
+            long compressed = 0;
+            byte[] output = new byte[SAMPLE_SIZE];
+            for (long position : samplePositions(size)) {
+                ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLE_SIZE, size - position));
+                while (sample.hasRemaining() && channel.read(sample, position + sample.position()) > 0) {
+                    // 定位读取直到填满采样缓冲
+                }
+                deflater.reset();
+                deflater.setInput(sample.array(), 0, sample.position());
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed += deflater.deflate(output);
+                }
+                sampled += sample.position();
+            }
+            return sampled > 0 && (double) compressed / sampled < MAX_SAMPLE_RATIO;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 将源文件压缩为GZIP文件
+     *
+     * @param source 源文件
+     * @param target 目标文件（存在时覆盖）
+     * @return 压缩后大小
+     * @throws IOException 压缩失败
+     */
+    public static long compress(Path source, Path target) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE)) {
+            in.transferTo(out);
+        }
+        return Files.size(target);
+    }
+
+    /**
+     * 以流方式解压GZIP内容
+     *
+     * @param compressed 压缩内容流
+     * @return 解压后的内容流
+     * @throws IOException 流格式错误
+     */
+    public static InputStream decompress(InputStream compressed) throws IOException {
+        return new GZIPInputStream(new BufferedInputStream(compressed, BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    /**
+     * 从GZIP文件尾部读取原始大小
+     *
+     * @param compressed GZIP文件
+     * @return 原始大小
+     * @throws IOException 读取失败
+     */
+    public static long uncompressedSize(Path compressed) throws IOException {
+        try (FileChannel channel = FileChannel.open(compressed, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4) {
+                throw new IOException("GZIP文件不完整: " + compressed);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (trailer.hasRemaining() && channel.read(trailer, size - 4 + trailer.position()) > 0) {
+                // 读取ISIZE字段
+            }
+            return Integer.toUnsignedLong(trailer.getInt(0));
+        }
+    }
+
+    /**
+     * 判断MIME类型自身是否已是压缩格式（图片、音视频、归档等），再压缩几乎没有收益
+     *
+     * @param mimeType MIME类型，可为空
+     * @return 是否为已压缩格式
+     */
+    public static boolean isCompressedType(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toLowerCase();
+        if (type.equals("image/svg+xml") || type.equals("image/bmp")) {
+            return false;
+        }
+        return type.startsWith("image/") || type.startsWith("video/") || type.startsWith("audio/")
+            || COMPRESSED_TYPES.contains(type);
+    }
+
+    private static long[] samplePositions(long size) {
+        if (size <= SAMPLE_SIZE * 3L) {
+            return new long[]{0};
+        }
+        return new long[]{0, size / 2 - SAMPLE_SIZE / 2, size - SAMPLE_SIZE};
+    }
+}
@@ -0,0 +1,155 @@
+package tslc.beihaiyun.lyra.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * 内容定义分块器（FastCDC）
+ * 以Gear滚动哈希寻找切分点：跳过最小块长度后，在平均长度之前使用更严格的掩码、之后使用更宽松的掩码（归一化分块），
+ * 使块长度集中在平均值附近；切分点只取决于局部内容，插入或删除字节只影响附近的块，其余块仍可去重
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public final class ContentDefinedChunker {
+
+    /**
+     * Gear哈希表（固定种子生成，保证切分点在不同进程间一致）
+     */
+    private static final long[] GEAR = new long[256];
+
+    /**
+     * 平均块大小上限；分块缓冲区为最大块的2倍，即每个并发写入最多占用8MB
+     */
+    public static final int MAX_AVERAGE_SIZE = 1024 * 1024;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4C595241L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int averageSize;
+    private final int maxSize;
+    private final long maskSmall;
+    private final long maskLarge;
+
+    /**
+     * 分块回调
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        /**
+         * 处理一个块
+         *
+         * @param buffer 数据缓冲区
+         * @param offset 块起始位置
+         * @param length 块长度
+         * @throws IOException 处理失败
+         */
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    /**
+     * 创建分块器，最小块为平均值的1/4，最大块为平均值的4倍
+     *
+     * @param averageSize 平均块大小（会向下取整到2的幂，超过{@link #MAX_AVERAGE_SIZE}时按上限处理）
+     */
+    public ContentDefinedChunker(int averageSize) {
+        int bits = 31 - Integer.numberOfLeadingZeros(Math.min(Math.max(averageSize, 256), MAX_AVERAGE_SIZE));
+        this.averageSize = 1 << bits;
+        this.minSize = this.averageSize / 4;
+        this.maxSize = this.averageSize * 4;
+        this.maskSmall = highBits(bits + 2);
+        this.maskLarge = highBits(bits - 2);
+    }
+
+    /**
+     * 获取最大块大小
+     *
+     * @return 最大块大小
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 将输入流切分为块并依次回调
+     *
+     * @param inputStream 输入流
+     * @param consumer 分块回调
+     * @return 总字节数
+     * @throws IOException 读取或回调失败
+     */
+    public long split(InputStream inputStream, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[maxSize * 2];
+        int start = 0;
+        int end = 0;
+        long total = 0;
+        boolean eof = false;
+
+        while (true) {
+            if (!eof && end - start < maxSize) {
+                // 保证缓冲区中至少有一个最大块的数据，除非已到流末尾
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                while (end < buffer.length) {
+                    int read = inputStream.read(buffer, end, buffer.length - end);
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    end += read;
+                }
+            }
+            if (start == end) {
+                return total;
+            }
+
+            int length = cutPoint(buffer, start, end - start);
+            consumer.accept(buffer, start, length);
+            start += length;
+            total += length;
+        }
+    }
+
+    /**
+     * 在数据中寻找第一个切分点
+     *
+     * @param data 数据
+     * @param offset 起始位置
+     * @param length 可用长度
+     * @return 第一个块的长度
+     */
+    public int cutPoint(byte[] data, int offset, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int normal = Math.min(averageSize, length);
+        int end = Math.min(maxSize, length);
+        long fingerprint = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((fingerprint & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((fingerprint & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    private static long highBits(int count) {
+        return count <= 0 ? 0L : -1L << (64 - count);
+    }
+}
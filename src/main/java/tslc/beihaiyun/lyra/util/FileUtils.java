@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -96,12 +97,7 @@ public class FileUtils {
                 digest.update(buffer, 0, bytesRead);
             }
             
-            byte[] hashBytes = digest.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return toHex(digest.digest());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256算法不可用", e);
         }
@@ -120,6 +116,16 @@ public class FileUtils {
         }
     }
 
+    /**
+     * 将字节数组转换为小写十六进制字符串
+     * 
+     * @param bytes 字节数组
+     * @return 十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
     /**
      * 根据文件扩展名获取MIME类型
      * 
@@ -146,6 +152,90 @@ public class FileUtils {
         return MIME_TYPES.getOrDefault(extension, "application/octet-stream");
     }
 
+    /**
+     * 根据文件头魔数嗅探MIME类型
+     * 无法识别时回退到按扩展名判断
+     * 
+     * @param header 文件头字节
+     * @param filename 文件名
+     * @return MIME类型
+     */
+    public static String detectMimeType(byte[] header, String filename) {
+        if (header != null && header.length >= 4) {
+            if (startsWith(header, 0x25, 0x50, 0x44, 0x46)) {
+                return "application/pdf";
+            }
+            if (startsWith(header, 0x89, 0x50, 0x4E, 0x47)) {
+                return "image/png";
+            }
+            if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+                return "image/jpeg";
+            }
+            if (startsWith(header, 0x47, 0x49, 0x46, 0x38)) {
+                return "image/gif";
+            }
+            if (startsWith(header, 0x42, 0x4D)) {
+                return "image/bmp";
+            }
+            if (startsWith(header, 0x52, 0x61, 0x72, 0x21)) {
+                return "application/vnd.rar";
+            }
+            if (startsWith(header, 0x37, 0x7A, 0xBC, 0xAF)) {
+                return "application/x-7z-compressed";
+            }
+            if (startsWith(header, 0x1F, 0x8B)) {
+                return "application/gzip";
+            }
+            if (startsWith(header, 0x49, 0x44, 0x33) || startsWith(header, 0xFF, 0xFB)) {
+                return "audio/mpeg";
+            }
+            if (header.length >= 12 && startsWith(header, 0x52, 0x49, 0x46, 0x46)) {
+                String format = new String(header, 8, 4, StandardCharsets.US_ASCII);
+                if ("WAVE".equals(format)) {
+                    return "audio/wav";
+                }
+                if ("AVI ".equals(format)) {
+                    return "video/x-msvideo";
+                }
+            }
+            if (header.length >= 12 && header[4] == 'f' && header[5] == 't' && header[6] == 'y' && header[7] == 'p') {
+                String brand = new String(header, 8, 4, StandardCharsets.US_ASCII);
+                return brand.startsWith("qt") ? "video/quicktime" : "video/mp4";
+            }
+            if (startsWith(header, 0x50, 0x4B, 0x03, 0x04)) {
+                // Office Open XML 与 zip 共用魔数，优先使用扩展名区分
+                String byName = getMimeType(filename);
+                return byName.startsWith("application/vnd.openxmlformats") ? byName : "application/zip";
+            }
+            if (startsWith(header, 0xD0, 0xCF, 0x11, 0xE0)) {
+                // OLE2 复合文档（doc/xls/ppt）
+                String byName = getMimeType(filename);
+                return byName.startsWith("application/") && !"application/octet-stream".equals(byName)
+                    ? byName : "application/msword";
+            }
+        }
+        return getMimeType(filename);
+    }
+
+    /**
+     * 判断字节数组是否以指定魔数开头
+     * 
+     * @param data 字节数组
+     * @param magic 魔数（按无符号字节给出）
+     * @return 是否匹配
+     */
+    private static boolean startsWith(byte[] data, int... magic) {
+        if (data.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((data[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 获取文件扩展名
      * 
@@ -0,0 +1,126 @@
+package tslc.beihaiyun.lyra.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 单遍流式写入管道
+ * 在通过FileChannel写入目标文件的同时完成SHA-256计算、字节计数、大小限制校验和MIME嗅探，
+ * 避免"先落盘再回读计算哈希"带来的重复磁盘读取
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public final class IngestPipeline {
+
+    /**
+     * 读写缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 用于MIME嗅探的文件头长度
+     */
+    public static final int SNIFF_SIZE = 512;
+
+    private IngestPipeline() {
+    }
+
+    /**
+     * 写入结果
+     */
+    public static class IngestResult {
+        private final String fileHash;
+        private final long sizeBytes;
+        private final String detectedMimeType;
+        private final byte[] header;
+
+        public IngestResult(String fileHash, long sizeBytes, String detectedMimeType, byte[] header) {
+            this.fileHash = fileHash;
+            this.sizeBytes = sizeBytes;
+            this.detectedMimeType = detectedMimeType;
+            this.header = header;
+        }
+
+        public String getFileHash() { return fileHash; }
+        public long getSizeBytes() { return sizeBytes; }
+        public String getDetectedMimeType() { return detectedMimeType; }
+        public byte[] getHeader() { return header; }
+    }
+
+    /**
+     * 将输入流写入目标文件，单遍完成哈希、计数、限额校验与类型嗅探
+     *
+     * @param inputStream 输入流
+     * @param target 目标文件（不存在时创建，存在时截断）
+     * @param maxBytes 最大允许字节数，小于等于0表示不限制
+     * @param filename 原始文件名，用于嗅探失败时按扩展名回退
+     * @return 写入结果
+     * @throws IOException 写入失败或超过大小限制
+     */
+    public static IngestResult ingest(InputStream inputStream, Path target, long maxBytes, String filename)
+            throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] header = new byte[SNIFF_SIZE];
+        int headerLength = 0;
+        long totalBytes = 0;
+
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                if (bytesRead == 0) {
+                    continue;
+                }
+
+                totalBytes += bytesRead;
+                if (maxBytes > 0 && totalBytes > maxBytes) {
+                    throw new IOException("文件大小超过限制: " + FileUtils.formatFileSize(maxBytes));
+                }
+
+                if (headerLength < SNIFF_SIZE) {
+                    int count = Math.min(bytesRead, SNIFF_SIZE - headerLength);
+                    System.arraycopy(buffer, 0, header, headerLength, count);
+                    headerLength += count;
+                }
+
+                digest.update(buffer, 0, bytesRead);
+
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            }
+        }
+
+        byte[] sniffed = Arrays.copyOf(header, headerLength);
+        return new IngestResult(
+            FileUtils.toHex(digest.digest()),
+            totalBytes,
+            FileUtils.detectMimeType(sniffed, filename),
+            sniffed
+        );
+    }
+
+    /**
+     * 创建SHA-256摘要实例
+     *
+     * @return 摘要实例
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256算法不可用", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package tslc.beihaiyun.lyra.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * 按令牌桶限速的输入流，每读取一段数据从令牌桶扣除相应字节数的令牌
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final TokenBucket[] buckets;
+    private long bytesRead;
+    private long throttledNanos;
+
+    /**
+     * 创建限速输入流，读取的字节需同时满足所有令牌桶
+     *
+     * @param in 原始输入流
+     * @param buckets 令牌桶
+     */
+    public ThrottledInputStream(InputStream in, TokenBucket... buckets) {
+        super(in);
+        this.buckets = buckets;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            throttle(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            throttle(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            throttle(skipped);
+        }
+        return skipped;
+    }
+
+    /**
+     * 获取已读取的字节数
+     *
+     * @return 字节数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * 获取因限速累计等待的纳秒数
+     *
+     * @return 等待纳秒数
+     */
+    public long getThrottledNanos() {
+        return throttledNanos;
+    }
+
+    private void throttle(long bytes) throws IOException {
+        bytesRead += bytes;
+        try {
+            for (TokenBucket bucket : buckets) {
+                throttledNanos += bucket.acquire(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("限速等待被中断");
+        }
+    }
+}
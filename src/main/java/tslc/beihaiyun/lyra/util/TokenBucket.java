@@ -0,0 +1,125 @@
+package tslc.beihaiyun.lyra.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限速器
+ * 令牌按固定速率补充、最多累积到桶容量；获取令牌不足时阻塞到令牌补足为止，
+ * 单次请求超过桶容量时按容量分段等待，因此任意请求大小都能最终获取
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public final class TokenBucket {
+
+    private final long ratePerSecond;
+    private final long capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * 创建令牌桶，初始为满桶
+     *
+     * @param ratePerSecond 每秒补充的令牌数，小于等于0表示不限速
+     * @param capacity 桶容量（允许的突发量）
+     */
+    public TokenBucket(long ratePerSecond, long capacity) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 创建桶容量等于一秒补充量的令牌桶
+     *
+     * @param ratePerSecond 每秒补充的令牌数，小于等于0表示不限速
+     * @return 令牌桶
+     */
+    public static TokenBucket perSecond(long ratePerSecond) {
+        return new TokenBucket(ratePerSecond, ratePerSecond);
+    }
+
+    /**
+     * 是否限速
+     *
+     * @return 是否限速
+     */
+    public boolean isLimited() {
+        return ratePerSecond > 0;
+    }
+
+    /**
+     * 获取每秒补充的令牌数
+     *
+     * @return 每秒令牌数
+     */
+    public long getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * 获取令牌，不足时阻塞等待
+     *
+     * @param permits 令牌数
+     * @return 实际等待的纳秒数
+     * @throws InterruptedException 等待被中断
+     */
+    public long acquire(long permits) throws InterruptedException {
+        if (!isLimited() || permits <= 0) {
+            return 0;
+        }
+        long waited = 0;
+        long remaining = permits;
+        while (remaining > 0) {
+            long chunk = Math.min(remaining, capacity);
+            long waitNanos = reserve(chunk);
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                waited += waitNanos;
+            }
+            remaining -= chunk;
+        }
+        return waited;
+    }
+
+    /**
+     * 尝试立即获取令牌，不阻塞
+     *
+     * @param permits 令牌数
+     * @return 是否获取成功
+     */
+    public synchronized boolean tryAcquire(long permits) {
+        if (!isLimited() || permits <= 0) {
+            return true;
+        }
+        refill();
+        if (tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+
+    /**
+     * 预扣令牌（允许透支），返回需要等待到透支补齐的时间
+     */
+    private synchronized long reserve(long permits) {
+        refill();
+        tokens -= permits;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + (double) elapsed * ratePerSecond / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = now;
+        }
+    }
+}
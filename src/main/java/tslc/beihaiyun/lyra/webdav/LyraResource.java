@@ -11,6 +11,7 @@ import java.util.Objects;
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.service.FileDownloadService;
 
 /**
  * Lyra WebDAV 资源
@@ -239,7 +240,7 @@ public class LyraResource {
                 .contentType(fileEntity.getMimeType())
                 .lastModified(toDate(fileEntity.getUpdatedAt()))
                 .creationDate(toDate(fileEntity.getCreatedAt()))
-                .etag(generateEtag(fileEntity))
+                .etag(FileDownloadService.buildETag(fileEntity))
                 .fileEntity(fileEntity)
                 .build();
     }
@@ -300,6 +301,11 @@ public class LyraResource {
         return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
     }
 
+    private static String generateEtag(Folder folder) {
+        // 与资源服务中文件夹的ETag保持一致，随文件夹更新而变化
+        return "\"" + Math.abs(Objects.hash(folder.getId(), folder.getUpdatedAt())) + "\"";
+    }
+
     private static String generateEtag(Object entity) {
         if (entity == null) return "default";
         return "\"" + Math.abs(entity.hashCode()) + "\"";
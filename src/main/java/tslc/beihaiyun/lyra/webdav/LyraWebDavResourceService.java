@@ -6,6 +6,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.slf4j.Logger;
@@ -13,6 +14,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.FileVersion;
@@ -26,6 +29,7 @@ import tslc.beihaiyun.lyra.service.FolderService;
 import tslc.beihaiyun.lyra.service.StorageService;
 import tslc.beihaiyun.lyra.service.UserService;
 import tslc.beihaiyun.lyra.service.VersionService;
+import tslc.beihaiyun.lyra.util.FileUtils;
 
 /**
  * Lyra WebDAV 资源服务
@@ -42,12 +46,18 @@ public class LyraWebDavResourceService {
 
     private static final Logger logger = LoggerFactory.getLogger(LyraWebDavResourceService.class);
 
+    /**
+     * 列出子资源时每次查询的条数
+     */
+    private static final int CHILD_PAGE_SIZE = 500;
+
     private final UserService userService;
     private final FileService fileService;
     private final FolderService folderService;
     private final StorageService storageService;
     private final SpaceRepository spaceRepository;
     private final VersionService versionService;
+    private final WebDavPathIndex pathIndex;
 
     public LyraWebDavResourceService(
             UserService userService,
@@ -55,13 +65,15 @@ public class LyraWebDavResourceService {
             FolderService folderService,
             StorageService storageService,
             SpaceRepository spaceRepository,
-            VersionService versionService) {
+            VersionService versionService,
+            WebDavPathIndex pathIndex) {
         this.userService = userService;
         this.fileService = fileService;
         this.folderService = folderService;
         this.storageService = storageService;
         this.spaceRepository = spaceRepository;
         this.versionService = versionService;
+        this.pathIndex = pathIndex;
     }
 
     /**
@@ -70,6 +82,11 @@ public class LyraWebDavResourceService {
      * @return 当前用户，如果未认证则返回null
      */
     public User getCurrentUser() {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        return context != null ? context.getUser(this::loadCurrentUser) : loadCurrentUser();
+    }
+
+    private User loadCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.getPrincipal() instanceof LyraUserPrincipal) {
             LyraUserPrincipal principal = (LyraUserPrincipal) auth.getPrincipal();
@@ -145,6 +162,28 @@ public class LyraWebDavResourceService {
      * @return LyraResource对象，如果不存在则返回null
      */
     public LyraResource getResource(String path) {
+        return resolveResource(path, true);
+    }
+
+    /**
+     * 获取WebDAV资源本身的属性，不加载空间和文件夹的子资源
+     * 
+     * @param path WebDAV路径
+     * @return LyraResource对象，如果不存在则返回null
+     */
+    public LyraResource getResourceWithoutChildren(String path) {
+        return resolveResource(path, false);
+    }
+
+    private LyraResource resolveResource(String path, boolean withChildren) {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        if (context != null) {
+            return context.getResource(path, withChildren, () -> loadResource(path, withChildren));
+        }
+        return loadResource(path, withChildren);
+    }
+
+    private LyraResource loadResource(String path, boolean withChildren) {
         WebDavPathInfo pathInfo = parsePath(path);
         User currentUser = getCurrentUser();
         
@@ -153,7 +192,7 @@ public class LyraWebDavResourceService {
         try {
             return switch (pathInfo.getType()) {
                 case ROOT -> createSystemRootResource();
-                case PERSONAL, ENTERPRISE -> getSpaceResource(pathInfo, currentUser);
+                case PERSONAL, ENTERPRISE -> getSpaceResource(pathInfo, currentUser, withChildren);
                 default -> null;
             };
         } catch (Exception e) {
@@ -169,7 +208,31 @@ public class LyraWebDavResourceService {
      * @return 是否存在
      */
     public boolean resourceExists(String path) {
-        return getResource(path) != null;
+        return getResourceWithoutChildren(path) != null;
+    }
+
+    /**
+     * 获取路径所属的空间
+     * 
+     * @param path WebDAV路径
+     * @return 空间（可选），路径不在当前用户的空间内时为空
+     */
+    public Optional<Space> getSpace(String path) {
+        return Optional.ofNullable(findSpace(parsePath(path), getCurrentUser()));
+    }
+
+    /**
+     * 获取路径对应的文件实体
+     * 
+     * @param path 文件路径
+     * @return 文件实体（可选），路径不存在或为文件夹时为空
+     */
+    public Optional<FileEntity> getFileEntity(String path) {
+        LyraResource resource = getResourceWithoutChildren(path);
+        if (resource == null || !resource.isResource()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(resource.getFileEntity());
     }
 
     /**
@@ -180,7 +243,7 @@ public class LyraWebDavResourceService {
      * @throws IOException 读取异常
      */
     public InputStream getFileContent(String path) throws IOException {
-        LyraResource resource = getResource(path);
+        LyraResource resource = getResourceWithoutChildren(path);
         
         if (resource == null || !resource.isResource()) {
             throw new IOException("文件不存在或不是文件类型: " + path);
@@ -211,7 +274,7 @@ public class LyraWebDavResourceService {
      * @return 文件大小，如果不是文件则返回0
      */
     public long getFileSize(String path) {
-        LyraResource resource = getResource(path);
+        LyraResource resource = getResourceWithoutChildren(path);
         return resource != null ? resource.getActualSize() : 0L;
     }
 
@@ -222,7 +285,7 @@ public class LyraWebDavResourceService {
      * @return 是否为文件夹
      */
     public boolean isDirectory(String path) {
-        LyraResource resource = getResource(path);
+        LyraResource resource = getResourceWithoutChildren(path);
         return resource != null && resource.isCollection();
     }
 
@@ -291,7 +354,7 @@ public class LyraWebDavResourceService {
             
             if (!parentPath.isEmpty()) {
                 // 查找父文件夹
-                parentFolder = folderService.getFolderByPath(space, parentPath).orElse(null);
+                parentFolder = findFolder(space, parentPath).orElse(null);
                 if (parentFolder == null) {
                     logger.warn("父文件夹不存在: {}", parentPath);
                     return false;
@@ -307,6 +370,8 @@ public class LyraWebDavResourceService {
         } catch (Exception e) {
             logger.error("创建文件夹时出错: {}", e.getMessage(), e);
             return false;
+        } finally {
+            invalidateRequestContext();
         }
     }
 
@@ -330,27 +395,16 @@ public class LyraWebDavResourceService {
         }
         
         try {
-            Space space = findSpace(pathInfo, currentUser);
-            if (space == null) {
-                logger.warn("找不到对应的空间: {}", pathInfo);
+            UploadTarget target = resolveUploadTarget(pathInfo, currentUser);
+            if (target == null) {
                 return false;
             }
-            
-            // 解析文件夹路径
-            Folder parentFolder = null;
-            String fileName = extractLastPathComponent(pathInfo.getFilePath());
-            String parentPath = extractParentPath(pathInfo.getFilePath());
-            
-            if (!parentPath.isEmpty()) {
-                parentFolder = folderService.getFolderByPath(space, parentPath).orElse(null);
-                if (parentFolder == null) {
-                    logger.warn("父文件夹不存在: {}", parentPath);
-                    return false;
-                }
-            }
+            Space space = target.space;
+            Folder parentFolder = target.parentFolder;
+            String fileName = target.fileName;
             
             // 检查文件是否已存在
-            Optional<FileEntity> existingFileOpt = fileService.getFileByPath(space, pathInfo.getFilePath());
+            Optional<FileEntity> existingFileOpt = findFile(space, pathInfo.getFilePath());
             
             if (existingFileOpt.isPresent()) {
                 // 文件已存在，创建新版本并更新文件
@@ -364,13 +418,15 @@ public class LyraWebDavResourceService {
                     existingFile, content, "WebDAV文件更新", currentUser.getId());
                 
                 if (versionResult.isSuccess()) {
-                                         // 更新文件实体信息
-                     FileVersion latestVersion = versionResult.getVersion();
-                    existingFile.setSizeBytes(latestVersion.getSizeBytes());
-                    existingFile.setFileHash(latestVersion.getFileHash());
-                    existingFile.setStoragePath(latestVersion.getStoragePath());
-                    existingFile.setLastModifiedAt(LocalDateTime.now());
-                    existingFile.setUpdatedBy(currentUser.getId().toString());
+                    // 让文件指向新版本内容，并维护内容块引用计数
+                    FileVersion latestVersion = versionResult.getVersion();
+                    FileService.FileOperationResult updateResult = fileService.updateFileStorage(
+                        existingFile.getId(), latestVersion.getStoragePath(), latestVersion.getFileHash(),
+                        latestVersion.getSizeBytes(), currentUser.getId());
+                    if (!updateResult.isSuccess()) {
+                        logger.error("WebDAV文件内容更新失败: {}", updateResult.getMessage());
+                        return false;
+                    }
                     
                     logger.info("WebDAV文件版本创建成功: 文件ID={}, 版本号={}", 
                                existingFile.getId(), latestVersion.getVersionNumber());
@@ -413,6 +469,87 @@ public class LyraWebDavResourceService {
         } catch (Exception e) {
             logger.error("上传文件时出错: {}", e.getMessage(), e);
             return false;
+        } finally {
+            invalidateRequestContext();
+        }
+    }
+
+    /**
+     * 按内容哈希上传文件（秒传）
+     * 当前用户可读的空间内已有相同哈希与大小的内容时直接引用该内容创建文件或新版本，不读取请求体
+     * 
+     * @param path 文件路径
+     * @param fileHash 客户端声明的SHA-256哈希值
+     * @param contentLength 内容长度
+     * @return 是否命中并完成上传；未命中时返回false，调用方应继续正常上传
+     */
+    public boolean uploadFileByHash(String path, String fileHash, long contentLength) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            return false;
+        }
+
+        Optional<StorageService.StorageResult> existing =
+            fileService.findExistingContent(fileHash, contentLength, currentUser.getId());
+        if (existing.isEmpty()) {
+            return false;
+        }
+
+        WebDavPathInfo pathInfo = parsePath(path);
+
+        try {
+            UploadTarget target = resolveUploadTarget(pathInfo, currentUser);
+            if (target == null) {
+                return false;
+            }
+
+            StorageService.StorageResult content = existing.get();
+            Optional<FileEntity> existingFileOpt = findFile(target.space, pathInfo.getFilePath());
+
+            if (existingFileOpt.isPresent()) {
+                FileEntity existingFile = existingFileOpt.get();
+                if (content.getFileHash().equalsIgnoreCase(existingFile.getFileHash())) {
+                    // 内容未变化，无需创建新版本
+                    return true;
+                }
+
+                VersionService.VersionOperationResult versionResult = versionService.createVersion(
+                    existingFile, content.getStoragePath(), content.getSizeBytes(), content.getFileHash(),
+                    "WebDAV文件更新（秒传）", currentUser.getId());
+                if (!versionResult.isSuccess()) {
+                    logger.warn("WebDAV秒传创建版本失败: {}", versionResult.getMessage());
+                    return false;
+                }
+
+                FileService.FileOperationResult updateResult = fileService.updateFileStorage(
+                    existingFile.getId(), content.getStoragePath(), content.getFileHash(),
+                    content.getSizeBytes(), currentUser.getId());
+                logger.info("WebDAV秒传更新文件: 文件ID={}, 成功={}", existingFile.getId(), updateResult.isSuccess());
+                return updateResult.isSuccess();
+            }
+
+            FileService.FileOperationResult result = fileService.createFileFromStorage(content, target.fileName,
+                FileUtils.getMimeType(target.fileName), target.space, target.parentFolder, currentUser.getId());
+            if (!result.isSuccess() || result.getFileEntity() == null) {
+                return false;
+            }
+
+            FileEntity newFile = result.getFileEntity();
+            VersionService.VersionOperationResult versionResult = versionService.createVersion(
+                newFile, newFile.getStoragePath(), newFile.getSizeBytes(),
+                newFile.getFileHash(), "初始版本 (WebDAV秒传)", currentUser.getId());
+            if (!versionResult.isSuccess()) {
+                logger.warn("WebDAV秒传文件版本初始化失败: {}", versionResult.getMessage());
+            }
+
+            logger.info("WebDAV秒传创建文件: {}", path);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("WebDAV秒传失败: {}", e.getMessage(), e);
+            return false;
+        } finally {
+            invalidateRequestContext();
         }
     }
 
@@ -434,7 +571,7 @@ public class LyraWebDavResourceService {
         }
         
         try {
-            LyraResource resource = getResource(path);
+            LyraResource resource = getResourceWithoutChildren(path);
             if (resource == null) {
                 logger.warn("资源不存在: {}", path);
                 return false;
@@ -458,9 +595,137 @@ public class LyraWebDavResourceService {
         } catch (Exception e) {
             logger.error("删除资源时出错: {}", e.getMessage(), e);
             return false;
+        } finally {
+            invalidateRequestContext();
         }
     }
 
+    /**
+     * 复制资源
+     * 文件与文件夹都只复制元数据，副本引用源文件的同一内容块；
+     * 覆盖已有目标时先在同一事务内彻底删除目标，复制失败则整体回滚
+     * 
+     * @param sourcePath 源资源路径
+     * @param destinationPath 目标资源路径
+     * @param overwrite 目标已存在时是否覆盖
+     * @param recursive 复制文件夹时是否包含其子项（Depth: infinity）
+     * @return 复制结果
+     */
+    @Transactional
+    public CopyStatus copyResource(String sourcePath, String destinationPath, boolean overwrite, boolean recursive) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            logger.warn("用户未认证，无法复制资源");
+            return CopyStatus.FAILED;
+        }
+
+        LyraResource source = getResourceWithoutChildren(sourcePath);
+        if (source == null) {
+            return CopyStatus.NOT_FOUND;
+        }
+
+        WebDavPathInfo targetInfo = parsePath(destinationPath);
+        UploadTarget target = resolveUploadTarget(targetInfo, currentUser);
+        if (target == null || target.fileName.isEmpty()) {
+            return CopyStatus.CONFLICT;
+        }
+
+        LyraResource existing = getResourceWithoutChildren(destinationPath);
+        // 源与目标相同或互相包含时覆盖会先删掉源本身（RFC 4918 §9.8.5），不做任何修改直接拒绝
+        if (overlaps(source, existing, target)) {
+            return CopyStatus.FORBIDDEN;
+        }
+        boolean existed = existing != null;
+        if (existed && !overwrite) {
+            return CopyStatus.PRECONDITION_FAILED;
+        }
+
+        logger.info("复制资源: {} -> {}", sourcePath, destinationPath);
+        try {
+            // 覆盖时在同一事务内彻底删除目标（文件夹连同子项），软删除的行会继续占用路径
+            if (existed && !purgeResource(existing, currentUser)) {
+                return rollbackAndFail();
+            }
+
+            boolean success;
+            if (source.isResource() && source.getFileEntity() != null) {
+                success = fileService.copyFile(source.getFileEntity().getId(), target.space, target.parentFolder,
+                                               target.fileName, currentUser.getId()).isSuccess();
+            } else if (source.isCollection() && source.getFolder() != null) {
+                success = recursive
+                    ? fileService.copyFolder(source.getFolder().getId(), target.space, target.parentFolder,
+                                             target.fileName, currentUser.getId()).isAllSuccess()
+                    : folderService.createFolder(target.fileName, target.parentFolder, target.space,
+                                                 currentUser.getId()).isSuccess();
+            } else {
+                // 空间根目录等虚拟集合不可复制
+                return CopyStatus.FORBIDDEN;
+            }
+
+            if (!success) {
+                return rollbackAndFail();
+            }
+            return existed ? CopyStatus.OVERWRITTEN : CopyStatus.CREATED;
+
+        } catch (Exception e) {
+            logger.error("复制资源时出错: {}", e.getMessage(), e);
+            return rollbackAndFail();
+        } finally {
+            invalidateRequestContext();
+        }
+    }
+
+    /**
+     * 源与目标是否为同一资源，或目标是源的祖先文件夹，或目标位于源文件夹之内
+     */
+    private boolean overlaps(LyraResource source, LyraResource existing, UploadTarget target) {
+        Folder sourceFolder = source.getFolder();
+        if (existing != null) {
+            if (source.getFileEntity() != null && existing.getFileEntity() != null
+                && Objects.equals(source.getFileEntity().getId(), existing.getFileEntity().getId())) {
+                return true;
+            }
+            if (existing.getFolder() != null) {
+                Folder ancestor = source.getFileEntity() != null ? source.getFileEntity().getFolder() : sourceFolder;
+                for (; ancestor != null; ancestor = ancestor.getParent()) {
+                    if (Objects.equals(ancestor.getId(), existing.getFolder().getId())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        if (sourceFolder != null) {
+            for (Folder ancestor = target.parentFolder; ancestor != null; ancestor = ancestor.getParent()) {
+                if (Objects.equals(ancestor.getId(), sourceFolder.getId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 彻底删除被覆盖的目标资源，释放其路径
+     */
+    private boolean purgeResource(LyraResource resource, User currentUser) {
+        if (resource.getFileEntity() != null) {
+            return fileService.permanentDeleteFile(resource.getFileEntity().getId(), currentUser.getId());
+        }
+        if (resource.getFolder() != null) {
+            return fileService.permanentDeleteFolder(resource.getFolder().getId(), currentUser.getId());
+        }
+        // 空间根目录等虚拟集合不可被覆盖
+        return false;
+    }
+
+    /**
+     * 复制失败时回滚已删除的目标，避免覆盖只完成一半
+     */
+    private CopyStatus rollbackAndFail() {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        return CopyStatus.FAILED;
+    }
+
     // 私有辅助方法
 
     /**
@@ -495,7 +760,7 @@ public class LyraWebDavResourceService {
     /**
      * 获取空间资源
      */
-    private LyraResource getSpaceResource(WebDavPathInfo pathInfo, User currentUser) {
+    private LyraResource getSpaceResource(WebDavPathInfo pathInfo, User currentUser, boolean withChildren) {
         if (pathInfo.getSpacePath() == null || pathInfo.getSpacePath().isEmpty()) {
             // 返回空间列表
             return createSpaceListResource(pathInfo, currentUser);
@@ -509,11 +774,11 @@ public class LyraWebDavResourceService {
         
         if (pathInfo.getFilePath() == null || pathInfo.getFilePath().isEmpty()) {
             // 返回空间根目录
-            return createSpaceRootResource(space, pathInfo);
+            return createSpaceRootResource(space, pathInfo, withChildren);
         }
         
         // 返回空间内的文件或文件夹
-        return createFileSystemResource(space, pathInfo);
+        return createFileSystemResource(space, pathInfo, withChildren);
     }
 
     /**
@@ -526,7 +791,7 @@ public class LyraWebDavResourceService {
             Space.SpaceType spaceType = pathInfo.getType() == WebDavPathType.PERSONAL ? 
                                       Space.SpaceType.PERSONAL : Space.SpaceType.ENTERPRISE;
             
-            List<Space> spaces = spaceRepository.findByOwnerAndType(currentUser, spaceType);
+            List<Space> spaces = findSpaces(currentUser, spaceType);
             
             for (Space space : spaces) {
                 String childPath = "/webdav/" + pathInfo.getType().name().toLowerCase() + "/" + space.getName();
@@ -548,90 +813,115 @@ public class LyraWebDavResourceService {
     /**
      * 创建空间根目录资源
      */
-    private LyraResource createSpaceRootResource(Space space, WebDavPathInfo pathInfo) {
-        List<LyraResource> children = new ArrayList<>();
+    private LyraResource createSpaceRootResource(Space space, WebDavPathInfo pathInfo, boolean withChildren) {
         String basePath = "/webdav/" + pathInfo.getType().name().toLowerCase() + "/" + space.getName();
-        
-        // 获取根文件夹列表
-        List<Folder> rootFolders = folderService.getRootFolders(space);
-        for (Folder folder : rootFolders) {
-            String childPath = basePath + "/" + folder.getName();
-            children.add(LyraResource.fromFolder(folder, childPath));
-        }
-        
-        // 获取根文件列表 - 需要实现在服务层
-        List<FileEntity> rootFiles = fileService.getFilesBySpace(space, false)
-                .stream()
-                .filter(file -> file.getFolder() == null)
-                .limit(100)
-                .toList();
-        for (FileEntity file : rootFiles) {
-            String childPath = basePath + "/" + file.getName();
-            children.add(LyraResource.fromFileEntity(file, childPath));
+        if (!withChildren) {
+            return LyraResource.fromSpace(space, basePath);
         }
         
         return LyraResource.fromSpace(space, basePath)
                 .toBuilder()
-                .children(children)
+                .children(listChildResources(space, null, basePath))
                 .build();
     }
 
     /**
      * 创建文件系统资源
      */
-    private LyraResource createFileSystemResource(Space space, WebDavPathInfo pathInfo) {
+    private LyraResource createFileSystemResource(Space space, WebDavPathInfo pathInfo, boolean withChildren) {
         String filePath = pathInfo.getFilePath();
         
         // 首先尝试查找文件
         logger.debug("查找文件: space={}, filePath={}", space.getName(), filePath);
-        Optional<FileEntity> fileOpt = fileService.getFileByPath(space, filePath);
+        Optional<FileEntity> fileOpt = findFile(space, filePath);
         if (fileOpt.isPresent()) {
             logger.debug("找到文件: {}", fileOpt.get().getName());
             String fullPath = "/webdav/" + pathInfo.getType().name().toLowerCase() +
                             "/" + pathInfo.getSpacePath() + "/" + filePath;
-            return createFileResourceWithVersionInfo(fileOpt.get(), fullPath);
+            // 只需资源本身时不查询版本信息，PROPFIND 按需批量获取
+            return withChildren
+                    ? createFileResourceWithVersionInfo(fileOpt.get(), fullPath)
+                    : LyraResource.fromFileEntity(fileOpt.get(), fullPath);
         } else {
             logger.debug("未找到文件: space={}, filePath={}", space.getName(), filePath);
         }
         
         // 然后尝试查找文件夹
-        Optional<Folder> folderOpt = folderService.getFolderByPath(space, filePath);
+        Optional<Folder> folderOpt = findFolder(space, filePath);
         if (folderOpt.isPresent()) {
             Folder folder = folderOpt.get();
             String fullPath = "/webdav/" + pathInfo.getType().name().toLowerCase() + 
                             "/" + pathInfo.getSpacePath() + "/" + filePath;
-            
-            // 获取子资源
-            List<LyraResource> children = new ArrayList<>();
-            String basePath = fullPath;
-            
-            // 获取子文件夹
-            List<Folder> subFolders = folderService.getChildFolders(folder);
-            for (Folder subFolder : subFolders) {
-                String childPath = basePath + "/" + subFolder.getName();
-                children.add(LyraResource.fromFolder(subFolder, childPath));
-            }
-            
-            // 获取文件 - 需要实现在服务层
-            List<FileEntity> files = fileService.getFilesBySpace(space, false)
-                    .stream()
-                    .filter(file -> folder.equals(file.getFolder()))
-                    .limit(100)
-                    .toList();
-            for (FileEntity file : files) {
-                String childPath = basePath + "/" + file.getName();
-                children.add(LyraResource.fromFileEntity(file, childPath));
+            if (!withChildren) {
+                return LyraResource.fromFolder(folder, fullPath);
             }
             
             return LyraResource.fromFolder(folder, fullPath)
                     .toBuilder()
-                    .children(children)
+                    .children(listChildResources(space, folder, fullPath))
                     .build();
         }
         
         return null;
     }
 
+    /**
+     * 按键集分页读取文件夹（null表示空间根目录）的全部直接子资源，只查询该文件夹下的行
+     */
+    private List<LyraResource> listChildResources(Space space, Folder folder, String basePath) {
+        List<LyraResource> children = new ArrayList<>();
+        String cursor = null;
+        do {
+            FolderService.ChildPage page = folderService.listChildren(space, folder, cursor, CHILD_PAGE_SIZE);
+            for (FolderService.FolderChild child : page.getChildren()) {
+                String childPath = basePath + "/" + child.getName();
+                children.add(child.isFolder()
+                        ? LyraResource.fromFolder(child.getFolder(), childPath)
+                        : LyraResource.fromFileEntity(child.getFile(), childPath));
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return children;
+    }
+
+    /**
+     * 解析上传目标（空间、父文件夹和文件名）
+     */
+    private UploadTarget resolveUploadTarget(WebDavPathInfo pathInfo, User currentUser) {
+        Space space = findSpace(pathInfo, currentUser);
+        if (space == null) {
+            logger.warn("找不到对应的空间: {}", pathInfo);
+            return null;
+        }
+
+        Folder parentFolder = null;
+        String parentPath = extractParentPath(pathInfo.getFilePath());
+        if (!parentPath.isEmpty()) {
+            parentFolder = findFolder(space, parentPath).orElse(null);
+            if (parentFolder == null) {
+                logger.warn("父文件夹不存在: {}", parentPath);
+                return null;
+            }
+        }
+
+        return new UploadTarget(space, parentFolder, extractLastPathComponent(pathInfo.getFilePath()));
+    }
+
+    /**
+     * 上传目标
+     */
+    private static class UploadTarget {
+        private final Space space;
+        private final Folder parentFolder;
+        private final String fileName;
+
+        private UploadTarget(Space space, Folder parentFolder, String fileName) {
+            this.space = space;
+            this.parentFolder = parentFolder;
+            this.fileName = fileName;
+        }
+    }
+
     /**
      * 查找空间
      */
@@ -647,7 +937,7 @@ public class LyraWebDavResourceService {
         logger.debug("查找空间: user={}, spaceType={}, spacePath={}", currentUser.getUsername(), spaceType, pathInfo.getSpacePath());
 
         // 查找用户的对应类型的空间，然后按名称过滤
-        List<Space> spaces = spaceRepository.findByOwnerAndType(currentUser, spaceType);
+        List<Space> spaces = findSpaces(currentUser, spaceType);
         logger.debug("找到用户空间数量: {}", spaces.size());
 
         Space foundSpace = spaces.stream()
@@ -659,6 +949,90 @@ public class LyraWebDavResourceService {
         return foundSpace;
     }
 
+    /**
+     * 查找用户某类型的空间，请求内只查询一次
+     */
+    private List<Space> findSpaces(User owner, Space.SpaceType spaceType) {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        if (context != null) {
+            return context.getSpaces(owner, spaceType, () -> spaceRepository.findByOwnerAndType(owner, spaceType));
+        }
+        return spaceRepository.findByOwnerAndType(owner, spaceType);
+    }
+
+    /**
+     * 按路径查找文件夹，请求内同一路径只查询一次
+     */
+    private Optional<Folder> findFolder(Space space, String path) {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        if (context != null) {
+            return context.getFolder(space, path, () -> loadFolder(space, path));
+        }
+        return loadFolder(space, path);
+    }
+
+    /**
+     * 按路径查找文件：路径索引命中时按ID读取，未命中时按路径查询数据库
+     */
+    private Optional<FileEntity> findFile(Space space, String path) {
+        Optional<WebDavPathIndex.Entry> entry = pathIndex.resolve(space, path, isIgnoreCase());
+        if (entry.isPresent()) {
+            Long fileId = entry.get().getFileId();
+            if (fileId == null) {
+                return Optional.empty();
+            }
+            Optional<FileEntity> file = fileService.getFileById(fileId);
+            if (file.isPresent()) {
+                return file;
+            }
+        }
+        Optional<FileEntity> file = fileService.getFileByPath(space, path);
+        if (entry.isPresent() || file.isPresent()) {
+            pathIndex.markStale(space.getId());
+        }
+        return file;
+    }
+
+    /**
+     * 按路径加载文件夹：路径索引命中时按ID读取，未命中时按路径查询数据库
+     */
+    private Optional<Folder> loadFolder(Space space, String path) {
+        Optional<WebDavPathIndex.Entry> entry = pathIndex.resolve(space, path, isIgnoreCase());
+        if (entry.isPresent()) {
+            Long folderId = entry.get().getFolderId();
+            if (folderId == null) {
+                return Optional.empty();
+            }
+            Optional<Folder> folder = folderService.getFolderById(folderId);
+            if (folder.isPresent()) {
+                return folder;
+            }
+        }
+        Optional<Folder> folder = folderService.getFolderByPath(space, path);
+        if (entry.isPresent() || folder.isPresent()) {
+            pathIndex.markStale(space.getId());
+        }
+        return folder;
+    }
+
+    /**
+     * 当前请求是否按不区分大小写解析路径
+     */
+    private boolean isIgnoreCase() {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        return context != null && context.isIgnoreCase();
+    }
+
+    /**
+     * 资源变更后清除请求内已解析的路径
+     */
+    private void invalidateRequestContext() {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        if (context != null) {
+            context.invalidateResources();
+        }
+    }
+
     /**
      * 提取路径的最后一个组件
      */
@@ -688,11 +1062,10 @@ public class LyraWebDavResourceService {
      */
     private LyraResource createFileResourceWithVersionInfo(FileEntity fileEntity, String webdavPath) {
         try {
-            // 获取版本统计信息
-            VersionService.VersionStatistics versionStats = versionService.getVersionStatistics(fileEntity);
-            
-            // 获取最新版本
-            Optional<FileVersion> latestVersionOpt = versionService.getLatestVersion(fileEntity);
+            // 一次聚合查询获取版本数、最新版本号和备注，不加载历史版本
+            VersionService.VersionSummary summary = versionService
+                    .getVersionSummaries(List.of(fileEntity.getId()))
+                    .get(fileEntity.getId());
             
             // 构建带版本信息的资源
             LyraResource.Builder builder = LyraResource.file()
@@ -708,15 +1081,14 @@ public class LyraWebDavResourceService {
                     .fileEntity(fileEntity);
             
             // 添加版本信息
-            if (versionStats != null) {
-                builder.totalVersionCount(versionStats.getTotalVersions())
-                       .currentVersionNumber(versionStats.getMaxVersionNumber());
-            }
-            
-            if (latestVersionOpt.isPresent()) {
-                FileVersion latestVersion = latestVersionOpt.get();
-                builder.latestVersionComment(latestVersion.getChangeComment())
-                       .latestVersionDate(toDate(latestVersion.getCreatedAt()));
+            if (summary != null) {
+                builder.totalVersionCount(summary.getTotalVersions())
+                       .currentVersionNumber(summary.getLatestVersionNumber())
+                       .latestVersionComment(summary.getLatestComment())
+                       .latestVersionDate(toDate(summary.getLatestVersionTime()));
+            } else {
+                builder.totalVersionCount(0L)
+                       .currentVersionNumber(0);
             }
             
             return builder.build();
@@ -742,7 +1114,8 @@ public class LyraWebDavResourceService {
      * 生成ETag
      */
     private static String generateEtag(FileEntity fileEntity) {
-        return "\"" + Math.abs(java.util.Objects.hash(fileEntity.getId(), fileEntity.getUpdatedAt())) + "\"";
+        // 与GET响应保持一致，便于客户端用PROPFIND结果发起条件请求
+        return tslc.beihaiyun.lyra.service.FileDownloadService.buildETag(fileEntity);
     }
 
     /**
@@ -780,6 +1153,26 @@ public class LyraWebDavResourceService {
         }
     }
 
+    /**
+     * 资源复制结果
+     */
+    public enum CopyStatus {
+        /** 已创建新资源 */
+        CREATED,
+        /** 已覆盖原有资源 */
+        OVERWRITTEN,
+        /** 源资源不存在 */
+        NOT_FOUND,
+        /** 目标父集合不存在 */
+        CONFLICT,
+        /** 目标已存在且不允许覆盖 */
+        PRECONDITION_FAILED,
+        /** 源资源不可复制 */
+        FORBIDDEN,
+        /** 复制失败 */
+        FAILED
+    }
+
     /**
      * WebDAV 路径类型
      */
@@ -0,0 +1,369 @@
+package tslc.beihaiyun.lyra.webdav;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.service.FileChangedEvent;
+import tslc.beihaiyun.lyra.service.FolderChangedEvent;
+
+/**
+ * WebDAV 路径索引
+ *
+ * 为每个空间在内存中维护一棵路径前缀树，把文件夹和文件路径解析为ID，
+ * 命中时无需按路径查询数据库，也无需在文件和文件夹之间来回回退查询。
+ * 索引在首次访问时按空间构建；文件变更事件在事务提交后增量更新，
+ * 文件夹变更（可能连带改变子项路径）使整个空间的索引失效，下次访问时重建。
+ * 索引只作加速，未命中时调用方仍应查询数据库
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class WebDavPathIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebDavPathIndex.class);
+
+    private final FolderRepository folderRepository;
+    private final FileEntityRepository fileEntityRepository;
+    private final LyraProperties lyraProperties;
+
+    private final Map<Long, SpaceIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<Long, Object> buildLocks = new ConcurrentHashMap<>();
+
+    public WebDavPathIndex(FolderRepository folderRepository,
+                           FileEntityRepository fileEntityRepository,
+                           LyraProperties lyraProperties) {
+        this.folderRepository = folderRepository;
+        this.fileEntityRepository = fileEntityRepository;
+        this.lyraProperties = lyraProperties;
+    }
+
+    /**
+     * 解析空间内的路径
+     *
+     * @param space 空间
+     * @param path 空间内路径（有无前导斜杠均可）
+     * @param ignoreCase 精确匹配失败时是否按不区分大小写匹配
+     * @return 路径对应的索引项，未命中或空间未建索引时为空
+     */
+    public Optional<Entry> resolve(Space space, String path, boolean ignoreCase) {
+        if (space == null || space.getId() == null || path == null) {
+            return Optional.empty();
+        }
+        List<String> segments = split(path);
+        if (segments.isEmpty()) {
+            return Optional.empty();
+        }
+        SpaceIndex index = indexFor(space);
+        return index != null ? Optional.ofNullable(index.lookup(segments, ignoreCase)) : Optional.empty();
+    }
+
+    /**
+     * 使空间的索引失效，下次访问时重建
+     *
+     * @param spaceId 空间ID
+     */
+    public void invalidate(Long spaceId) {
+        if (spaceId == null) {
+            return;
+        }
+        versionOf(spaceId).incrementAndGet();
+        if (indexes.remove(spaceId) != null) {
+            logger.debug("路径索引已失效: spaceId={}", spaceId);
+        }
+    }
+
+    /**
+     * 索引与数据库不一致时调用（索引未命中而数据库命中，或索引项指向的记录已不存在），
+     * 使已建立的索引失效；未建索引的空间不受影响
+     *
+     * @param spaceId 空间ID
+     */
+    public void markStale(Long spaceId) {
+        SpaceIndex index = spaceId != null ? indexes.get(spaceId) : null;
+        if (index != null && !index.oversized) {
+            logger.debug("路径索引与数据库不一致，重建: spaceId={}", spaceId);
+            invalidate(spaceId);
+        }
+    }
+
+    /**
+     * 文件变更后增量更新索引；处于事务中时在提交后更新
+     *
+     * @param event 文件变更事件
+     */
+    @EventListener
+    public void onFileChanged(FileChangedEvent event) {
+        afterCommit(() -> apply(event));
+    }
+
+    /**
+     * 文件夹变更后使所在空间的索引失效；处于事务中时在提交后失效
+     *
+     * @param event 文件夹变更事件
+     */
+    @EventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        afterCommit(() -> invalidate(event.getSpaceId()));
+    }
+
+    // ==================== 索引维护 ====================
+
+    private void apply(FileChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED -> putFile(event.getNewSpaceId(), event.getNewPath(), event.getFileId());
+            case RELOCATED -> {
+                removeFile(event.getOldSpaceId(), event.getOldPath(), event.getFileId());
+                putFile(event.getNewSpaceId(), event.getNewPath(), event.getFileId());
+            }
+            case REMOVED -> removeFile(event.getOldSpaceId(), event.getOldPath(), event.getFileId());
+            default -> {
+                // 原位置更新不改变路径
+            }
+        }
+    }
+
+    private void putFile(Long spaceId, String path, Long fileId) {
+        if (spaceId == null || path == null) {
+            return;
+        }
+        versionOf(spaceId).incrementAndGet();
+        SpaceIndex index = indexes.get(spaceId);
+        if (index != null && !index.oversized) {
+            index.put(split(path), fileId, false);
+        }
+    }
+
+    private void removeFile(Long spaceId, String path, Long fileId) {
+        if (spaceId == null || path == null) {
+            return;
+        }
+        versionOf(spaceId).incrementAndGet();
+        SpaceIndex index = indexes.get(spaceId);
+        if (index != null && !index.oversized) {
+            index.remove(split(path), fileId, false);
+        }
+    }
+
+    private SpaceIndex indexFor(Space space) {
+        Long spaceId = space.getId();
+        SpaceIndex index = indexes.get(spaceId);
+        if (index == null) {
+            synchronized (buildLocks.computeIfAbsent(spaceId, id -> new Object())) {
+                index = indexes.get(spaceId);
+                if (index == null) {
+                    index = build(space);
+                }
+            }
+        }
+        index.lastAccess = System.nanoTime();
+        return index.oversized ? null : index;
+    }
+
+    /**
+     * 构建空间索引；构建期间有变更提交时不安装结果，避免覆盖增量更新
+     */
+    private SpaceIndex build(Space space) {
+        Long spaceId = space.getId();
+        AtomicLong version = versionOf(spaceId);
+        long startVersion = version.get();
+        LyraProperties.WebDavConfig config = lyraProperties.getWebdav();
+
+        SpaceIndex index = new SpaceIndex();
+        long entries = folderRepository.countBySpace(space) + fileEntityRepository.countBySpace(space);
+        if (entries > config.getPathIndexMaxEntries()) {
+            index.oversized = true;
+            logger.info("空间条目过多，不建立路径索引: spaceId={}, entries={}", spaceId, entries);
+        } else {
+            for (Object[] row : folderRepository.findIdAndPathBySpace(space)) {
+                index.put(split((String) row[1]), (Long) row[0], true);
+            }
+            for (Object[] row : fileEntityRepository.findIdAndPathBySpace(space)) {
+                index.put(split((String) row[1]), (Long) row[0], false);
+            }
+            logger.debug("路径索引已构建: spaceId={}, entries={}", spaceId, entries);
+        }
+
+        if (version.get() == startVersion) {
+            evictIfFull(config.getPathIndexMaxSpaces());
+            indexes.put(spaceId, index);
+        }
+        return index;
+    }
+
+    private void evictIfFull(int maxSpaces) {
+        while (indexes.size() >= maxSpaces) {
+            Long eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<Long, SpaceIndex> entry : indexes.entrySet()) {
+                if (entry.getValue().lastAccess < eldestAccess) {
+                    eldest = entry.getKey();
+                    eldestAccess = entry.getValue().lastAccess;
+                }
+            }
+            if (eldest == null || indexes.remove(eldest) == null) {
+                return;
+            }
+        }
+    }
+
+    private AtomicLong versionOf(Long spaceId) {
+        return versions.computeIfAbsent(spaceId, id -> new AtomicLong());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    static List<String> split(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 路径索引项：同一路径可能同时存在文件夹和文件
+     */
+    public static final class Entry {
+        private final Long folderId;
+        private final Long fileId;
+
+        private Entry(Long folderId, Long fileId) {
+            this.folderId = folderId;
+            this.fileId = fileId;
+        }
+
+        public Long getFolderId() { return folderId; }
+        public Long getFileId() { return fileId; }
+    }
+
+    /**
+     * 前缀树节点，读取无锁，写入由所属空间索引串行化
+     */
+    private static final class Node {
+        private volatile Long folderId;
+        private volatile Long fileId;
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private final Map<String, Node> foldedChildren = new ConcurrentHashMap<>();
+
+        private boolean isEmpty() {
+            return folderId == null && fileId == null && children.isEmpty();
+        }
+    }
+
+    /**
+     * 单个空间的路径前缀树
+     */
+    private static final class SpaceIndex {
+        private final Node root = new Node();
+        private volatile boolean oversized;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry lookup(List<String> segments, boolean ignoreCase) {
+            Node node = root;
+            for (String segment : segments) {
+                Node next = node.children.get(segment);
+                if (next == null && ignoreCase) {
+                    next = node.foldedChildren.get(fold(segment));
+                }
+                if (next == null) {
+                    return null;
+                }
+                node = next;
+            }
+            Long folderId = node.folderId;
+            Long fileId = node.fileId;
+            return folderId != null || fileId != null ? new Entry(folderId, fileId) : null;
+        }
+
+        private synchronized void put(List<String> segments, Long id, boolean folder) {
+            if (segments.isEmpty() || id == null) {
+                return;
+            }
+            Node node = root;
+            for (String segment : segments) {
+                Node parent = node;
+                node = parent.children.computeIfAbsent(segment, key -> new Node());
+                parent.foldedChildren.putIfAbsent(fold(segment), node);
+            }
+            if (folder) {
+                node.folderId = id;
+            } else {
+                node.fileId = id;
+            }
+        }
+
+        private synchronized void remove(List<String> segments, Long id, boolean folder) {
+            if (segments.isEmpty()) {
+                return;
+            }
+            Node[] path = new Node[segments.size() + 1];
+            path[0] = root;
+            for (int i = 0; i < segments.size(); i++) {
+                path[i + 1] = path[i].children.get(segments.get(i));
+                if (path[i + 1] == null) {
+                    return;
+                }
+            }
+
+            // 只移除仍指向该ID的条目，保证乱序到达的事件不会误删新条目
+            Node target = path[segments.size()];
+            if (folder && id.equals(target.folderId)) {
+                target.folderId = null;
+            } else if (!folder && id.equals(target.fileId)) {
+                target.fileId = null;
+            }
+
+            for (int i = segments.size(); i > 0 && path[i].isEmpty(); i--) {
+                Node parent = path[i - 1];
+                String name = segments.get(i - 1);
+                parent.children.remove(name);
+                String folded = fold(name);
+                if (parent.foldedChildren.remove(folded, path[i])) {
+                    parent.children.forEach((sibling, node) -> {
+                        if (fold(sibling).equals(folded)) {
+                            parent.foldedChildren.putIfAbsent(folded, node);
+                        }
+                    });
+                }
+            }
+        }
+    }
+}
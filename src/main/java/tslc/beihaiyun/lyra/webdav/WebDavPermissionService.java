@@ -64,6 +64,11 @@ public class WebDavPermissionService {
      * @return 当前用户，如果未认证则返回null
      */
     public User getCurrentUser() {
+        WebDavRequestContext context = WebDavRequestContext.current();
+        return context != null ? context.getUser(this::loadCurrentUser) : loadCurrentUser();
+    }
+
+    private User loadCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.getPrincipal() instanceof LyraUserPrincipal) {
             LyraUserPrincipal principal = (LyraUserPrincipal) auth.getPrincipal();
@@ -0,0 +1,455 @@
+package tslc.beihaiyun.lyra.webdav;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Folder;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.service.FolderService;
+import tslc.beihaiyun.lyra.service.VersionService;
+
+/**
+ * WebDAV PROPFIND 响应流式写出器
+ *
+ * 通过XML流写出器将 D:response 逐条直接写入输出流，子资源按页从数据库读取，
+ * 内存占用只与遍历深度和分页大小相关；支持 Depth: 0/1/infinity，
+ * 遍历深度和响应资源数受配置上限约束。集合的href以"/"结尾，部分客户端（如Finder、Windows迷你重定向器）
+ * 依此区分集合与文件。版本属性只在请求体点名 lyra 命名空间属性时写出，
+ * 并按页一次聚合查询所有文件的版本摘要
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@Service
+public class WebDavPropfindWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebDavPropfindWriter.class);
+
+    /**
+     * DAV 命名空间
+     */
+    public static final String DAV_NAMESPACE = "DAV:";
+
+    /**
+     * Lyra 自定义属性命名空间
+     */
+    public static final String LYRA_NAMESPACE = "http://lyra.beihaiyun.tslc/webdav";
+
+    /**
+     * Depth: infinity
+     */
+    public static final int DEPTH_INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * 无法识别的Depth请求头
+     */
+    public static final int DEPTH_INVALID = -1;
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT =
+        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final FolderService folderService;
+    private final VersionService versionService;
+    private final LyraWebDavResourceService resourceService;
+    private final LyraProperties lyraProperties;
+
+    public WebDavPropfindWriter(FolderService folderService,
+                                VersionService versionService,
+                                LyraWebDavResourceService resourceService,
+                                LyraProperties lyraProperties) {
+        this.folderService = folderService;
+        this.versionService = versionService;
+        this.resourceService = resourceService;
+        this.lyraProperties = lyraProperties;
+    }
+
+    /**
+     * 解析Depth请求头，缺省时按 RFC 4918 视为 infinity
+     *
+     * @param header Depth请求头
+     * @return 0、1、DEPTH_INFINITY，无法识别时返回DEPTH_INVALID
+     */
+    public static int parseDepth(String header) {
+        if (header == null) {
+            return DEPTH_INFINITY;
+        }
+        return switch (header.trim().toLowerCase()) {
+            case "0" -> 0;
+            case "1" -> 1;
+            case "infinity" -> DEPTH_INFINITY;
+            default -> DEPTH_INVALID;
+        };
+    }
+
+    /**
+     * 解析PROPFIND请求体，判断是否请求了版本属性（lyra 命名空间下的属性）
+     * 空请求体等同 allprop，按 RFC 4918 不包含自定义的实时属性
+     *
+     * @param body 请求体
+     * @return 请求体点名了 lyra 命名空间属性时为true
+     * @throws IOException 读取请求体异常
+     * @throws IllegalArgumentException 请求体不是合法的XML
+     */
+    public static boolean requestsVersionProperties(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 1);
+        int first = in.read();
+        if (first == -1) {
+            return false;
+        }
+        in.unread(first);
+
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && LYRA_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("无效的PROPFIND请求体: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 是否接受 Depth: infinity 请求
+     *
+     * @return 配置的最大遍历深度大于0时接受
+     */
+    public boolean isInfinityAllowed() {
+        return lyraProperties.getWebdav().getPropfindMaxDepth() > 0;
+    }
+
+    /**
+     * 写出拒绝 Depth: infinity 时的错误响应体（DAV:propfind-finite-depth）
+     *
+     * @param out 输出流
+     * @throws IOException 写出异常
+     */
+    public void writeFiniteDepthError(OutputStream out) throws IOException {
+        try {
+            XMLStreamWriter xml = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            xml.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            xml.setPrefix("D", DAV_NAMESPACE);
+            xml.writeStartElement(DAV_NAMESPACE, "error");
+            xml.writeNamespace("D", DAV_NAMESPACE);
+            xml.writeEmptyElement(DAV_NAMESPACE, "propfind-finite-depth");
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("写出PROPFIND错误响应失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 流式写出PROPFIND多状态响应
+     *
+     * @param resource 请求的资源
+     * @param href 请求资源的href（已编码的请求URI）
+     * @param depth 请求深度（0、1或DEPTH_INFINITY）
+     * @param versionProperties 是否写出文件的版本属性
+     * @param out 输出流
+     * @return 写出的资源数
+     * @throws IOException 写出异常
+     */
+    public int write(LyraResource resource, String href, int depth, boolean versionProperties,
+                     OutputStream out) throws IOException {
+        LyraProperties.WebDavConfig config = lyraProperties.getWebdav();
+        int maxDepth = depth == DEPTH_INFINITY ? config.getPropfindMaxDepth() : depth;
+
+        try {
+            XMLStreamWriter xml = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            xml.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            xml.setPrefix("D", DAV_NAMESPACE);
+            xml.setPrefix("lyra", LYRA_NAMESPACE);
+            xml.writeStartElement(DAV_NAMESPACE, "multistatus");
+            xml.writeNamespace("D", DAV_NAMESPACE);
+            xml.writeNamespace("lyra", LYRA_NAMESPACE);
+
+            Traversal traversal = new Traversal(xml, href, config.getPropfindMaxResources(),
+                                                config.getPropfindPageSize(), versionProperties);
+            String rootHref = stripTrailingSlash(href);
+            List<FolderService.FolderChild> root = resource.getFileEntity() != null
+                ? List.of(FolderService.FolderChild.of(resource.getFileEntity()))
+                : List.of();
+            if (traversal.emit(resource, rootHref, traversal.versionsOf(root))) {
+                traversal.walkChildren(resource, rootHref, maxDepth);
+            }
+
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+
+            logger.debug("PROPFIND 响应完成: href={}, depth={}, resources={}, truncated={}",
+                        href, depth, traversal.written, traversal.truncated);
+            return traversal.written;
+        } catch (XMLStreamException e) {
+            throw new IOException("写出PROPFIND响应失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== 遍历 ====================
+
+    /**
+     * 单次PROPFIND的遍历状态
+     */
+    private class Traversal {
+        private final XMLStreamWriter xml;
+        private final String requestHref;
+        private final int maxResources;
+        private final int pageSize;
+        private final boolean versionProperties;
+        private int written;
+        private boolean truncated;
+
+        private Traversal(XMLStreamWriter xml, String requestHref, int maxResources, int pageSize,
+                          boolean versionProperties) {
+            this.xml = xml;
+            this.requestHref = requestHref;
+            this.maxResources = maxResources;
+            this.pageSize = pageSize;
+            this.versionProperties = versionProperties;
+        }
+
+        /**
+         * 写出集合的子资源，并在剩余深度内递归
+         *
+         * @return 是否继续遍历（达到资源数上限时为false）
+         */
+        private boolean walkChildren(LyraResource collection, String href, int remainingDepth)
+                throws XMLStreamException {
+            if (remainingDepth <= 0 || !collection.isCollection()) {
+                return true;
+            }
+
+            Folder folder = collection.getFolder();
+            Space space = collection.getSpace();
+            if (folder != null || space != null) {
+                return walkListing(folder != null ? folder.getSpace() : space, folder, href, remainingDepth);
+            }
+
+            // 系统根目录和空间列表：子资源数量很少，直接使用资源服务构建的子节点
+            for (LyraResource child : collection.getChildren()) {
+                String childHref = childHref(href, child.getName());
+                if (!emit(child, childHref, null)) {
+                    return false;
+                }
+                if (remainingDepth > 1) {
+                    LyraResource expanded = child.getSpace() != null ? child : resourceService.getResourceWithoutChildren(child.getPath());
+                    if (expanded != null && !walkChildren(expanded, childHref, remainingDepth - 1)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 按键集分页逐页写出文件夹（或空间根目录）的直接子项，子文件夹写出后立即递归
+         */
+        private boolean walkListing(Space space, Folder folder, String href, int remainingDepth)
+                throws XMLStreamException {
+            String cursor = null;
+            do {
+                FolderService.ChildPage page = folderService.listChildren(space, folder, cursor, pageSize);
+                Map<Long, VersionService.VersionSummary> versions = versionsOf(page.getChildren());
+                for (FolderService.FolderChild child : page.getChildren()) {
+                    String childHref = childHref(href, child.getName());
+                    LyraResource resource = child.isFolder()
+                        ? LyraResource.fromFolder(child.getFolder(), childHref)
+                        : LyraResource.fromFileEntity(child.getFile(), childHref);
+                    if (!emit(resource, childHref, versions)) {
+                        return false;
+                    }
+                    if (child.isFolder() && !walkChildren(resource, childHref, remainingDepth - 1)) {
+                        return false;
+                    }
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            return true;
+        }
+
+        /**
+         * 一次聚合查询一页中所有文件的版本摘要
+         *
+         * @return 未请求版本属性时为null
+         */
+        private Map<Long, VersionService.VersionSummary> versionsOf(List<FolderService.FolderChild> children) {
+            if (!versionProperties) {
+                return null;
+            }
+            List<Long> fileIds = new ArrayList<>();
+            for (FolderService.FolderChild child : children) {
+                if (!child.isFolder() && child.getId() != null) {
+                    fileIds.add(child.getId());
+                }
+            }
+            return fileIds.isEmpty() ? Collections.emptyMap() : versionService.getVersionSummaries(fileIds);
+        }
+
+        /**
+         * 写出一个资源；达到资源数上限时改为针对请求URI写出507截断响应
+         *
+         * @param versions 本页文件的版本摘要，未请求版本属性时为null
+         * @return 是否继续遍历
+         */
+        private boolean emit(LyraResource resource, String href, Map<Long, VersionService.VersionSummary> versions)
+                throws XMLStreamException {
+            if (written >= maxResources) {
+                writeTruncated();
+                return false;
+            }
+            writeResponse(xml, resource, href, versions);
+            written++;
+            if (written % pageSize == 0) {
+                xml.flush();
+            }
+            return true;
+        }
+
+        private void writeTruncated() throws XMLStreamException {
+            truncated = true;
+            xml.writeStartElement(DAV_NAMESPACE, "response");
+            writeTextElement(xml, DAV_NAMESPACE, "href", requestHref);
+            writeTextElement(xml, DAV_NAMESPACE, "status", "HTTP/1.1 507 Insufficient Storage");
+            writeTextElement(xml, DAV_NAMESPACE, "responsedescription",
+                             "响应资源数超过上限 " + maxResources + "，请缩小范围后重试");
+            xml.writeEndElement();
+            logger.warn("PROPFIND 响应资源数达到上限，已截断: href={}, limit={}", requestHref, maxResources);
+        }
+    }
+
+    // ==================== 属性写出 ====================
+
+    private static void writeResponse(XMLStreamWriter xml, LyraResource resource, String href,
+                                      Map<Long, VersionService.VersionSummary> versions)
+            throws XMLStreamException {
+        xml.writeStartElement(DAV_NAMESPACE, "response");
+        writeTextElement(xml, DAV_NAMESPACE, "href",
+                         resource.isCollection() && !href.endsWith("/") ? href + "/" : href);
+        xml.writeStartElement(DAV_NAMESPACE, "propstat");
+        xml.writeStartElement(DAV_NAMESPACE, "prop");
+
+        xml.writeStartElement(DAV_NAMESPACE, "resourcetype");
+        if (resource.isCollection()) {
+            xml.writeEmptyElement(DAV_NAMESPACE, "collection");
+        }
+        xml.writeEndElement();
+
+        if (resource.getName() != null && !resource.getName().isEmpty()) {
+            writeTextElement(xml, DAV_NAMESPACE, "displayname", resource.getName());
+        }
+        if (!resource.isCollection()) {
+            writeTextElement(xml, DAV_NAMESPACE, "getcontentlength", String.valueOf(resource.getActualSize()));
+        }
+        writeTextElement(xml, DAV_NAMESPACE, "getcontenttype", resource.getActualContentType());
+        if (resource.getLastModified() != null) {
+            writeTextElement(xml, DAV_NAMESPACE, "getlastmodified", formatHttpDate(resource.getLastModified()));
+        }
+        if (resource.getCreationDate() != null) {
+            writeTextElement(xml, DAV_NAMESPACE, "creationdate", resource.getCreationDate().toInstant().toString());
+        }
+        if (resource.getEtag() != null) {
+            writeTextElement(xml, DAV_NAMESPACE, "getetag", resource.getEtag());
+        }
+        if (versions != null && resource.isResource() && resource.getFileEntity() != null) {
+            writeVersionProperties(xml, versions.get(resource.getFileEntity().getId()));
+        }
+
+        xml.writeEndElement();
+        writeTextElement(xml, DAV_NAMESPACE, "status", "HTTP/1.1 200 OK");
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    /**
+     * 写出版本控制自定义属性
+     *
+     * @param summary 版本摘要，文件尚无版本时为null
+     */
+    private static void writeVersionProperties(XMLStreamWriter xml, VersionService.VersionSummary summary)
+            throws XMLStreamException {
+        writeTextElement(xml, LYRA_NAMESPACE, "version-number",
+                         String.valueOf(summary != null ? summary.getLatestVersionNumber() : 0));
+        writeTextElement(xml, LYRA_NAMESPACE, "total-versions",
+                         String.valueOf(summary != null ? summary.getTotalVersions() : 0));
+        if (summary != null && summary.getLatestComment() != null && !summary.getLatestComment().isEmpty()) {
+            writeTextElement(xml, LYRA_NAMESPACE, "version-comment", summary.getLatestComment());
+        }
+        if (summary != null && summary.getLatestVersionTime() != null) {
+            writeTextElement(xml, LYRA_NAMESPACE, "version-date", formatHttpDate(summary.getLatestVersionTime()));
+        }
+        writeTextElement(xml, LYRA_NAMESPACE, "version-controlled", "true");
+    }
+
+    private static void writeTextElement(XMLStreamWriter xml, String namespace, String name, String text)
+            throws XMLStreamException {
+        xml.writeStartElement(namespace, name);
+        xml.writeCharacters(text);
+        xml.writeEndElement();
+    }
+
+    private static String formatHttpDate(Date date) {
+        return HTTP_DATE_FORMAT.format(date.toInstant());
+    }
+
+    private static String formatHttpDate(LocalDateTime time) {
+        return HTTP_DATE_FORMAT.format(time.atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * 创建禁用DTD和外部实体的XML读取工厂，防止XXE
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static String childHref(String parentHref, String name) {
+        String separator = parentHref.endsWith("/") ? "" : "/";
+        return parentHref + separator + UriUtils.encodePathSegment(name, StandardCharsets.UTF_8);
+    }
+
+    private static String stripTrailingSlash(String href) {
+        return href.length() > 1 && href.endsWith("/") ? href.substring(0, href.length() - 1) : href;
+    }
+}
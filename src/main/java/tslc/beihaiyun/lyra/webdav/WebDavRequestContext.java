@@ -0,0 +1,163 @@
+package tslc.beihaiyun.lyra.webdav;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import tslc.beihaiyun.lyra.entity.Folder;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.entity.User;
+
+/**
+ * WebDAV 请求级解析上下文
+ *
+ * 在一次WebDAV请求内缓存当前用户、用户空间、文件夹路径和已解析的资源，
+ * 同一请求对同一路径的多次查询只访问一次数据库；上下文绑定到处理请求的线程，
+ * 请求结束时关闭，写操作后由资源服务清除路径相关的缓存
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+public final class WebDavRequestContext implements AutoCloseable {
+
+    private static final ThreadLocal<WebDavRequestContext> CURRENT = new ThreadLocal<>();
+
+    private final WebDavRequestContext previous;
+    private final boolean ignoreCase;
+
+    private boolean userResolved;
+    private User user;
+
+    private final Map<String, List<Space>> spaces = new HashMap<>();
+    private final Map<String, Optional<Folder>> folders = new HashMap<>();
+    private final Map<String, Optional<LyraResource>> resources = new HashMap<>();
+    private final Map<String, Optional<LyraResource>> resourcesWithoutChildren = new HashMap<>();
+
+    private WebDavRequestContext(WebDavRequestContext previous, boolean ignoreCase) {
+        this.previous = previous;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * 为当前线程开启请求上下文
+     *
+     * @return 请求上下文，请求处理结束时必须关闭
+     */
+    public static WebDavRequestContext open() {
+        return open(false);
+    }
+
+    /**
+     * 为当前线程开启请求上下文
+     *
+     * @param ignoreCase 是否按不区分大小写解析路径（Windows 客户端）
+     * @return 请求上下文，请求处理结束时必须关闭
+     */
+    public static WebDavRequestContext open(boolean ignoreCase) {
+        WebDavRequestContext context = new WebDavRequestContext(CURRENT.get(), ignoreCase);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * 获取当前线程的请求上下文
+     *
+     * @return 请求上下文，不在WebDAV请求内时为null
+     */
+    public static WebDavRequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 是否按不区分大小写解析路径
+     *
+     * @return 客户端为大小写不敏感的文件系统时为true
+     */
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * 获取当前用户，首次调用时加载
+     *
+     * @param loader 用户加载器
+     * @return 当前用户，未认证时为null
+     */
+    public User getUser(Supplier<User> loader) {
+        if (!userResolved) {
+            user = loader.get();
+            userResolved = true;
+        }
+        return user;
+    }
+
+    /**
+     * 获取用户某类型的空间列表，首次调用时加载
+     *
+     * @param owner 空间所有者
+     * @param type 空间类型
+     * @param loader 空间加载器
+     * @return 空间列表
+     */
+    public List<Space> getSpaces(User owner, Space.SpaceType type, Supplier<List<Space>> loader) {
+        return spaces.computeIfAbsent(owner.getId() + ":" + type, key -> loader.get());
+    }
+
+    /**
+     * 获取空间内指定路径的文件夹，首次调用时加载
+     *
+     * @param space 空间
+     * @param path 文件夹路径
+     * @param loader 文件夹加载器
+     * @return 文件夹（可选）
+     */
+    public Optional<Folder> getFolder(Space space, String path, Supplier<Optional<Folder>> loader) {
+        return folders.computeIfAbsent(space.getId() + ":" + path, key -> loader.get());
+    }
+
+    /**
+     * 获取已解析的资源；只需资源本身时也可复用已解析的含子资源结果
+     *
+     * @param path WebDAV路径
+     * @param withChildren 是否需要子资源
+     * @param loader 资源加载器
+     * @return 资源，不存在时为null
+     */
+    public LyraResource getResource(String path, boolean withChildren, Supplier<LyraResource> loader) {
+        String key = normalize(path);
+        Optional<LyraResource> resolved = resources.get(key);
+        if (resolved == null && !withChildren) {
+            resolved = resourcesWithoutChildren.get(key);
+        }
+        if (resolved == null) {
+            resolved = Optional.ofNullable(loader.get());
+            (withChildren ? resources : resourcesWithoutChildren).put(key, resolved);
+        }
+        return resolved.orElse(null);
+    }
+
+    /**
+     * 清除文件夹和资源缓存，在创建、修改或删除资源后调用
+     */
+    public void invalidateResources() {
+        folders.clear();
+        resources.clear();
+        resourcesWithoutChildren.clear();
+    }
+
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    private static String normalize(String path) {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
@@ -144,6 +144,8 @@ CREATE TABLE IF NOT EXISTS file_versions (
     size_bytes BIGINT NOT NULL,
     file_hash VARCHAR(64), -- SHA-256 hash
     storage_path VARCHAR(1000) NOT NULL,
+    storage_type VARCHAR(10) NOT NULL DEFAULT 'FULL', -- FULL, DELTA
+    base_version_id BIGINT, -- 差量版本的基准版本
     change_comment TEXT,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
@@ -298,6 +300,70 @@ CREATE TABLE IF NOT EXISTS search_history (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+-- 内容块表（按内容寻址的物理对象及引用计数）
+CREATE TABLE IF NOT EXISTS blobs (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    file_hash VARCHAR(64) NOT NULL, -- SHA-256 hash
+    storage_path VARCHAR(500) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count BIGINT NOT NULL DEFAULT 0,
+    orphaned_at DATETIME,
+    tombstoned_at DATETIME,
+    codec VARCHAR(16) NOT NULL DEFAULT 'none',
+    stored_size_bytes BIGINT,
+    last_verified_at DATETIME,
+    last_scrubbed_at DATETIME,
+    corrupted_at DATETIME,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    created_by VARCHAR(50) DEFAULT 'system',
+    updated_by VARCHAR(50) DEFAULT 'system',
+    is_deleted BOOLEAN DEFAULT FALSE,
+    UNIQUE(storage_path)
+);
+
+-- 分块上传会话表
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    upload_id VARCHAR(36) NOT NULL,
+    filename VARCHAR(255) NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_hash VARCHAR(64),
+    chunk_size INTEGER NOT NULL,
+    total_chunks INTEGER NOT NULL,
+    space_id INTEGER NOT NULL,
+    folder_id INTEGER,
+    uploader_id INTEGER NOT NULL,
+    description VARCHAR(500),
+    temp_path VARCHAR(500) NOT NULL,
+    chunk_bitmap TEXT,
+    completed_chunks INTEGER NOT NULL DEFAULT 0,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    created_by VARCHAR(50) DEFAULT 'system',
+    updated_by VARCHAR(50) DEFAULT 'system',
+    is_deleted BOOLEAN DEFAULT FALSE,
+    UNIQUE(upload_id)
+);
+
+-- 文件统计计数表（creator为空串表示空间汇总行）
+CREATE TABLE IF NOT EXISTS file_statistics (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    space_id INTEGER NOT NULL,
+    creator VARCHAR(50) NOT NULL DEFAULT '',
+    active_files BIGINT NOT NULL DEFAULT 0,
+    deleted_files BIGINT NOT NULL DEFAULT 0,
+    archived_files BIGINT NOT NULL DEFAULT 0,
+    total_size BIGINT NOT NULL DEFAULT 0,
+    last_modified_at DATETIME,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    created_by VARCHAR(50) DEFAULT 'system',
+    updated_by VARCHAR(50) DEFAULT 'system',
+    is_deleted BOOLEAN DEFAULT FALSE,
+    UNIQUE(space_id, creator)
+);
+
 -- 创建索引
 CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
@@ -309,11 +375,16 @@ CREATE INDEX IF NOT EXISTS idx_spaces_type ON spaces(type);
 CREATE INDEX IF NOT EXISTS idx_folders_parent_id ON folders(parent_id);
 CREATE INDEX IF NOT EXISTS idx_folders_space_id ON folders(space_id);
 CREATE INDEX IF NOT EXISTS idx_folders_path ON folders(path);
+CREATE INDEX IF NOT EXISTS idx_folders_parent_name ON folders(parent_id, name);
+CREATE INDEX IF NOT EXISTS idx_folders_space_root_name ON folders(space_id, is_root, name);
 CREATE INDEX IF NOT EXISTS idx_files_folder_id ON files(folder_id);
 CREATE INDEX IF NOT EXISTS idx_files_space_id ON files(space_id);
 CREATE INDEX IF NOT EXISTS idx_files_status ON files(status);
 CREATE INDEX IF NOT EXISTS idx_files_hash ON files(file_hash);
+CREATE INDEX IF NOT EXISTS idx_files_space_creator ON files(space_id, created_by, status);
+CREATE INDEX IF NOT EXISTS idx_files_folder_status_name ON files(folder_id, status, name);
 CREATE INDEX IF NOT EXISTS idx_file_versions_file_id ON file_versions(file_id);
+CREATE INDEX IF NOT EXISTS idx_file_versions_base ON file_versions(base_version_id);
 CREATE INDEX IF NOT EXISTS idx_resource_permissions_user_id ON resource_permissions(user_id);
 CREATE INDEX IF NOT EXISTS idx_resource_permissions_resource ON resource_permissions(resource_type, resource_id);
 CREATE INDEX IF NOT EXISTS idx_share_links_token ON share_links(token);
@@ -329,4 +400,10 @@ CREATE INDEX IF NOT EXISTS idx_space_permissions_permission_id ON space_permissi
 CREATE INDEX IF NOT EXISTS idx_space_permissions_resource ON space_permissions(resource_type, resource_id);
 CREATE INDEX IF NOT EXISTS idx_search_history_user_time ON search_history(user_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_search_history_keyword ON search_history(keyword);
-CREATE INDEX IF NOT EXISTS idx_search_history_user_keyword ON search_history(user_id, keyword);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_search_history_user_keyword ON search_history(user_id, keyword);
+CREATE INDEX IF NOT EXISTS idx_blobs_file_hash ON blobs(file_hash);
+CREATE INDEX IF NOT EXISTS idx_blobs_ref_count ON blobs(ref_count, orphaned_at);
+CREATE INDEX IF NOT EXISTS idx_blobs_last_verified ON blobs(last_verified_at);
+CREATE INDEX IF NOT EXISTS idx_blobs_last_scrubbed ON blobs(last_scrubbed_at);
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_uploader ON upload_sessions(uploader_id);
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_updated ON upload_sessions(updated_at);
@@ -17,6 +17,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
@@ -25,6 +26,8 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.validation.BindingResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import tslc.beihaiyun.lyra.config.LyraProperties;
 
 import tslc.beihaiyun.lyra.dto.FileRequest;
 import tslc.beihaiyun.lyra.dto.FileResponse;
@@ -35,6 +38,7 @@ import tslc.beihaiyun.lyra.repository.SpaceRepository;
 import tslc.beihaiyun.lyra.security.LyraUserPrincipal;
 import tslc.beihaiyun.lyra.service.FileService;
 import tslc.beihaiyun.lyra.service.FolderService;
+import tslc.beihaiyun.lyra.service.IoGovernor;
 
 /**
  * FileController基础测试类
@@ -59,6 +63,9 @@ class FileControllerBasicTest {
     @Mock
     private BindingResult bindingResult;
 
+    @Spy
+    private IoGovernor ioGovernor = new IoGovernor(new LyraProperties(), new SimpleMeterRegistry());
+
     @InjectMocks
     private FileController fileController;
 
@@ -0,0 +1,168 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.Folder;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.service.impl.LocalFileStorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 归档下载服务测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("归档下载服务测试")
+class ArchiveDownloadServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private FolderRepository folderRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    private LocalFileStorageService storageService;
+    private ArchiveDownloadService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.resolve("files").toString());
+        storageConfig.setTempPath(tempDir.resolve("temp").toString());
+        storageConfig.setMaxFileSize("10MB");
+        storageConfig.setAllowedTypes("*");
+        storageConfig.setEnableDeduplication(false);
+        storageConfig.setCompressionEnabled(false);
+        lyraProperties.setStorage(storageConfig);
+
+        storageService = new LocalFileStorageService(lyraProperties, fileEntityRepository, blobRepository,
+            new StorageUsageTracker(lyraProperties));
+        storageService.init();
+        archiveService = new ArchiveDownloadService(fileEntityRepository, folderRepository, storageService,
+            new StorageAccessTracker());
+    }
+
+    @AfterEach
+    void tearDown() {
+        archiveService.shutdown();
+    }
+
+    @Test
+    @DisplayName("下载文件夹应包含完整子树且媒体文件不再压缩")
+    void should_ArchiveSubtree_When_FolderDownloaded() throws IOException {
+        // Given
+        Folder root = folder(1L, "docs");
+        Folder child = folder(2L, "photos");
+        byte[] text = "lyra ".repeat(4000).getBytes();
+        byte[] photo = new byte[100 * 1024];
+        new Random(5).nextBytes(photo);
+        when(fileEntityRepository.findByFolder(root)).thenReturn(List.of(file("readme.txt", "text/plain", text)));
+        when(fileEntityRepository.findByFolder(child)).thenReturn(List.of(file("cat.jpg", "image/jpeg", photo)));
+        when(folderRepository.findByParent(root)).thenReturn(List.of(child));
+        when(folderRepository.findByParent(child)).thenReturn(List.of());
+
+        // When
+        Path archive = tempDir.resolve("docs.zip");
+        long written;
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            written = archiveService.writeZip(archiveService.folderEntries(root), out);
+        }
+
+        // Then
+        assertEquals(text.length + photo.length, written);
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertNotNull(zip.getEntry("docs/"));
+            assertNotNull(zip.getEntry("docs/photos/"));
+            ZipEntry readme = zip.getEntry("docs/readme.txt");
+            ZipEntry cat = zip.getEntry("docs/photos/cat.jpg");
+            assertArrayEquals(text, read(zip, readme));
+            assertArrayEquals(photo, read(zip, cat));
+            assertTrue(readme.getCompressedSize() < text.length / 10);
+            assertTrue(cat.getCompressedSize() >= photo.length); // 零压缩级别只增加少量块头
+        }
+    }
+
+    @Test
+    @DisplayName("多选下载时重名项应自动改名且缺失的内容记入失败清单")
+    void should_RenameDuplicatesAndReportMissing_When_SelectionDownloaded() throws IOException {
+        // Given
+        FileEntity first = file("report.txt", "text/plain", "first".getBytes());
+        FileEntity second = file("report.txt", "text/plain", "second".getBytes());
+        FileEntity missing = file("lost.txt", "text/plain", "lost".getBytes());
+        missing.setStoragePath("2025/01/01/missing.txt");
+
+        // When
+        Path archive = tempDir.resolve("selection.zip");
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            archiveService.writeZip(archiveService.selectionEntries(List.of(first, missing, second), List.of()), out);
+        }
+
+        // Then
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(3, zip.size());
+            assertArrayEquals("first".getBytes(), read(zip, zip.getEntry("report.txt")));
+            assertArrayEquals("second".getBytes(), read(zip, zip.getEntry("report(1).txt")));
+            assertNull(zip.getEntry("lost.txt"));
+            String manifest = new String(read(zip, zip.getEntry(ArchiveDownloadService.FAILURE_MANIFEST_NAME)),
+                                         StandardCharsets.UTF_8);
+            assertTrue(manifest.contains("lost.txt"));
+        }
+    }
+
+    private Folder folder(Long id, String name) {
+        Folder folder = new Folder();
+        folder.setId(id);
+        folder.setName(name);
+        return folder;
+    }
+
+    private FileEntity file(String name, String mimeType, byte[] content) throws IOException {
+        StorageService.StorageResult stored = storageService.store(content, name, mimeType);
+        FileEntity file = new FileEntity();
+        file.setName(name);
+        file.setMimeType(mimeType);
+        file.setStoragePath(stored.getStoragePath());
+        file.setSizeBytes((long) content.length);
+        file.setStatus(FileEntity.FileStatus.ACTIVE);
+        return file;
+    }
+
+    private byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package tslc.beihaiyun.lyra.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.service.impl.LocalFileStorageService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 内容块后台完整性校验器测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("内容块后台完整性校验器测试")
+class BlobScrubberTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private BlobService blobService;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    private LyraProperties lyraProperties;
+    private LocalFileStorageService storageService;
+    private SimpleMeterRegistry meterRegistry;
+    private BlobScrubber scrubber;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.resolve("files").toString());
+        storageConfig.setTempPath(tempDir.resolve("temp").toString());
+        storageConfig.setMaxFileSize("10MB");
+        storageConfig.setAllowedTypes("*");
+        storageConfig.setEnableDeduplication(false);
+        storageConfig.setCompressionEnabled(false);
+        storageConfig.setScrubThreads(2);
+        storageConfig.setScrubBandwidth("0");
+        storageConfig.setScrubBatchSize(10);
+        lyraProperties.setStorage(storageConfig);
+
+        storageService = new LocalFileStorageService(lyraProperties, fileEntityRepository, blobRepository,
+            new StorageUsageTracker(lyraProperties));
+        storageService.init();
+        meterRegistry = new SimpleMeterRegistry();
+        scrubber = new BlobScrubber(blobService, storageService, lyraProperties, meterRegistry);
+        scrubber.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scrubber.shutdown();
+    }
+
+    @Test
+    @DisplayName("一批校验应区分通过、损坏与丢失并提交检查点")
+    void should_RecordOutcomes_When_BatchScrubbed() throws IOException {
+        // Given
+        Blob healthy = blob(1L, "healthy content");
+        Blob damaged = blob(2L, "content that will rot");
+        Files.writeString(tempDir.resolve("files").resolve(damaged.getStoragePath()), "bit rot");
+        Blob missing = new Blob("0".repeat(64), "2025/01/01/missing.bin", 10L);
+        missing.setId(3L);
+        when(blobService.findScrubCandidates(any(), any(), anyInt())).thenReturn(List.of(healthy, damaged, missing));
+        when(blobService.countCorrupted()).thenReturn(2L);
+
+        // When
+        BlobScrubber.ScrubReport report = scrubber.scrub(5);
+
+        // Then
+        assertEquals(1, report.getCount(BlobScrubber.Outcome.VALID));
+        assertEquals(1, report.getCount(BlobScrubber.Outcome.CORRUPTED));
+        assertEquals(1, report.getCount(BlobScrubber.Outcome.MISSING));
+        assertEquals(1, report.getBatches());
+        verify(blobService).recordScrubResults(List.of(1L), List.of(2L, 3L), List.of());
+        assertEquals(2.0, meterRegistry.get("lyra.scrub.corrupted").gauge().value());
+        assertEquals(1.0, meterRegistry.get("lyra.scrub.blobs").tag("result", "missing").counter().count());
+        assertTrue(meterRegistry.get("lyra.scrub.bytes").counter().count() > 0);
+    }
+
+    @Test
+    @DisplayName("整批均读取失败时应停止本轮且只记录尝试时间")
+    void should_StopRun_When_BatchMakesNoProgress() throws IOException {
+        // Given
+        StorageService failingStorage = mock(StorageService.class);
+        when(failingStorage.load(any())).thenThrow(new IOException("磁盘忙"));
+        BlobScrubber failingScrubber = new BlobScrubber(blobService, failingStorage, lyraProperties,
+            new SimpleMeterRegistry());
+        failingScrubber.init();
+        Blob blob = new Blob("a".repeat(64), "2025/01/01/busy.bin", 10L);
+        blob.setId(7L);
+        when(blobService.findScrubCandidates(any(), any(), anyInt())).thenReturn(List.of(blob));
+
+        try {
+            // When
+            BlobScrubber.ScrubReport report = failingScrubber.scrub(5);
+
+            // Then
+            assertEquals(1, report.getCount(BlobScrubber.Outcome.FAILED));
+            verify(blobService, times(1)).findScrubCandidates(any(), any(), anyInt());
+            verify(blobService).recordScrubResults(List.of(), List.of(), List.of(7L));
+        } finally {
+            failingScrubber.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("读取失败的内容块应记录尝试时间且本轮后续批次不再选取")
+    void should_MoveOn_When_BlobKeepsFailing() throws IOException {
+        // Given
+        lyraProperties.getStorage().setScrubBatchSize(2);
+        Blob unreadable = blob(1L, "unreadable content");
+        Blob first = blob(2L, "first healthy content");
+        Blob second = blob(3L, "second healthy content");
+        StorageService flakyStorage = spy(storageService);
+        doThrow(new IOException("读取超时")).when(flakyStorage).load(unreadable.getStoragePath());
+        BlobScrubber flakyScrubber = new BlobScrubber(blobService, flakyStorage, lyraProperties,
+            new SimpleMeterRegistry());
+        flakyScrubber.init();
+        when(blobService.findScrubCandidates(any(), any(), anyInt()))
+            .thenReturn(List.of(unreadable, first))
+            .thenReturn(List.of(second));
+
+        try {
+            // When
+            BlobScrubber.ScrubReport report = flakyScrubber.scrub(5);
+
+            // Then
+            ArgumentCaptor<LocalDateTime> attemptedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(blobService, times(2)).findScrubCandidates(any(), attemptedBefore.capture(), eq(2));
+            assertEquals(attemptedBefore.getAllValues().get(0), attemptedBefore.getAllValues().get(1));
+            verify(blobService).recordScrubResults(List.of(2L), List.of(), List.of(1L));
+            verify(blobService).recordScrubResults(List.of(3L), List.of(), List.of());
+            assertEquals(2, report.getCount(BlobScrubber.Outcome.VALID));
+            assertEquals(1, report.getCount(BlobScrubber.Outcome.FAILED));
+        } finally {
+            flakyScrubber.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("禁用后台校验时调度不应查询候选")
+    void should_Skip_When_ScrubDisabled() {
+        // Given
+        lyraProperties.getStorage().setScrubEnabled(false);
+
+        // When
+        scrubber.run();
+
+        // Then
+        verifyNoInteractions(blobService);
+    }
+
+    private Blob blob(Long id, String content) throws IOException {
+        StorageService.StorageResult stored = storageService.store(content.getBytes(), "blob.txt", "text/plain");
+        Blob blob = new Blob(stored.getFileHash(), stored.getStoragePath(), stored.getSizeBytes());
+        blob.setId(id);
+        blob.setRefCount(1L);
+        return blob;
+    }
+}
@@ -0,0 +1,232 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FileVersionRepository;
+import tslc.beihaiyun.lyra.service.impl.BlobServiceImpl;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 内容块服务测试类
+ * 测试引用计数维护和标记-清除垃圾回收
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("内容块服务测试")
+class BlobServiceTest {
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private FileVersionRepository fileVersionRepository;
+
+    @Mock
+    private StorageService storageService;
+
+    private BlobServiceImpl blobService;
+
+    @BeforeEach
+    void setUp() {
+        LyraProperties lyraProperties = new LyraProperties();
+        lyraProperties.setStorage(new LyraProperties.StorageConfig());
+        blobService = new BlobServiceImpl(blobRepository, fileEntityRepository, fileVersionRepository,
+            storageService, lyraProperties);
+    }
+
+    @Test
+    @DisplayName("首次引用应登记新内容块")
+    void should_RegisterBlob_When_FirstAcquire() {
+        // Given
+        when(blobRepository.incrementRefCount("a/b/hash.txt")).thenReturn(0);
+        when(storageService.exists("a/b/hash.txt")).thenReturn(true);
+
+        // When
+        blobService.acquire("a/b/hash.txt", "hash", 128L);
+
+        // Then
+        ArgumentCaptor<Blob> captor = ArgumentCaptor.forClass(Blob.class);
+        verify(blobRepository).save(captor.capture());
+        assertThat(captor.getValue().getRefCount()).isEqualTo(1L);
+        assertThat(captor.getValue().getFileHash()).isEqualTo("hash");
+    }
+
+    @Test
+    @DisplayName("引用已被垃圾回收认领的内容块应失败且不重新登记")
+    void should_RejectAcquire_When_BlobTombstoned() {
+        // Given
+        when(blobRepository.incrementRefCount("a/b/hash.txt")).thenReturn(0);
+        when(blobRepository.existsByStoragePath("a/b/hash.txt")).thenReturn(true);
+
+        // When & Then
+        assertThatThrownBy(() -> blobService.acquire("a/b/hash.txt", "hash", 128L))
+            .isInstanceOf(IllegalStateException.class);
+        verify(blobRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("登记时物理内容已被回收应失败")
+    void should_RejectAcquire_When_ContentAlreadyCollected() {
+        // Given
+        when(blobRepository.incrementRefCount("a/b/hash.txt")).thenReturn(0);
+        when(storageService.exists("a/b/hash.txt")).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> blobService.acquire("a/b/hash.txt", "hash", 128L))
+            .isInstanceOf(IllegalStateException.class);
+        verify(blobRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("未提交的新内容应登记为待回收的无引用内容块")
+    void should_RegisterOrphan_When_StoredContentUnreferenced() {
+        // Given
+        StorageService.StorageResult stored = new StorageService.StorageResult("a/b/hash.txt", "hash", 128L, false);
+        when(blobRepository.existsByStoragePath("a/b/hash.txt")).thenReturn(false);
+
+        // When
+        blobService.registerUnreferenced(stored);
+
+        // Then
+        ArgumentCaptor<Blob> captor = ArgumentCaptor.forClass(Blob.class);
+        verify(blobRepository).save(captor.capture());
+        assertThat(captor.getValue().getRefCount()).isZero();
+        assertThat(captor.getValue().getOrphanedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("已登记的内容块不应被重复登记为无引用")
+    void should_KeepBlob_When_UnreferencedContentAlreadyRegistered() {
+        // Given
+        StorageService.StorageResult stored = new StorageService.StorageResult("a/b/hash.txt", "hash", 128L, false);
+        when(blobRepository.existsByStoragePath("a/b/hash.txt")).thenReturn(true);
+
+        // When
+        blobService.registerUnreferenced(stored);
+
+        // Then
+        verify(blobRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("已登记内容块的再次引用只做原子自增")
+    void should_OnlyIncrement_When_BlobAlreadyRegistered() {
+        // Given
+        when(blobRepository.incrementRefCount("a/b/hash.txt")).thenReturn(1);
+
+        // When
+        blobService.acquire("a/b/hash.txt", "hash", 128L);
+
+        // Then
+        verify(blobRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("释放最后一个引用时应报告可回收但不删除物理文件")
+    void should_ReportReclaimable_When_LastReferenceReleased() {
+        // Given
+        when(blobRepository.decrementRefCount(eq("a/b/hash.txt"), any(LocalDateTime.class))).thenReturn(1);
+        when(blobRepository.findRefCountByStoragePath("a/b/hash.txt")).thenReturn(Optional.of(0L));
+
+        // When
+        boolean reclaimable = blobService.release("a/b/hash.txt");
+
+        // Then
+        assertThat(reclaimable).isTrue();
+        verifyNoInteractions(storageService);
+    }
+
+    @Test
+    @DisplayName("回收时应删除确实无引用的内容块")
+    void should_CollectBlob_When_NoLiveReferences() {
+        // Given
+        Blob orphan = new Blob("hash", "a/b/hash.txt", 2048L);
+        orphan.setRefCount(0L);
+        orphan.setOrphanedAt(LocalDateTime.now().minusDays(1));
+        when(blobRepository.findCollectableBlobs(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(orphan));
+        when(blobRepository.tombstone(any(), any(LocalDateTime.class))).thenReturn(1);
+        when(fileEntityRepository.countByStoragePath("a/b/hash.txt")).thenReturn(0L);
+        when(fileVersionRepository.countByStoragePath("a/b/hash.txt")).thenReturn(0L);
+        when(storageService.exists("a/b/hash.txt")).thenReturn(true);
+        when(storageService.delete("a/b/hash.txt")).thenReturn(true);
+
+        // When
+        BlobService.GarbageCollectionResult result = blobService.collectGarbage(100);
+
+        // Then
+        assertThat(result.getBlobsCollected()).isEqualTo(1);
+        assertThat(result.getBytesFreed()).isEqualTo(2048L);
+        verify(blobRepository).delete(orphan);
+    }
+
+    @Test
+    @DisplayName("回收时发现仍有引用应修正计数而不删除")
+    void should_ReviveBlob_When_LiveReferencesFound() {
+        // Given
+        Blob drifted = new Blob("hash", "a/b/hash.txt", 2048L);
+        drifted.setRefCount(0L);
+        drifted.setOrphanedAt(LocalDateTime.now().minusDays(1));
+        when(blobRepository.findCollectableBlobs(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(drifted));
+        when(blobRepository.tombstone(any(), any(LocalDateTime.class))).thenReturn(1);
+        when(fileEntityRepository.countByStoragePath("a/b/hash.txt")).thenReturn(1L);
+        when(fileVersionRepository.countByStoragePath("a/b/hash.txt")).thenReturn(1L);
+
+        // When
+        BlobService.GarbageCollectionResult result = blobService.collectGarbage(100);
+
+        // Then
+        assertThat(result.getBlobsCollected()).isZero();
+        assertThat(result.getBlobsRevived()).isEqualTo(1);
+        assertThat(drifted.getRefCount()).isEqualTo(2L);
+        assertThat(drifted.getOrphanedAt()).isNull();
+        assertThat(drifted.getTombstonedAt()).isNull();
+        verify(storageService, never()).delete(anyString());
+        verify(blobRepository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("认领前已被并发重新引用的内容块不应删除")
+    void should_SkipBlob_When_ReacquiredBeforeTombstone() {
+        // Given
+        Blob reacquired = new Blob("hash", "a/b/hash.txt", 2048L);
+        reacquired.setRefCount(0L);
+        reacquired.setOrphanedAt(LocalDateTime.now().minusDays(1));
+        when(blobRepository.findCollectableBlobs(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(reacquired));
+        when(blobRepository.tombstone(any(), any(LocalDateTime.class))).thenReturn(0);
+
+        // When
+        BlobService.GarbageCollectionResult result = blobService.collectGarbage(100);
+
+        // Then
+        assertThat(result.getBlobsCollected()).isZero();
+        verifyNoInteractions(storageService);
+        verify(blobRepository, never()).delete(any());
+    }
+}
@@ -0,0 +1,204 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.service.impl.ChunkedFileStorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内容定义分块存储服务测试
+ * 测试块级去重、按清单还原、重启后重建索引、清单级复制与删除以及块包压缩
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("内容定义分块存储服务测试")
+class ChunkedStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    private final List<ChunkedFileStorageService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(ChunkedFileStorageService::shutdown);
+    }
+
+    @Test
+    @DisplayName("对大文件插入一个字节后再次存储应只新增少量块")
+    void should_StoreOnlyChangedChunks_When_FileSlightlyModified() throws IOException {
+        // Given
+        ChunkedFileStorageService storageService = createService();
+        byte[] original = randomBytes(2 * 1024 * 1024, 11);
+        byte[] modified = insertByte(original, original.length / 2, (byte) 0x5A);
+
+        // When
+        StorageService.StorageResult first = storageService.store(original, "large.bin", null);
+        StorageService.StorageResult second = storageService.store(modified, "large.bin", null);
+
+        // Then
+        assertEquals(Blob.CODEC_CHUNKED, second.getCodec());
+        assertEquals(original.length, first.getStoredSizeBytes());
+        assertTrue(second.getStoredSizeBytes() < modified.length / 10,
+            "新增块字节过多: " + second.getStoredSizeBytes());
+        assertArrayEquals(original, read(storageService, first.getStoragePath()));
+        assertArrayEquals(modified, read(storageService, second.getStoragePath()));
+        assertEquals(modified.length, storageService.getFileSize(second.getStoragePath()));
+        assertTrue(storageService.getPath(second.getStoragePath()).isEmpty());
+        assertTrue(storageService.verifyIntegrity(second.getStoragePath(), second.getFileHash()));
+    }
+
+    @Test
+    @DisplayName("重启后应从块包重建索引并截断不完整的末尾记录")
+    void should_RebuildIndex_When_ServiceRestarted() throws IOException {
+        // Given
+        ChunkedFileStorageService storageService = createService();
+        byte[] content = randomBytes(300 * 1024, 23);
+        StorageService.StorageResult stored = storageService.store(content, "data.bin", null);
+        int chunkCount = storageService.getChunkCount();
+        storageService.shutdown();
+        Path pack = tempDir.resolve("files").resolve(".packs").resolve("pack-000000.pack");
+        long packSize = Files.size(pack);
+        Files.write(pack, new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        // When
+        ChunkedFileStorageService restarted = createService();
+
+        // Then
+        assertEquals(chunkCount, restarted.getChunkCount());
+        assertEquals(packSize, Files.size(pack));
+        assertArrayEquals(content, read(restarted, stored.getStoragePath()));
+        assertEquals(0, restarted.store(content, "again.bin", null).getStoredSizeBytes());
+    }
+
+    @Test
+    @DisplayName("复制只复制清单，删除源对象后副本仍可读取")
+    void should_ShareChunks_When_ObjectCopied() throws IOException {
+        // Given
+        ChunkedFileStorageService storageService = createService();
+        byte[] content = randomBytes(200 * 1024, 37);
+        StorageService.StorageResult stored = storageService.store(content, "copy.bin", null);
+        int chunkCount = storageService.getChunkCount();
+
+        // When
+        assertTrue(storageService.copy(stored.getStoragePath(), "copies/copy.bin"));
+        assertTrue(storageService.delete(stored.getStoragePath()));
+
+        // Then
+        assertFalse(storageService.exists(stored.getStoragePath()));
+        assertTrue(storageService.exists("copies/copy.bin"));
+        assertEquals(chunkCount, storageService.getChunkCount());
+        assertArrayEquals(content, read(storageService, "copies/copy.bin"));
+    }
+
+    @Test
+    @DisplayName("删除对象后压缩应回收无引用块并保留仍被引用的内容")
+    void should_ReclaimUnreferencedChunks_When_Compacted() throws IOException {
+        // Given
+        ChunkedFileStorageService storageService = createService();
+        byte[] kept = randomBytes(200 * 1024, 41);
+        StorageService.StorageResult keptResult = storageService.store(kept, "kept.bin", null);
+        StorageService.StorageResult first = storageService.store(randomBytes(200 * 1024, 43), "gone1.bin", null);
+        StorageService.StorageResult second = storageService.store(randomBytes(200 * 1024, 47), "gone2.bin", null);
+        assertTrue(storageService.copy(keptResult.getStoragePath(), "copies/kept.bin"));
+        assertTrue(storageService.delete(keptResult.getStoragePath()));
+        assertTrue(storageService.delete(first.getStoragePath()));
+        assertTrue(storageService.delete(second.getStoragePath()));
+        int chunksBefore = storageService.getChunkCount();
+        long packBytesBefore = packBytes();
+
+        // When
+        ChunkedFileStorageService.CompactionResult result = storageService.compact(30);
+
+        // Then
+        assertEquals(1, result.packsRewritten());
+        assertTrue(result.chunksDropped() > 0);
+        assertEquals(chunksBefore - result.chunksDropped(), storageService.getChunkCount());
+        assertTrue(packBytes() < packBytesBefore / 2, "压缩后块包仍过大: " + packBytes());
+        assertArrayEquals(kept, read(storageService, "copies/kept.bin"));
+
+        // 重启后从新块包重建的索引仍能还原内容
+        storageService.shutdown();
+        ChunkedFileStorageService restarted = createService();
+        assertArrayEquals(kept, read(restarted, "copies/kept.bin"));
+        assertEquals(0, restarted.compact(30).packsRewritten());
+    }
+
+    private ChunkedFileStorageService createService() {
+        MockitoAnnotations.openMocks(this);
+
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.resolve("files").toString());
+        storageConfig.setTempPath(tempDir.resolve("temp").toString());
+        storageConfig.setMaxFileSize("10MB");
+        storageConfig.setAllowedTypes("*");
+        storageConfig.setEnableDeduplication(false);
+        storageConfig.setBackend("cdc");
+        storageConfig.setCdcAverageChunkSize("16KB");
+        lyraProperties.setStorage(storageConfig);
+
+        ChunkedFileStorageService service = new ChunkedFileStorageService(lyraProperties, fileEntityRepository,
+            blobRepository, new StorageUsageTracker(lyraProperties));
+        service.init();
+        services.add(service);
+        return service;
+    }
+
+    private long packBytes() throws IOException {
+        try (Stream<Path> packs = Files.list(tempDir.resolve("files").resolve(".packs"))) {
+            long total = 0;
+            for (Path pack : packs.toList()) {
+                total += Files.size(pack);
+            }
+            return total;
+        }
+    }
+
+    private byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private byte[] insertByte(byte[] source, int position, byte value) {
+        byte[] result = new byte[source.length + 1];
+        System.arraycopy(source, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(source, position, result, position + 1, source.length - position);
+        return result;
+    }
+
+    private byte[] read(StorageService storageService, String storagePath) throws IOException {
+        try (InputStream in = storageService.load(storagePath).orElseThrow()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.entity.UploadSession;
+import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.repository.SpaceRepository;
+import tslc.beihaiyun.lyra.repository.UploadSessionRepository;
+import tslc.beihaiyun.lyra.service.impl.ChunkedUploadServiceImpl;
+import tslc.beihaiyun.lyra.util.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 分块上传服务测试类
+ * 测试乱序分块的定位写入、增量哈希和分块校验
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("分块上传服务测试")
+class ChunkedUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private SpaceRepository spaceRepository;
+
+    @Mock
+    private FolderRepository folderRepository;
+
+    @Mock
+    private StorageService storageService;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private BlobService blobService;
+
+    @TempDir
+    Path tempDir;
+
+    private ChunkedUploadServiceImpl chunkedUploadService;
+    private final UploadSession[] stored = new UploadSession[1];
+    private final Space space = new Space();
+
+    @BeforeEach
+    void setUp() {
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setTempPath(tempDir.toString());
+        lyraProperties.setStorage(storageConfig);
+
+        chunkedUploadService = new ChunkedUploadServiceImpl(uploadSessionRepository, spaceRepository,
+            folderRepository, storageService, fileService, blobService, lyraProperties);
+
+        when(spaceRepository.findById(1L)).thenReturn(Optional.of(space));
+        lenient().when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> {
+            stored[0] = invocation.getArgument(0);
+            return stored[0];
+        });
+    }
+
+    @Test
+    @DisplayName("乱序上传的分块应直接落到对应偏移并以重命名方式完成")
+    void should_CompleteWithoutMerge_When_ChunksArriveOutOfOrder() throws Exception {
+        // Given
+        byte[] content = new byte[CHUNK_SIZE * 2 + 452];
+        new Random(42).nextBytes(content);
+        String fileHash = FileUtils.calculateSHA256(new ByteArrayInputStream(content));
+
+        FileEntity created = new FileEntity();
+        when(uploadSessionRepository.findByUploadId(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored[0]));
+        when(storageService.importFile(any(Path.class), eq("big.bin"), eq(fileHash))).thenAnswer(invocation -> {
+            Path source = invocation.getArgument(0);
+            assertThat(Files.readAllBytes(source)).isEqualTo(content);
+            return new StorageService.StorageResult("ab/cd/big.bin", fileHash, content.length, false);
+        });
+        when(fileService.createFileFromStorage(any(), eq("big.bin"), isNull(), eq(space), isNull(), eq(7L)))
+            .thenReturn(new FileService.FileOperationResult(true, "文件创建成功", created));
+
+        ChunkedUploadService.ChunkedUploadResult init = chunkedUploadService.initSession(
+            "big.bin", content.length, fileHash, CHUNK_SIZE, 1L, null, null, 7L);
+        String uploadId = init.getSession().getUploadId();
+
+        // When
+        ChunkedUploadService.ChunkedUploadResult result = null;
+        for (int chunkIndex : new int[]{2, 0, 1}) {
+            int from = chunkIndex * CHUNK_SIZE;
+            byte[] chunk = Arrays.copyOfRange(content, from, Math.min(from + CHUNK_SIZE, content.length));
+            result = chunkedUploadService.uploadChunk(uploadId, chunkIndex, new ByteArrayInputStream(chunk),
+                FileUtils.calculateSHA256(new ByteArrayInputStream(chunk)), 7L);
+            assertThat(result.isSuccess()).isTrue();
+        }
+
+        // Then
+        assertThat(init.getSession().getTotalChunks()).isEqualTo(3);
+        assertThat(result.isUploadCompleted()).isTrue();
+        assertThat(result.getFileEntity()).isSameAs(created);
+        verify(uploadSessionRepository).delete(stored[0]);
+        verifyNoInteractions(blobService);
+    }
+
+    @Test
+    @DisplayName("服务器已有相同内容时初始化应直接秒传")
+    void should_CompleteInstantly_When_ContentAlreadyStored() {
+        // Given
+        String fileHash = "a".repeat(64);
+        StorageService.StorageResult existing = new StorageService.StorageResult("aa/aa/x.bin", fileHash, 4096L, true);
+        FileEntity created = new FileEntity();
+        when(fileService.findExistingContent(fileHash, 4096L, 7L)).thenReturn(Optional.of(existing));
+        when(fileService.createFileFromStorage(eq(existing), eq("x.bin"), any(), eq(space), isNull(), eq(7L)))
+            .thenReturn(new FileService.FileOperationResult(true, "文件创建成功", created));
+
+        // When
+        ChunkedUploadService.ChunkedUploadResult result = chunkedUploadService.initSession(
+            "x.bin", 4096L, fileHash, CHUNK_SIZE, 1L, null, null, 7L);
+
+        // Then
+        assertThat(result.isUploadCompleted()).isTrue();
+        assertThat(result.getFileEntity()).isSameAs(created);
+        verify(uploadSessionRepository, never()).save(any(UploadSession.class));
+        assertThat(tempDir.resolve("uploads")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("分块校验值不匹配时应拒绝该分块")
+    void should_RejectChunk_When_ChecksumMismatch() throws Exception {
+        // Given
+        byte[] chunk = new byte[CHUNK_SIZE];
+        when(uploadSessionRepository.findByUploadId(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored[0]));
+
+        ChunkedUploadService.ChunkedUploadResult init = chunkedUploadService.initSession(
+            "one.bin", CHUNK_SIZE, null, CHUNK_SIZE, 1L, null, null, 7L);
+
+        // When
+        ChunkedUploadService.ChunkedUploadResult result = chunkedUploadService.uploadChunk(
+            init.getSession().getUploadId(), 0, new ByteArrayInputStream(chunk), "deadbeef", 7L);
+
+        // Then
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(stored[0].getCompletedChunks()).isZero();
+        verify(uploadSessionRepository, times(1)).save(any(UploadSession.class));
+        verifyNoInteractions(storageService);
+        verify(fileService, never()).createFileFromStorage(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("校验失败的分块不应覆盖临时文件中已有的内容")
+    void should_KeepPartFileUntouched_When_ChecksumMismatch() throws Exception {
+        // Given
+        byte[] corrupt = new byte[CHUNK_SIZE];
+        Arrays.fill(corrupt, (byte) 0x5A);
+        when(uploadSessionRepository.findByUploadId(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored[0]));
+
+        ChunkedUploadService.ChunkedUploadResult init = chunkedUploadService.initSession(
+            "two.bin", CHUNK_SIZE * 2L, null, CHUNK_SIZE, 1L, null, null, 7L);
+        String uploadId = init.getSession().getUploadId();
+        Path partFile = tempDir.resolve("uploads").resolve(uploadId + ".part");
+
+        // When
+        ChunkedUploadService.ChunkedUploadResult result = chunkedUploadService.uploadChunk(
+            uploadId, 1, new ByteArrayInputStream(corrupt), "deadbeef", 7L);
+
+        // Then
+        assertThat(result.isSuccess()).isFalse();
+        byte[] written = Files.readAllBytes(partFile);
+        assertThat(Arrays.copyOfRange(written, CHUNK_SIZE, CHUNK_SIZE * 2)).containsOnly((byte) 0);
+        try (var leftovers = Files.list(tempDir.resolve("uploads"))) {
+            assertThat(leftovers).containsExactly(partFile);
+        }
+    }
+}
@@ -5,6 +5,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import tslc.beihaiyun.lyra.config.CacheConfig;
 import tslc.beihaiyun.lyra.config.LyraProperties;
 import tslc.beihaiyun.lyra.entity.FileEntity;
 
@@ -274,6 +278,36 @@ class FileCacheServiceTest {
         assertEquals(0, stats.getTotalCacheSize());
     }
 
+    @Test
+    void testOnFileChanged_EvictsOnlyKeysOfChangedFile() {
+        // 准备测试数据：文件1被重命名，文件2的缓存应保留
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.FILE_METADATA_CACHE);
+        ReflectionTestUtils.setField(fileCacheService, "cacheManager", cacheManager);
+        Cache cache = cacheManager.getCache(CacheConfig.FILE_METADATA_CACHE);
+        cache.put("file:1", "file1");
+        cache.put("content:1", "content1");
+        cache.put("path:10:/docs/a.txt", "file1");
+        cache.put("path:10:/docs//a.txt", "file1");
+        cache.put("path:10:/docs/b.txt", Optional.empty());
+        cache.put("file:2", "file2");
+        cache.put("path:10:/docs/c.txt", "file2");
+        fileCacheService.trackPathKey(1L, 10L, "/docs//a.txt");
+
+        // 执行测试
+        fileCacheService.onFileChanged(new FileChangedEvent(FileChangedEvent.ChangeType.RELOCATED, 1L,
+            10L, "/docs/a.txt", 10L, "/docs/b.txt"));
+
+        // 验证结果
+        assertNull(cache.get("file:1"));
+        assertNull(cache.get("path:10:/docs/a.txt"));
+        assertNull(cache.get("path:10:/docs//a.txt"));
+        assertNull(cache.get("path:10:/docs/b.txt"));
+        assertNotNull(cache.get("content:1")); // 重命名不影响内容缓存
+        assertNotNull(cache.get("file:2"));
+        assertNotNull(cache.get("path:10:/docs/c.txt"));
+    }
+
+
     /**
      * 创建测试文件实体
      */
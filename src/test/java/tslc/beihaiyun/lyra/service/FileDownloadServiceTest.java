@@ -0,0 +1,197 @@
+package tslc.beihaiyun.lyra.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文件下载服务测试类
+ * 测试Range区间、条件请求和区间解析
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("文件下载服务测试")
+class FileDownloadServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @Mock
+    private StorageService storageService;
+
+    @TempDir
+    Path tempDir;
+
+    private FileDownloadService fileDownloadService;
+    private FileEntity file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fileDownloadService = new FileDownloadService(storageService, new StorageAccessTracker());
+
+        Path stored = tempDir.resolve("stored.txt");
+        Files.writeString(stored, CONTENT, StandardCharsets.UTF_8);
+
+        file = new FileEntity();
+        file.setName("stored.txt");
+        file.setStoragePath("ab/cd/stored.txt");
+        file.setFileHash("hash123");
+        file.setSizeBytes((long) CONTENT.length());
+        file.setMimeType("text/plain");
+
+        lenient().when(storageService.getPath("ab/cd/stored.txt")).thenReturn(Optional.of(stored));
+    }
+
+    @Test
+    @DisplayName("单区间请求应返回206及对应内容")
+    void should_ReturnPartialContent_When_SingleRangeRequested() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader("Range", "bytes=5-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        fileDownloadService.serve(file, request, response, null, null);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 5-9/20");
+        assertThat(response.getContentAsString()).isEqualTo("56789");
+        assertThat(response.getHeader("ETag")).isEqualTo("\"hash123\"");
+    }
+
+    @Test
+    @DisplayName("持有传输许可时不应交给容器sendfile，应在许可归还前完成输出")
+    void should_WriteBeforeReturning_When_PermitHeldAndSendfileSupported() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        IoGovernor governor = new IoGovernor(governorProperties(null), new SimpleMeterRegistry());
+
+        // When
+        try (IoGovernor.Permit permit = governor.tryAcquire(1L, 1L).orElseThrow()) {
+            fileDownloadService.serve(file, request, response, null, null, permit);
+        }
+
+        // Then
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    @DisplayName("限速的区间请求跳过的字节不应计入带宽")
+    void should_NotChargeSkippedBytes_When_ThrottledRangeRequested() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader("Range", "bytes=15-19");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IoGovernor governor = new IoGovernor(governorProperties("1MB"), meterRegistry);
+        when(storageService.load("ab/cd/stored.txt"))
+            .thenReturn(Optional.of(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8))));
+
+        // When
+        try (IoGovernor.Permit permit = governor.tryAcquire(1L, 1L).orElseThrow()) {
+            fileDownloadService.serve(file, request, response, null, null, permit);
+        }
+
+        // Then
+        assertThat(response.getContentAsString()).isEqualTo("fghij");
+        assertThat(meterRegistry.get("lyra.io.throttled.bytes").counter().count()).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("多区间请求应返回multipart/byteranges")
+    void should_ReturnMultipart_When_MultipleRangesRequested() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader("Range", "bytes=0-1,-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        fileDownloadService.serve(file, request, response, null, null);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String body = response.getContentAsString();
+        assertThat(body).contains("Content-Range: bytes 0-1/20\r\n\r\n01");
+        assertThat(body).contains("Content-Range: bytes 18-19/20\r\n\r\nij");
+        assertThat((long) response.getContentAsByteArray().length).isEqualTo(response.getContentLengthLong());
+    }
+
+    @Test
+    @DisplayName("ETag匹配时应返回304且不输出内容")
+    void should_ReturnNotModified_When_ETagMatches() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader("If-None-Match", "\"other\", \"hash123\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        fileDownloadService.serve(file, request, response, null, null);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("区间超出文件大小时应返回416")
+    void should_ReturnRangeNotSatisfiable_When_RangeBeyondSize() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader("Range", "bytes=100-200");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        fileDownloadService.serve(file, request, response, null, null);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */20");
+    }
+
+    @Test
+    @DisplayName("重叠区间应被合并，无效格式应被忽略")
+    void should_CoalesceOrIgnoreRanges_When_Parsing() {
+        List<FileDownloadService.ByteRange> merged = FileDownloadService.parseRanges("bytes=10-15,0-3,2-6", 20);
+        assertThat(merged).extracting(FileDownloadService.ByteRange::toString).containsExactly("0-6", "10-15");
+
+        assertThat(FileDownloadService.parseRanges("bytes=5-2", 20)).isNull();
+        assertThat(FileDownloadService.parseRanges("items=0-1", 20)).isNull();
+    }
+
+    private static LyraProperties governorProperties(String userBandwidth) {
+        LyraProperties properties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        if (userBandwidth != null) {
+            storageConfig.setIoUserBandwidth(userBandwidth);
+        }
+        properties.setStorage(storageConfig);
+        return properties;
+    }
+}
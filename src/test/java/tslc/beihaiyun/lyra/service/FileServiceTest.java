@@ -12,11 +12,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.FileStatisticsCounter;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.entity.User;
 import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FileStatisticsRepository;
 import tslc.beihaiyun.lyra.repository.FolderRepository;
 import tslc.beihaiyun.lyra.repository.SpaceRepository;
 import tslc.beihaiyun.lyra.repository.UserRepository;
@@ -64,6 +67,12 @@ class FileServiceTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private FileStatisticsService fileStatisticsService;
+
+    @Autowired
+    private FileStatisticsRepository fileStatisticsRepository;
+
     private User testUser;
     private Space testSpace;
     private Folder testFolder;
@@ -290,6 +299,88 @@ class FileServiceTest {
         assertTrue(result.getFileEntity().getPath().contains(targetFolder.getName()));
     }
 
+    @Test
+    @DisplayName("批量上传应按输入顺序返回结果并为同名文件分配唯一名称")
+    void should_KeepOrderAndUniqueNames_When_BatchUploaded() {
+        // Given
+        List<MultipartFile> files = Arrays.asList(
+            new MockMultipartFile("files", "scan.pdf", "application/pdf", "page one".getBytes()),
+            new MockMultipartFile("files", "empty.txt", "text/plain", new byte[0]),
+            new MockMultipartFile("files", "scan.pdf", "application/pdf", "page two".getBytes()));
+
+        // When
+        List<FileService.FileOperationResult> results = fileService.batchUploadFiles(
+            files, testSpace, testFolder, testUser.getId());
+
+        // Then
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("上传文件不能为空", results.get(1).getMessage());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("scan.pdf", results.get(0).getFileEntity().getName());
+        assertEquals("scan_1.pdf", results.get(2).getFileEntity().getName());
+        assertEquals(2, fileEntityRepository.findByFolder(testFolder).size());
+    }
+
+    @Test
+    @DisplayName("同名上传应按已有序号分配最小的空闲序号")
+    void should_AllocateLowestFreeSuffix_When_NameTaken() {
+        // Given
+        createAnotherFile("scan.pdf");
+        createAnotherFile("scan_2.pdf");
+        createAnotherFile("scan_1x.pdf");
+
+        // When
+        String first = createAnotherFile("scan.pdf").getName();
+        String second = createAnotherFile("scan.pdf").getName();
+        String third = createAnotherFile("scan.pdf").getName();
+
+        // Then
+        assertEquals("scan_1.pdf", first);
+        assertEquals("scan_3.pdf", second);
+        assertEquals("scan_4.pdf", third);
+    }
+
+    @Test
+    @DisplayName("分配序号时应只认精确以原名前缀开头的路径")
+    void should_IgnoreCaseVariantsAndWildcards_When_AllocatingSuffix() {
+        // Given
+        createAnotherFile("draft_v.md");
+        createAnotherFile("Draft_v_1.md");
+        createAnotherFile("draftXv_2.md");
+
+        // When
+        String allocated = createAnotherFile("draft_v.md").getName();
+
+        // Then
+        assertEquals("draft_v_1.md", allocated);
+    }
+
+    @Test
+    @DisplayName("秒传只应命中用户可读空间内的相同内容")
+    void should_OnlyFindReadableContent_When_InstantUpload() {
+        // Given
+        createTestFile();
+        User otherUser = new User();
+        otherUser.setUsername("otheruser");
+        otherUser.setEmail("other@example.com");
+        otherUser.setPassword("hashedPassword");
+        otherUser.setEnabled(true);
+        otherUser = userRepository.save(otherUser);
+
+        // When
+        Optional<StorageService.StorageResult> ownContent = fileService.findExistingContent(
+            testFile.getFileHash(), testFile.getSizeBytes(), testUser.getId());
+        Optional<StorageService.StorageResult> foreignContent = fileService.findExistingContent(
+            testFile.getFileHash(), testFile.getSizeBytes(), otherUser.getId());
+
+        // Then
+        assertTrue(ownContent.isPresent());
+        assertEquals(testFile.getStoragePath(), ownContent.get().getStoragePath());
+        assertFalse(foreignContent.isPresent());
+    }
+
     @Test
     @DisplayName("复制文件应成功")
     void should_CopyFile_When_ValidTarget() {
@@ -308,6 +399,58 @@ class FileServiceTest {
         assertEquals(testFile.getSizeBytes(), result.getFileEntity().getSizeBytes());
     }
 
+    @Test
+    @DisplayName("复制文件应只复制元数据并引用同一存储对象")
+    void should_ShareStoragePath_When_FileCopied() {
+        // Given
+        createTestFile();
+        Folder targetFolder = createAnotherFolder();
+
+        // When
+        FileService.FileOperationResult result = fileService.copyFile(
+            testFile.getId(), testSpace, targetFolder, "copied.txt", testUser.getId());
+        FileService.FileOperationResult duplicate = fileService.copyFile(
+            testFile.getId(), testSpace, targetFolder, "copied.txt", testUser.getId());
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals("copied.txt", result.getFileEntity().getName());
+        assertEquals(testFile.getStoragePath(), result.getFileEntity().getStoragePath());
+        assertFalse(duplicate.isSuccess()); // 指定文件名已存在
+    }
+
+    @Test
+    @DisplayName("递归复制文件夹应复制子文件夹与文件且共享存储对象")
+    void should_CopyFolderRecursively_When_ValidTarget() {
+        // Given
+        createTestFile();
+        Folder child = new Folder();
+        child.setName("child");
+        child.setPath("/testfolder/child");
+        child.setParent(testFolder);
+        child.setSpace(testSpace);
+        child.setLevel(1);
+        child.setCreatedBy(testUser.getId().toString());
+        child.setUpdatedBy(testUser.getId().toString());
+        child = folderRepository.save(child);
+        Folder targetFolder = createAnotherFolder();
+
+        // When
+        FileService.BatchOperationResult result = fileService.copyFolder(
+            testFolder.getId(), testSpace, targetFolder, null, testUser.getId());
+        FileService.BatchOperationResult intoItself = fileService.copyFolder(
+            testFolder.getId(), testSpace, child, null, testUser.getId());
+
+        // Then
+        assertEquals(3, result.getSuccessCount()); // 两个文件夹和一个文件
+        Folder copiedRoot = folderRepository.findBySpaceAndPath(testSpace, "/anotherfolder/Test Folder").orElseThrow();
+        assertTrue(folderRepository.existsBySpaceAndPath(testSpace, "/anotherfolder/Test Folder/child"));
+        List<FileEntity> copiedFiles = fileEntityRepository.findByFolder(copiedRoot);
+        assertEquals(1, copiedFiles.size());
+        assertEquals(testFile.getStoragePath(), copiedFiles.get(0).getStoragePath());
+        assertEquals(0, intoItself.getSuccessCount());
+    }
+
     @Test
     @DisplayName("重命名文件应成功")
     void should_RenameFile_When_ValidName() {
@@ -378,6 +521,61 @@ class FileServiceTest {
         assertEquals(2, result.getSuccessCount());
     }
 
+    @Test
+    @DisplayName("批量移动应逐项报告重名和不存在的文件，其余文件按目标路径更新")
+    void should_ReportPerItemErrors_When_BatchMoveHasConflicts() {
+        // Given
+        createTestFile();
+        FileEntity file2 = createAnotherFile("file2.txt");
+        Folder targetFolder = createAnotherFolder();
+        FileService.FileOperationResult occupant = fileService.uploadFile(
+            new MockMultipartFile("file2.txt", "file2.txt", "text/plain", "occupant".getBytes()),
+            testSpace, targetFolder, testUser.getId());
+        assertTrue(occupant.isSuccess());
+        List<Long> fileIds = Arrays.asList(testFile.getId(), file2.getId(), Long.MAX_VALUE);
+
+        // When
+        FileService.BatchOperationResult result = fileService.batchMoveFiles(
+            fileIds, testSpace, targetFolder, testUser.getId());
+
+        // Then
+        assertEquals(3, result.getTotalCount());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(2, result.getFailureCount());
+        assertTrue(result.getErrorMessages().stream().anyMatch(message ->
+            message.startsWith("文件ID " + file2.getId()) && message.contains("同名")));
+        assertTrue(result.getErrorMessages().stream().anyMatch(message -> message.contains("不存在")));
+
+        FileEntity moved = fileEntityRepository.findById(testFile.getId()).orElseThrow();
+        assertEquals("/anotherfolder/test.txt", moved.getPath());
+        assertEquals(targetFolder.getId(), moved.getFolder().getId());
+        assertEquals("/testfolder/file2.txt", fileEntityRepository.findById(file2.getId()).orElseThrow().getPath());
+    }
+
+    @Test
+    @DisplayName("批量移动时批内未移动的已删除文件仍占用目标路径")
+    void should_ReportConflict_When_OccupantInBatchIsNotMoving() {
+        // Given
+        createTestFile();
+        Folder targetFolder = createAnotherFolder();
+        FileService.FileOperationResult occupant = fileService.uploadFile(
+            new MockMultipartFile("test.txt", "test.txt", "text/plain", "occupant".getBytes()),
+            testSpace, targetFolder, testUser.getId());
+        assertTrue(occupant.isSuccess());
+        assertTrue(fileService.deleteFile(occupant.getFileEntity().getId(), testUser.getId()));
+        List<Long> fileIds = Arrays.asList(testFile.getId(), occupant.getFileEntity().getId());
+
+        // When
+        FileService.BatchOperationResult result = fileService.batchMoveFiles(
+            fileIds, testSpace, targetFolder, testUser.getId());
+
+        // Then
+        assertEquals(0, result.getSuccessCount());
+        assertTrue(result.getErrorMessages().stream().anyMatch(message ->
+            message.startsWith("文件ID " + testFile.getId()) && message.contains("同名")));
+        assertEquals("/testfolder/test.txt", fileEntityRepository.findById(testFile.getId()).orElseThrow().getPath());
+    }
+
     // ==================== 查询和搜索测试 ====================
 
     @Test
@@ -513,6 +711,62 @@ class FileServiceTest {
         assertTrue(result.getTotalSize() > 0);
     }
 
+    @Test
+    @DisplayName("文件变更应同步维护统计计数，对账应修正计数偏差")
+    void should_MaintainStatisticsCounters_When_FilesChange() {
+        // Given
+        createTestFile();
+        FileEntity file2 = createAnotherFile("file2.txt");
+        createAnotherFile("file3.txt");
+        fileService.batchDeleteFiles(Arrays.asList(file2.getId()), testUser.getId());
+        fileService.permanentDeleteFile(testFile.getId(), testUser.getId());
+
+        // When
+        FileService.FileStatistics result = fileService.getFileStatistics(testSpace);
+
+        // Then
+        assertEquals(2, result.getTotalFiles());
+        assertEquals(1, result.getActiveFiles());
+        assertEquals(1, result.getDeletedFiles());
+        assertEquals(2L * "Another test content".length(), result.getTotalSize());
+
+        // 人为制造计数偏差后，对账应以文件表为准恢复
+        fileStatisticsRepository.applyDelta(testSpace.getId(), FileStatisticsCounter.SPACE_TOTAL, 5, 0, 0, 100, null);
+        assertEquals(6, fileService.getFileStatistics(testSpace).getActiveFiles());
+        fileStatisticsService.reconcile();
+        FileService.FileStatistics reconciled = fileService.getFileStatistics(testSpace);
+        assertEquals(1, reconciled.getActiveFiles());
+        assertEquals(result.getTotalSize(), reconciled.getTotalSize());
+    }
+
+    @Test
+    @DisplayName("用户跨空间的文件统计应随文件变更维护，对账后保持一致")
+    void should_MaintainUserTotals_When_FilesChangeAcrossSpaces() {
+        // Given
+        Space otherSpace = new Space();
+        otherSpace.setName("Other Space");
+        otherSpace.setType(Space.SpaceType.PERSONAL);
+        otherSpace.setOwner(testUser);
+        otherSpace.setCreatedBy(testUser.getId().toString());
+        otherSpace.setUpdatedBy(testUser.getId().toString());
+        otherSpace = spaceRepository.save(otherSpace);
+        createTestFile();
+        FileService.FileOperationResult other = fileService.createFile(
+            new ByteArrayInputStream("other".getBytes()), "other.txt", "text/plain",
+            otherSpace, null, testUser.getId());
+        assertTrue(other.isSuccess());
+
+        // When
+        fileService.permanentDeleteFile(testFile.getId(), testUser.getId());
+        FileService.FileStatistics result = fileService.getUserFileStatistics(testUser.getId());
+
+        // Then
+        assertEquals(1, result.getTotalFiles());
+        assertEquals(5L, result.getTotalSize());
+        fileStatisticsService.reconcile();
+        assertEquals(1, fileService.getUserFileStatistics(testUser.getId()).getTotalFiles());
+    }
+
     @Test
     @DisplayName("检查文件名存在应正确")
     void should_CheckFilenameExists_When_FileWithSameNameExists() {
@@ -10,9 +10,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
+import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.entity.User;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
 import tslc.beihaiyun.lyra.repository.FolderRepository;
 import tslc.beihaiyun.lyra.repository.SpaceRepository;
 import tslc.beihaiyun.lyra.repository.UserRepository;
@@ -43,6 +45,9 @@ class FolderServiceTest {
     @Autowired
     private FolderRepository folderRepository;
 
+    @Autowired
+    private FileEntityRepository fileEntityRepository;
+
     @Autowired
     private SpaceRepository spaceRepository;
 
@@ -264,6 +269,38 @@ class FolderServiceTest {
         assertEquals(rootFolder.getId(), rootFolders.get(0).getId());
     }
 
+    @Test
+    @DisplayName("键集分页列出子项时子文件夹在前且游标可续读")
+    void should_ListChildrenByKeyset_When_CursorGiven() {
+        // Given
+        folderService.createFolder("Another Folder", rootFolder, testSpace, testUser.getId());
+        for (String name : List.of("b.txt", "a.txt")) {
+            FileEntity file = new FileEntity(name, name, "Root Folder/" + name, testSpace, 10L, "storage/" + name);
+            file.setFolder(rootFolder);
+            fileEntityRepository.save(file);
+        }
+        FileEntity deleted = new FileEntity("c.txt", "c.txt", "Root Folder/c.txt", testSpace, 10L, "storage/c.txt");
+        deleted.setFolder(rootFolder);
+        deleted.setStatus(FileEntity.FileStatus.DELETED);
+        fileEntityRepository.save(deleted);
+
+        // When
+        FolderService.ChildPage first = folderService.listChildren(testSpace, rootFolder, null, 3);
+        FolderService.ChildPage second = folderService.listChildren(testSpace, rootFolder, first.getNextCursor(), 3);
+
+        // Then
+        assertTrue(first.hasMore());
+        assertEquals(List.of("Another Folder", "Sub Folder", "a.txt"),
+            first.getChildren().stream().map(FolderService.FolderChild::getName).toList());
+        assertTrue(first.getChildren().get(1).isFolder());
+        assertFalse(first.getChildren().get(2).isFolder());
+        assertFalse(second.hasMore());
+        assertEquals(List.of("b.txt"),
+            second.getChildren().stream().map(FolderService.FolderChild::getName).toList());
+        assertThrows(IllegalArgumentException.class,
+            () -> folderService.listChildren(testSpace, rootFolder, "not-a-cursor", 3));
+    }
+
     @Test
     @DisplayName("获取祖先文件夹应成功")
     void should_GetAncestorFolders_When_FolderHasAncestors() {
@@ -0,0 +1,151 @@
+package tslc.beihaiyun.lyra.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * I/O传输调控器测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("I/O传输调控器测试")
+class IoGovernorTest {
+
+    private LyraProperties.StorageConfig storageConfig;
+    private SimpleMeterRegistry meterRegistry;
+    private LyraProperties lyraProperties;
+
+    @BeforeEach
+    void setUp() {
+        lyraProperties = new LyraProperties();
+        storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setIoQueueTimeoutMs(50L);
+        lyraProperties.setStorage(storageConfig);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("用户并发传输数已满时排队超时应拒绝并计数，归还后可再次申请")
+    void should_RejectAndRecover_When_UserConcurrencyExhausted() {
+        // Given
+        storageConfig.setIoUserConcurrency(1);
+        IoGovernor governor = new IoGovernor(lyraProperties, meterRegistry);
+        Optional<IoGovernor.Permit> first = governor.tryAcquire(1L, 10L);
+
+        // When
+        Optional<IoGovernor.Permit> second = governor.tryAcquire(1L, 10L);
+        Optional<IoGovernor.Permit> otherUser = governor.tryAcquire(2L, 10L);
+
+        // Then
+        assertTrue(first.isPresent());
+        assertTrue(second.isEmpty());
+        assertTrue(otherUser.isPresent());
+        assertEquals(1.0, meterRegistry.get("lyra.io.rejected").tag("scope", "user").counter().count());
+        assertEquals(2, governor.getActiveTransfers());
+
+        first.get().close();
+        first.get().close(); // 重复关闭不应多次归还
+        otherUser.get().close();
+        assertEquals(0, governor.getActiveTransfers());
+        Optional<IoGovernor.Permit> retry = governor.tryAcquire(1L, 10L);
+        assertTrue(retry.isPresent());
+        retry.get().close();
+    }
+
+    @Test
+    @DisplayName("排队等待用户名额的请求不应占住全局名额")
+    void should_NotHoldGlobalSlot_When_WaitingForUserSlot() throws Exception {
+        // Given
+        storageConfig.setIoQueueTimeoutMs(500L);
+        storageConfig.setIoGlobalConcurrency(2);
+        storageConfig.setIoUserConcurrency(1);
+        IoGovernor governor = new IoGovernor(lyraProperties, meterRegistry);
+        IoGovernor.Permit first = governor.tryAcquire(1L, 10L).orElseThrow();
+        CompletableFuture<Optional<IoGovernor.Permit>> queued =
+            CompletableFuture.supplyAsync(() -> governor.tryAcquire(1L, 10L));
+        Thread.sleep(100);
+
+        // When
+        Optional<IoGovernor.Permit> otherUser = governor.tryAcquire(2L, 20L);
+
+        // Then
+        assertTrue(otherUser.isPresent());
+        assertTrue(queued.get().isEmpty());
+        first.close();
+        otherUser.get().close();
+    }
+
+    @Test
+    @DisplayName("清除闲置限制器时应保留仍有进行中传输的限制器")
+    void should_EvictOnlyIdleLimiters_When_Swept() {
+        // Given
+        IoGovernor governor = new IoGovernor(lyraProperties, meterRegistry);
+        governor.tryAcquire(1L, 10L).orElseThrow().close();
+        IoGovernor.Permit active = governor.tryAcquire(2L, 20L).orElseThrow();
+
+        // When
+        int evicted = governor.evictIdleLimiters(0);
+
+        // Then
+        assertEquals(2, evicted);
+        assertEquals(2, governor.getTrackedLimiters());
+        active.close();
+        assertEquals(2, governor.evictIdleLimiters(0));
+        assertEquals(0, governor.getTrackedLimiters());
+    }
+
+    @Test
+    @DisplayName("设置空间带宽上限时经许可读取的内容应被限速且内容不变")
+    void should_ThrottleContent_When_SpaceBandwidthLimited() throws IOException {
+        // Given
+        storageConfig.setIoSpaceBandwidth("64KB");
+        IoGovernor governor = new IoGovernor(lyraProperties, meterRegistry);
+        byte[] content = new byte[192 * 1024];
+        content[content.length - 1] = 7;
+
+        // When
+        byte[] read;
+        long elapsedMs;
+        try (IoGovernor.Permit permit = governor.tryAcquire(1L, 10L).orElseThrow()) {
+            assertTrue(permit.isThrottled());
+            long start = System.nanoTime();
+            try (InputStream in = permit.throttle(new ByteArrayInputStream(content))) {
+                read = in.readAllBytes();
+            }
+            elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        }
+
+        // Then
+        assertArrayEquals(content, read);
+        assertTrue(elapsedMs >= 1500, "192KB按64KB/s读取应至少等待约2秒, 实际: " + elapsedMs + "ms");
+        assertEquals(content.length, meterRegistry.get("lyra.io.throttled.bytes").counter().count());
+    }
+
+    @Test
+    @DisplayName("未配置任何上限时许可不应包装流")
+    void should_PassThrough_When_Unlimited() {
+        // Given
+        IoGovernor governor = new IoGovernor(lyraProperties, meterRegistry);
+        InputStream in = new ByteArrayInputStream(new byte[16]);
+
+        // When
+        try (IoGovernor.Permit permit = governor.tryAcquire(null, null).orElseThrow()) {
+            // Then
+            assertFalse(permit.isThrottled());
+            assertSame(in, permit.throttle(in));
+        }
+    }
+}
@@ -9,9 +9,11 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.Blob;
 import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.entity.User;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
 import tslc.beihaiyun.lyra.repository.FileEntityRepository;
 import tslc.beihaiyun.lyra.service.impl.LocalFileStorageService;
 import tslc.beihaiyun.lyra.util.FileUtils;
@@ -22,6 +24,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -44,6 +47,9 @@ class StorageServiceTest {
     @Mock
     private FileEntityRepository fileEntityRepository;
 
+    @Mock
+    private BlobRepository blobRepository;
+
     private StorageService storageService;
     private LyraProperties lyraProperties;
     private Path basePath;
@@ -69,7 +75,8 @@ class StorageServiceTest {
         lyraProperties.setStorage(storageConfig);
 
         // 创建服务实例
-        storageService = new LocalFileStorageService(lyraProperties, fileEntityRepository);
+        storageService = new LocalFileStorageService(lyraProperties, fileEntityRepository, blobRepository,
+            new StorageUsageTracker(lyraProperties));
         ((LocalFileStorageService) storageService).init();
     }
 
@@ -392,6 +399,45 @@ class StorageServiceTest {
         assertThrows(IOException.class, () -> storageService.store(emptyFile));
     }
 
+    @Test
+    @DisplayName("单遍写入应同时得到正确的哈希和嗅探类型")
+    void should_ComputeHashAndSniffType_When_StoreInSinglePass() throws IOException {
+        // Given - PNG 文件头，但客户端未给出扩展名
+        byte[] content = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A, 0x01, 0x02};
+        when(fileEntityRepository.findByFileHash(anyString())).thenReturn(Collections.emptyList());
+
+        // When
+        StorageService.StorageResult result = storageService.store(
+            new ByteArrayInputStream(content), "image-without-ext", null);
+
+        // Then
+        assertEquals(FileUtils.calculateSHA256(new ByteArrayInputStream(content)), result.getFileHash());
+        assertEquals(content.length, result.getSizeBytes());
+        assertEquals("image/png", result.getDetectedContentType());
+    }
+
+    @Test
+    @DisplayName("流式写入超过大小限制时应中止并清理临时文件")
+    void should_AbortAndCleanup_When_StreamExceedsMaxFileSize() throws IOException {
+        // Given - 超过 10MB 限制的流
+        InputStream oversized = new InputStream() {
+            private long remaining = 11L * 1024 * 1024;
+
+            @Override
+            public int read() {
+                return remaining-- > 0 ? 'a' : -1;
+            }
+        };
+
+        // When & Then
+        IOException exception = assertThrows(IOException.class,
+            () -> storageService.store(oversized, "huge.log", "text/plain"));
+        assertTrue(exception.getMessage().contains("文件大小超过限制"));
+        try (var files = Files.list(tempPath)) {
+            assertEquals(0, files.count());
+        }
+    }
+
     @Test
     @DisplayName("存储null文件应抛出异常")
     void should_ThrowException_When_StoreNullFile() {
@@ -463,7 +509,8 @@ class StorageServiceTest {
         LyraProperties.StorageConfig config = lyraProperties.getStorage();
         config.setEnableDeduplication(false);
         
-        StorageService disabledDeduplicationService = new LocalFileStorageService(lyraProperties, fileEntityRepository);
+        StorageService disabledDeduplicationService = new LocalFileStorageService(lyraProperties, fileEntityRepository, blobRepository,
+            new StorageUsageTracker(lyraProperties));
         ((LocalFileStorageService) disabledDeduplicationService).init();
 
         // When
@@ -472,4 +519,110 @@ class StorageServiceTest {
         // Then
         assertFalse(duplicatePath.isPresent());
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("查找重复文件应优先使用内容块登记表")
+    void should_FindDuplicateFromBlobRegistry_When_BlobRegistered() throws IOException {
+        // Given
+        String hash = "registered-hash";
+        Path registeredPath = basePath.resolve("registered/blob.bin");
+        Files.createDirectories(registeredPath.getParent());
+        Files.write(registeredPath, "blob".getBytes());
+
+        Blob blob = new Blob(hash, "registered/blob.bin", 4L);
+        blob.setRefCount(2L);
+        when(blobRepository.findFirstByFileHashAndRefCountGreaterThanOrderByIdAsc(hash, 0L))
+            .thenReturn(Optional.of(blob));
+
+        // When
+        Optional<String> duplicatePath = storageService.findDuplicateFile(hash);
+
+        // Then
+        assertEquals(Optional.of("registered/blob.bin"), duplicatePath);
+        verify(fileEntityRepository, never()).findByFileHash(anyString());
+    }
+
+    @Test
+    @DisplayName("默认存储路径上的内容块可能正被回收时应改用独立路径")
+    void should_AllocateSeparatePath_When_DefaultPathCollectable() throws IOException {
+        // Given
+        when(blobRepository.existsCollectableByStoragePath(anyString())).thenReturn(true, false);
+        byte[] content = "回收中的内容".getBytes();
+
+        // When
+        StorageService.StorageResult result = storageService.store(content, "reused.txt", "text/plain");
+
+        // Then
+        String defaultPath = FileUtils.generateStoragePath(result.getFileHash(), "reused.txt");
+        assertNotEquals(defaultPath, result.getStoragePath());
+        assertTrue(result.getStoragePath().contains(result.getFileHash() + "-"));
+        assertTrue(storageService.exists(result.getStoragePath()));
+        assertFalse(storageService.exists(defaultPath));
+    }
+
+    @Test
+    @DisplayName("可压缩的文本内容应以GZIP存储且读取时透明解压")
+    void should_StoreCompressed_When_ContentIsCompressible() throws IOException {
+        // Given
+        String content = "2025-07-20 12:00:00 INFO 请求处理完成 status=200 path=/api/files\n".repeat(500);
+
+        // When
+        StorageService.StorageResult result = storageService.store(content.getBytes(), "app.log", "text/plain");
+
+        // Then
+        assertEquals(Blob.CODEC_GZIP, result.getCodec());
+        assertTrue(result.getStoredSizeBytes() < result.getSizeBytes() / 4);
+        assertTrue(Files.exists(basePath.resolve(result.getStoragePath() + ".gz")));
+        assertFalse(storageService.getPath(result.getStoragePath()).isPresent());
+        assertTrue(storageService.exists(result.getStoragePath()));
+        assertEquals(content.getBytes().length, storageService.getFileSize(result.getStoragePath()));
+        assertTrue(storageService.verifyIntegrity(result.getStoragePath(), result.getFileHash()));
+        try (InputStream in = storageService.load(result.getStoragePath()).orElseThrow()) {
+            assertEquals(content, new String(in.readAllBytes()));
+        }
+        assertTrue(storageService.delete(result.getStoragePath()));
+        assertFalse(Files.exists(basePath.resolve(result.getStoragePath() + ".gz")));
+    }
+
+    @Test
+    @DisplayName("不可压缩的内容应原样存储")
+    void should_StoreRaw_When_ContentIsIncompressible() throws IOException {
+        // Given
+        byte[] content = new byte[64 * 1024];
+        new Random(42).nextBytes(content);
+
+        // When
+        StorageService.StorageResult result = storageService.store(content, "random.bin", null);
+
+        // Then
+        assertEquals(Blob.CODEC_NONE, result.getCodec());
+        assertEquals(content.length, result.getStoredSizeBytes());
+        assertTrue(storageService.getPath(result.getStoragePath()).isPresent());
+        assertFalse(Files.exists(basePath.resolve(result.getStoragePath() + ".gz")));
+    }
+
+    @Test
+    @DisplayName("移动文件时应清理源路径和目标路径上另一种编码的副本")
+    void should_RemoveOtherEncodingCopies_When_FileMoved() throws IOException {
+        // Given
+        byte[] content = new byte[64 * 1024];
+        new Random(7).nextBytes(content);
+        StorageService.StorageResult result = storageService.store(content, "moved.bin", null);
+        assertEquals(Blob.CODEC_NONE, result.getCodec());
+        String targetPath = "moved-target.bin";
+        Files.write(basePath.resolve(result.getStoragePath() + ".gz"), "残留的压缩副本".getBytes());
+        Files.write(basePath.resolve(targetPath + ".gz"), "目标路径上的旧内容".getBytes());
+
+        // When
+        boolean moved = storageService.move(result.getStoragePath(), targetPath);
+
+        // Then
+        assertTrue(moved);
+        assertFalse(storageService.exists(result.getStoragePath()));
+        assertFalse(Files.exists(basePath.resolve(result.getStoragePath() + ".gz")));
+        assertFalse(Files.exists(basePath.resolve(targetPath + ".gz")));
+        try (InputStream in = storageService.load(targetPath).orElseThrow()) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 存储用量统计器测试类
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("存储用量统计器测试")
+class StorageUsageTrackerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StorageUsageTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.toString());
+        lyraProperties.setStorage(storageConfig);
+        tracker = new StorageUsageTracker(lyraProperties);
+    }
+
+    @Test
+    @DisplayName("对账应以存储目录扫描结果覆盖增量计数")
+    void should_ReplaceCounters_When_Reconciled() throws Exception {
+        // Given
+        Files.createDirectories(tempDir.resolve("ab/cd"));
+        Files.write(tempDir.resolve("ab/cd/one.bin"), new byte[100]);
+        Files.write(tempDir.resolve("ab/two.bin"), new byte[50]);
+        tracker.recordObjectStored(999);
+
+        // When
+        tracker.reconcile();
+
+        // Then
+        assertThat(tracker.isReconciled()).isTrue();
+        assertThat(tracker.getObjectCount()).isEqualTo(2);
+        assertThat(tracker.getStoredBytes()).isEqualTo(150);
+    }
+
+    @Test
+    @DisplayName("存储对象写入与删除应增量更新计数")
+    void should_UpdateObjectCounters_When_ObjectsChange() {
+        // When
+        tracker.recordObjectStored(100);
+        tracker.recordObjectStored(40);
+        tracker.recordObjectDeleted(40);
+
+        // Then
+        assertThat(tracker.getObjectCount()).isEqualTo(1);
+        assertThat(tracker.getStoredBytes()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,152 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.service.impl.StripedFileStorageService;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * 条带化存储服务测试
+ * 测试多磁盘分布、多副本写入与新增磁盘后的重新均衡
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("条带化存储服务测试")
+class StripedStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    private final List<StripedFileStorageService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(StripedFileStorageService::shutdown);
+    }
+
+    @Test
+    @DisplayName("多副本存储应在不同磁盘各写一份且删除时全部移除")
+    void should_WriteEveryReplica_When_ReplicasConfigured() throws Exception {
+        // Given
+        StripedFileStorageService storageService = createService(2, "disk0", "disk1", "disk2");
+
+        // When
+        StorageService.StorageResult result = storageService.store("replicated".getBytes(), "r.txt", "text/plain");
+
+        // Then
+        assertEquals(2, countCopies(result.getStoragePath(), "disk0", "disk1", "disk2"));
+        assertTrue(storageService.exists(result.getStoragePath()));
+        assertTrue(storageService.delete(result.getStoragePath()));
+        assertEquals(0, countCopies(result.getStoragePath(), "disk0", "disk1", "disk2"));
+    }
+
+    @Test
+    @DisplayName("新增磁盘后重新均衡应只迁移归属新磁盘的内容且内容仍可读取")
+    void should_MoveOnlyReassignedBlobs_When_DiskAdded() throws Exception {
+        // Given
+        StripedFileStorageService twoDisks = createService(1, "disk0", "disk1");
+        List<String> storagePaths = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            storagePaths.add(twoDisks.store(("blob-" + i).getBytes(), "b" + i + ".bin", null).getStoragePath());
+        }
+
+        // When
+        StripedFileStorageService threeDisks = createService(1, "disk0", "disk1", "disk2");
+        assertTrue(threeDisks.rebalance());
+
+        // Then
+        int onNewDisk = 0;
+        for (int i = 0; i < storagePaths.size(); i++) {
+            String storagePath = storagePaths.get(i);
+            assertEquals(1, countCopies(storagePath, "disk0", "disk1", "disk2"));
+            if (Files.exists(tempDir.resolve("disk2").resolve(storagePath))) {
+                onNewDisk++;
+            }
+            Optional<InputStream> content = threeDisks.load(storagePath);
+            assertTrue(content.isPresent());
+            try (InputStream in = content.get()) {
+                assertEquals("blob-" + i, new String(in.readAllBytes()));
+            }
+        }
+        assertTrue(onNewDisk > 0 && onNewDisk < storagePaths.size());
+    }
+
+    @Test
+    @DisplayName("重新均衡不应为已无引用的内容块写入新副本")
+    void should_SkipUnreferencedBlobs_When_Rebalancing() throws Exception {
+        // Given
+        StripedFileStorageService oneDisk = createService(1, "disk0");
+        String storagePath = oneDisk.store("orphaned".getBytes(), "o.bin", null).getStoragePath();
+
+        // When
+        StripedFileStorageService threeDisks = createService(3, "disk0", "disk1", "disk2");
+        when(blobRepository.existsCollectableByStoragePath(storagePath)).thenReturn(true);
+        assertTrue(threeDisks.rebalance());
+
+        // Then
+        assertEquals(1, countCopies(storagePath, "disk0", "disk1", "disk2"));
+        assertTrue(Files.exists(tempDir.resolve("disk0").resolve(storagePath)));
+    }
+
+    private StripedFileStorageService createService(int replicas, String... diskNames) {
+        MockitoAnnotations.openMocks(this);
+
+        List<String> diskPaths = new ArrayList<>();
+        for (String diskName : diskNames) {
+            diskPaths.add(tempDir.resolve(diskName).toString());
+        }
+
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.resolve("disk0").toString());
+        storageConfig.setTempPath(tempDir.resolve("temp").toString());
+        storageConfig.setMaxFileSize("10MB");
+        storageConfig.setAllowedTypes("*");
+        storageConfig.setEnableDeduplication(false);
+        storageConfig.setBackend("striped");
+        storageConfig.setStripePaths(String.join(",", diskPaths));
+        storageConfig.setStripeReplicas(replicas);
+        storageConfig.setStripeIoThreads(2);
+        lyraProperties.setStorage(storageConfig);
+
+        StripedFileStorageService service = new StripedFileStorageService(lyraProperties, fileEntityRepository,
+            blobRepository, new StorageUsageTracker(lyraProperties));
+        service.init();
+        services.add(service);
+        return service;
+    }
+
+    private int countCopies(String storagePath, String... diskNames) {
+        int copies = 0;
+        for (String diskName : diskNames) {
+            if (Files.exists(tempDir.resolve(diskName).resolve(storagePath))) {
+                copies++;
+            }
+        }
+        return copies;
+    }
+}
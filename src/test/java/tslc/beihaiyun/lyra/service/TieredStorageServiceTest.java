@@ -0,0 +1,134 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.service.impl.LocalFileStorageService;
+import tslc.beihaiyun.lyra.service.impl.TieredStorageService;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 冷热分层存储服务测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("冷热分层存储服务测试")
+class TieredStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    private StorageAccessTracker accessTracker;
+    private TieredStorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.resolve("capacity").toString());
+        storageConfig.setTempPath(tempDir.resolve("temp").toString());
+        storageConfig.setMaxFileSize("10MB");
+        storageConfig.setAllowedTypes("*");
+        storageConfig.setEnableDeduplication(false);
+        storageConfig.setTierEnabled(true);
+        storageConfig.setTierFastPath(tempDir.resolve("fast").toString());
+        storageConfig.setTierFastCapacity("1KB");
+        storageConfig.setTierPromoteThreshold(2);
+        lyraProperties.setStorage(storageConfig);
+
+        LocalFileStorageService capacityTier = new LocalFileStorageService(lyraProperties, fileEntityRepository,
+            blobRepository, new StorageUsageTracker(lyraProperties));
+        capacityTier.init();
+
+        accessTracker = new StorageAccessTracker();
+        storageService = new TieredStorageService(capacityTier, accessTracker, lyraProperties);
+        storageService.init();
+    }
+
+    @Test
+    @DisplayName("热度达到阈值的内容应提升到热层并优先从热层读取")
+    void should_ServeFromFastTier_When_PathIsHot() throws Exception {
+        // Given
+        String hot = storageService.store("hot content".getBytes(), "hot.txt", "text/plain").getStoragePath();
+        String cold = storageService.store("cold content".getBytes(), "cold.txt", "text/plain").getStoragePath();
+        accessTracker.recordAccess(hot);
+        accessTracker.recordAccess(hot);
+        accessTracker.recordAccess(cold);
+
+        // When
+        storageService.migrate();
+
+        // Then
+        assertTrue(storageService.isInFastTier(hot));
+        assertFalse(storageService.isInFastTier(cold));
+        assertTrue(storageService.getPath(hot).orElseThrow().startsWith(tempDir.resolve("fast")));
+        try (InputStream in = storageService.load(hot).orElseThrow()) {
+            assertEquals("hot content", new String(in.readAllBytes()));
+        }
+        assertTrue(Files.exists(tempDir.resolve("capacity").resolve(hot)));
+    }
+
+    @Test
+    @DisplayName("热层容量不足时应只保留最热的工作集")
+    void should_KeepOnlyHottest_When_FastTierFull() throws Exception {
+        // Given
+        String warm = storageService.store(new byte[600], "warm.bin", null).getStoragePath();
+        String hottest = storageService.store(new byte[700], "hottest.bin", null).getStoragePath();
+        accessTracker.recordAccess(warm);
+        accessTracker.recordAccess(warm);
+        storageService.migrate();
+        assertTrue(storageService.isInFastTier(warm));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            accessTracker.recordAccess(hottest);
+        }
+        storageService.migrate();
+
+        // Then
+        assertTrue(storageService.isInFastTier(hottest));
+        assertFalse(storageService.isInFastTier(warm));
+        assertFalse(Files.exists(tempDir.resolve("fast").resolve(warm)));
+        assertTrue(storageService.getFastTierUsedBytes() <= 1024);
+    }
+
+    @Test
+    @DisplayName("删除内容时应同时移除热层副本")
+    void should_RemoveFastCopy_When_Deleted() throws Exception {
+        // Given
+        String path = storageService.store("to delete".getBytes(), "d.txt", "text/plain").getStoragePath();
+        accessTracker.recordAccess(path);
+        accessTracker.recordAccess(path);
+        storageService.migrate();
+
+        // When
+        boolean deleted = storageService.delete(path);
+
+        // Then
+        assertTrue(deleted);
+        assertFalse(storageService.isInFastTier(path));
+        assertFalse(Files.exists(tempDir.resolve("fast").resolve(path)));
+        assertFalse(storageService.exists(path));
+    }
+}
@@ -0,0 +1,175 @@
+package tslc.beihaiyun.lyra.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.FileVersion;
+import tslc.beihaiyun.lyra.repository.BlobRepository;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FileVersionRepository;
+import tslc.beihaiyun.lyra.service.impl.LocalFileStorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 版本差量存储服务测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("版本差量存储服务测试")
+class VersionDeltaServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private FileVersionRepository fileVersionRepository;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private BlobService blobService;
+
+    private StorageService storageService;
+    private VersionDeltaService versionDeltaService;
+    private FileEntity file;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        LyraProperties lyraProperties = new LyraProperties();
+        LyraProperties.StorageConfig storageConfig = new LyraProperties.StorageConfig();
+        storageConfig.setBasePath(tempDir.resolve("files").toString());
+        storageConfig.setTempPath(tempDir.resolve("temp").toString());
+        storageConfig.setMaxFileSize("10MB");
+        storageConfig.setAllowedTypes("*");
+        storageConfig.setEnableDeduplication(false);
+        storageConfig.setVersionKeyframeInterval(3);
+        lyraProperties.setStorage(storageConfig);
+
+        LocalFileStorageService localStorage = new LocalFileStorageService(lyraProperties, fileEntityRepository,
+            blobRepository, new StorageUsageTracker(lyraProperties));
+        localStorage.init();
+        storageService = localStorage;
+        versionDeltaService = new VersionDeltaService(fileVersionRepository, storageService, blobService,
+            lyraProperties);
+
+        file = new FileEntity();
+        file.setId(1L);
+        file.setName("notes.md");
+        file.setMimeType("text/markdown");
+        when(fileVersionRepository.save(any(FileVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("上一版本应改存为差量且能沿差量链还原")
+    void should_StoreDeltaAndReconstruct_When_NewVersionCreated() throws IOException {
+        // Given
+        String v1Content = document(0);
+        String v2Content = document(1);
+        String v3Content = document(2);
+        FileVersion v1 = version(1L, 1, v1Content);
+        FileVersion v2 = version(2L, 2, v2Content);
+        FileVersion v3 = version(3L, 3, v3Content);
+        when(fileVersionRepository.findById(2L)).thenReturn(Optional.of(v2));
+        when(fileVersionRepository.findById(3L)).thenReturn(Optional.of(v3));
+        String v1FullPath = v1.getStoragePath();
+
+        // When
+        boolean v1Deltified = versionDeltaService.deltify(v1, v2);
+        boolean v2Deltified = versionDeltaService.deltify(v2, v3);
+
+        // Then
+        assertTrue(v1Deltified);
+        assertTrue(v2Deltified);
+        assertTrue(v1.isDelta());
+        assertEquals(2L, v1.getBaseVersionId());
+        assertTrue(storageService.getFileSize(v1.getStoragePath()) < v1Content.length() / 4);
+        verify(blobService).release(v1FullPath);
+        assertEquals(v1Content, read(versionDeltaService.open(v1)));
+        assertEquals(v2Content, read(versionDeltaService.open(v2)));
+    }
+
+    @Test
+    @DisplayName("关键帧版本应保持完整存储")
+    void should_KeepFull_When_VersionIsKeyframe() throws IOException {
+        // Given
+        FileVersion v3 = version(3L, 3, document(0));
+        FileVersion v4 = version(4L, 4, document(1));
+
+        // When
+        boolean deltified = versionDeltaService.deltify(v3, v4);
+
+        // Then
+        assertFalse(deltified);
+        assertFalse(v3.isDelta());
+        verifyNoInteractions(blobService);
+    }
+
+    @Test
+    @DisplayName("删除基准版本前应将依赖它的差量版本恢复为完整存储")
+    void should_RehydrateDependents_When_BaseVersionDetached() throws IOException {
+        // Given
+        String v1Content = document(0);
+        FileVersion v1 = version(1L, 1, v1Content);
+        FileVersion v2 = version(2L, 2, document(1));
+        when(fileVersionRepository.findById(2L)).thenReturn(Optional.of(v2));
+        assertTrue(versionDeltaService.deltify(v1, v2));
+        when(fileVersionRepository.findByBaseVersionId(2L)).thenReturn(List.of(v1));
+
+        // When
+        versionDeltaService.detachDependents(v2);
+
+        // Then
+        assertFalse(v1.isDelta());
+        assertNull(v1.getBaseVersionId());
+        try (InputStream in = storageService.load(v1.getStoragePath()).orElseThrow()) {
+            assertEquals(v1Content, new String(in.readAllBytes()));
+        }
+    }
+
+    private FileVersion version(Long id, int number, String content) throws IOException {
+        StorageService.StorageResult stored = storageService.store(content.getBytes(), file.getName(),
+            file.getMimeType());
+        FileVersion version = new FileVersion(file, number, stored.getSizeBytes(), stored.getStoragePath());
+        version.setId(id);
+        version.setFileHash(stored.getFileHash());
+        return version;
+    }
+
+    private String document(int revision) {
+        StringBuilder builder = new StringBuilder();
+        for (int line = 0; line < 400; line++) {
+            builder.append("第").append(line).append("行：")
+                .append(line == 200 ? "修订" + revision : "稳定内容 " + line * 31)
+                .append('\n');
+        }
+        return builder.toString();
+    }
+
+    private String read(Optional<InputStream> content) throws IOException {
+        try (InputStream in = content.orElseThrow()) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
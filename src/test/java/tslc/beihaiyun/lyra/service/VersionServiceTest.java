@@ -4,9 +4,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -15,6 +17,7 @@ import tslc.beihaiyun.lyra.entity.FileEntity;
 import tslc.beihaiyun.lyra.entity.FileVersion;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.entity.User;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
 import tslc.beihaiyun.lyra.repository.FileVersionRepository;
 import tslc.beihaiyun.lyra.service.impl.VersionServiceImpl;
 
@@ -43,9 +46,24 @@ class VersionServiceTest {
     @Mock
     private FileVersionRepository fileVersionRepository;
 
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
     @Mock
     private StorageService storageService;
 
+    @Mock
+    private BlobService blobService;
+
+    @Mock
+    private VersionDeltaService versionDeltaService;
+
+    @Mock
+    private FileStatisticsService fileStatistics;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private VersionServiceImpl versionService;
 
@@ -136,6 +154,13 @@ class VersionServiceTest {
 
         verify(storageService).store(any(InputStream.class), eq(testFile.getName()), eq(testFile.getMimeType()));
         verify(fileVersionRepository).save(any(FileVersion.class));
+        verify(versionDeltaService).deltify(testVersion, newVersion);
+
+        // 取最新版本并做差量编码前应先锁定文件行
+        InOrder inOrder = inOrder(fileEntityRepository, fileVersionRepository, versionDeltaService);
+        inOrder.verify(fileEntityRepository).findByIdForUpdate(testFile.getId());
+        inOrder.verify(fileVersionRepository).findFirstByFileOrderByVersionNumberDesc(testFile);
+        inOrder.verify(versionDeltaService).deltify(testVersion, newVersion);
     }
 
     @Test
@@ -340,6 +365,25 @@ class VersionServiceTest {
         verify(storageService).load(testVersion.getStoragePath());
     }
 
+    @Test
+    @DisplayName("获取差量版本内容应由差量服务还原")
+    void should_ReconstructContent_When_VersionIsDelta() throws IOException {
+        // Given
+        testVersion.setStorageType(FileVersion.StorageType.DELTA);
+        testVersion.setBaseVersionId(2L);
+        InputStream reconstructed = new ByteArrayInputStream("content".getBytes());
+
+        when(fileVersionRepository.findById(1L)).thenReturn(Optional.of(testVersion));
+        when(versionDeltaService.open(testVersion)).thenReturn(Optional.of(reconstructed));
+
+        // When
+        Optional<InputStream> result = versionService.getVersionContent(1L);
+
+        // Then
+        assertThat(result).contains(reconstructed);
+        verify(storageService, never()).load(anyString());
+    }
+
     @Test
     @DisplayName("验证版本完整性成功")
     void should_VerifyVersionIntegritySuccessfully_When_VersionIsValid() {
@@ -403,6 +447,31 @@ class VersionServiceTest {
         verify(storageService).store(any(InputStream.class), eq(testFile.getName()), eq(testFile.getMimeType()));
     }
 
+    @Test
+    @DisplayName("回滚到指定版本成功 - 不创建新版本时保存文件并发布内容变更事件")
+    void should_SaveAndPublishContentUpdated_When_RollbackWithoutNewVersion() {
+        // Given
+        testVersion.setSizeBytes(512L);
+        when(fileVersionRepository.findByFileAndVersionNumber(testFile, 1)).thenReturn(Optional.of(testVersion));
+        when(fileEntityRepository.save(testFile)).thenReturn(testFile);
+
+        // When
+        VersionService.VersionOperationResult result = versionService.rollbackToVersion(testFile, 1, 1L, false);
+
+        // Then
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(testFile.getStoragePath()).isEqualTo("/storage/test_v1.txt");
+        assertThat(testFile.getSizeBytes()).isEqualTo(512L);
+
+        InOrder inOrder = inOrder(blobService, fileEntityRepository, fileStatistics, eventPublisher);
+        inOrder.verify(blobService).acquire("/storage/test_v1.txt", "abc123", 512L);
+        inOrder.verify(blobService).release("/storage/test.txt");
+        inOrder.verify(fileEntityRepository).save(testFile);
+        inOrder.verify(fileStatistics).recordResized(testFile, -512L);
+        inOrder.verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof FileChangedEvent changed
+                && changed.getType() == FileChangedEvent.ChangeType.CONTENT_UPDATED));
+    }
+
     @Test
     @DisplayName("回滚到上一版本失败 - 没有可回滚的版本")
     void should_FailToRollbackToPrevious_When_NoVersionToRollback() {
@@ -428,7 +497,7 @@ class VersionServiceTest {
         Long versionId = 1L;
         when(fileVersionRepository.findById(versionId)).thenReturn(Optional.of(testVersion));
         when(fileVersionRepository.countByFile(testVersion.getFile())).thenReturn(2L); // 有多个版本
-        when(storageService.delete(testVersion.getStoragePath())).thenReturn(true);
+        when(blobService.release(testVersion.getStoragePath())).thenReturn(true);
 
         // When
         boolean result = versionService.deleteVersion(versionId, 1L);
@@ -438,7 +507,8 @@ class VersionServiceTest {
 
         verify(fileVersionRepository).findById(versionId);
         verify(fileVersionRepository).countByFile(testVersion.getFile());
-        verify(storageService).delete(testVersion.getStoragePath());
+        verify(blobService).release(testVersion.getStoragePath());
+        verify(storageService, never()).delete(any());
         verify(fileVersionRepository).delete(testVersion);
     }
 
@@ -459,6 +529,7 @@ class VersionServiceTest {
         verify(fileVersionRepository).findById(versionId);
         verify(fileVersionRepository).countByFile(testVersion.getFile());
         verify(storageService, never()).delete(any());
+        verify(blobService, never()).release(any());
         verify(fileVersionRepository, never()).delete(any());
     }
 
@@ -483,6 +554,29 @@ class VersionServiceTest {
         verify(fileVersionRepository).findByFileOrderByVersionNumberAsc(testFile);
     }
 
+    @Test
+    @DisplayName("批量获取版本摘要只执行一次聚合查询")
+    void should_GetVersionSummariesInOneQuery_When_FileIdsGiven() {
+        // Given
+        LocalDateTime latestTime = LocalDateTime.of(2025, 7, 1, 8, 30);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, 3L, 3, "第三版", latestTime});
+        rows.add(new Object[]{2L, 1L, 1, null, latestTime});
+        when(fileVersionRepository.summarizeByFileIds(List.of(1L, 2L, 3L))).thenReturn(rows);
+
+        // When
+        Map<Long, VersionService.VersionSummary> summaries = versionService.getVersionSummaries(List.of(1L, 2L, 3L));
+
+        // Then
+        assertThat(summaries).hasSize(2).doesNotContainKey(3L);
+        assertThat(summaries.get(1L).getTotalVersions()).isEqualTo(3L);
+        assertThat(summaries.get(1L).getLatestVersionNumber()).isEqualTo(3);
+        assertThat(summaries.get(1L).getLatestComment()).isEqualTo("第三版");
+        assertThat(summaries.get(1L).getLatestVersionTime()).isEqualTo(latestTime);
+        verify(fileVersionRepository, times(1)).summarizeByFileIds(any());
+        verify(fileVersionRepository, never()).findByFileOrderByVersionNumberAsc(any());
+    }
+
     @Test
     @DisplayName("统计版本数量成功")
     void should_CountVersionsSuccessfully_When_VersionsExist() {
@@ -569,7 +663,7 @@ class VersionServiceTest {
             VersionService.CleanupStrategy.KEEP_COUNT, 2, null, null, false, false);
 
         when(fileVersionRepository.findByFileOrderByVersionNumberDesc(testFile)).thenReturn(allVersions);
-        when(storageService.delete(testVersion.getStoragePath())).thenReturn(true);
+        when(blobService.release(testVersion.getStoragePath())).thenReturn(true);
 
         // When
         VersionService.CleanupResult result = versionService.cleanupFileVersions(testFile, config);
@@ -581,7 +675,7 @@ class VersionServiceTest {
         assertThat(result.isSuccessful()).isTrue();
 
         verify(fileVersionRepository).findByFileOrderByVersionNumberDesc(testFile);
-        verify(storageService).delete(testVersion.getStoragePath());
+        verify(blobService).release(testVersion.getStoragePath());
         verify(fileVersionRepository).delete(testVersion);
     }
 
@@ -0,0 +1,54 @@
+package tslc.beihaiyun.lyra.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内容定义分块器测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@DisplayName("内容定义分块器测试")
+class ContentDefinedChunkerTest {
+
+    @Test
+    @DisplayName("过大的平均块大小应按上限处理，限制分块缓冲区的内存占用")
+    void should_CapMaxSize_When_AverageSizeTooLarge() {
+        // When
+        ContentDefinedChunker chunker = new ContentDefinedChunker(64 * 1024 * 1024);
+
+        // Then
+        assertEquals(ContentDefinedChunker.MAX_AVERAGE_SIZE * 4, chunker.getMaxSize());
+    }
+
+    @Test
+    @DisplayName("切分后的块应首尾相接覆盖全部内容且不超过最大块")
+    void should_CoverWholeStream_When_Split() throws IOException {
+        // Given
+        byte[] content = new byte[300 * 1024];
+        new Random(7).nextBytes(content);
+        ContentDefinedChunker chunker = new ContentDefinedChunker(4096);
+        ByteArrayInputStream reassembled = new ByteArrayInputStream(content);
+
+        // When
+        long total = chunker.split(new ByteArrayInputStream(content), (buffer, offset, length) -> {
+            assertTrue(length <= chunker.getMaxSize());
+            byte[] expected = reassembled.readNBytes(length);
+            for (int i = 0; i < length; i++) {
+                assertEquals(expected[i], buffer[offset + i]);
+            }
+        });
+
+        // Then
+        assertEquals(content.length, total);
+        assertEquals(0, reassembled.available());
+    }
+}
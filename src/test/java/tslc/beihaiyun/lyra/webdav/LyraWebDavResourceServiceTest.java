@@ -15,13 +15,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.Folder;
 import tslc.beihaiyun.lyra.entity.Space;
 import tslc.beihaiyun.lyra.entity.User;
 import tslc.beihaiyun.lyra.repository.SpaceRepository;
@@ -61,6 +69,9 @@ class LyraWebDavResourceServiceTest {
     @Mock
     private VersionService versionService;
 
+    @Mock
+    private WebDavPathIndex pathIndex;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -72,7 +83,7 @@ class LyraWebDavResourceServiceTest {
     @BeforeEach
     void setUp() {
         resourceService = new LyraWebDavResourceService(
-                userService, fileService, folderService, storageService, spaceRepository, versionService);
+                userService, fileService, folderService, storageService, spaceRepository, versionService, pathIndex);
 
         // 准备测试用户
         testUser = new User();
@@ -305,6 +316,36 @@ class LyraWebDavResourceServiceTest {
         assertTrue(hasEnterprise);
     }
 
+    @Test
+    @DisplayName("请求上下文内同一路径只解析一次")
+    void should_ResolvePathOnce_When_InsideRequestContext() {
+        // Given
+        String path = "/webdav/personal/myspace";
+        LyraUserPrincipal principal = LyraUserPrincipal.builder()
+                .id(testUser.getId())
+                .username(testUser.getUsername())
+                .password("")
+                .authorities(List.of())
+                .build();
+        when(securityContext.getAuthentication()).thenReturn(new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities()));
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(spaceRepository.findByOwnerAndType(testUser, Space.SpaceType.PERSONAL)).thenReturn(List.of(testSpace));
+
+        // When
+        try (WebDavRequestContext ignored = WebDavRequestContext.open()) {
+            assertTrue(resourceService.resourceExists(path));
+            assertTrue(resourceService.isDirectory(path + "/"));
+            assertTrue(resourceService.getSpace(path).isPresent());
+            assertTrue(resourceService.getFileEntity(path).isEmpty());
+        }
+
+        // Then
+        verify(userService, times(1)).findById(1L);
+        verify(spaceRepository, times(1)).findByOwnerAndType(testUser, Space.SpaceType.PERSONAL);
+        assertNull(WebDavRequestContext.current());
+    }
+
     @Test
     @DisplayName("列出非目录内容")
     void testListNonDirectoryContent() {
@@ -374,6 +415,72 @@ class LyraWebDavResourceServiceTest {
         assertFalse(result);
     }
 
+    @Test
+    @DisplayName("复制资源 - 源与目标相同时拒绝且不删除任何资源")
+    void should_RejectWithoutDeleting_When_CopyOntoItself() {
+        // Given
+        mockAuthenticatedUser();
+        FileEntity file = createFile(5L, "a.txt");
+        when(fileService.getFileByPath(testSpace, "a.txt")).thenReturn(Optional.of(file));
+
+        // When
+        LyraWebDavResourceService.CopyStatus status = resourceService.copyResource(
+                "/webdav/personal/myspace/a.txt", "/webdav/personal/myspace/a.txt", true, true);
+
+        // Then
+        assertEquals(LyraWebDavResourceService.CopyStatus.FORBIDDEN, status);
+        verify(fileService, never()).deleteFile(anyLong(), anyLong());
+        verify(fileService, never()).permanentDeleteFile(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("复制资源 - 覆盖已有文件时彻底删除目标后再复制")
+    void should_PurgeDestinationBeforeCopy_When_OverwritingFile() {
+        // Given
+        mockAuthenticatedUser();
+        FileEntity source = createFile(5L, "a.txt");
+        FileEntity destination = createFile(6L, "b.txt");
+        when(fileService.getFileByPath(testSpace, "a.txt")).thenReturn(Optional.of(source));
+        when(fileService.getFileByPath(testSpace, "b.txt")).thenReturn(Optional.of(destination));
+        when(fileService.permanentDeleteFile(6L, 1L)).thenReturn(true);
+        when(fileService.copyFile(5L, testSpace, null, "b.txt", 1L))
+                .thenReturn(new FileService.FileOperationResult(true, "文件复制成功", createFile(7L, "b.txt")));
+
+        // When
+        LyraWebDavResourceService.CopyStatus status = resourceService.copyResource(
+                "/webdav/personal/myspace/a.txt", "/webdav/personal/myspace/b.txt", true, true);
+
+        // Then
+        assertEquals(LyraWebDavResourceService.CopyStatus.OVERWRITTEN, status);
+        InOrder inOrder = inOrder(fileService);
+        inOrder.verify(fileService).permanentDeleteFile(6L, 1L);
+        inOrder.verify(fileService).copyFile(5L, testSpace, null, "b.txt", 1L);
+        verify(fileService, never()).deleteFile(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("复制资源 - 覆盖源文件所在的上级文件夹时拒绝")
+    void should_Reject_When_OverwritingAncestorOfSource() {
+        // Given
+        mockAuthenticatedUser();
+        Folder docs = new Folder();
+        docs.setId(3L);
+        docs.setName("docs");
+        docs.setPath("/docs");
+        FileEntity file = createFile(5L, "a.txt");
+        file.setFolder(docs);
+        when(fileService.getFileByPath(testSpace, "docs/a.txt")).thenReturn(Optional.of(file));
+        when(folderService.getFolderByPath(testSpace, "docs")).thenReturn(Optional.of(docs));
+
+        // When
+        LyraWebDavResourceService.CopyStatus status = resourceService.copyResource(
+                "/webdav/personal/myspace/docs/a.txt", "/webdav/personal/myspace/docs", true, true);
+
+        // Then
+        assertEquals(LyraWebDavResourceService.CopyStatus.FORBIDDEN, status);
+        verify(fileService, never()).permanentDeleteFolder(anyLong(), anyLong());
+    }
+
     @Test
     @DisplayName("WebDavPathInfo toString方法")
     void testWebDavPathInfoToString() {
@@ -415,4 +522,28 @@ class LyraWebDavResourceServiceTest {
         assertEquals(size, resource.getSize());
         assertEquals(lastModified, resource.getLastModified());
     }
-} 
\ No newline at end of file
+
+    private void mockAuthenticatedUser() {
+        LyraUserPrincipal principal = LyraUserPrincipal.builder()
+                .id(testUser.getId())
+                .username(testUser.getUsername())
+                .password("")
+                .authorities(List.of())
+                .build();
+        when(securityContext.getAuthentication()).thenReturn(new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities()));
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(spaceRepository.findByOwnerAndType(testUser, Space.SpaceType.PERSONAL)).thenReturn(List.of(testSpace));
+    }
+
+    private FileEntity createFile(Long id, String name) {
+        FileEntity file = new FileEntity();
+        file.setId(id);
+        file.setName(name);
+        file.setPath(name);
+        file.setSpace(testSpace);
+        file.setFileHash("hash-" + id);
+        file.setSizeBytes(12L);
+        return file;
+    }
+}
@@ -0,0 +1,163 @@
+package tslc.beihaiyun.lyra.webdav;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.repository.FileEntityRepository;
+import tslc.beihaiyun.lyra.repository.FolderRepository;
+import tslc.beihaiyun.lyra.service.FileChangedEvent;
+import tslc.beihaiyun.lyra.service.FolderChangedEvent;
+
+/**
+ * WebDavPathIndex 单元测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WebDavPathIndex 单元测试")
+class WebDavPathIndexTest {
+
+    @Mock
+    private FolderRepository folderRepository;
+
+    @Mock
+    private FileEntityRepository fileEntityRepository;
+
+    private LyraProperties lyraProperties;
+    private WebDavPathIndex pathIndex;
+    private Space testSpace;
+
+    @BeforeEach
+    void setUp() {
+        lyraProperties = new LyraProperties();
+        pathIndex = new WebDavPathIndex(folderRepository, fileEntityRepository, lyraProperties);
+
+        testSpace = new Space();
+        testSpace.setId(1L);
+        testSpace.setName("myspace");
+    }
+
+    private void givenSpaceContents() {
+        List<Object[]> folders = new ArrayList<>();
+        folders.add(new Object[]{10L, "/Docs"});
+        folders.add(new Object[]{11L, "/Docs/Reports"});
+        List<Object[]> files = new ArrayList<>();
+        files.add(new Object[]{100L, "/Docs/Reports/Q1.pdf"});
+        files.add(new Object[]{101L, "readme.txt"});
+        when(folderRepository.countBySpace(testSpace)).thenReturn(2L);
+        when(fileEntityRepository.countBySpace(testSpace)).thenReturn(2L);
+        when(folderRepository.findIdAndPathBySpace(testSpace)).thenReturn(folders);
+        when(fileEntityRepository.findIdAndPathBySpace(testSpace)).thenReturn(files);
+    }
+
+    @Test
+    @DisplayName("首次解析时构建索引，之后不再查询数据库")
+    void should_ResolveFromIndex_When_SpaceIndexed() {
+        // Given
+        givenSpaceContents();
+
+        // When
+        Optional<WebDavPathIndex.Entry> folder = pathIndex.resolve(testSpace, "Docs/Reports", false);
+        Optional<WebDavPathIndex.Entry> file = pathIndex.resolve(testSpace, "Docs/Reports/Q1.pdf", false);
+        Optional<WebDavPathIndex.Entry> rootFile = pathIndex.resolve(testSpace, "/readme.txt", false);
+        Optional<WebDavPathIndex.Entry> missing = pathIndex.resolve(testSpace, "Docs/missing.txt", false);
+
+        // Then
+        assertEquals(11L, folder.get().getFolderId());
+        assertNull(folder.get().getFileId());
+        assertEquals(100L, file.get().getFileId());
+        assertEquals(101L, rootFile.get().getFileId());
+        assertFalse(missing.isPresent());
+        verify(folderRepository, times(1)).findIdAndPathBySpace(testSpace);
+        verify(fileEntityRepository, times(1)).findIdAndPathBySpace(testSpace);
+    }
+
+    @Test
+    @DisplayName("Windows 客户端按不区分大小写解析路径")
+    void should_ResolveIgnoringCase_When_RequestedByClient() {
+        // Given
+        givenSpaceContents();
+
+        // When & Then
+        assertFalse(pathIndex.resolve(testSpace, "docs/reports/q1.PDF", false).isPresent());
+        assertEquals(100L, pathIndex.resolve(testSpace, "docs/reports/q1.PDF", true).get().getFileId());
+    }
+
+    @Test
+    @DisplayName("文件变更事件增量更新索引")
+    void should_UpdateIndexIncrementally_When_FileChanged() {
+        // Given
+        givenSpaceContents();
+        pathIndex.resolve(testSpace, "readme.txt", false);
+        FileEntity moved = new FileEntity("readme.txt", "readme.txt", "/Docs/readme.txt", testSpace, 1L, "ab/cd");
+        moved.setId(101L);
+        FileEntity created = new FileEntity("new.txt", "new.txt", "/Docs/new.txt", testSpace, 1L, "ef/gh");
+        created.setId(102L);
+
+        // When
+        pathIndex.onFileChanged(FileChangedEvent.relocated(moved, 1L, "readme.txt"));
+        pathIndex.onFileChanged(FileChangedEvent.created(created));
+
+        // Then
+        assertFalse(pathIndex.resolve(testSpace, "readme.txt", false).isPresent());
+        assertEquals(101L, pathIndex.resolve(testSpace, "Docs/readme.txt", false).get().getFileId());
+        assertEquals(102L, pathIndex.resolve(testSpace, "Docs/new.txt", false).get().getFileId());
+        verify(fileEntityRepository, times(1)).findIdAndPathBySpace(testSpace);
+    }
+
+    @Test
+    @DisplayName("文件夹变更使空间索引失效并在下次访问时重建")
+    void should_RebuildIndex_When_FolderChanged() {
+        // Given
+        givenSpaceContents();
+        pathIndex.resolve(testSpace, "Docs", false);
+
+        // When
+        pathIndex.onFolderChanged(new FolderChangedEvent(10L, 1L));
+        boolean found = pathIndex.resolve(testSpace, "Docs", false).isPresent();
+
+        // Then
+        assertTrue(found);
+        verify(folderRepository, times(2)).findIdAndPathBySpace(testSpace);
+    }
+
+    @Test
+    @DisplayName("空间条目超过上限时不建立索引")
+    void should_SkipIndex_When_SpaceTooLarge() {
+        // Given
+        lyraProperties.getWebdav().setPathIndexMaxEntries(3);
+        when(folderRepository.countBySpace(testSpace)).thenReturn(2L);
+        when(fileEntityRepository.countBySpace(testSpace)).thenReturn(2L);
+
+        // When
+        Optional<WebDavPathIndex.Entry> first = pathIndex.resolve(testSpace, "Docs", false);
+        Optional<WebDavPathIndex.Entry> second = pathIndex.resolve(testSpace, "Docs", false);
+
+        // Then
+        assertFalse(first.isPresent());
+        assertFalse(second.isPresent());
+        verify(folderRepository, times(1)).countBySpace(testSpace);
+        verify(folderRepository, never()).findIdAndPathBySpace(testSpace);
+    }
+}
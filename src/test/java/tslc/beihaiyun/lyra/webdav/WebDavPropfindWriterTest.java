@@ -0,0 +1,224 @@
+package tslc.beihaiyun.lyra.webdav;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tslc.beihaiyun.lyra.config.LyraProperties;
+import tslc.beihaiyun.lyra.entity.FileEntity;
+import tslc.beihaiyun.lyra.entity.Folder;
+import tslc.beihaiyun.lyra.entity.Space;
+import tslc.beihaiyun.lyra.service.FolderService;
+import tslc.beihaiyun.lyra.service.FolderService.ChildPage;
+import tslc.beihaiyun.lyra.service.FolderService.FolderChild;
+import tslc.beihaiyun.lyra.service.VersionService;
+import tslc.beihaiyun.lyra.service.VersionService.VersionSummary;
+
+/**
+ * WebDavPropfindWriter 单元测试
+ *
+ * @author SkyFrost
+ * @version 1.0.0
+ * @since 2025-07-20
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WebDavPropfindWriter 单元测试")
+class WebDavPropfindWriterTest {
+
+    private static final String SPACE_HREF = "/webdav/personal/myspace";
+
+    @Mock
+    private FolderService folderService;
+
+    @Mock
+    private VersionService versionService;
+
+    @Mock
+    private LyraWebDavResourceService resourceService;
+
+    private LyraProperties lyraProperties;
+    private WebDavPropfindWriter propfindWriter;
+
+    private Space testSpace;
+    private Folder docsFolder;
+    private FileEntity reportFile;
+
+    @BeforeEach
+    void setUp() {
+        lyraProperties = new LyraProperties();
+        propfindWriter = new WebDavPropfindWriter(folderService, versionService, resourceService, lyraProperties);
+
+        testSpace = new Space();
+        testSpace.setId(1L);
+        testSpace.setName("myspace");
+        testSpace.setType(Space.SpaceType.PERSONAL);
+
+        docsFolder = new Folder("docs", "docs", testSpace);
+        docsFolder.setId(10L);
+        docsFolder.setIsRoot(true);
+
+        reportFile = new FileEntity("年度 报告.pdf", "年度 报告.pdf", "docs/年度 报告.pdf", testSpace, 2048L, "ab/cd");
+        reportFile.setId(100L);
+        reportFile.setFolder(docsFolder);
+        reportFile.setMimeType("application/pdf");
+        reportFile.setFileHash("abc123");
+        reportFile.setUpdatedAt(LocalDateTime.of(2025, 7, 1, 8, 30));
+    }
+
+    @Test
+    @DisplayName("Depth: infinity 时逐层流式写出整棵子树")
+    void should_StreamWholeSubtree_When_DepthInfinity() throws Exception {
+        // Given
+        FileEntity readme = new FileEntity("readme.txt", "readme.txt", "readme.txt", testSpace, 12L, "ef/gh");
+        readme.setId(101L);
+        readme.setMimeType("text/markdown");
+        when(folderService.listChildren(eq(testSpace), isNull(), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(docsFolder)), "next"));
+        when(folderService.listChildren(eq(testSpace), isNull(), eq("next"), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(readme)), null));
+        when(folderService.listChildren(eq(testSpace), eq(docsFolder), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(reportFile)), null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        int written = propfindWriter.write(LyraResource.fromSpace(testSpace, SPACE_HREF), SPACE_HREF + "/",
+                                           WebDavPropfindWriter.DEPTH_INFINITY, false, out);
+
+        // Then
+        String xml = out.toString(StandardCharsets.UTF_8);
+        assertEquals(4, written);
+        assertTrue(xml.contains("<D:href>" + SPACE_HREF + "/docs/%E5%B9%B4%E5%BA%A6%20%E6%8A%A5%E5%91%8A.pdf</D:href>"));
+        assertTrue(xml.contains("<D:displayname>年度 报告.pdf</D:displayname>"));
+        assertTrue(xml.contains("<D:getcontentlength>2048</D:getcontentlength>"));
+        assertTrue(xml.contains("<D:getcontenttype>application/pdf</D:getcontenttype>"));
+        assertTrue(xml.contains("<D:getcontenttype>text/markdown</D:getcontenttype>"));
+        assertTrue(xml.contains("<D:getetag>\"abc123\"</D:getetag>"));
+        assertTrue(xml.contains("GMT</D:getlastmodified>"));
+        assertTrue(xml.contains("<D:href>" + SPACE_HREF + "/</D:href>"));
+        assertTrue(xml.indexOf(SPACE_HREF + "/docs/</D:href>") < xml.indexOf(SPACE_HREF + "/readme.txt</D:href>"));
+        assertTrue(xml.trim().endsWith("</D:multistatus>"));
+    }
+
+    @Test
+    @DisplayName("资源数达到上限时以507截断响应")
+    void should_TruncateWith507_When_ResourceLimitReached() throws Exception {
+        // Given
+        lyraProperties.getWebdav().setPropfindMaxResources(2);
+        when(folderService.listChildren(eq(testSpace), isNull(), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(docsFolder)), null));
+        when(folderService.listChildren(eq(testSpace), eq(docsFolder), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(reportFile)), null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        int written = propfindWriter.write(LyraResource.fromSpace(testSpace, SPACE_HREF), SPACE_HREF,
+                                           WebDavPropfindWriter.DEPTH_INFINITY, false, out);
+
+        // Then
+        String xml = out.toString(StandardCharsets.UTF_8);
+        assertEquals(2, written);
+        assertTrue(xml.contains("<D:href>" + SPACE_HREF + "</D:href><D:status>HTTP/1.1 507 Insufficient Storage"));
+        assertFalse(xml.contains("<D:getcontentlength>2048</D:getcontentlength>"));
+        assertTrue(xml.trim().endsWith("</D:multistatus>"));
+    }
+
+    @Test
+    @DisplayName("Depth: 1 时只写出直接子资源")
+    void should_WriteDirectChildrenOnly_When_DepthOne() throws Exception {
+        // Given
+        when(folderService.listChildren(eq(testSpace), isNull(), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(docsFolder)), null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        int written = propfindWriter.write(LyraResource.fromSpace(testSpace, SPACE_HREF), SPACE_HREF, 1, false, out);
+
+        // Then
+        assertEquals(2, written);
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("报告"));
+    }
+
+    @Test
+    @DisplayName("请求版本属性时按页一次批量查询版本摘要")
+    void should_BatchVersionSummariesPerPage_When_VersionPropertiesRequested() throws Exception {
+        // Given
+        FileEntity readme = new FileEntity("readme.txt", "readme.txt", "readme.txt", testSpace, 12L, "ef/gh");
+        readme.setId(101L);
+        when(folderService.listChildren(eq(testSpace), isNull(), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(docsFolder), FolderChild.of(readme)), null));
+        when(versionService.getVersionSummaries(List.of(101L)))
+                .thenReturn(Map.of(101L, new VersionSummary(3L, 3, "第三版", LocalDateTime.of(2025, 7, 2, 9, 0))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        propfindWriter.write(LyraResource.fromSpace(testSpace, SPACE_HREF), SPACE_HREF, 1, true, out);
+
+        // Then
+        String xml = out.toString(StandardCharsets.UTF_8);
+        assertTrue(xml.contains("<lyra:version-number>3</lyra:version-number>"));
+        assertTrue(xml.contains("<lyra:total-versions>3</lyra:total-versions>"));
+        assertTrue(xml.contains("<lyra:version-comment>第三版</lyra:version-comment>"));
+        verify(versionService, times(1)).getVersionSummaries(any());
+    }
+
+    @Test
+    @DisplayName("未请求版本属性时不查询版本")
+    void should_SkipVersionQuery_When_VersionPropertiesNotRequested() throws Exception {
+        // Given
+        when(folderService.listChildren(eq(testSpace), isNull(), isNull(), anyInt()))
+                .thenReturn(new ChildPage(List.of(FolderChild.of(reportFile)), null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        propfindWriter.write(LyraResource.fromSpace(testSpace, SPACE_HREF), SPACE_HREF, 1, false, out);
+
+        // Then
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("lyra:version-number"));
+        verify(versionService, never()).getVersionSummaries(any());
+    }
+
+    @Test
+    @DisplayName("只有请求体点名 lyra 属性时才请求版本属性")
+    void should_DetectVersionProperties_When_RequestBodyNamesLyraProperty() throws Exception {
+        String allprop = "<?xml version=\"1.0\"?><D:propfind xmlns:D=\"DAV:\"><D:allprop/></D:propfind>";
+        String lyraProp = "<D:propfind xmlns:D=\"DAV:\" xmlns:L=\"" + WebDavPropfindWriter.LYRA_NAMESPACE
+                + "\"><D:prop><D:displayname/><L:version-number/></D:prop></D:propfind>";
+
+        assertFalse(WebDavPropfindWriter.requestsVersionProperties(new ByteArrayInputStream(new byte[0])));
+        assertFalse(WebDavPropfindWriter.requestsVersionProperties(
+                new ByteArrayInputStream(allprop.getBytes(StandardCharsets.UTF_8))));
+        assertTrue(WebDavPropfindWriter.requestsVersionProperties(
+                new ByteArrayInputStream(lyraProp.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    @DisplayName("解析Depth请求头")
+    void should_ParseDepthHeader_When_ValueGiven() {
+        assertEquals(0, WebDavPropfindWriter.parseDepth("0"));
+        assertEquals(1, WebDavPropfindWriter.parseDepth("1"));
+        assertEquals(WebDavPropfindWriter.DEPTH_INFINITY, WebDavPropfindWriter.parseDepth("Infinity"));
+        assertEquals(WebDavPropfindWriter.DEPTH_INFINITY, WebDavPropfindWriter.parseDepth(null));
+        assertEquals(WebDavPropfindWriter.DEPTH_INVALID, WebDavPropfindWriter.parseDepth("2"));
+    }
+}